@@ -15,15 +15,19 @@ package org.omnifaces.ai;
 import static java.util.Collections.emptyMap;
 import static java.util.Objects.requireNonNull;
 import static java.util.Optional.ofNullable;
+import static java.util.function.Predicate.not;
 import static java.util.stream.Collectors.toUnmodifiableMap;
 import static org.omnifaces.ai.helper.TextHelper.isBlank;
 import static org.omnifaces.ai.helper.TextHelper.requireNonBlank;
 import static org.omnifaces.ai.helper.TextHelper.stripToNull;
 
 import java.io.Serializable;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 
+import org.omnifaces.ai.service.ApiKeyPoolAIService;
+
 /**
  * Configuration for AI services.
  * <p>
@@ -57,6 +61,14 @@ public final record AIConfig(String provider, String apiKey, String model, Strin
     /** Configuration property key for the API key: {@value}. */
     public static final String PROPERTY_API_KEY = PROPERTY_PREFIX + "API_KEY";
 
+    /**
+     * Configuration property key for a pool of comma separated API keys: {@value}. E.g. {@code k1,k2,k3}. When present,
+     * {@link #createService()} creates an {@link ApiKeyPoolAIService} which spreads the calls across one AI service per API key, least
+     * recently throttled API key first. This takes precedence over {@link #PROPERTY_API_KEY}.
+     * @since 1.2
+     */
+    public static final String PROPERTY_API_KEYS = PROPERTY_PREFIX + "API_KEYS";
+
     /** Configuration property key for the AI model: {@value}. */
     public static final String PROPERTY_MODEL = PROPERTY_PREFIX + "MODEL";
 
@@ -66,6 +78,113 @@ public final record AIConfig(String provider, String apiKey, String model, Strin
     /** Configuration property key for the AI chat prompt: {@value}. */
     public static final String PROPERTY_PROMPT = PROPERTY_PREFIX + "PROMPT";
 
+    /**
+     * Configuration property key for the default timeout of a single call to the AI service: {@value}. E.g. {@code 10} or {@code 1m30s}.
+     * This is the time budget of the whole call, including any time spent in queues, in rate limit delays and in retries. It can be
+     * overridden per chat call via {@link org.omnifaces.ai.model.ChatOptions#getTimeout()}. When absent, a call is only limited by the
+     * timeout of each individual HTTP request attempt.
+     * @since 1.2
+     */
+    public static final String PROPERTY_TIMEOUT = PROPERTY_PREFIX + "TIMEOUT";
+
+    /**
+     * Configuration property key for the client-side limit of requests per minute: {@value}. This is shared by all services of the same AI
+     * provider and API key within the JVM, or beyond via {@link #PROPERTY_RATE_LIMIT_STORE}. When absent, requests are not paced by
+     * requests per minute.
+     * @since 1.2
+     */
+    public static final String PROPERTY_RPM = PROPERTY_PREFIX + "RPM";
+
+    /**
+     * Configuration property key for the client-side limit of tokens per minute: {@value}. This is shared by all services of the same AI
+     * provider and API key within the JVM, or beyond via {@link #PROPERTY_RATE_LIMIT_STORE}. The tokens of a request are estimated from
+     * its payload size and settled against the actual token usage reported in the response. When absent, requests are not paced by tokens
+     * per minute.
+     * @since 1.2
+     */
+    public static final String PROPERTY_TPM = PROPERTY_PREFIX + "TPM";
+
+    /**
+     * Configuration property key for the store wherein the client-side rate limits of {@link #PROPERTY_RPM} and {@link #PROPERTY_TPM} are
+     * kept: {@value}. This can be {@code memory} in order to share the rate limits within the JVM, or a {@code file:} URI of a directory in
+     * order to share the rate limits with all JVMs on the same host which use the same directory, e.g. {@code file:///var/tmp/omnihai}, or
+     * the fully qualified name of a custom {@link AIRateLimitStore} implementation, e.g. backed by Redis or Hazelcast. Permits are leased
+     * from the store in batches, so that most requests never touch the store. When absent, {@code memory} is assumed.
+     * @since 1.2
+     */
+    public static final String PROPERTY_RATE_LIMIT_STORE = PROPERTY_PREFIX + "RATE_LIMIT_STORE";
+
+    /**
+     * Configuration property key for the latency percentile after which a deterministic chat request is hedged: {@value}. E.g. {@code 95}
+     * sends a second identical chat request when the first one did not complete within the 95th percentile of the latencies of recent
+     * deterministic chat requests, and the first successful response wins. The extra traffic is capped at a few percent. When absent,
+     * requests are not hedged.
+     * @since 1.2
+     */
+    public static final String PROPERTY_HEDGE_PERCENTILE = PROPERTY_PREFIX + "HEDGE_PERCENTILE";
+
+    /**
+     * Configuration property key for the maximum amount of concurrent requests of a single AI service instance: {@value}. Any further
+     * request waits in a queue, wherein the requests of a higher {@link org.omnifaces.ai.model.ChatOptions.Priority} always go first. When
+     * absent, requests are not limited.
+     * @since 1.2
+     */
+    public static final String PROPERTY_MAX_CONCURRENT_REQUESTS = PROPERTY_PREFIX + "MAX_CONCURRENT_REQUESTS";
+
+    /**
+     * Configuration property key for the maximum amount of queued requests of a single AI service instance: {@value}. Any further request
+     * fails fast with {@link org.omnifaces.ai.exception.AIBulkheadFullException}. This only has effect in combination with
+     * {@link #PROPERTY_MAX_CONCURRENT_REQUESTS}. When absent, the queue is unbounded.
+     * @since 1.2
+     */
+    public static final String PROPERTY_MAX_QUEUED_REQUESTS = PROPERTY_PREFIX + "MAX_QUEUED_REQUESTS";
+
+    /**
+     * Configuration property key for enabling adaptive concurrency limiting: {@value}. When {@code true}, the limit of concurrent requests
+     * to the endpoint is continuously adapted to the capacity which the AI provider has at the moment: it is raised while latency stays
+     * flat, and lowered on rising latency, rate limit errors, server errors and timeouts. Any request beyond the limit waits in a queue.
+     * This is shared by all services of the same endpoint and API key within the JVM which have it enabled. When absent, requests are not
+     * adaptively limited.
+     * @since 1.2
+     */
+    public static final String PROPERTY_ADAPTIVE_CONCURRENCY = PROPERTY_PREFIX + "ADAPTIVE_CONCURRENCY";
+
+    /**
+     * Configuration property key for the time to live of cached responses: {@value}. E.g. {@code 10m} or {@code 1h}. When present, the
+     * successful responses of non-streaming chat requests with a temperature of
+     * {@link org.omnifaces.ai.model.ChatOptions#DETERMINISTIC_TEMPERATURE}, such as translation, language detection, proofreading and
+     * moderation, and of chat requests whose {@link org.omnifaces.ai.model.ChatOptions#isCacheable()} is {@code true}, are cached in
+     * memory, so that an identical request is answered without being sent. This is shared by all services with the same response cache
+     * configuration within the JVM, but a cached response is only served to a service with the same API key, unless
+     * {@link #PROPERTY_RESPONSE_CACHE_SHARED_ACROSS_API_KEYS} is {@code true}. When absent, responses are not cached.
+     * @since 1.2
+     */
+    public static final String PROPERTY_RESPONSE_CACHE_TTL = PROPERTY_PREFIX + "RESPONSE_CACHE_TTL";
+
+    /**
+     * Configuration property key for the maximum amount of cached responses: {@value}. Once exceeded, the least recently used responses
+     * are evicted. This only has effect in combination with {@link #PROPERTY_RESPONSE_CACHE_TTL}. When absent, {@code 1000} is assumed.
+     * @since 1.2
+     */
+    public static final String PROPERTY_RESPONSE_CACHE_MAX_ENTRIES = PROPERTY_PREFIX + "RESPONSE_CACHE_MAX_ENTRIES";
+
+    /**
+     * Configuration property key for the maximum size of cached responses in bytes: {@value}. The size of a response is estimated at two
+     * bytes per character. Once exceeded, the least recently used responses are evicted. This only has effect in combination with
+     * {@link #PROPERTY_RESPONSE_CACHE_TTL}. When absent, {@code 16777216} (16 MiB) is assumed.
+     * @since 1.2
+     */
+    public static final String PROPERTY_RESPONSE_CACHE_MAX_BYTES = PROPERTY_PREFIX + "RESPONSE_CACHE_MAX_BYTES";
+
+    /**
+     * Configuration property key for whether cached responses are shared across API keys: {@value}. When {@code true}, a response cached
+     * for one API key is also served to a service with another API key, so that the latter does not pay for it again, but it then also
+     * does not get to see that its own API key is invalid, revoked or lacks access. Only enable this when all API keys belong to the same
+     * tenant. This only has effect in combination with {@link #PROPERTY_RESPONSE_CACHE_TTL}. When absent, {@code false} is assumed.
+     * @since 1.2
+     */
+    public static final String PROPERTY_RESPONSE_CACHE_SHARED_ACROSS_API_KEYS = PROPERTY_PREFIX + "RESPONSE_CACHE_SHARED_ACROSS_API_KEYS";
+
     /**
      * Validates and normalizes the record components by stripping whitespace and filtering blank properties.
      *
@@ -283,12 +402,31 @@ public final record AIConfig(String provider, String apiKey, String model, Strin
 
     /**
      * Creates a new AI service instance based on this configuration.
+     * <p>
+     * When {@link #PROPERTY_API_KEYS} is configured with more than one API key, this creates an AI service instance per API key and
+     * returns an {@link ApiKeyPoolAIService} of them.
      *
      * @return The AI service instance.
      * @throws IllegalStateException If the provider is not configured or the service cannot be created.
      * @throws IllegalArgumentException If a custom provider class does not implement {@link AIService} or does not have a public constructor taking {@link AIConfig}.
      */
     public AIService createService() {
+        var apiKeys = property(PROPERTY_API_KEYS);
+
+        if (apiKeys != null) {
+            var keys = Arrays.stream(apiKeys.split(",")).map(String::strip).filter(not(String::isEmpty)).distinct().toList();
+
+            if (keys.isEmpty()) {
+                throw new IllegalStateException(PROPERTY_API_KEYS + " property must contain at least one API key: " + apiKeys);
+            }
+
+            var pooledProperties = new HashMap<>(properties());
+            pooledProperties.remove(PROPERTY_API_KEYS);
+            pooledProperties.remove(PROPERTY_API_KEY);
+            var services = keys.stream().map(key -> new AIConfig(provider(), key, model(), endpoint(), prompt(), strategy(), pooledProperties).createService()).toList();
+            return services.size() == 1 ? services.get(0) : new ApiKeyPoolAIService(services);
+        }
+
         var provider = resolveProvider();
 
         if (provider.getServiceClass() != null) {
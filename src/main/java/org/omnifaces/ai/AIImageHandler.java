@@ -12,11 +12,16 @@
  */
 package org.omnifaces.ai;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.IOException;
+import java.io.InputStream;
 import java.io.Serializable;
 
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.json.JsonObject;
 
+import org.omnifaces.ai.exception.AIException;
 import org.omnifaces.ai.exception.AIResponseException;
 import org.omnifaces.ai.modality.DefaultAIImageHandler;
 import org.omnifaces.ai.model.GenerateImageOptions;
@@ -77,4 +82,22 @@ public interface AIImageHandler extends Serializable {
     default byte[] parseImageContent(String responseBody) throws AIResponseException {
         throw new UnsupportedOperationException("Please implement parseImageContent(String responseBody) method in class " + getClass().getSimpleName());
     }
+
+    /**
+     * Parses image content from the API response body stream of generate image operation. This is used by the
+     * {@link org.omnifaces.ai.service.BaseAIService} so that the (usually large) response body doesn't need to be read into a string first.
+     * @implNote The default implementation reads the stream into a string and delegates to {@link #parseImageContent(String)}.
+     * @param responseBody The API response body stream, usually a JSON object with the AI response, along with some meta data.
+     * @return The extracted image content from the API response body.
+     * @throws AIResponseException If the response cannot be parsed as JSON, contains an error object, or is missing expected image content.
+     * @since 1.2
+     */
+    default byte[] parseImageContent(InputStream responseBody) throws AIResponseException {
+        try (responseBody) {
+            return parseImageContent(new String(responseBody.readAllBytes(), UTF_8));
+        }
+        catch (IOException e) {
+            throw new AIException("Cannot read response body", e);
+        }
+    }
 }
@@ -0,0 +1,58 @@
+/*
+ * Copyright OmniFaces
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.omnifaces.ai;
+
+import java.time.Duration;
+
+import org.omnifaces.ai.service.FileRateLimitStore;
+import org.omnifaces.ai.service.InMemoryRateLimitStore;
+
+/**
+ * Shared store of the client-side rate limits configured via {@link AIConfig#PROPERTY_RPM} and {@link AIConfig#PROPERTY_TPM}.
+ * <p>
+ * Each rate limit is a token bucket with a capacity of one minute worth of the limit, identified by a key. The client-side rate limiter
+ * does not reserve every single request at the store, but leases a batch of permits at once and then hands out the leased permits locally,
+ * so that most requests never touch the store. This makes it feasible to share the rate limits with other JVMs via a slower backend.
+ * <p>
+ * The following implementations are available out of the box, see {@link AIConfig#PROPERTY_RATE_LIMIT_STORE}:
+ * <ul>
+ * <li>{@link InMemoryRateLimitStore} - shares the rate limits within the JVM, this is the default</li>
+ * <li>{@link FileRateLimitStore} - shares the rate limits with all JVMs on the same host via file locks</li>
+ * </ul>
+ * <p>
+ * A custom implementation, e.g. backed by Redis or Hazelcast, must have a public no-arg constructor, and must be thread safe. It must
+ * reserve atomically across all JVMs sharing the backend.
+ *
+ * @author Bauke Scholtz
+ * @since 1.2
+ * @see AIConfig#PROPERTY_RATE_LIMIT_STORE
+ */
+public interface AIRateLimitStore {
+
+    /**
+     * Reserves the given amount of permits from the rate limit identified by the given key. The reservation always succeeds, the
+     * returned delay tells how long the caller has to wait before the reserved permits may be used.
+     * <p>
+     * The recommended algorithm is the generic cell rate algorithm (GCRA): keep track of the theoretical arrival time (TAT) of the next
+     * permit, advance it by {@code permits * 1 minute / permitsPerMinute} from the maximum of the current TAT and now, and return the
+     * amount of time by which the advanced TAT exceeds now plus one minute.
+     *
+     * @param key The key identifying the rate limit. It consists of hexadecimal digits and dashes only, so that it can safely be used as a
+     * file name or as a key of most backends. It does not contain any API key in plain text.
+     * @param permitsPerMinute The amount of permits per minute of the rate limit, always positive.
+     * @param permits The amount of permits to reserve, always positive.
+     * @return The delay after which the reserved permits may be used, or {@link Duration#ZERO} if they may be used immediately.
+     * @throws RuntimeException When the backend is unavailable. The client-side rate limiter will then let the request through.
+     */
+    Duration reserve(String key, long permitsPerMinute, long permits);
+}
@@ -12,6 +12,7 @@
  */
 package org.omnifaces.ai;
 
+import static java.util.concurrent.CompletableFuture.completedFuture;
 import static org.omnifaces.ai.helper.JsonSchemaHelper.buildJsonSchema;
 import static org.omnifaces.ai.helper.JsonSchemaHelper.fromJson;
 import static org.omnifaces.ai.model.ChatOptions.DEFAULT;
@@ -417,10 +418,7 @@ public interface AIService extends Serializable {
      * This method auto-generates a JSON schema from the given type, instructs the AI to return structured output
      * conforming to that schema, and parses the response back into the specified type.
      *
-     * @implNote The default implementation generates a JSON schema via {@link JsonSchemaHelper#buildJsonSchema(Class)},
-     * merges it into the options via {@link ChatOptions#withJsonSchema(jakarta.json.JsonObject)},
-     * delegates to {@link #chatAsync(String, ChatOptions)},
-     * and parses the response via {@link JsonSchemaHelper#fromJson(String, Class)}.
+     * @implNote The default implementation delegates to {@link #chatAsync(ChatInput, ChatOptions, Class)}.
      * @param <T> The target type.
      * @param message The user's message to send to the AI.
      * @param options Chat options (system prompt, temperature, max tokens, etc.).
@@ -433,7 +431,7 @@ public interface AIService extends Serializable {
      * @see JsonSchemaHelper#fromJson(String, Class)
      */
     default <T> CompletableFuture<T> chatAsync(String message, ChatOptions options, Class<T> type) {
-        return chatAsync(message, options.withJsonSchema(buildJsonSchema(type))).thenApply(json -> fromJson(json, type));
+        return chatAsync(ChatInput.newBuilder().message(message).build(), options, type);
     }
 
     /**
@@ -636,6 +634,23 @@ public interface AIService extends Serializable {
      */
     String upload(Attachment attachment) throws AIException;
 
+    /**
+     * Asynchronously uploads a file attachment to the AI provider and retrieves a file ID to attach to chat payload.
+     * <p>
+     * This is used by {@link AITextHandler#buildChatPayloadAsync(AIService, ChatInput, ChatOptions, boolean)} to upload all file
+     * attachments of a chat input concurrently without blocking the caller thread.
+     *
+     * @implNote The default implementation delegates to {@link #upload(Attachment)} and wraps the result in a completed future.
+     * @param attachment The file attachment to upload.
+     * @return A CompletableFuture containing the file ID or URI that can be used to reference the uploaded file attachment in subsequent chat requests.
+     * @throws UnsupportedOperationException if file upload is not supported by the implementation.
+     * @throws AIException if the upload fails.
+     * @since 1.2
+     */
+    default CompletableFuture<String> uploadAsync(Attachment attachment) throws AIException {
+        return completedFuture(upload(attachment));
+    }
+
 
     // Text Analysis Capabilities -------------------------------------------------------------------------------------
 
@@ -1116,6 +1131,17 @@ public interface AIService extends Serializable {
         return false;
     }
 
+    /**
+     * Returns whether this AI service is currently believed to be available. This is a <em>hint</em> which allows callers such as health
+     * checks or failover layers to skip this AI service without sending a request to it, e.g. because its circuit breaker is open.
+     * @implNote The default implementation returns true.
+     * @return Whether this AI service is currently believed to be available.
+     * @since 1.2
+     */
+    default boolean isAvailable() {
+        return true;
+    }
+
     /**
      * Checks whether the given modality is supported by this AI service, which is usually determined by
      * {@link #getModelName()} or {@link #getModelVersion()}.
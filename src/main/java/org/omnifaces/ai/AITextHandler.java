@@ -12,18 +12,29 @@
  */
 package org.omnifaces.ai;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.concurrent.CompletableFuture.completedFuture;
+import static org.omnifaces.ai.helper.JsonHelper.parseJson;
+
+import java.io.IOException;
+import java.io.InputStream;
 import java.io.Serializable;
+import java.util.concurrent.CompletableFuture;
 import java.util.function.Consumer;
 
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.json.JsonObject;
+import jakarta.json.JsonValue;
 
+import org.omnifaces.ai.exception.AIException;
 import org.omnifaces.ai.exception.AIResponseException;
 import org.omnifaces.ai.modality.DefaultAITextHandler;
 import org.omnifaces.ai.model.ChatInput;
+import org.omnifaces.ai.model.ChatInput.Attachment;
 import org.omnifaces.ai.model.ChatOptions;
 import org.omnifaces.ai.model.ModerationOptions;
 import org.omnifaces.ai.model.Sse.Event;
+import org.omnifaces.ai.model.Sse.EventFilter;
 
 /**
  * Handler for text-based AI operations including chat, streaming, text analysis, and content moderation.
@@ -53,6 +64,10 @@ public interface AITextHandler extends Serializable {
 
     /**
      * Builds the JSON request payload for all chat operations.
+     * <p>
+     * Attachment content should preferably be added as {@link org.omnifaces.ai.model.AttachmentSlot} via
+     * {@link org.omnifaces.ai.model.ChatInput.Attachment#toBase64Slot()} or {@link org.omnifaces.ai.model.ChatInput.Attachment#toDataUriSlot()}
+     * instead of as Base64 encoded string, so that it's Base64 encoded on the fly directly into the HTTP request body.
      * @implNote The default implementation throws UnsupportedOperationException.
      * @param service The visiting AI service.
      * @param input The chat input.
@@ -66,6 +81,28 @@ public interface AITextHandler extends Serializable {
         throw new UnsupportedOperationException("Please implement buildChatPayload(AIService service, ChatInput input, ChatOptions options, boolean streaming) method in class " + getClass().getSimpleName());
     }
 
+    /**
+     * Asynchronously builds the JSON request payload for all chat operations.
+     * <p>
+     * This is used by {@link org.omnifaces.ai.service.BaseAIService} for all chat operations. Any file attachments which need to be
+     * uploaded separately should be uploaded concurrently via {@link AIService#uploadAsync(Attachment)}, and their file IDs should be
+     * passed to {@link #buildChatPayload(AIService, ChatInput, ChatOptions, boolean)} via {@link ChatInput#withUploadedFileIds(java.util.Map)},
+     * so that the caller thread is never blocked by uploads.
+     * @implNote The default implementation delegates to {@link #buildChatPayload(AIService, ChatInput, ChatOptions, boolean)} and wraps
+     * the result in a completed future.
+     * @param service The visiting AI service.
+     * @param input The chat input.
+     * @param options The chat options.
+     * @param streaming Whether this is for chat streaming endpoint.
+     * @return A CompletableFuture containing the JSON request payload.
+     * @throws UnsupportedOperationException If streaming is requested but not supported as per {@link AIService#supportsStreaming()},
+     * or if structured output is requested but not supported as per {@link AIService#supportsStructuredOutput()}.
+     * @since 1.2
+     */
+    default CompletableFuture<JsonObject> buildChatPayloadAsync(AIService service, ChatInput input, ChatOptions options, boolean streaming) {
+        return completedFuture(buildChatPayload(service, input, options, streaming));
+    }
+
     /**
      * Processes each stream event for {@link AIService#chatStream(String, ChatOptions, Consumer)}.
      * @implNote The default implementation throws UnsupportedOperationException.
@@ -78,6 +115,19 @@ public interface AITextHandler extends Serializable {
         throw new UnsupportedOperationException("Please implement processStreamEvent(AIService service, Event event, Consumer<String> onToken) method in class " + getClass().getSimpleName());
     }
 
+    /**
+     * Returns the stream events of interest for {@link #processChatStreamEvent(AIService, Event, Consumer)}. All other stream events are
+     * skipped by the SSE decoder before they are decoded, so they never reach {@link #processChatStreamEvent(AIService, Event, Consumer)}.
+     * This is useful for providers which return a lot of irrelevant stream events.
+     * @implNote The default implementation returns {@link EventFilter#ACCEPT_ALL}.
+     * @param service The visiting AI service.
+     * @return The stream events of interest.
+     * @since 1.2
+     */
+    default EventFilter getChatStreamEventFilter(AIService service) {
+        return EventFilter.ACCEPT_ALL;
+    }
+
     /**
      * Returns the default temperature used for creative or interpretative text analysis related operations in
      * {@link AIService}. These operations typically use a moderate temperature (e.g. 0.3-0.7) to allow natural
@@ -150,6 +200,40 @@ public interface AITextHandler extends Serializable {
      */
     String parseChatResponse(String responseBody) throws AIResponseException;
 
+    /**
+     * Parses message content from the API response body stream returned by chat operation. This is used by the
+     * {@link org.omnifaces.ai.service.BaseAIService} so that the response body doesn't need to be read into a string first.
+     * @implNote The default implementation reads the stream into a string and delegates to {@link #parseChatResponse(String)}.
+     * @param responseBody The API response body stream, usually a JSON object with the AI response, along with some meta data.
+     * @return The extracted message content from the API response body.
+     * @throws AIResponseException If the response cannot be parsed as JSON, contains an error object, or is missing expected message content.
+     * @since 1.2
+     */
+    default String parseChatResponse(InputStream responseBody) throws AIResponseException {
+        try (responseBody) {
+            return parseChatResponse(new String(responseBody.readAllBytes(), UTF_8));
+        }
+        catch (IOException e) {
+            throw new AIException("Cannot read response body", e);
+        }
+    }
+
+    /**
+     * Parses structured message content from the API response body stream returned by chat operation with a JSON schema, i.e.
+     * {@link ChatOptions#getJsonSchema()}. This is used by {@link org.omnifaces.ai.service.BaseAIService} for
+     * {@link AIService#chatAsync(ChatInput, ChatOptions, Class)} so that the JSON content can directly be bound to the target type
+     * via {@link org.omnifaces.ai.helper.JsonSchemaHelper#fromJson(JsonValue, Class)} without being parsed once more.
+     * @implNote The default implementation delegates to {@link #parseChatResponse(InputStream)} and parses the result with help of
+     * {@link org.omnifaces.ai.helper.JsonHelper#parseJson(String)}.
+     * @param responseBody The API response body stream, usually a JSON object with the AI response, along with some meta data.
+     * @return The extracted message content from the API response body as JSON value.
+     * @throws AIResponseException If the response cannot be parsed as JSON, contains an error object, or is missing expected message content.
+     * @since 1.2
+     */
+    default JsonValue parseStructuredChatResponse(InputStream responseBody) throws AIResponseException {
+        return parseJson(parseChatResponse(responseBody));
+    }
+
     /**
      * Parses file ID from the API response body of file upload operation.
      * @implNote The default implementation throws UnsupportedOperationException.
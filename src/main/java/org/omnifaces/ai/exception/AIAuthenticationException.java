@@ -13,6 +13,8 @@
 package org.omnifaces.ai.exception;
 
 import java.net.URI;
+import java.util.List;
+import java.util.Map;
 
 /**
  * Exception thrown when the AI API returns HTTP 401 Unauthorized.
@@ -38,4 +40,16 @@ public class AIAuthenticationException extends AIHttpException {
     public AIAuthenticationException(URI uri, String responseBody) {
         super(uri, STATUS_CODE, responseBody);
     }
+
+    /**
+     * Constructs a new authentication exception with the specified HTTP request URI, HTTP response body, and HTTP response headers.
+     *
+     * @param uri The HTTP request URI.
+     * @param responseBody The HTTP response body.
+     * @param responseHeaders The HTTP response headers.
+     * @since 1.2
+     */
+    public AIAuthenticationException(URI uri, String responseBody, Map<String, List<String>> responseHeaders) {
+        super(uri, STATUS_CODE, responseBody, responseHeaders);
+    }
 }
@@ -0,0 +1,39 @@
+/*
+ * Copyright OmniFaces
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.omnifaces.ai.exception;
+
+/**
+ * Exception thrown when a request is not sent at all because the bulkhead of the AI service has no room for it.
+ * <p>
+ * The bulkhead rejects a request when the maximum amount of concurrent requests is reached and its queue is full as well. The request
+ * can be retried after a while, but a batch job should rather slow down, or shed load altogether.
+ *
+ * @author Bauke Scholtz
+ * @since 1.2
+ * @see org.omnifaces.ai.AIConfig#PROPERTY_MAX_CONCURRENT_REQUESTS
+ * @see org.omnifaces.ai.AIConfig#PROPERTY_MAX_QUEUED_REQUESTS
+ */
+public class AIBulkheadFullException extends AIException {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Constructs a new bulkhead full exception with the specified maximum amounts of concurrent and queued requests.
+     *
+     * @param maxConcurrentRequests The maximum amount of concurrent requests.
+     * @param maxQueuedRequests The maximum amount of queued requests.
+     */
+    public AIBulkheadFullException(int maxConcurrentRequests, int maxQueuedRequests) {
+        super("Bulkhead is full, request was not sent: " + maxConcurrentRequests + " requests in flight and " + maxQueuedRequests + " requests queued");
+    }
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright OmniFaces
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.omnifaces.ai.exception;
+
+import static java.util.Objects.requireNonNull;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Exception thrown when a request is not sent at all because the circuit breaker of the AI service endpoint is open.
+ * <p>
+ * The circuit breaker opens when too many recent requests to the same endpoint host failed or were too slow. While open, requests fail
+ * fast with this exception instead of waiting for timeouts and retries. This exception is therefore never retried by the built-in AI
+ * services. The {@link #getRetryAfter()} returns how long it takes until the circuit breaker allows probe requests again. As no request
+ * was sent, there is no HTTP response; the status code is {@value AIServiceUnavailableException#STATUS_CODE} as if the service reported
+ * itself unavailable.
+ *
+ * @author Bauke Scholtz
+ * @since 1.2
+ */
+public class AICircuitBreakerOpenException extends AIServiceUnavailableException {
+
+    private static final long serialVersionUID = 1L;
+
+    /** How long it takes until the circuit breaker allows probe requests again. */
+    private final Duration retryAfter;
+
+    /**
+     * Constructs a new circuit breaker open exception with the specified HTTP request URI and the time until the circuit breaker allows
+     * probe requests again.
+     *
+     * @param uri The HTTP request URI.
+     * @param retryAfter How long it takes until the circuit breaker allows probe requests again.
+     */
+    public AICircuitBreakerOpenException(URI uri, Duration retryAfter) {
+        super(uri, "Circuit breaker is open, request was not sent");
+        this.retryAfter = requireNonNull(retryAfter, "retryAfter");
+    }
+
+    /**
+     * Returns how long it takes until the circuit breaker allows probe requests again.
+     * @return How long it takes until the circuit breaker allows probe requests again.
+     */
+    @Override
+    public Optional<Duration> getRetryAfter() {
+        return Optional.of(retryAfter);
+    }
+}
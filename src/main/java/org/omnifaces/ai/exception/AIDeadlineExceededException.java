@@ -0,0 +1,55 @@
+/*
+ * Copyright OmniFaces
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.omnifaces.ai.exception;
+
+import static java.util.Objects.requireNonNull;
+
+import java.time.Duration;
+
+/**
+ * Exception thrown when a call to the AI service did not complete within its timeout.
+ * <p>
+ * The timeout is the time budget of the whole call, including any time spent in queues, in rate limit delays and in retries. When it
+ * expires, the in-flight HTTP exchange is aborted, and any queued or pending retry request is not sent anymore. This exception is therefore
+ * never retried by the built-in AI services.
+ *
+ * @author Bauke Scholtz
+ * @since 1.2
+ * @see org.omnifaces.ai.model.ChatOptions#getTimeout()
+ * @see org.omnifaces.ai.AIConfig#PROPERTY_TIMEOUT
+ */
+public class AIDeadlineExceededException extends AIException {
+
+    private static final long serialVersionUID = 1L;
+
+    /** The timeout of the call. */
+    private final Duration timeout;
+
+    /**
+     * Constructs a new deadline exceeded exception with the specified timeout of the call.
+     *
+     * @param timeout The timeout of the call.
+     */
+    public AIDeadlineExceededException(Duration timeout) {
+        super("Call did not complete within timeout of " + requireNonNull(timeout, "timeout").toMillis() + "ms");
+        this.timeout = timeout;
+    }
+
+    /**
+     * Returns the timeout of the call.
+     * @return The timeout of the call.
+     */
+    public Duration getTimeout() {
+        return timeout;
+    }
+}
@@ -22,6 +22,8 @@ import java.util.concurrent.CompletionException;
  * <li>{@link AIHttpException} - HTTP-level errors (4xx/5xx status codes)
  * <li>{@link AIResponseException} - Response content errors (parsing, missing content)
  * <li>{@link AITokenLimitExceededException} - Token limit exceeded error
+ * <li>{@link AIBulkheadFullException} - Bulkhead full error
+ * <li>{@link AIDeadlineExceededException} - Deadline exceeded error
  * </ul>
  *
  * @author Bauke Scholtz
@@ -12,7 +12,22 @@
  */
 package org.omnifaces.ai.exception;
 
+import static java.util.Collections.emptyMap;
+import static java.util.Collections.unmodifiableMap;
+import static java.util.Objects.requireNonNull;
+import static java.util.Optional.ofNullable;
+import static java.util.function.Predicate.not;
+
 import java.net.URI;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+
+import org.omnifaces.ai.helper.TextHelper;
 
 /**
  * Exception thrown when an AI API request fails with an HTTP error status code.
@@ -24,10 +39,10 @@ import java.net.URI;
  * <li>{@link AIAuthorizationException} - 403 Forbidden
  * <li>{@link AIEndpointNotFoundException} - 404 Not Found
  * <li>{@link AIRateLimitExceededException} - 429 Too Many Requests
- * <li>{@link AIServiceUnavailableException} - 503 Service Unavailable
+ * <li>{@link AIServiceUnavailableException} - 503 Service Unavailable, or {@link AICircuitBreakerOpenException} when no request was sent
  * </ul>
  * <p>
- * Use {@link #fromStatusCode(URI, int, String)} to create the appropriate subclass based on HTTP status code.
+ * Use {@link #fromStatusCode(URI, int, String, Map)} to create the appropriate subclass based on HTTP status code.
  *
  * @author Bauke Scholtz
  * @since 1.0
@@ -46,6 +61,9 @@ public class AIHttpException extends AIException {
     /** The HTTP response body. */
     private final String responseBody;
 
+    /** The HTTP response headers. */
+    private final Map<String, List<String>> responseHeaders;
+
     /**
      * Creates and returns the most specific {@link AIHttpException} subclass that matches the given HTTP status code.
      * <p>
@@ -58,14 +76,32 @@ public class AIHttpException extends AIException {
      * @return a subclass of {@link AIHttpException} matching the status code, or a generic {@link AIHttpException}.
      */
     public static AIHttpException fromStatusCode(URI uri, int statusCode, String responseBody) {
+        return fromStatusCode(uri, statusCode, responseBody, emptyMap());
+    }
+
+    /**
+     * Creates and returns the most specific {@link AIHttpException} subclass that matches the given HTTP status code.
+     * <p>
+     * If no specific exception type is defined for the status code, a generic {@link AIHttpException} is returned.
+     * The created exception includes the request URI, status code, response body (when available), and response headers, so that
+     * e.g. rate limit hints can be obtained via {@link #getRetryAfter()}.
+     *
+     * @param uri The URI of the HTTP request that caused the error (used in exception messages).
+     * @param statusCode The HTTP status code returned by the server.
+     * @param responseBody The response body (may be {@code null} or empty).
+     * @param responseHeaders The response headers (may be empty).
+     * @return a subclass of {@link AIHttpException} matching the status code, or a generic {@link AIHttpException}.
+     * @since 1.2
+     */
+    public static AIHttpException fromStatusCode(URI uri, int statusCode, String responseBody, Map<String, List<String>> responseHeaders) {
         return switch (statusCode) {
-            case AIBadRequestException.STATUS_CODE -> new AIBadRequestException(uri, responseBody);
-            case AIAuthenticationException.STATUS_CODE -> new AIAuthenticationException(uri, responseBody);
-            case AIAuthorizationException.STATUS_CODE -> new AIAuthorizationException(uri, responseBody);
-            case AIEndpointNotFoundException.STATUS_CODE -> new AIEndpointNotFoundException(uri, responseBody);
-            case AIRateLimitExceededException.STATUS_CODE -> new AIRateLimitExceededException(uri, responseBody);
-            case AIServiceUnavailableException.STATUS_CODE -> new AIServiceUnavailableException(uri, responseBody);
-            default -> new AIHttpException(uri, statusCode, responseBody);
+            case AIBadRequestException.STATUS_CODE -> new AIBadRequestException(uri, responseBody, responseHeaders);
+            case AIAuthenticationException.STATUS_CODE -> new AIAuthenticationException(uri, responseBody, responseHeaders);
+            case AIAuthorizationException.STATUS_CODE -> new AIAuthorizationException(uri, responseBody, responseHeaders);
+            case AIEndpointNotFoundException.STATUS_CODE -> new AIEndpointNotFoundException(uri, responseBody, responseHeaders);
+            case AIRateLimitExceededException.STATUS_CODE -> new AIRateLimitExceededException(uri, responseBody, responseHeaders);
+            case AIServiceUnavailableException.STATUS_CODE -> new AIServiceUnavailableException(uri, responseBody, responseHeaders);
+            default -> new AIHttpException(uri, statusCode, responseBody, responseHeaders);
         };
     }
 
@@ -77,10 +113,24 @@ public class AIHttpException extends AIException {
      * @param responseBody The HTTP response body.
      */
     public AIHttpException(URI uri, int statusCode, String responseBody) {
+        this(uri, statusCode, responseBody, emptyMap());
+    }
+
+    /**
+     * Constructs a new API exception with the specified URI, status code, response body, and response headers.
+     *
+     * @param uri The HTTP request URI.
+     * @param statusCode The HTTP status code.
+     * @param responseBody The HTTP response body.
+     * @param responseHeaders The HTTP response headers.
+     * @since 1.2
+     */
+    public AIHttpException(URI uri, int statusCode, String responseBody, Map<String, List<String>> responseHeaders) {
         super("HTTP " + statusCode + " at " + URI.create(uri.toString().split("\\?", 2)[0]) + ": " + responseBody);
         this.uri = uri;
         this.statusCode = statusCode;
         this.responseBody = responseBody;
+        this.responseHeaders = copyCaseInsensitive(responseHeaders);
     }
 
     /**
@@ -94,6 +144,13 @@ public class AIHttpException extends AIException {
         this.uri = null;
         this.statusCode = 0;
         this.responseBody = null;
+        this.responseHeaders = emptyMap();
+    }
+
+    private static Map<String, List<String>> copyCaseInsensitive(Map<String, List<String>> headers) {
+        var copy = new TreeMap<String, List<String>>(String.CASE_INSENSITIVE_ORDER);
+        requireNonNull(headers, "responseHeaders").forEach((name, values) -> copy.put(name, List.copyOf(values)));
+        return unmodifiableMap(copy);
     }
 
     /**
@@ -119,4 +176,66 @@ public class AIHttpException extends AIException {
     public String getResponseBody() {
         return responseBody;
     }
+
+    /**
+     * Returns the HTTP response headers. The header names are case insensitive.
+     * @return The HTTP response headers, or an empty map if none are available.
+     * @since 1.2
+     */
+    public Map<String, List<String>> getResponseHeaders() {
+        return responseHeaders;
+    }
+
+    /**
+     * Returns the first value of the HTTP response header with the given name.
+     * @param name The case insensitive header name.
+     * @return The first value of the HTTP response header with the given name, or empty if absent.
+     * @since 1.2
+     */
+    public Optional<String> getResponseHeader(String name) {
+        return ofNullable(responseHeaders.get(name)).flatMap(values -> values.stream().findFirst()).map(String::strip).filter(not(String::isEmpty));
+    }
+
+    /**
+     * Returns how long the AI provider asks to wait before retrying the request, based on the HTTP response headers.
+     * <p>
+     * The following headers are recognized, in this order:
+     * <ul>
+     * <li>{@code retry-after-ms} - milliseconds, e.g. sent by OpenAI and Azure OpenAI
+     * <li>{@code Retry-After} - seconds or HTTP date, e.g. sent by Anthropic
+     * <li>{@code x-ratelimit-reset-requests} and {@code x-ratelimit-reset-tokens} - durations such as {@code 1s} or {@code 6m0s}, plain
+     * seconds, or timestamps, e.g. sent by OpenAI-compatible providers; only the ones whose corresponding {@code x-ratelimit-remaining-*}
+     * header is absent or zero are taken into account, and the longest of those is returned
+     * </ul>
+     * @return How long the AI provider asks to wait before retrying the request, or empty if there is no hint.
+     * @since 1.2
+     */
+    public Optional<Duration> getRetryAfter() {
+        var retryAfterMs = getResponseHeader("retry-after-ms").map(AIHttpException::parseNumber);
+
+        if (retryAfterMs.isPresent()) {
+            return Optional.of(Duration.ofNanos(Math.round(Math.max(0, retryAfterMs.get()) * 1_000_000)));
+        }
+
+        var retryAfter = getResponseHeader("Retry-After").map(TextHelper::parseDuration);
+
+        if (retryAfter.isPresent()) {
+            return retryAfter;
+        }
+
+        return Stream.of("requests", "tokens")
+            .filter(limit -> getResponseHeader("x-ratelimit-remaining-" + limit).map(AIHttpException::parseNumber).map(remaining -> remaining == 0).orElse(true))
+            .map(limit -> getResponseHeader("x-ratelimit-reset-" + limit).map(TextHelper::parseDuration).orElse(null))
+            .filter(Objects::nonNull)
+            .max(Duration::compareTo);
+    }
+
+    private static Double parseNumber(String value) {
+        try {
+            return Double.valueOf(value);
+        }
+        catch (NumberFormatException ignore) {
+            return null;
+        }
+    }
 }
@@ -13,11 +13,15 @@
 package org.omnifaces.ai.exception;
 
 import java.net.URI;
+import java.util.List;
+import java.util.Map;
 
 /**
  * Exception thrown when the AI API returns HTTP 429 Too Many Requests.
  * <p>
  * This indicates the rate limit has been exceeded. Consider implementing retry logic with exponential backoff, or reducing request frequency.
+ * The built-in AI services already retry such requests a limited number of times while honoring {@link #getRetryAfter()}. When this
+ * exception still arrives at the caller, consider reducing request frequency.
  *
  * @author Bauke Scholtz
  * @since 1.0
@@ -38,4 +42,16 @@ public class AIRateLimitExceededException extends AIHttpException {
     public AIRateLimitExceededException(URI uri, String responseBody) {
         super(uri, STATUS_CODE, responseBody);
     }
+
+    /**
+     * Constructs a new rate limit exceeded exception with the specified HTTP request URI, HTTP response body, and HTTP response headers.
+     *
+     * @param uri The HTTP request URI.
+     * @param responseBody The HTTP response body.
+     * @param responseHeaders The HTTP response headers.
+     * @since 1.2
+     */
+    public AIRateLimitExceededException(URI uri, String responseBody, Map<String, List<String>> responseHeaders) {
+        super(uri, STATUS_CODE, responseBody, responseHeaders);
+    }
 }
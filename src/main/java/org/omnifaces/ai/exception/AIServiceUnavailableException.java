@@ -13,11 +13,14 @@
 package org.omnifaces.ai.exception;
 
 import java.net.URI;
+import java.util.List;
+import java.util.Map;
 
 /**
  * Exception thrown when the AI API returns HTTP 503 Service Unavailable.
  * <p>
  * This indicates the AI service is temporarily unavailable, typically due to high load or maintenance. Retry the request after a short delay.
+ * The built-in AI services already retry such requests a limited number of times while honoring {@link #getRetryAfter()}.
  *
  * @author Bauke Scholtz
  * @since 1.0
@@ -38,4 +41,16 @@ public class AIServiceUnavailableException extends AIHttpException {
     public AIServiceUnavailableException(URI uri, String responseBody) {
         super(uri, STATUS_CODE, responseBody);
     }
+
+    /**
+     * Constructs a new service unavailable exception with the specified HTTP request URI, HTTP response body, and HTTP response headers.
+     *
+     * @param uri The HTTP request URI.
+     * @param responseBody The HTTP response body.
+     * @param responseHeaders The HTTP response headers.
+     * @since 1.2
+     */
+    public AIServiceUnavailableException(URI uri, String responseBody, Map<String, List<String>> responseHeaders) {
+        super(uri, STATUS_CODE, responseBody, responseHeaders);
+    }
 }
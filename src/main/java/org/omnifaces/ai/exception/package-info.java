@@ -19,8 +19,11 @@
  * <li>{@link org.omnifaces.ai.exception.AIHttpException} - HTTP-level errors (4xx/5xx responses)</li>
  * <li>{@link org.omnifaces.ai.exception.AIResponseException} - response parsing or content errors</li>
  * <li>{@link org.omnifaces.ai.exception.AITokenLimitExceededException} - input/output token limit exceeded</li>
+ * <li>{@link org.omnifaces.ai.exception.AIBulkheadFullException} - too many concurrent and queued requests</li>
+ * <li>{@link org.omnifaces.ai.exception.AIDeadlineExceededException} - call did not complete within its timeout</li>
  * </ul>
  * HTTP exceptions are further specialized for common error conditions (authentication, authorization, rate limiting,
- * bad request, endpoint not found, service unavailable).
+ * bad request, endpoint not found, service unavailable). The service unavailable exception is further specialized for a circuit breaker
+ * which is open, see {@link org.omnifaces.ai.exception.AICircuitBreakerOpenException}.
  */
 package org.omnifaces.ai.exception;
@@ -12,21 +12,34 @@
  */
 package org.omnifaces.ai.helper;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static java.util.Collections.emptyList;
-import static java.util.function.Predicate.not;
+import static org.omnifaces.ai.helper.JsonProviderHelper.createArrayBuilder;
+import static org.omnifaces.ai.helper.JsonProviderHelper.createObjectBuilder;
+import static org.omnifaces.ai.helper.JsonProviderHelper.createParser;
+import static org.omnifaces.ai.helper.JsonProviderHelper.createReader;
 import static org.omnifaces.ai.helper.TextHelper.isBlank;
 
+import java.io.BufferedInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
 import java.io.StringReader;
-import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiFunction;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
 
-import jakarta.json.Json;
 import jakarta.json.JsonArray;
 import jakarta.json.JsonObject;
 import jakarta.json.JsonObjectBuilder;
 import jakarta.json.JsonString;
 import jakarta.json.JsonValue;
+import jakarta.json.stream.JsonParser;
 
 import org.omnifaces.ai.exception.AIResponseException;
 
@@ -38,6 +51,12 @@ import org.omnifaces.ai.exception.AIResponseException;
  */
 public final class JsonHelper {
 
+    private static final int RESPONSE_BODY_HEAD_SIZE = 4096;
+    private static final int MAX_CACHED_PATHS = 1024;
+    private static final Map<String, JsonPath> CACHED_PATHS = new ConcurrentHashMap<>();
+    private static final int MAX_CACHED_STRICT_SCHEMAS = 256;
+    private static final Map<JsonObject, JsonObject> CACHED_STRICT_SCHEMAS = new ConcurrentHashMap<>();
+
     private JsonHelper() {
         throw new AssertionError();
     }
@@ -76,7 +95,7 @@ public final class JsonHelper {
         try {
             var sanitizedJson = json.substring(json.indexOf('{'), json.lastIndexOf('}') + 1); // Some chat APIs stubbornly put JSON in markdown formatting like ```json\n{...}\n``` when asking for JSON-only output.
 
-            try (var reader = Json.createReader(new StringReader(sanitizedJson))) {
+            try (var reader = createReader(new StringReader(sanitizedJson))) {
                 return reader.readObject();
             }
         }
@@ -85,6 +104,145 @@ public final class JsonHelper {
         }
     }
 
+    /**
+     * Parses given stream to a {@link JsonObject} without reading it into a string first.
+     * <p>
+     * If the stream does not start with a JSON object, e.g. because the JSON is put in markdown formatting like
+     * <code>```json\n{...}\n```</code>, then it falls back to reading the stream into a string and parsing it with
+     * {@link #parseJson(String)}.
+     *
+     * @param json The JSON stream to parse. It will be closed after parsing.
+     * @return The parsed JSON object.
+     * @throws AIResponseException If the stream cannot be parsed as JSON.
+     * @since 1.2
+     */
+    public static JsonObject parseJson(InputStream json) throws AIResponseException {
+        return parseJson(json, null);
+    }
+
+    /**
+     * Parses given stream to a {@link JsonObject} without reading it into a string first, retaining only the values found at the given
+     * dot-separated paths. Any other values are skipped by the parser and not materialized. Non-retained array elements are replaced by
+     * {@link JsonValue#NULL} so that the array indexes are preserved. The given paths can then be found in the returned JSON object with
+     * {@link #findByPath(JsonObject, String)} and friends.
+     * <p>
+     * If the stream does not start with a JSON object, e.g. because the JSON is put in markdown formatting like
+     * <code>```json\n{...}\n```</code>, then it falls back to reading the stream into a string and parsing it with
+     * {@link #parseJson(String)}, in which case all values are retained.
+     *
+     * @param json The JSON stream to parse. It will be closed after parsing.
+     * @param paths The dot-separated paths of values to retain, may contain {@code [index]} or {@code [*]} segments, or {@code null}
+     * to retain all values.
+     * @return The parsed JSON object.
+     * @throws AIResponseException If the stream cannot be parsed as JSON.
+     * @since 1.2
+     */
+    public static JsonObject parseJson(InputStream json, Collection<String> paths) throws AIResponseException {
+        return parseJson(json, paths, (responseJson, responseBody) -> responseJson);
+    }
+
+    private static <T> T parseJson(InputStream json, Collection<String> paths, BiFunction<JsonObject, String, T> contentParser) throws AIResponseException {
+        var head = new HeadInputStream(json);
+        JsonObject responseJson;
+        String responseBody;
+
+        try (var stream = new BufferedInputStream(head)) {
+            if (startsWithObject(stream)) {
+                try (var parser = createParser(stream)) {
+                    var event = parser.next();
+                    responseJson = (JsonObject) (paths == null ? parser.getObject() : readRetained(parser, event, paths.stream().map(path -> compile(path).steps()).toList()));
+                    responseBody = head.head();
+                }
+            }
+            else {
+                responseBody = new String(stream.readAllBytes(), UTF_8);
+                responseJson = parseJson(responseBody);
+            }
+        }
+        catch (AIResponseException e) {
+            throw e;
+        }
+        catch (Exception e) {
+            throw new AIResponseException("Cannot parse json", head.head(), e);
+        }
+
+        return contentParser.apply(responseJson, responseBody);
+    }
+
+    private static boolean startsWithObject(InputStream stream) throws IOException {
+        while (true) {
+            stream.mark(1);
+            var b = stream.read();
+
+            if (b == -1 || !Character.isWhitespace(b)) {
+                stream.reset();
+                return b == '{';
+            }
+        }
+    }
+
+    private static List<List<JsonPath.Step>> nextSteps(List<List<JsonPath.Step>> paths, Predicate<JsonPath.Step> matcher) {
+        return paths.stream().filter(path -> matcher.test(path.get(0))).map(path -> path.subList(1, path.size())).toList();
+    }
+
+    private static JsonValue readRetained(JsonParser parser, JsonParser.Event event, List<List<JsonPath.Step>> paths) {
+        if (paths.stream().anyMatch(List::isEmpty)) {
+            return parser.getValue(); // End of a path reached, so retain the value as a whole.
+        }
+
+        switch (event) {
+            case START_OBJECT:
+                var object = createObjectBuilder();
+
+                while (parser.next() != JsonParser.Event.END_OBJECT) {
+                    var name = parser.getString();
+                    var valueEvent = parser.next();
+                    var nextPaths = nextSteps(paths, step -> step.matches(name));
+
+                    if (nextPaths.isEmpty()) {
+                        skipValue(parser, valueEvent);
+                    }
+                    else {
+                        object.add(name, readRetained(parser, valueEvent, nextPaths));
+                    }
+                }
+
+                return object.build();
+
+            case START_ARRAY:
+                var array = createArrayBuilder();
+                var index = 0;
+                JsonParser.Event elementEvent;
+
+                while ((elementEvent = parser.next()) != JsonParser.Event.END_ARRAY) {
+                    var elementIndex = index++;
+                    var nextPaths = nextSteps(paths, step -> step.matches(elementIndex));
+
+                    if (nextPaths.isEmpty()) {
+                        skipValue(parser, elementEvent);
+                        array.addNull();
+                    }
+                    else {
+                        array.add(readRetained(parser, elementEvent, nextPaths));
+                    }
+                }
+
+                return array.build();
+
+            default:
+                return parser.getValue();
+        }
+    }
+
+    private static void skipValue(JsonParser parser, JsonParser.Event event) {
+        if (event == JsonParser.Event.START_OBJECT) {
+            parser.skipObject();
+        }
+        else if (event == JsonParser.Event.START_ARRAY) {
+            parser.skipArray();
+        }
+    }
+
     /**
      * Parses the response body as JSON and checks for error messages at the specified paths.
      * <p>
@@ -103,6 +261,79 @@ public final class JsonHelper {
         return responseJson;
     }
 
+    /**
+     * Parses the response body stream as JSON, retaining only the values at the specified error message paths and content paths, and
+     * checks for error messages at the specified error message paths.
+     * <p>
+     * If an error message is found at any of the paths, an {@link AIResponseException} is thrown.
+     *
+     * @param responseBody The API response body stream to parse. It will be closed after parsing.
+     * @param errorMessagePaths Paths to check for error messages (e.g., {@code "error.message"}, {@code "error"}).
+     * @param contentPaths Paths of the content to retain (e.g., {@code "choices[0].message.content"}).
+     * @return The parsed JSON object if no errors were found.
+     * @throws AIResponseException If parsing fails or an error message is found.
+     * @since 1.2
+     * @see #parseJson(InputStream, Collection)
+     */
+    public static JsonObject parseAndCheckErrors(InputStream responseBody, List<String> errorMessagePaths, List<String> contentPaths) throws AIResponseException {
+        return parseAndCheckErrors(responseBody, errorMessagePaths, contentPaths, (responseJson, body) -> responseJson);
+    }
+
+    /**
+     * Parses the response body stream as JSON, retaining only the values at the specified error message paths and content paths, checks
+     * for error messages at the specified error message paths, and then extracts the content with the given content parser.
+     * <p>
+     * If an error message is found at any of the paths, an {@link AIResponseException} is thrown. The content parser receives the
+     * retained JSON object along with the response body as far as it is known: the whole body when it had to be read into a string, else
+     * the first {@value #RESPONSE_BODY_HEAD_SIZE} bytes of it. The latter is intended for any {@link AIResponseException} thrown by the
+     * content parser, so that the raw response remains available for debugging.
+     *
+     * @param <T> The content type.
+     * @param responseBody The API response body stream to parse. It will be closed after parsing.
+     * @param errorMessagePaths Paths to check for error messages (e.g., {@code "error.message"}, {@code "error"}).
+     * @param contentPaths Paths of the content to retain (e.g., {@code "choices[0].message.content"}).
+     * @param contentParser Extracts the content from the retained JSON object and the (head of the) response body.
+     * @return The content extracted by the content parser.
+     * @throws AIResponseException If parsing fails, an error message is found, or the content parser throws it.
+     * @since 1.2
+     * @see #parseJson(InputStream, Collection)
+     */
+    public static <T> T parseAndCheckErrors(InputStream responseBody, List<String> errorMessagePaths, List<String> contentPaths, BiFunction<JsonObject, String, T> contentParser) throws AIResponseException {
+        return parseJson(responseBody, Stream.concat(errorMessagePaths.stream(), contentPaths.stream()).toList(), (responseJson, body) -> {
+            findFirstNonBlankByPaths(responseJson, errorMessagePaths).ifPresent(errorMessage -> {
+                throw new AIResponseException(errorMessage, body);
+            });
+            return contentParser.apply(responseJson, body);
+        });
+    }
+
+    /**
+     * Compiles the given dot-separated path into a {@link JsonPath} which can be used for repeated lookups without re-tokenizing the
+     * path on every lookup. Compiled paths are cached, so repeated compilation of the same path is cheap, but it is recommended to
+     * assign frequently used paths to a static constant.
+     * <p>
+     * Supports array indexing with bracket notation, e.g. {@code "choices[0].message.content"}.
+     * Also supports wildcard array indexes, e.g. {@code "output[*].content[*].text"}.
+     *
+     * @param path dot-separated path, may contain {@code [index]} or {@code [*]} segments
+     * @return the compiled JSON path
+     * @throws IllegalArgumentException if the path is invalid
+     * @since 1.2
+     */
+    public static JsonPath compile(String path) {
+        var compiled = CACHED_PATHS.get(path);
+
+        if (compiled == null) {
+            compiled = JsonPath.compile(path);
+
+            if (CACHED_PATHS.size() < MAX_CACHED_PATHS) { // Guard against unbounded growth in case of dynamically constructed paths.
+                CACHED_PATHS.putIfAbsent(path, compiled);
+            }
+        }
+
+        return compiled;
+    }
+
     /**
      * Finds the string value from a JSON object found at the given dot-separated path.
      * <p>
@@ -114,7 +345,7 @@ public final class JsonHelper {
      * @return an {@link Optional} containing the string value, or empty if not found
      */
     public static Optional<String> findByPath(JsonObject root, String path) {
-        return findAllByPath(root, path).stream().findFirst();
+        return path == null ? Optional.empty() : compile(path).find(root);
     }
 
     /**
@@ -129,7 +360,7 @@ public final class JsonHelper {
      * @since 1.1
      */
     public static Optional<String> findNonBlankByPath(JsonObject root, String path) {
-        return findByPath(root, path).map(String::strip).filter(not(String::isEmpty));
+        return path == null ? Optional.empty() : compile(path).findNonBlank(root);
     }
 
     /**
@@ -157,81 +388,7 @@ public final class JsonHelper {
      * @return a {@link List} all string values, or empty if none found
      */
     public static List<String> findAllByPath(JsonValue root, String path) {
-        if (root == null || path == null) {
-            return emptyList();
-        }
-
-        var currentNodes = List.of(root);
-
-        for (var segment : path.split("\\.")) {
-            var nextNodes = new ArrayList<JsonValue>();
-
-            for (var node : currentNodes) {
-                collectNextLevelValues(node, segment, nextNodes);
-            }
-
-            if (nextNodes.isEmpty()) {
-                return emptyList();
-            }
-
-            currentNodes = nextNodes;
-        }
-
-        var result = new ArrayList<String>();
-
-        for (var terminal : currentNodes) {
-            if (terminal == null) {
-                return emptyList();
-            }
-
-            var string = terminal instanceof JsonString jsonString ? jsonString.getString() : terminal.toString();
-
-            if (!string.isEmpty()) { // Do not use isBlank! Whitespace can be significant.
-                result.add(string);
-            }
-        }
-
-        return result;
-    }
-
-    private static void collectNextLevelValues(JsonValue current, String segment, List<JsonValue> collector) {
-        if ((current == null) || (!(current instanceof JsonObject) && !(current instanceof JsonArray))) {
-            return;
-        }
-
-        int startBracket = segment.indexOf('[');
-
-        if (startBracket < 0) {
-            if (current instanceof JsonObject obj && obj.containsKey(segment) && !obj.isNull(segment)) {
-                collector.add(obj.get(segment));
-            }
-
-            return;
-        }
-
-        var propertyName = segment.substring(0, startBracket);
-        var indexPart = segment.substring(startBracket + 1, segment.indexOf(']', startBracket));
-
-        if (!(current instanceof JsonObject object) || !object.containsKey(propertyName) || object.isNull(propertyName)) {
-            return;
-        }
-
-        var array = object.getJsonArray(propertyName);
-
-        if (array == null) {
-            return;
-        }
-
-        if ("*".equals(indexPart)) {
-            collector.addAll(array);
-        }
-        else {
-            int index = Integer.parseInt(indexPart);
-
-            if (index < array.size()) {
-                collector.add(array.get(index));
-            }
-        }
+        return path == null ? emptyList() : compile(path).findAll(root);
     }
 
     /**
@@ -240,22 +397,40 @@ public final class JsonHelper {
      * This is required by some AI providers (e.g., OpenAI, Anthropic) to enforce strict schema validation,
      * ensuring the model only returns the specified properties.
      *
+     * <p>
+     * The result is cached per schema, so repeated invocations for the same schema, such as the one returned by
+     * {@link JsonSchemaHelper#buildJsonSchema(Class)} for the same type, return the same immutable instance.
+     *
      * @param schema The JSON schema object to transform.
      * @return A new JSON schema with {@code additionalProperties: false} added to all object schemas.
      */
     public static JsonObject addStrictAdditionalProperties(JsonObject schema) {
-        var builder = Json.createObjectBuilder(schema).add("additionalProperties", false);
+        var strictSchema = CACHED_STRICT_SCHEMAS.get(schema);
+
+        if (strictSchema == null) {
+            strictSchema = buildStrictSchema(schema);
+
+            if (CACHED_STRICT_SCHEMAS.size() < MAX_CACHED_STRICT_SCHEMAS) { // Guard against unbounded growth in case of dynamically constructed schemas.
+                CACHED_STRICT_SCHEMAS.putIfAbsent(schema, strictSchema);
+            }
+        }
+
+        return strictSchema;
+    }
+
+    private static JsonObject buildStrictSchema(JsonObject schema) {
+        var builder = createObjectBuilder(schema).add("additionalProperties", false);
 
         if (schema.containsKey("properties")) {
-            var properties = Json.createObjectBuilder();
+            var properties = createObjectBuilder();
 
             schema.getJsonObject("properties").forEach((key, value) -> {
                 if (value instanceof JsonObject object && "object".equals(object.getString("type", null))) {
-                    properties.add(key, addStrictAdditionalProperties(object));
+                    properties.add(key, buildStrictSchema(object));
                 }
                 else if (value instanceof JsonObject object && "array".equals(object.getString("type", null))
                         && object.containsKey("items") && "object".equals(object.getJsonObject("items").getString("type", null))) {
-                    properties.add(key, Json.createObjectBuilder(object).add("items", addStrictAdditionalProperties(object.getJsonObject("items"))));
+                    properties.add(key, createObjectBuilder(object).add("items", buildStrictSchema(object.getJsonObject("items"))));
                 }
                 else {
                     properties.add(key, value);
@@ -279,7 +454,7 @@ public final class JsonHelper {
      * @return A {@link JsonObjectBuilder} containing all entries with the specified field replaced.
      */
     public static JsonObjectBuilder replaceField(JsonObject object, String field, JsonValue newValue) {
-        var builder = Json.createObjectBuilder();
+        var builder = createObjectBuilder();
 
         for (var entry : object.entrySet()) {
             builder.add(entry.getKey(), entry.getKey().equals(field) ? newValue : entry.getValue());
@@ -287,4 +462,67 @@ public final class JsonHelper {
 
         return builder;
     }
+
+    /**
+     * Input stream which remembers the first {@value #RESPONSE_BODY_HEAD_SIZE} bytes read, so that a streamed response body which
+     * turns out to be unusable can still be included in the {@link AIResponseException}.
+     */
+    private static class HeadInputStream extends FilterInputStream {
+
+        private final byte[] head = new byte[RESPONSE_BODY_HEAD_SIZE];
+        private int count;
+        private boolean truncated;
+
+        HeadInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false; // Otherwise reset bytes would be remembered twice.
+        }
+
+        @Override
+        public int read() throws IOException {
+            var read = super.read();
+
+            if (read != -1) {
+                if (count < RESPONSE_BODY_HEAD_SIZE) {
+                    head[count++] = (byte) read;
+                }
+                else {
+                    truncated = true;
+                }
+            }
+
+            return read;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) throws IOException {
+            var read = super.read(bytes, offset, length);
+
+            if (read > 0) {
+                remember(bytes, offset, read);
+            }
+
+            return read;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            return n <= 0 ? 0 : Math.max(0, read(new byte[(int) Math.min(n, RESPONSE_BODY_HEAD_SIZE)])); // So that skipped bytes are remembered as well.
+        }
+
+        private void remember(byte[] bytes, int offset, int length) {
+            var remembered = Math.min(length, RESPONSE_BODY_HEAD_SIZE - count);
+            System.arraycopy(bytes, offset, head, count, remembered);
+            count += remembered;
+            truncated |= remembered < length;
+        }
+
+        String head() {
+            return new String(head, 0, count, UTF_8) + (truncated ? "..." : ""); // Possibly cut off multi-byte characters at the end are irrelevant for debugging.
+        }
+    }
 }
@@ -0,0 +1,254 @@
+/*
+ * Copyright OmniFaces
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.omnifaces.ai.helper;
+
+import static java.util.Collections.emptyList;
+import static java.util.function.Predicate.not;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import jakarta.json.JsonArray;
+import jakarta.json.JsonObject;
+import jakarta.json.JsonString;
+import jakarta.json.JsonValue;
+
+/**
+ * Compiled dot-separated JSON path expression, such as {@code "choices[0].message.content"} or {@code "output[*].content[*].text"}.
+ * <p>
+ * The expression is tokenized only once, during {@link JsonHelper#compile(String)}. The lookup methods then walk the JSON structure
+ * directly along the pre-tokenized steps. The single result lookups {@link #find(JsonValue)} and {@link #findNonBlank(JsonValue)} stop
+ * at the first match without collecting any intermediate values. Instances are immutable and thus thread safe, so they can be assigned
+ * to static constants.
+ *
+ * @author Bauke Scholtz
+ * @since 1.2
+ * @see JsonHelper#compile(String)
+ */
+public final class JsonPath {
+
+    static final int WILDCARD_INDEX = -1;
+
+    /**
+     * A single step of a JSON path: either an object member name, or an array index when the name is {@code null}.
+     */
+    record Step(String name, int index) {
+
+        boolean matches(String memberName) {
+            return name != null && name.equals(memberName);
+        }
+
+        boolean matches(int elementIndex) {
+            return name == null && (index == WILDCARD_INDEX || index == elementIndex);
+        }
+    }
+
+    private final String expression;
+    private final Step[] steps;
+
+    private JsonPath(String expression, Step[] steps) {
+        this.expression = expression;
+        this.steps = steps;
+    }
+
+    /**
+     * Compiles the given dot-separated path expression.
+     *
+     * @param expression The dot-separated path expression, may contain {@code [index]} or {@code [*]} segments.
+     * @return The compiled JSON path.
+     * @throws IllegalArgumentException When the expression is invalid.
+     */
+    static JsonPath compile(String expression) {
+        var steps = new ArrayList<Step>();
+
+        for (var segment : expression.split("\\.")) {
+            var startBracket = segment.indexOf('[');
+
+            if (startBracket < 0) {
+                steps.add(new Step(segment, 0));
+                continue;
+            }
+
+            var endBracket = segment.indexOf(']', startBracket);
+
+            if (endBracket < 0) {
+                throw new IllegalArgumentException("Invalid JSON path, missing ']' in " + expression);
+            }
+
+            var indexPart = segment.substring(startBracket + 1, endBracket);
+            steps.add(new Step(segment.substring(0, startBracket), 0));
+
+            try {
+                steps.add(new Step(null, "*".equals(indexPart) ? WILDCARD_INDEX : Integer.parseInt(indexPart)));
+            }
+            catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid JSON path, invalid index '" + indexPart + "' in " + expression, e);
+            }
+        }
+
+        return new JsonPath(expression, steps.toArray(Step[]::new));
+    }
+
+    /**
+     * Returns the pre-tokenized steps of this path.
+     * @return The pre-tokenized steps of this path.
+     */
+    List<Step> steps() {
+        return List.of(steps);
+    }
+
+    /**
+     * Finds the first non-empty string value found at this path in the given JSON value.
+     *
+     * @param root JSON root value (usually a {@link JsonObject}).
+     * @return An {@link Optional} containing the first non-empty string value, or empty if not found.
+     */
+    public Optional<String> find(JsonValue root) {
+        return findValue(root).map(JsonPath::toNonEmptyString);
+    }
+
+    /**
+     * Finds the first JSON value found at this path in the given JSON value whose string representation is non-empty. This is useful
+     * when the value is expected to be a structured JSON object or array instead of a string.
+     *
+     * @param root JSON root value (usually a {@link JsonObject}).
+     * @return An {@link Optional} containing the first JSON value, or empty if not found.
+     */
+    public Optional<JsonValue> findValue(JsonValue root) {
+        return Optional.ofNullable(root == null ? null : findFirst(root, 0));
+    }
+
+    /**
+     * Finds the first non-blank string value found at this path in the given JSON value, stripped from leading and trailing whitespace.
+     *
+     * @param root JSON root value (usually a {@link JsonObject}).
+     * @return An {@link Optional} containing the first non-blank string value, or empty if not found.
+     */
+    public Optional<String> findNonBlank(JsonValue root) {
+        return find(root).map(String::strip).filter(not(String::isEmpty));
+    }
+
+    /**
+     * Finds all non-empty string values found at this path in the given JSON value.
+     *
+     * @param root JSON root value (usually a {@link JsonObject}).
+     * @return A {@link List} of all non-empty string values, or empty if none found.
+     */
+    public List<String> findAll(JsonValue root) {
+        if (root == null) {
+            return emptyList();
+        }
+
+        var result = new ArrayList<String>();
+        collectAll(root, 0, result);
+        return result;
+    }
+
+    private JsonValue findFirst(JsonValue node, int position) {
+        if (position == steps.length) {
+            return node instanceof JsonString string && string.getString().isEmpty() ? null : node; // Do not use isBlank! Whitespace can be significant.
+        }
+
+        var step = steps[position];
+
+        if (step.name() != null) {
+            var next = getMember(node, step.name());
+            return next == null ? null : findFirst(next, position + 1);
+        }
+
+        if (!(node instanceof JsonArray array)) {
+            return null;
+        }
+
+        if (step.index() != WILDCARD_INDEX) {
+            return step.index() < array.size() ? findFirst(array.get(step.index()), position + 1) : null;
+        }
+
+        for (var element : array) {
+            var found = findFirst(element, position + 1);
+
+            if (found != null) {
+                return found;
+            }
+        }
+
+        return null;
+    }
+
+    private void collectAll(JsonValue node, int position, List<String> collector) {
+        if (position == steps.length) {
+            var string = toNonEmptyString(node);
+
+            if (string != null) {
+                collector.add(string);
+            }
+
+            return;
+        }
+
+        var step = steps[position];
+
+        if (step.name() != null) {
+            var next = getMember(node, step.name());
+
+            if (next != null) {
+                collectAll(next, position + 1, collector);
+            }
+        }
+        else if (node instanceof JsonArray array) {
+            if (step.index() != WILDCARD_INDEX) {
+                if (step.index() < array.size()) {
+                    collectAll(array.get(step.index()), position + 1, collector);
+                }
+            }
+            else {
+                for (var element : array) {
+                    collectAll(element, position + 1, collector);
+                }
+            }
+        }
+    }
+
+    private static JsonValue getMember(JsonValue node, String name) {
+        if (node instanceof JsonObject object) {
+            var member = object.get(name);
+            return member == null || member.getValueType() == JsonValue.ValueType.NULL ? null : member;
+        }
+
+        return null;
+    }
+
+    private static String toNonEmptyString(JsonValue value) {
+        var string = value instanceof JsonString jsonString ? jsonString.getString() : value.toString();
+        return string.isEmpty() ? null : string; // Do not use isBlank! Whitespace can be significant.
+    }
+
+    @Override
+    public boolean equals(Object object) {
+        return object instanceof JsonPath other && expression.equals(other.expression);
+    }
+
+    @Override
+    public int hashCode() {
+        return expression.hashCode();
+    }
+
+    /**
+     * Returns the path expression as it was compiled.
+     */
+    @Override
+    public String toString() {
+        return expression;
+    }
+}
@@ -0,0 +1,194 @@
+/*
+ * Copyright OmniFaces
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.omnifaces.ai.helper;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.Collection;
+
+import jakarta.json.Json;
+import jakarta.json.JsonArray;
+import jakarta.json.JsonArrayBuilder;
+import jakarta.json.JsonBuilderFactory;
+import jakarta.json.JsonObject;
+import jakarta.json.JsonObjectBuilder;
+import jakarta.json.JsonReader;
+import jakarta.json.JsonReaderFactory;
+import jakarta.json.JsonWriter;
+import jakarta.json.JsonWriterFactory;
+import jakarta.json.spi.JsonProvider;
+import jakarta.json.stream.JsonGenerator;
+import jakarta.json.stream.JsonGeneratorFactory;
+import jakarta.json.stream.JsonParser;
+import jakarta.json.stream.JsonParserFactory;
+
+/**
+ * Utility class for creating JSON builders, readers, writers, parsers and generators.
+ * <p>
+ * Each of the static methods of {@link Json} looks up the {@link JsonProvider} via {@link JsonProvider#provider()}, which may involve a
+ * service loader lookup through the whole class loader hierarchy. This utility class looks up the provider and its factories only once,
+ * during first use, and then reuses them for all subsequent invocations. The provider and its factories are thread safe.
+ *
+ * @author Bauke Scholtz
+ * @since 1.2
+ */
+public final class JsonProviderHelper {
+
+    private JsonProviderHelper() {
+        throw new AssertionError();
+    }
+
+    private static final class Factories {
+        private static final JsonProvider PROVIDER = JsonProvider.provider();
+        private static final JsonBuilderFactory BUILDER_FACTORY = PROVIDER.createBuilderFactory(null);
+        private static final JsonReaderFactory READER_FACTORY = PROVIDER.createReaderFactory(null);
+        private static final JsonWriterFactory WRITER_FACTORY = PROVIDER.createWriterFactory(null);
+        private static final JsonParserFactory PARSER_FACTORY = PROVIDER.createParserFactory(null);
+        private static final JsonGeneratorFactory GENERATOR_FACTORY = PROVIDER.createGeneratorFactory(null);
+    }
+
+    /**
+     * Returns the cached JSON provider.
+     *
+     * @return The cached JSON provider.
+     */
+    public static JsonProvider getProvider() {
+        return Factories.PROVIDER;
+    }
+
+    /**
+     * Returns the cached JSON builder factory.
+     *
+     * @return The cached JSON builder factory.
+     */
+    public static JsonBuilderFactory getBuilderFactory() {
+        return Factories.BUILDER_FACTORY;
+    }
+
+    /**
+     * Returns the cached JSON reader factory.
+     *
+     * @return The cached JSON reader factory.
+     */
+    public static JsonReaderFactory getReaderFactory() {
+        return Factories.READER_FACTORY;
+    }
+
+    /**
+     * Returns the cached JSON writer factory.
+     *
+     * @return The cached JSON writer factory.
+     */
+    public static JsonWriterFactory getWriterFactory() {
+        return Factories.WRITER_FACTORY;
+    }
+
+    /**
+     * Creates a new JSON object builder.
+     *
+     * @return A new JSON object builder.
+     * @see Json#createObjectBuilder()
+     */
+    public static JsonObjectBuilder createObjectBuilder() {
+        return Factories.BUILDER_FACTORY.createObjectBuilder();
+    }
+
+    /**
+     * Creates a new JSON object builder, initialized with the given JSON object.
+     *
+     * @param object The initial JSON object.
+     * @return A new JSON object builder.
+     * @see Json#createObjectBuilder(JsonObject)
+     */
+    public static JsonObjectBuilder createObjectBuilder(JsonObject object) {
+        return Factories.BUILDER_FACTORY.createObjectBuilder(object);
+    }
+
+    /**
+     * Creates a new JSON array builder.
+     *
+     * @return A new JSON array builder.
+     * @see Json#createArrayBuilder()
+     */
+    public static JsonArrayBuilder createArrayBuilder() {
+        return Factories.BUILDER_FACTORY.createArrayBuilder();
+    }
+
+    /**
+     * Creates a new JSON array builder, initialized with the given JSON array.
+     *
+     * @param array The initial JSON array.
+     * @return A new JSON array builder.
+     * @see Json#createArrayBuilder(JsonArray)
+     */
+    public static JsonArrayBuilder createArrayBuilder(JsonArray array) {
+        return Factories.BUILDER_FACTORY.createArrayBuilder(array);
+    }
+
+    /**
+     * Creates a new JSON array builder, initialized with the given values.
+     *
+     * @param values The initial values.
+     * @return A new JSON array builder.
+     * @see Json#createArrayBuilder(Collection)
+     */
+    public static JsonArrayBuilder createArrayBuilder(Collection<?> values) {
+        return Factories.BUILDER_FACTORY.createArrayBuilder(values);
+    }
+
+    /**
+     * Creates a new JSON reader for the given character stream.
+     *
+     * @param reader The character stream to read from.
+     * @return A new JSON reader.
+     * @see Json#createReader(Reader)
+     */
+    public static JsonReader createReader(Reader reader) {
+        return Factories.READER_FACTORY.createReader(reader);
+    }
+
+    /**
+     * Creates a new JSON writer for the given character stream.
+     *
+     * @param writer The character stream to write to.
+     * @return A new JSON writer.
+     * @see Json#createWriter(Writer)
+     */
+    public static JsonWriter createWriter(Writer writer) {
+        return Factories.WRITER_FACTORY.createWriter(writer);
+    }
+
+    /**
+     * Creates a new JSON parser for the given byte stream. The character encoding is detected as per RFC 7159.
+     *
+     * @param in The byte stream to parse.
+     * @return A new JSON parser.
+     * @see Json#createParser(InputStream)
+     */
+    public static JsonParser createParser(InputStream in) {
+        return Factories.PARSER_FACTORY.createParser(in);
+    }
+
+    /**
+     * Creates a new JSON generator for the given byte stream, using UTF-8 encoding.
+     *
+     * @param out The byte stream to write to.
+     * @return A new JSON generator.
+     * @see Json#createGenerator(OutputStream)
+     */
+    public static JsonGenerator createGenerator(OutputStream out) {
+        return Factories.GENERATOR_FACTORY.createGenerator(out);
+    }
+}
@@ -15,11 +15,15 @@ package org.omnifaces.ai.helper;
 import static java.lang.String.format;
 import static java.util.Arrays.stream;
 import static org.omnifaces.ai.helper.JsonHelper.parseJson;
+import static org.omnifaces.ai.helper.JsonProviderHelper.createArrayBuilder;
+import static org.omnifaces.ai.helper.JsonProviderHelper.createObjectBuilder;
 
 import java.beans.Introspector;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Array;
 import java.lang.reflect.GenericArrayType;
-import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.RecordComponent;
@@ -46,7 +50,6 @@ import java.util.TreeMap;
 import java.util.TreeSet;
 import java.util.function.Function;
 
-import jakarta.json.Json;
 import jakarta.json.JsonArray;
 import jakarta.json.JsonNumber;
 import jakarta.json.JsonObject;
@@ -61,6 +64,7 @@ import jakarta.json.JsonValue;
  * <ul>
  * <li>{@link #buildJsonSchema(Class)} - generates a JSON schema from a Java type</li>
  * <li>{@link #fromJson(String, Class)} - parses JSON into a typed Java object</li>
+ * <li>{@link #fromJson(JsonValue, Class)} - binds already parsed JSON to a typed Java object</li>
  * </ul>
  * <p>
  * Supported types:
@@ -110,6 +114,9 @@ public final class JsonSchemaHelper {
     private static final Map<Class<?>, String> TYPE_MAPPING = new HashMap<>();
     private static final Map<Class<?>, Function<JsonValue, Object>> PARSERS = new HashMap<>();
 
+    private static final MethodType CONSTRUCTOR_TYPE = MethodType.methodType(Object.class, Object[].class);
+    private static final MethodType SETTER_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+
     static {
         register(List.of(String.class, char.class, Character.class), "string", v -> ((JsonString) v).getString());
         register(List.of(boolean.class, Boolean.class), "boolean", v -> v.getValueType() == JsonValue.ValueType.TRUE);
@@ -162,24 +169,27 @@ public final class JsonSchemaHelper {
      * JsonObject schema = JsonSchemaHelper.buildJsonSchema(ProductReview.class);
      * </pre>
      *
+     * <p>
+     * The generated schema is cached per type, so repeated invocations for the same type return the same immutable instance.
+     *
      * @param type The Java class to generate a JSON schema for.
      * @return The JSON schema as a {@link JsonObject}.
      */
     public static JsonObject buildJsonSchema(Class<?> type) {
-        return buildObjectSchema(type, new HashSet<>()).build();
+        return METADATA.get(type).getSchema();
     }
 
     private static JsonObjectBuilder buildObjectSchema(Class<?> clazz, Set<Class<?>> visited) {
         if (visited.contains(clazz)) {
-            return Json.createObjectBuilder().add("type", "object");
+            return createObjectBuilder().add("type", "object");
         }
 
         visited.add(clazz);
 
-        var properties = Json.createObjectBuilder();
-        var required = Json.createArrayBuilder();
+        var properties = createObjectBuilder();
+        var required = createArrayBuilder();
 
-        for (var prop : getProperties(clazz)) {
+        for (var prop : METADATA.get(clazz).properties) {
             properties.add(prop.name, buildTypeSchema(prop.genericType, prop.rawType, visited));
 
             if (prop.rawType != Optional.class) {
@@ -187,7 +197,7 @@ public final class JsonSchemaHelper {
             }
         }
 
-        return Json.createObjectBuilder().add("type", "object").add("properties", properties).add("required", required);
+        return createObjectBuilder().add("type", "object").add("properties", properties).add("required", required);
     }
 
     private static JsonObjectBuilder buildTypeSchema(Type genericType, Class<?> rawType, Set<Class<?>> visited) {
@@ -197,28 +207,28 @@ public final class JsonSchemaHelper {
         }
 
         if (TYPE_MAPPING.containsKey(rawType)) {
-            return Json.createObjectBuilder().add("type", TYPE_MAPPING.get(rawType));
+            return createObjectBuilder().add("type", TYPE_MAPPING.get(rawType));
         }
 
         if (Temporal.class.isAssignableFrom(rawType)) {
             var dateFormat = rawType == LocalDate.class ? "date" : (rawType == LocalTime.class ? "time" : "date-time");
-            return Json.createObjectBuilder().add("type", "string").add("format", dateFormat);
+            return createObjectBuilder().add("type", "string").add("format", dateFormat);
         }
 
         if (rawType.isEnum()) {
-            var enumValues = Json.createArrayBuilder();
+            var enumValues = createArrayBuilder();
             stream(rawType.getEnumConstants()).forEach(c -> enumValues.add(((Enum<?>) c).name()));
-            return Json.createObjectBuilder().add("type", "string").add("enum", enumValues);
+            return createObjectBuilder().add("type", "string").add("enum", enumValues);
         }
 
         if (rawType.isArray() || Collection.class.isAssignableFrom(rawType)) {
             var componentType = rawType.isArray() ? rawType.getComponentType() : getGenericArgument(genericType, 0);
-            return Json.createObjectBuilder().add("type", "array").add("items", buildTypeSchema(componentType, getRawType(componentType), visited));
+            return createObjectBuilder().add("type", "array").add("items", buildTypeSchema(componentType, getRawType(componentType), visited));
         }
 
         if (Map.class.isAssignableFrom(rawType)) {
             var valType = getGenericArgument(genericType, 1);
-            return Json.createObjectBuilder().add("type", "object").add("additionalProperties", buildTypeSchema(valType, getRawType(valType), visited));
+            return createObjectBuilder().add("type", "object").add("additionalProperties", buildTypeSchema(valType, getRawType(valType), visited));
         }
 
         return buildObjectSchema(rawType, visited);
@@ -263,7 +273,25 @@ public final class JsonSchemaHelper {
      * @throws IllegalArgumentException If the JSON cannot be parsed or the type cannot be instantiated.
      */
     public static <T> T fromJson(String json, Class<T> type) {
-        return parseValue(parseJson(json), type, type);
+        return fromJson(parseJson(json), type);
+    }
+
+    /**
+     * Binds an already parsed JSON value to an instance of the specified type.
+     * <p>
+     * This is the same as {@link #fromJson(String, Class)}, but without parsing the JSON once more. This is useful when the JSON is
+     * already available as a {@link JsonValue}, such as the structured message content of a chat response.
+     *
+     * @param <T>  The target type.
+     * @param json The JSON value to bind.
+     * @param type The target class.
+     * @return An instance of the target type populated from the JSON.
+     * @throws IllegalArgumentException If the type cannot be instantiated.
+     * @since 1.2
+     * @see org.omnifaces.ai.AITextHandler#parseStructuredChatResponse(java.io.InputStream)
+     */
+    public static <T> T fromJson(JsonValue json, Class<T> type) {
+        return parseValue(json, type, type);
     }
 
     @SuppressWarnings({ "unchecked", "rawtypes" })
@@ -327,33 +355,45 @@ public final class JsonSchemaHelper {
     }
 
     private static Object parseObject(JsonObject json, Class<?> rawType) {
-        var properties = getProperties(rawType);
+        var metadata = METADATA.get(rawType);
+        var binder = metadata.getBinder();
         Object bean;
 
         try {
             if (rawType.isRecord()) {
-                var components = rawType.getRecordComponents();
-                var args = new Object[components.length];
+                var properties = metadata.properties;
+                var args = new Object[properties.size()];
 
-                for (int i = 0; i < components.length; i++) {
-                    args[i] = parseValue(json.get(components[i].getName()), components[i].getType(), components[i].getGenericType());
+                for (int i = 0; i < args.length; i++) {
+                    var property = properties.get(i);
+                    args[i] = parseValue(json.get(property.name), property.rawType, property.genericType);
                 }
 
-                return rawType.getDeclaredConstructor(stream(components).map(RecordComponent::getType).toArray(Class[]::new)).newInstance(args);
+                return binder.constructor.invokeExact(args);
             }
 
-            bean = rawType.getDeclaredConstructor().newInstance();
+            bean = binder.constructor.invokeExact(new Object[0]);
         }
-        catch (Exception e) {
+        catch (Error e) {
+            throw e;
+        }
+        catch (Throwable e) {
             throw new IllegalArgumentException(format(ERROR_INSTANTIATION, rawType.getName()), e);
         }
 
-        for (var property : properties) {
-            if (property.writeMethod != null && json.containsKey(property.name)) {
+        for (var property : metadata.properties) {
+            var setter = binder.setters.get(property.name);
+
+            if (setter != null && json.containsKey(property.name)) {
+                var value = parseValue(json.get(property.name), property.rawType, property.genericType);
+
                 try {
-                    property.writeMethod.invoke(bean, parseValue(json.get(property.name), property.rawType, property.genericType));
+                    setter.invokeExact(bean, value);
                 }
-                catch (IllegalAccessException | InvocationTargetException e) {
+                catch (Error e) {
+                    throw e;
+                }
+                catch (Throwable e) {
                     throw new IllegalArgumentException(format(ERROR_SET_PROPERTY, property.name, rawType), e);
                 }
             }
@@ -362,8 +402,59 @@ public final class JsonSchemaHelper {
         return bean;
     }
 
+    // Type metadata --------------------------------------------------------------------------------------------------
+
     private record Property(String name, Class<?> rawType, Type genericType, Method writeMethod) {}
 
+    /**
+     * Binds JSON to a record or bean without any reflection discovery. The constructor takes the record component values, or nothing in
+     * case of a bean, as an {@code Object[]} and returns the instance. The setters take the bean and the property value.
+     */
+    private record Binder(MethodHandle constructor, Map<String, MethodHandle> setters) {}
+
+    /**
+     * Everything discovered by reflection about a record or bean type, computed once per type.
+     */
+    private static final class TypeMetadata {
+
+        private final Class<?> type;
+        private final List<Property> properties;
+        private volatile JsonObject schema;
+        private volatile Binder binder;
+
+        private TypeMetadata(Class<?> type) {
+            this.type = type;
+            this.properties = getProperties(type);
+        }
+
+        JsonObject getSchema() {
+            var result = schema;
+
+            if (result == null) {
+                schema = result = buildObjectSchema(type, new HashSet<>()).build(); // Idempotent, so benign race.
+            }
+
+            return result;
+        }
+
+        Binder getBinder() {
+            var result = binder;
+
+            if (result == null) {
+                binder = result = createBinder(type, properties); // Idempotent, so benign race.
+            }
+
+            return result;
+        }
+    }
+
+    private static final ClassValue<TypeMetadata> METADATA = new ClassValue<>() {
+        @Override
+        protected TypeMetadata computeValue(Class<?> type) {
+            return new TypeMetadata(type);
+        }
+    };
+
     private static List<Property> getProperties(Class<?> clazz) {
         if (clazz.isRecord()) {
             return stream(clazz.getRecordComponents()).map(c -> new Property(c.getName(), c.getType(), c.getGenericType(), null)).toList();
@@ -380,6 +471,43 @@ public final class JsonSchemaHelper {
         }
     }
 
+    private static Binder createBinder(Class<?> clazz, List<Property> properties) {
+        var lookup = MethodHandles.lookup();
+        MethodHandle constructor;
+
+        try {
+            if (clazz.isRecord()) {
+                var parameterTypes = stream(clazz.getRecordComponents()).map(RecordComponent::getType).toArray(Class[]::new);
+                constructor = lookup.unreflectConstructor(clazz.getDeclaredConstructor(parameterTypes)).asSpreader(Object[].class, parameterTypes.length);
+            }
+            else {
+                constructor = MethodHandles.dropArguments(lookup.unreflectConstructor(clazz.getDeclaredConstructor()), 0, Object[].class);
+            }
+        }
+        catch (NoSuchMethodException | IllegalAccessException e) {
+            constructor = throwing(e, Object.class, Object[].class); // Fail during parsing rather than during schema generation.
+        }
+
+        var setters = new HashMap<String, MethodHandle>();
+
+        for (var property : properties) {
+            if (property.writeMethod != null) {
+                try {
+                    setters.put(property.name, lookup.unreflect(property.writeMethod).asType(SETTER_TYPE));
+                }
+                catch (IllegalAccessException e) {
+                    setters.put(property.name, throwing(e, void.class, Object.class, Object.class)); // Fail only when property is present.
+                }
+            }
+        }
+
+        return new Binder(constructor.asType(CONSTRUCTOR_TYPE), Map.copyOf(setters));
+    }
+
+    private static MethodHandle throwing(Exception exception, Class<?> returnType, Class<?>... parameterTypes) {
+        return MethodHandles.dropArguments(MethodHandles.throwException(returnType, exception.getClass()).bindTo(exception), 0, parameterTypes);
+    }
+
     private static Type getGenericArgument(Type genericType, int index) {
         if (genericType instanceof ParameterizedType type && type.getActualTypeArguments().length > index) {
             return type.getActualTypeArguments()[index];
@@ -12,6 +12,13 @@
  */
 package org.omnifaces.ai.helper;
 
+import java.time.Duration;
+import java.time.Instant;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+import java.util.regex.Pattern;
+
 /**
  * Utility class for text operations.
  *
@@ -20,6 +27,8 @@ package org.omnifaces.ai.helper;
  */
 public final class TextHelper {
 
+    private static final Pattern GO_DURATION_PART = Pattern.compile("(\\d+(?:\\.\\d+)?)(h|ms|m|s|us|\u00b5s|ns)");
+
     private TextHelper() {
         throw new AssertionError();
     }
@@ -62,4 +71,60 @@ public final class TextHelper {
         }
         return text;
     }
+
+    /**
+     * Parses the given text as a duration from now, such as the value of a {@code Retry-After} or a rate limit reset HTTP header.
+     * Supported formats are plain seconds, Go-style durations such as {@code 1m30.5s} or {@code 20ms}, RFC 1123 HTTP dates and ISO 8601
+     * timestamps. Timestamps in the past result in a zero duration.
+     *
+     * @param text Text to parse.
+     * @return The parsed duration, or null if null was passed in or if the format is not supported.
+     * @since 1.2
+     */
+    public static Duration parseDuration(String text) {
+        var value = stripToNull(text);
+
+        if (value == null) {
+            return null;
+        }
+
+        try {
+            return Duration.ofNanos(Math.round(Math.max(0, Double.parseDouble(value)) * 1_000_000_000));
+        }
+        catch (NumberFormatException ignore) {
+            // Try next format.
+        }
+
+        var matcher = GO_DURATION_PART.matcher(value);
+        var nanos = 0.0;
+        var end = 0;
+
+        while (matcher.find() && matcher.start() == end) {
+            nanos += Double.parseDouble(matcher.group(1)) * switch (matcher.group(2)) {
+                case "h" -> 3600e9;
+                case "m" -> 60e9;
+                case "s" -> 1e9;
+                case "ms" -> 1e6;
+                case "us", "\u00b5s" -> 1e3;
+                default -> 1;
+            };
+            end = matcher.end();
+        }
+
+        if (end > 0 && end == value.length()) {
+            return Duration.ofNanos(Math.round(nanos));
+        }
+
+        for (var formatter : List.of(DateTimeFormatter.RFC_1123_DATE_TIME, DateTimeFormatter.ISO_OFFSET_DATE_TIME)) {
+            try {
+                var duration = Duration.between(Instant.now(), Instant.from(formatter.parse(value)));
+                return duration.isNegative() ? Duration.ZERO : duration;
+            }
+            catch (DateTimeParseException ignore) {
+                // Try next format.
+            }
+        }
+
+        return null;
+    }
 }
@@ -14,14 +14,16 @@ package org.omnifaces.ai.modality;
 
 import static java.util.Optional.ofNullable;
 import static org.omnifaces.ai.helper.JsonHelper.addStrictAdditionalProperties;
+import static org.omnifaces.ai.helper.JsonProviderHelper.createArrayBuilder;
+import static org.omnifaces.ai.helper.JsonProviderHelper.createObjectBuilder;
 import static org.omnifaces.ai.helper.TextHelper.isBlank;
 import static org.omnifaces.ai.model.Sse.Event.Type.DATA;
 import static org.omnifaces.ai.model.Sse.Event.Type.EVENT;
 
 import java.util.List;
+import java.util.Set;
 import java.util.function.Consumer;
 
-import jakarta.json.Json;
 import jakarta.json.JsonObject;
 
 import org.omnifaces.ai.AIModelVersion;
@@ -29,9 +31,11 @@ import org.omnifaces.ai.AIService;
 import org.omnifaces.ai.exception.AIResponseException;
 import org.omnifaces.ai.exception.AITokenLimitExceededException;
 import org.omnifaces.ai.model.ChatInput;
+import org.omnifaces.ai.model.ChatInput.Attachment;
 import org.omnifaces.ai.model.ChatInput.Message.Role;
 import org.omnifaces.ai.model.ChatOptions;
 import org.omnifaces.ai.model.Sse.Event;
+import org.omnifaces.ai.model.Sse.EventFilter;
 import org.omnifaces.ai.service.AnthropicAIService;
 
 /**
@@ -50,9 +54,11 @@ public class AnthropicAITextHandler extends DefaultAITextHandler {
     private static final int DEFAULT_MAX_TOKENS_CLAUDE_3_0 = 4096;
     private static final int DEFAULT_MAX_TOKENS_CLAUDE_3_X = 8192;
 
+    private static final EventFilter STREAM_EVENT_FILTER = new EventFilter(Set.of("max_tokens", "message_stop", "content_block_stop"), Set.of("content_block_delta", "error"));
+
     @Override
     public JsonObject buildChatPayload(AIService service, ChatInput input, ChatOptions options, boolean streaming) {
-        var payload = Json.createObjectBuilder()
+        var payload = createObjectBuilder()
             .add("model", service.getModelName())
             .add("max_tokens", ofNullable(options.getMaxTokens()).orElseGet(() -> service.getModelVersion().lte(CLAUDE_3) ? DEFAULT_MAX_TOKENS_CLAUDE_3_0 : DEFAULT_MAX_TOKENS_CLAUDE_3_X));
 
@@ -60,47 +66,47 @@ public class AnthropicAITextHandler extends DefaultAITextHandler {
             payload.add("system", options.getSystemPrompt());
         }
 
-        var messages = Json.createArrayBuilder();
+        var messages = createArrayBuilder();
 
         for (var historyMessage : input.getHistory()) {
-            messages.add(Json.createObjectBuilder()
+            messages.add(createObjectBuilder()
                 .add("role", historyMessage.role() == Role.USER ? "user" : "assistant")
-                .add("content", Json.createArrayBuilder()
-                    .add(Json.createObjectBuilder()
+                .add("content", createArrayBuilder()
+                    .add(createObjectBuilder()
                         .add("type", "text")
                         .add("text", historyMessage.content()))));
         }
 
-        var content = Json.createArrayBuilder();
+        var content = createArrayBuilder();
 
         for (var image : input.getImages()) {
-            content.add(Json.createObjectBuilder()
+            content.add(createObjectBuilder()
                 .add("type", "image")
-                .add("source", Json.createObjectBuilder()
+                .add("source", createObjectBuilder()
                     .add("type", "base64")
                     .add("media_type", image.mimeType().value())
-                    .add("data", image.toBase64())));
+                    .add("data", image.toBase64Slot())));
         }
 
         if (!input.getFiles().isEmpty()) {
             checkSupportsFileAttachments(service);
 
             for (var file : input.getFiles()) {
-                var fileId = service.upload(file);
+                var fileId = uploadFile(service, input, file);
 
-                content.add(Json.createObjectBuilder()
+                content.add(createObjectBuilder()
                     .add("type", "document")
-                    .add("source", Json.createObjectBuilder()
+                    .add("source", createObjectBuilder()
                         .add("type", "file")
                         .add("file_id", fileId)));
             }
         }
 
-        content.add(Json.createObjectBuilder()
+        content.add(createObjectBuilder()
             .add("type", "text")
             .add("text", input.getMessage()));
 
-        messages.add(Json.createObjectBuilder()
+        messages.add(createObjectBuilder()
             .add("role", "user")
             .add("content", content));
 
@@ -121,7 +127,7 @@ public class AnthropicAITextHandler extends DefaultAITextHandler {
 
         if (options.getJsonSchema() != null) {
             checkSupportsStructuredOutput(service);
-            payload.add("output_format", Json.createObjectBuilder()
+            payload.add("output_format", createObjectBuilder()
                 .add("type", "json_schema")
                 .add("schema", addStrictAdditionalProperties(options.getJsonSchema())));
         }
@@ -129,11 +135,25 @@ public class AnthropicAITextHandler extends DefaultAITextHandler {
         return payload.build();
     }
 
+    @Override
+    protected List<Attachment> getFilesToUpload(AIService service, ChatInput input) {
+        if (!input.getFiles().isEmpty()) {
+            checkSupportsFileAttachments(service);
+        }
+
+        return input.getFiles();
+    }
+
     @Override
     public List<String> getChatResponseContentPaths() {
         return List.of("content[0].text");
     }
 
+    @Override
+    public EventFilter getChatStreamEventFilter(AIService service) {
+        return STREAM_EVENT_FILTER;
+    }
+
     @Override
     public boolean processChatStreamEvent(AIService service, Event event, Consumer<String> onToken) {
         if (event.type() == EVENT) {
@@ -15,8 +15,11 @@ package org.omnifaces.ai.modality;
 import static org.omnifaces.ai.helper.JsonHelper.findFirstNonBlankByPaths;
 import static org.omnifaces.ai.helper.JsonHelper.parseAndCheckErrors;
 
+import java.io.InputStream;
 import java.util.Base64;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Logger;
 
 import org.omnifaces.ai.AIImageHandler;
@@ -54,6 +57,8 @@ public class DefaultAIImageHandler implements AIImageHandler {
     /** Logger for current package. */
     protected static final Logger logger = Logger.getLogger(DefaultAIImageHandler.class.getPackageName());
 
+    private static final Map<Class<?>, Boolean> IMAGE_CONTENT_PARSER_OVERRIDDEN = new ConcurrentHashMap<>();
+
     /** Default max words per alt text sentence: {@value} */
     protected static final int DEFAULT_MAX_WORDS_PER_ALT_TEXT_SENTENCE = 30;
 
@@ -107,6 +112,47 @@ public class DefaultAIImageHandler implements AIImageHandler {
         }
     }
 
+    /**
+     * @implNote The default implementation parses the stream directly with help of
+     * {@link org.omnifaces.ai.helper.JsonHelper#parseAndCheckErrors(InputStream, List, List, java.util.function.BiFunction)}, retaining
+     * only the values at {@link #getImageResponseErrorMessagePaths()} and {@link #getImageResponseContentPaths()}. When a subclass
+     * overrides {@link #parseImageContent(String)}, then it reads the stream into a string and delegates to that method instead.
+     */
+    @Override
+    public byte[] parseImageContent(InputStream responseBody) throws AIResponseException {
+        if (isImageContentParserOverridden()) {
+            return AIImageHandler.super.parseImageContent(responseBody);
+        }
+
+        var imageContentPaths = getImageResponseContentPaths();
+
+        if (imageContentPaths.isEmpty()) {
+            throw new IllegalStateException("getImageResponseContentPaths() may not return an empty list");
+        }
+
+        return parseAndCheckErrors(responseBody, getImageResponseErrorMessagePaths(), imageContentPaths, (responseJson, body) -> {
+            var imageContent = findFirstNonBlankByPaths(responseJson, imageContentPaths).orElseThrow(() -> new AIResponseException("No image content found at paths " + imageContentPaths, body));
+
+            try {
+                return Base64.getDecoder().decode(imageContent);
+            }
+            catch (Exception e) {
+                throw new AIResponseException("Cannot Base64-decode image", body, e);
+            }
+        });
+    }
+
+    private boolean isImageContentParserOverridden() {
+        return IMAGE_CONTENT_PARSER_OVERRIDDEN.computeIfAbsent(getClass(), type -> {
+            try {
+                return type.getMethod("parseImageContent", String.class).getDeclaringClass() != DefaultAIImageHandler.class;
+            }
+            catch (NoSuchMethodException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+    }
+
     /**
      * Returns all possible paths to the error message in the JSON response parsed by {@link #parseImageContent(String)}.
      * The first path that matches a value in the JSON response will be used; remaining paths are ignored.
@@ -121,6 +167,7 @@ public class DefaultAIImageHandler implements AIImageHandler {
      * Returns all possible paths to the image content in the JSON response parsed by {@link #parseImageContent(String)}.
      * May not be empty.
      * The first path that matches a value in the JSON response will be used; remaining paths are ignored.
+     * Each path is compiled only once, see {@link org.omnifaces.ai.helper.JsonHelper#compile(String)}.
      * @implNote The default implementation throws UnsupportedOperationException.
      * @return all possible paths to the image content in the JSON response.
      */
@@ -12,20 +12,35 @@
  */
 package org.omnifaces.ai.modality;
 
+import static java.util.Collections.emptyList;
+import static java.util.concurrent.CompletableFuture.allOf;
+import static java.util.concurrent.CompletableFuture.completedFuture;
 import static java.util.logging.Level.WARNING;
+import static org.omnifaces.ai.helper.JsonHelper.compile;
 import static org.omnifaces.ai.helper.JsonHelper.findFirstNonBlankByPaths;
 import static org.omnifaces.ai.helper.JsonHelper.parseAndCheckErrors;
 import static org.omnifaces.ai.helper.JsonHelper.parseJson;
 
+import java.io.InputStream;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Predicate;
 import java.util.logging.Logger;
+import java.util.stream.Stream;
 
 import jakarta.json.JsonObject;
+import jakarta.json.JsonString;
+import jakarta.json.JsonValue;
 
 import org.omnifaces.ai.AIService;
 import org.omnifaces.ai.AITextHandler;
 import org.omnifaces.ai.exception.AIResponseException;
+import org.omnifaces.ai.model.ChatInput;
+import org.omnifaces.ai.model.ChatInput.Attachment;
+import org.omnifaces.ai.model.ChatOptions;
 import org.omnifaces.ai.model.ModerationOptions;
 
 /**
@@ -60,6 +75,8 @@ public class DefaultAITextHandler implements AITextHandler {
     /** Logger for current package. */
     protected static final Logger logger = Logger.getLogger(DefaultAITextHandler.class.getPackageName());
 
+    private static final Map<Class<?>, Boolean> CHAT_RESPONSE_PARSER_OVERRIDDEN = new ConcurrentHashMap<>();
+
     /** Default text analysis temperature: {@value} */
     protected static final double DEFAULT_TEXT_ANALYSIS_TEMPERATURE = 0.5;
     /** Default max words per keypoint: {@value} */
@@ -67,6 +84,74 @@ public class DefaultAITextHandler implements AITextHandler {
     /** Default words per moderate content category: {@value} */
     protected static final int DEFAULT_WORDS_PER_MODERATE_CONTENT_CATEGORY = 10;
 
+    /**
+     * @implNote This implementation uploads all files returned by {@link #getFilesToUpload(AIService, ChatInput)} concurrently via
+     * {@link AIService#uploadAsync(Attachment)}, and once they are all uploaded, delegates to
+     * {@link #buildChatPayload(AIService, ChatInput, ChatOptions, boolean)} with the obtained file IDs passed via
+     * {@link ChatInput#withUploadedFileIds(Map)}. If there are no files to upload, the payload is built immediately.
+     */
+    @Override
+    public CompletableFuture<JsonObject> buildChatPayloadAsync(AIService service, ChatInput input, ChatOptions options, boolean streaming) {
+        var files = getFilesToUpload(service, input);
+
+        if (files.isEmpty()) {
+            return completedFuture(buildChatPayload(service, input, options, streaming));
+        }
+
+        var uploads = files.stream().map(file -> service.uploadAsync(prepareFileUpload(service, file))).toList();
+
+        return allOf(uploads.toArray(CompletableFuture[]::new)).thenApply(ignore -> {
+            var uploadedFileIds = new HashMap<Attachment, String>();
+
+            for (var i = 0; i < files.size(); i++) {
+                uploadedFileIds.put(files.get(i), uploads.get(i).join());
+            }
+
+            return buildChatPayload(service, input.withUploadedFileIds(uploadedFileIds), options, streaming);
+        });
+    }
+
+    /**
+     * Returns the file attachments of the given chat input which need to be uploaded via {@link #uploadFile(AIService, ChatInput, Attachment)}
+     * during {@link #buildChatPayload(AIService, ChatInput, ChatOptions, boolean)}. These will be uploaded concurrently beforehand during
+     * {@link #buildChatPayloadAsync(AIService, ChatInput, ChatOptions, boolean)}.
+     * @implNote The default implementation returns an empty list.
+     * @param service The visiting AI service.
+     * @param input The chat input.
+     * @return The file attachments which need to be uploaded, never {@code null}.
+     * @throws UnsupportedOperationException if file upload is not supported.
+     * @since 1.2
+     */
+    protected List<Attachment> getFilesToUpload(AIService service, ChatInput input) {
+        return emptyList();
+    }
+
+    /**
+     * Prepares the given file attachment for upload, e.g. by adding upload metadata.
+     * @implNote The default implementation returns the given file attachment unmodified.
+     * @param service The visiting AI service.
+     * @param file The file attachment to upload.
+     * @return The file attachment to actually upload.
+     * @since 1.2
+     */
+    protected Attachment prepareFileUpload(AIService service, Attachment file) {
+        return file;
+    }
+
+    /**
+     * Returns the file ID of the given file attachment of the given chat input. If it is not already uploaded during
+     * {@link #buildChatPayloadAsync(AIService, ChatInput, ChatOptions, boolean)}, then it will be uploaded synchronously via
+     * {@link AIService#upload(Attachment)}.
+     * @param service The visiting AI service.
+     * @param input The chat input.
+     * @param file The file attachment of the chat input.
+     * @return The file ID of the given file attachment.
+     * @since 1.2
+     */
+    protected String uploadFile(AIService service, ChatInput input, Attachment file) {
+        return input.getUploadedFileId(file).orElseGet(() -> service.upload(prepareFileUpload(service, file)));
+    }
+
     @Override
     public double getDefaultCreativeTemperature() {
         return DEFAULT_TEXT_ANALYSIS_TEMPERATURE;
@@ -186,6 +271,72 @@ public class DefaultAITextHandler implements AITextHandler {
         return findFirstNonBlankByPaths(responseJson, messageContentPaths).orElseThrow(() -> new AIResponseException("No message content found at paths " + messageContentPaths, responseBody));
     }
 
+    /**
+     * @implNote The default implementation parses the stream directly with help of
+     * {@link org.omnifaces.ai.helper.JsonHelper#parseAndCheckErrors(InputStream, List, List, java.util.function.BiFunction)}, retaining
+     * only the values at {@link #getTextResponseErrorMessagePaths()} and {@link #getChatResponseContentPaths()}. When a subclass
+     * overrides {@link #parseChatResponse(String)}, then it reads the stream into a string and delegates to that method instead.
+     */
+    @Override
+    public String parseChatResponse(InputStream responseBody) throws AIResponseException {
+        if (isChatResponseParserOverridden()) {
+            return AITextHandler.super.parseChatResponse(responseBody);
+        }
+
+        var messageContentPaths = getChatResponseContentPaths();
+
+        if (messageContentPaths.isEmpty()) {
+            throw new IllegalStateException("getChatResponseContentPaths() may not return an empty list");
+        }
+
+        return parseAndCheckErrors(responseBody, getTextResponseErrorMessagePaths(), messageContentPaths, (responseJson, body) ->
+            findFirstNonBlankByPaths(responseJson, messageContentPaths).orElseThrow(() -> new AIResponseException("No message content found at paths " + messageContentPaths, body)));
+    }
+
+    /**
+     * @implNote The default implementation parses the stream directly with help of
+     * {@link org.omnifaces.ai.helper.JsonHelper#parseAndCheckErrors(InputStream, List, List, java.util.function.BiFunction)}, retaining
+     * only the values at {@link #getTextResponseErrorMessagePaths()} and {@link #getChatResponseContentPaths()}. When the message content
+     * is already a JSON object or array, it is returned as is. Otherwise the message content is parsed with help of
+     * {@link org.omnifaces.ai.helper.JsonHelper#parseJson(String)}. When a subclass overrides {@link #parseChatResponse(String)} or
+     * {@link #parseChatResponse(InputStream)}, then it delegates to {@link #parseChatResponse(InputStream)} instead.
+     */
+    @Override
+    public JsonValue parseStructuredChatResponse(InputStream responseBody) throws AIResponseException {
+        if (isChatResponseParserOverridden()) {
+            return AITextHandler.super.parseStructuredChatResponse(responseBody);
+        }
+
+        var messageContentPaths = getChatResponseContentPaths();
+
+        if (messageContentPaths.isEmpty()) {
+            throw new IllegalStateException("getChatResponseContentPaths() may not return an empty list");
+        }
+
+        return parseAndCheckErrors(responseBody, getTextResponseErrorMessagePaths(), messageContentPaths, (responseJson, body) -> {
+            for (var path : messageContentPaths) {
+                var content = compile(path).findValue(responseJson);
+
+                if (content.isPresent()) {
+                    return content.get() instanceof JsonString string ? parseJson(string.getString()) : content.get();
+                }
+            }
+
+            throw new AIResponseException("No message content found at paths " + messageContentPaths, body);
+        });
+    }
+
+    private boolean isChatResponseParserOverridden() {
+        return CHAT_RESPONSE_PARSER_OVERRIDDEN.computeIfAbsent(getClass(), type -> Stream.of(String.class, InputStream.class).anyMatch(parameterType -> {
+            try {
+                return type.getMethod("parseChatResponse", parameterType).getDeclaringClass() != DefaultAITextHandler.class;
+            }
+            catch (NoSuchMethodException e) {
+                throw new IllegalStateException(e);
+            }
+        }));
+    }
+
     @Override
     public String parseFileResponse(String responseBody) throws AIResponseException {
         var responseJson = parseAndCheckErrors(responseBody, getTextResponseErrorMessagePaths());
@@ -212,6 +363,7 @@ public class DefaultAITextHandler implements AITextHandler {
      * Returns all possible paths to the message content in the JSON response parsed by {@link #parseChatResponse(String)}.
      * May not be empty.
      * The first path that matches a value in the JSON response will be used; remaining paths are ignored.
+     * Each path is compiled only once, see {@link org.omnifaces.ai.helper.JsonHelper#compile(String)}.
      * @implNote The default implementation throws UnsupportedOperationException.
      * @return all possible paths to the message content in the JSON response.
      */
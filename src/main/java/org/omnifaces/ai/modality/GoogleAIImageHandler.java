@@ -12,9 +12,11 @@
  */
 package org.omnifaces.ai.modality;
 
+import static org.omnifaces.ai.helper.JsonProviderHelper.createArrayBuilder;
+import static org.omnifaces.ai.helper.JsonProviderHelper.createObjectBuilder;
+
 import java.util.List;
 
-import jakarta.json.Json;
 import jakarta.json.JsonObject;
 
 import org.omnifaces.ai.AIService;
@@ -34,16 +36,16 @@ public class GoogleAIImageHandler extends DefaultAIImageHandler {
 
     @Override
     public JsonObject buildGenerateImagePayload(AIService service, String prompt, GenerateImageOptions options) {
-        var generationConfig = Json.createObjectBuilder()
-            .add("responseModalities", Json.createArrayBuilder().add("IMAGE"))
-            .add("imageConfig", Json.createObjectBuilder()
+        var generationConfig = createObjectBuilder()
+            .add("responseModalities", createArrayBuilder().add("IMAGE"))
+            .add("imageConfig", createObjectBuilder()
                 .add("aspectRatio", options.getAspectRatio()));
 
-        return Json.createObjectBuilder()
-            .add("contents", Json.createArrayBuilder()
-                .add(Json.createObjectBuilder()
-                    .add("parts", Json.createArrayBuilder()
-                        .add(Json.createObjectBuilder()
+        return createObjectBuilder()
+            .add("contents", createArrayBuilder()
+                .add(createObjectBuilder()
+                    .add("parts", createArrayBuilder()
+                        .add(createObjectBuilder()
                             .add("text", prompt)))))
             .add("generationConfig", generationConfig)
             .build();
@@ -12,19 +12,22 @@
  */
 package org.omnifaces.ai.modality;
 
-import static org.omnifaces.ai.helper.JsonHelper.findByPath;
+import static org.omnifaces.ai.helper.JsonHelper.compile;
+import static org.omnifaces.ai.helper.JsonProviderHelper.createArrayBuilder;
+import static org.omnifaces.ai.helper.JsonProviderHelper.createObjectBuilder;
 import static org.omnifaces.ai.helper.TextHelper.isBlank;
 import static org.omnifaces.ai.model.Sse.Event.Type.DATA;
 
 import java.util.List;
 import java.util.function.Consumer;
 
-import jakarta.json.Json;
 import jakarta.json.JsonObject;
 
 import org.omnifaces.ai.AIService;
 import org.omnifaces.ai.exception.AITokenLimitExceededException;
+import org.omnifaces.ai.helper.JsonPath;
 import org.omnifaces.ai.model.ChatInput;
+import org.omnifaces.ai.model.ChatInput.Attachment;
 import org.omnifaces.ai.model.ChatInput.Message.Role;
 import org.omnifaces.ai.model.ChatOptions;
 import org.omnifaces.ai.model.Sse.Event;
@@ -41,73 +44,76 @@ public class GoogleAITextHandler extends DefaultAITextHandler {
 
     private static final long serialVersionUID = 1L;
 
+    private static final JsonPath STREAM_TEXT_PATH = compile("candidates[0].content.parts[0].text");
+    private static final JsonPath STREAM_FINISH_REASON_PATH = compile("candidates[0].finishReason");
+
     @Override
     public JsonObject buildChatPayload(AIService service, ChatInput input, ChatOptions options, boolean streaming) {
-        var payload = Json.createObjectBuilder();
+        var payload = createObjectBuilder();
 
         if (!isBlank(options.getSystemPrompt())) {
-            payload.add("system_instruction", Json.createObjectBuilder()
-                .add("parts", Json.createArrayBuilder()
-                    .add(Json.createObjectBuilder()
+            payload.add("system_instruction", createObjectBuilder()
+                .add("parts", createArrayBuilder()
+                    .add(createObjectBuilder()
                         .add("text", options.getSystemPrompt()))));
         }
 
-        var contents = Json.createArrayBuilder();
+        var contents = createArrayBuilder();
 
         for (var historyMessage : input.getHistory()) {
-            var parts = Json.createArrayBuilder();
+            var parts = createArrayBuilder();
 
             for (var uploadedFile : historyMessage.uploadedFiles()) {
-                parts.add(Json.createObjectBuilder()
-                    .add("file_data", Json.createObjectBuilder()
+                parts.add(createObjectBuilder()
+                    .add("file_data", createObjectBuilder()
                         .add("mime_type", uploadedFile.mimeType().value())
                         .add("file_uri", uploadedFile.id())));
             }
 
-            parts.add(Json.createObjectBuilder()
+            parts.add(createObjectBuilder()
                 .add("text", historyMessage.content()));
 
-            contents.add(Json.createObjectBuilder()
+            contents.add(createObjectBuilder()
                 .add("role", historyMessage.role() == Role.USER ? "user" : "model")
                 .add("parts", parts));
         }
 
-        var parts = Json.createArrayBuilder();
+        var parts = createArrayBuilder();
 
         for (var image : input.getImages()) {
-            parts.add(Json.createObjectBuilder()
-                .add("inline_data", Json.createObjectBuilder()
+            parts.add(createObjectBuilder()
+                .add("inline_data", createObjectBuilder()
                     .add("mime_type", image.mimeType().value())
-                    .add("data", image.toBase64())));
+                    .add("data", image.toBase64Slot())));
         }
 
         if (!input.getFiles().isEmpty()) {
             checkSupportsFileAttachments(service);
 
             for (var file : input.getFiles()) {
-                var fileId = service.upload(file);
+                var fileId = uploadFile(service, input, file);
 
                 if (options.hasMemory()) {
                     options.recordUploadedFile(fileId, file.mimeType());
                 }
 
-                parts.add(Json.createObjectBuilder()
-                    .add("file_data", Json.createObjectBuilder()
+                parts.add(createObjectBuilder()
+                    .add("file_data", createObjectBuilder()
                         .add("mime_type", file.mimeType().value())
                         .add("file_uri", fileId)));
             }
         }
 
-        parts.add(Json.createObjectBuilder()
+        parts.add(createObjectBuilder()
             .add("text", input.getMessage()));
 
-        contents.add(Json.createObjectBuilder()
+        contents.add(createObjectBuilder()
             .add("role", "user")
             .add("parts", parts));
 
         payload.add("contents", contents);
 
-        var generationConfig = Json.createObjectBuilder()
+        var generationConfig = createObjectBuilder()
             .add("temperature", options.getTemperature());
 
         if (options.getMaxTokens() != null) {
@@ -130,6 +136,15 @@ public class GoogleAITextHandler extends DefaultAITextHandler {
             .build();
     }
 
+    @Override
+    protected List<Attachment> getFilesToUpload(AIService service, ChatInput input) {
+        if (!input.getFiles().isEmpty()) {
+            checkSupportsFileAttachments(service);
+        }
+
+        return input.getFiles();
+    }
+
     @Override
     public List<String> getChatResponseContentPaths() {
         return List.of("candidates[0].content.parts[0].text");
@@ -144,8 +159,8 @@ public class GoogleAITextHandler extends DefaultAITextHandler {
     public boolean processChatStreamEvent(AIService service, Event event, Consumer<String> onToken) {
         if (event.type() == DATA) {
             return tryParseEventDataJson(event.value(), json -> {
-                findByPath(json, "candidates[0].content.parts[0].text").ifPresent(onToken);
-                var finishReason = findByPath(json, "candidates[0].finishReason");
+                STREAM_TEXT_PATH.find(json).ifPresent(onToken);
+                var finishReason = STREAM_FINISH_REASON_PATH.find(json);
 
                 if (finishReason.filter("STOP"::equals).isPresent()) {
                     return false;
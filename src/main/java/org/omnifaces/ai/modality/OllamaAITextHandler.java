@@ -12,11 +12,12 @@
  */
 package org.omnifaces.ai.modality;
 
+import static org.omnifaces.ai.helper.JsonProviderHelper.createArrayBuilder;
+import static org.omnifaces.ai.helper.JsonProviderHelper.createObjectBuilder;
 import static org.omnifaces.ai.helper.TextHelper.isBlank;
 
 import java.util.List;
 
-import jakarta.json.Json;
 import jakarta.json.JsonObject;
 
 import org.omnifaces.ai.AIService;
@@ -38,27 +39,27 @@ public class OllamaAITextHandler extends DefaultAITextHandler {
 
     @Override
     public JsonObject buildChatPayload(AIService service, ChatInput input, ChatOptions options, boolean streaming) {
-        var messages = Json.createArrayBuilder();
+        var messages = createArrayBuilder();
 
         if (!isBlank(options.getSystemPrompt())) {
-            messages.add(Json.createObjectBuilder()
+            messages.add(createObjectBuilder()
                 .add("role", "system")
                 .add("content", options.getSystemPrompt()));
         }
 
         for (var historyMessage : input.getHistory()) {
-            messages.add(Json.createObjectBuilder()
+            messages.add(createObjectBuilder()
                 .add("role", historyMessage.role() == Role.USER ? "user" : "assistant")
                 .add("content", historyMessage.content()));
         }
 
-        var message = Json.createObjectBuilder().add("role", "user");
+        var message = createObjectBuilder().add("role", "user");
 
         if (!input.getImages().isEmpty()) {
-            var images = Json.createArrayBuilder();
+            var images = createArrayBuilder();
 
             for (var image : input.getImages()) {
-                images.add(image.toBase64());
+                images.add(image.toBase64Slot());
             }
 
             message.add("images", images);
@@ -67,7 +68,7 @@ public class OllamaAITextHandler extends DefaultAITextHandler {
         messages.add(message
             .add("content", input.getMessage()));
 
-        var optionsBuilder = Json.createObjectBuilder()
+        var optionsBuilder = createObjectBuilder()
             .add("temperature", options.getTemperature());
 
         if (options.getMaxTokens() != null) {
@@ -78,7 +79,7 @@ public class OllamaAITextHandler extends DefaultAITextHandler {
             optionsBuilder.add("top_p", options.getTopP());
         }
 
-        var payload = Json.createObjectBuilder()
+        var payload = createObjectBuilder()
             .add("model", service.getModelName())
             .add("messages", messages)
             .add("options", optionsBuilder)
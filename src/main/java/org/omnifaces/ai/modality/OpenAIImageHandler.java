@@ -12,9 +12,10 @@
  */
 package org.omnifaces.ai.modality;
 
+import static org.omnifaces.ai.helper.JsonProviderHelper.createObjectBuilder;
+
 import java.util.List;
 
-import jakarta.json.Json;
 import jakarta.json.JsonObject;
 
 import org.omnifaces.ai.AIService;
@@ -34,7 +35,7 @@ public class OpenAIImageHandler extends DefaultAIImageHandler {
 
     @Override
     public JsonObject buildGenerateImagePayload(AIService service, String prompt, GenerateImageOptions options) {
-        return Json.createObjectBuilder()
+        return createObjectBuilder()
             .add("model", service.getModelName())
             .add("prompt", prompt)
             .add("n", 1)
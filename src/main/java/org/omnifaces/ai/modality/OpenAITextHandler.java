@@ -12,29 +12,34 @@
  */
 package org.omnifaces.ai.modality;
 
+import static java.util.Collections.emptyList;
 import static org.omnifaces.ai.helper.JsonHelper.addStrictAdditionalProperties;
-import static org.omnifaces.ai.helper.JsonHelper.findByPath;
+import static org.omnifaces.ai.helper.JsonHelper.compile;
+import static org.omnifaces.ai.helper.JsonProviderHelper.createArrayBuilder;
+import static org.omnifaces.ai.helper.JsonProviderHelper.createObjectBuilder;
 import static org.omnifaces.ai.helper.TextHelper.isBlank;
 import static org.omnifaces.ai.model.Sse.Event.Type.DATA;
 import static org.omnifaces.ai.model.Sse.Event.Type.EVENT;
 
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
 
-import jakarta.json.Json;
 import jakarta.json.JsonObject;
 
 import org.omnifaces.ai.AIModelVersion;
 import org.omnifaces.ai.AIService;
 import org.omnifaces.ai.exception.AIResponseException;
 import org.omnifaces.ai.exception.AITokenLimitExceededException;
+import org.omnifaces.ai.helper.JsonPath;
 import org.omnifaces.ai.model.ChatInput;
 import org.omnifaces.ai.model.ChatInput.Attachment;
 import org.omnifaces.ai.model.ChatInput.Message.Role;
 import org.omnifaces.ai.model.ChatOptions;
 import org.omnifaces.ai.model.Sse.Event;
+import org.omnifaces.ai.model.Sse.EventFilter;
 import org.omnifaces.ai.service.OpenAIService;
 
 /**
@@ -50,13 +55,18 @@ public class OpenAITextHandler extends DefaultAITextHandler {
 
     private static final AIModelVersion GPT_5 = AIModelVersion.of("gpt", 5);
 
+    private static final EventFilter RESPONSES_API_STREAM_EVENT_FILTER = new EventFilter(Set.of("response.completed", "response.incomplete"), Set.of("response.output_text.delta", "response.failed"));
+    private static final EventFilter CHAT_COMPLETIONS_API_STREAM_EVENT_FILTER = new EventFilter(null, Set.of("chat.completion.chunk", "DONE"));
+    private static final JsonPath CHAT_COMPLETIONS_API_STREAM_CONTENT_PATH = compile("choices[0].delta.content");
+    private static final JsonPath CHAT_COMPLETIONS_API_STREAM_FINISH_REASON_PATH = compile("choices[0].finish_reason");
+
     @Override
     public JsonObject buildChatPayload(AIService service, ChatInput input, ChatOptions options, boolean streaming) {
         var currentModelVersion = service.getModelVersion();
         var audioFiles = input.getFiles().stream().filter(attachment -> attachment.mimeType().isAudio()).toList();
         var remainingFiles = input.getFiles().stream().filter(attachment -> !attachment.mimeType().isAudio()).toList();
         var supportsResponsesApi = supportsResponsesApi(service);
-        var payload = Json.createObjectBuilder()
+        var payload = createObjectBuilder()
             .add("model", service.getModelName());
 
         if (options.getMaxTokens() != null) {
@@ -64,14 +74,14 @@ public class OpenAITextHandler extends DefaultAITextHandler {
             payload.add(maxTokensField, options.getMaxTokens());
         }
 
-        var message = Json.createArrayBuilder();
+        var message = createArrayBuilder();
 
         if (!isBlank(options.getSystemPrompt())) {
             if (supportsResponsesApi) {
                 payload.add("instructions", options.getSystemPrompt());
             }
             else {
-                message.add(Json.createObjectBuilder()
+                message.add(createObjectBuilder()
                     .add("role", "system")
                     .add("content", options.getSystemPrompt()));
             }
@@ -79,45 +89,45 @@ public class OpenAITextHandler extends DefaultAITextHandler {
 
         for (var historyMessage : input.getHistory()) {
             if (supportsFilesApi(service)) {
-                var content = Json.createArrayBuilder();
+                var content = createArrayBuilder();
                 for (var uploadedFile : historyMessage.uploadedFiles()) {
-                    content.add(Json.createObjectBuilder()
+                    content.add(createObjectBuilder()
                         .add("type", supportsResponsesApi ? "input_file" : "file")
                         .add("file_id", uploadedFile.id()));
                 }
-                content.add(Json.createObjectBuilder()
+                content.add(createObjectBuilder()
                     .add("type", supportsResponsesApi ? (historyMessage.role() == Role.USER) ? "input_text" : "output_text" : "text")
                     .add("text", historyMessage.content()));
-                message.add(Json.createObjectBuilder()
+                message.add(createObjectBuilder()
                     .add("role", historyMessage.role() == Role.USER ? "user" : "assistant")
                     .add("content", content));
             }
             else {
-                message.add(Json.createObjectBuilder()
+                message.add(createObjectBuilder()
                     .add("role", historyMessage.role() == Role.USER ? "user" : "assistant")
                     .add("content", historyMessage.content()));
             }
         }
 
-        var content = Json.createArrayBuilder();
+        var content = createArrayBuilder();
 
         for (var image : input.getImages()) {
-            var img = Json.createObjectBuilder().add("type", supportsResponsesApi ? "input_image" : "image_url");
+            var img = createObjectBuilder().add("type", supportsResponsesApi ? "input_image" : "image_url");
 
             if (supportsResponsesApi) {
-                img.add("image_url", image.toDataUri());
+                img.add("image_url", image.toDataUriSlot());
             }
             else {
-                img.add("image_url", Json.createObjectBuilder().add("url", image.toDataUri()));
+                img.add("image_url", createObjectBuilder().add("url", image.toDataUriSlot()));
             }
 
             content.add(img);
         }
 
         for (var audioFile : audioFiles) {
-            content.add(Json.createObjectBuilder().add("type", "input_audio")
-                .add("input_audio", Json.createObjectBuilder()
-                    .add(supportsResponsesApi ? "audio_base64" : "data", audioFile.toBase64())
+            content.add(createObjectBuilder().add("type", "input_audio")
+                .add("input_audio", createObjectBuilder()
+                    .add(supportsResponsesApi ? "audio_base64" : "data", audioFile.toBase64Slot())
                     .add("format", audioFile.mimeType().extension())));
         }
 
@@ -126,37 +136,37 @@ public class OpenAITextHandler extends DefaultAITextHandler {
 
             for (var file : remainingFiles) {
                 if (supportsFilesApi(service)) {
-                    var fileId = service.upload(file.withMetadata(getFileUploadMetadata(service, file)));
+                    var fileId = uploadFile(service, input, file);
 
                     if (options.hasMemory()) {
                         options.recordUploadedFile(fileId, file.mimeType());
                     }
 
-                    content.add(Json.createObjectBuilder()
+                    content.add(createObjectBuilder()
                         .add("type", supportsResponsesApi ? "input_file" : "file")
                         .add("file_id", fileId));
                 }
                 else if (supportsResponsesApi) {
-                    content.add(Json.createObjectBuilder()
+                    content.add(createObjectBuilder()
                         .add("type", "input_file")
                         .add("filename", file.fileName())
-                        .add("file_data", file.toDataUri()));
+                        .add("file_data", file.toDataUriSlot()));
                 }
                 else {
-                    content.add(Json.createObjectBuilder()
+                    content.add(createObjectBuilder()
                         .add("type", "file")
-                        .add("file", Json.createObjectBuilder()
+                        .add("file", createObjectBuilder()
                             .add("filename", file.fileName())
-                            .add("file_data", file.toDataUri())));
+                            .add("file_data", file.toDataUriSlot())));
                 }
             }
         }
 
-        content.add(Json.createObjectBuilder()
+        content.add(createObjectBuilder()
             .add("type", supportsResponsesApi ? "input_text" : "text")
             .add("text", input.getMessage()));
 
-        message.add(Json.createObjectBuilder()
+        message.add(createObjectBuilder()
             .add("role", "user")
             .add("content", content));
 
@@ -178,18 +188,18 @@ public class OpenAITextHandler extends DefaultAITextHandler {
         if (options.getJsonSchema() != null) {
             checkSupportsStructuredOutput(service);
 
-            var strictSchema = Json.createObjectBuilder()
+            var strictSchema = createObjectBuilder()
                 .add("name", "response_schema")
                 .add("strict", true)
                 .add("schema", addStrictAdditionalProperties(options.getJsonSchema()));
 
             if (supportsResponsesApi) {
-                var format = Json.createObjectBuilder().add("type", "json_schema");
+                var format = createObjectBuilder().add("type", "json_schema");
                 strictSchema.build().forEach(format::add);
-                payload.add("text", Json.createObjectBuilder().add("format", format));
+                payload.add("text", createObjectBuilder().add("format", format));
             }
             else {
-                payload.add("response_format", Json.createObjectBuilder()
+                payload.add("response_format", createObjectBuilder()
                     .add("type", "json_schema")
                     .add("json_schema", strictSchema));
             }
@@ -198,6 +208,26 @@ public class OpenAITextHandler extends DefaultAITextHandler {
         return payload.build();
     }
 
+    @Override
+    protected List<Attachment> getFilesToUpload(AIService service, ChatInput input) {
+        var remainingFiles = input.getFiles().stream().filter(attachment -> !attachment.mimeType().isAudio()).toList();
+
+        if (remainingFiles.isEmpty()) {
+            return remainingFiles;
+        }
+
+        checkSupportsFileAttachments(service);
+        return supportsFilesApi(service) ? remainingFiles : emptyList();
+    }
+
+    /**
+     * @implNote This implementation adds the file upload metadata obtained from {@link #getFileUploadMetadata(AIService, Attachment)}.
+     */
+    @Override
+    protected Attachment prepareFileUpload(AIService service, Attachment file) {
+        return file.withMetadata(getFileUploadMetadata(service, file));
+    }
+
     /**
      * Returns file upload metadata. This basically represents additional form data during file upload request.
      * @param service The visiting AI service.
@@ -214,6 +244,11 @@ public class OpenAITextHandler extends DefaultAITextHandler {
         return List.of("output[*].content[*].text", "choices[0].message.content");
     }
 
+    @Override
+    public EventFilter getChatStreamEventFilter(AIService service) {
+        return supportsResponsesApi(service) ? RESPONSES_API_STREAM_EVENT_FILTER : CHAT_COMPLETIONS_API_STREAM_EVENT_FILTER;
+    }
+
     @Override
     public boolean processChatStreamEvent(AIService service, Event event, Consumer<String> onToken) {
         if (supportsResponsesApi(service)) {
@@ -240,7 +275,7 @@ public class OpenAITextHandler extends DefaultAITextHandler {
                 throw new AITokenLimitExceededException();
             }
         }
-        else if (event.type() == DATA && (event.value().contains("response.output_text.delta") || event.value().contains("response.failed"))) { // Cheap pre-filter before expensive parse because OpenAI returns pretty a lot of events.
+        else if (event.type() == DATA) {
             return tryParseEventDataJson(event.value(), json -> {
                 var type = json.getString("type", null);
 
@@ -273,11 +308,11 @@ public class OpenAITextHandler extends DefaultAITextHandler {
             if ("DONE".equalsIgnoreCase(event.value())) {
                 return false;
             }
-            else if (event.value().contains("chat.completion.chunk")) { // Cheap pre-filter before expensive parse.
+            else {
                 return tryParseEventDataJson(event.value(), json -> {
                     if ("chat.completion.chunk".equals(json.getString("object", null))) {
-                        findByPath(json, "choices[0].delta.content").ifPresent(onToken);
-                        findByPath(json, "choices[0].finish_reason").filter("length"::equals).ifPresent(__ -> { throw new AITokenLimitExceededException(); });
+                        CHAT_COMPLETIONS_API_STREAM_CONTENT_PATH.find(json).ifPresent(onToken);
+                        CHAT_COMPLETIONS_API_STREAM_FINISH_REASON_PATH.find(json).filter("length"::equals).ifPresent(__ -> { throw new AITokenLimitExceededException(); });
                     }
 
                     return true;
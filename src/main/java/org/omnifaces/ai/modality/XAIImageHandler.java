@@ -12,7 +12,8 @@
  */
 package org.omnifaces.ai.modality;
 
-import jakarta.json.Json;
+import static org.omnifaces.ai.helper.JsonProviderHelper.createObjectBuilder;
+
 import jakarta.json.JsonObject;
 
 import org.omnifaces.ai.AIService;
@@ -32,7 +33,7 @@ public class XAIImageHandler extends OpenAIImageHandler {
 
     @Override
     public JsonObject buildGenerateImagePayload(AIService service, String prompt, GenerateImageOptions options) {
-        return Json.createObjectBuilder()
+        return createObjectBuilder()
             .add("model", service.getModelName())
             .add("prompt", prompt)
             .add("n", 1)
@@ -0,0 +1,165 @@
+/*
+ * Copyright OmniFaces
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.omnifaces.ai.model;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static java.util.Objects.requireNonNull;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.Base64;
+
+import jakarta.json.JsonString;
+
+import org.omnifaces.ai.model.ChatInput.Attachment;
+
+/**
+ * Represents a Base64 encoded attachment in a JSON request payload, without materializing the Base64 encoded string.
+ * <p>
+ * This is a {@link JsonString} which can be added to a {@link jakarta.json.JsonObjectBuilder} or {@link jakarta.json.JsonArrayBuilder}
+ * like any other JSON string. When the payload is sent by a {@link org.omnifaces.ai.service.BaseAIService}, the attachment content is
+ * Base64 encoded on the fly in bounded chunks directly into the HTTP request body, so that the content is never copied into a Base64
+ * encoded string, a JSON string, or a serialized payload string. Only when {@link #getString()} is explicitly invoked, e.g. during
+ * {@link Object#toString()} of the payload, the Base64 encoded string is materialized.
+ *
+ * @author Bauke Scholtz
+ * @since 1.2
+ * @see Attachment#toBase64Slot()
+ * @see Attachment#toDataUriSlot()
+ */
+public final class AttachmentSlot implements JsonString {
+
+    private static final int CHUNK_SIZE = 3 * 8192; // Must be a multiple of 3 so that there's no Base64 padding in between chunks.
+
+    private final byte[] content;
+    private final String prefix;
+    private final byte[] prefixBytes;
+
+    /**
+     * Creates a new attachment slot.
+     *
+     * @param content The content bytes to be Base64 encoded.
+     * @param prefix The string to prepend the Base64 encoded content with, e.g. {@code data:image/png;base64,}. Must be ASCII and may
+     * not contain characters which require escaping in JSON.
+     */
+    AttachmentSlot(byte[] content, String prefix) {
+        this.content = requireNonNull(content, "content");
+        this.prefix = requireNonNull(prefix, "prefix");
+        this.prefixBytes = prefix.getBytes(US_ASCII);
+    }
+
+    /**
+     * Returns the length of this slot in bytes, i.e. the length of the prefix plus the length of the Base64 encoded content.
+     * @return The length of this slot in bytes.
+     */
+    public long length() {
+        return prefixBytes.length + 4L * ((content.length + 2) / 3);
+    }
+
+    /**
+     * Returns a new input stream which returns the prefix followed by the Base64 encoded content, encoded on the fly in bounded chunks.
+     * The returned bytes are ASCII and can be written as-is in between the quotes of a JSON string.
+     * @return A new input stream of this slot.
+     */
+    public InputStream newInputStream() {
+        return new Base64InputStream();
+    }
+
+    /**
+     * Updates the given message digest with the length, the prefix and the raw content of this slot, so that a payload containing this slot
+     * can be hashed without Base64 encoding its content.
+     * @param digest The message digest to update.
+     */
+    public void updateDigest(MessageDigest digest) {
+        digest.update(ByteBuffer.allocate(Long.BYTES).putLong(length()).flip());
+        digest.update(prefixBytes);
+        digest.update(content);
+    }
+
+    @Override
+    public String getString() {
+        return prefix + Base64.getEncoder().encodeToString(content);
+    }
+
+    @Override
+    public CharSequence getChars() {
+        return getString();
+    }
+
+    @Override
+    public ValueType getValueType() {
+        return ValueType.STRING;
+    }
+
+    @Override
+    public boolean equals(Object object) {
+        if (this == object) {
+            return true;
+        }
+
+        if (object instanceof AttachmentSlot other) {
+            return prefix.equals(other.prefix) && Arrays.equals(content, other.content);
+        }
+
+        return object instanceof JsonString other && getString().equals(other.getString());
+    }
+
+    @Override
+    public int hashCode() {
+        return getString().hashCode(); // As per JsonString contract.
+    }
+
+    @Override
+    public String toString() {
+        return '"' + getString() + '"';
+    }
+
+    private class Base64InputStream extends InputStream {
+
+        private final Base64.Encoder encoder = Base64.getEncoder();
+        private byte[] chunk = prefixBytes;
+        private int chunkPosition;
+        private int contentPosition;
+
+        @Override
+        public int read() {
+            var single = new byte[1];
+            return read(single, 0, 1) == -1 ? -1 : single[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) {
+            if (length == 0) {
+                return 0;
+            }
+
+            if (chunkPosition == chunk.length) {
+                if (contentPosition == content.length) {
+                    return -1;
+                }
+
+                var end = Math.min(contentPosition + CHUNK_SIZE, content.length);
+                chunk = encoder.encode(ByteBuffer.wrap(content, contentPosition, end - contentPosition)).array();
+                chunkPosition = 0;
+                contentPosition = end;
+            }
+
+            var read = Math.min(length, chunk.length - chunkPosition);
+            System.arraycopy(chunk, chunkPosition, bytes, offset, read);
+            chunkPosition += read;
+            return read;
+        }
+    }
+}
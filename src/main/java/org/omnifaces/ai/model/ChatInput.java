@@ -29,6 +29,7 @@ import java.util.Base64;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 
 import org.omnifaces.ai.helper.ImageHelper;
 import org.omnifaces.ai.mime.MimeType;
@@ -152,6 +153,28 @@ public class ChatInput implements Serializable {
             return "data:" + mimeType.value() + ";base64," + toBase64();
         }
 
+        /**
+         * Converts this attachment to a Base64 encoded JSON string slot for use in a JSON request payload. The Base64 encoded content
+         * is not materialized but streamed directly into the HTTP request body.
+         * @return The Base64 encoded content as JSON string slot.
+         * @since 1.2
+         * @see AttachmentSlot
+         */
+        public AttachmentSlot toBase64Slot() {
+            return new AttachmentSlot(content, "");
+        }
+
+        /**
+         * Converts this attachment to a data URI JSON string slot for use in a JSON request payload. The Base64 encoded content is not
+         * materialized but streamed directly into the HTTP request body.
+         * @return The data URI in the format {@code data:<media-type>;base64,<data>} as JSON string slot.
+         * @since 1.2
+         * @see AttachmentSlot
+         */
+        public AttachmentSlot toDataUriSlot() {
+            return new AttachmentSlot(content, "data:" + mimeType.value() + ";base64,");
+        }
+
         /**
          * Returns a copy of this attachment with the specified additional metadata.
          *
@@ -200,16 +223,19 @@ public class ChatInput implements Serializable {
     private final List<Attachment> files;
     /** The conversation history. */
     private final List<Message> history;
+    /** The IDs of the file attachments which are already uploaded. */
+    private final Map<Attachment, String> uploadedFileIds;
 
     private ChatInput(Builder builder) {
-        this(builder.message, builder.images, builder.files, emptyList());
+        this(builder.message, builder.images, builder.files, emptyList(), emptyMap());
     }
 
-    private ChatInput(String message, List<Attachment> images, List<Attachment> files, List<Message> history) {
+    private ChatInput(String message, List<Attachment> images, List<Attachment> files, List<Message> history, Map<Attachment, String> uploadedFileIds) {
         this.message = message;
         this.images = unmodifiableList(images);
         this.files = unmodifiableList(files);
         this.history = history;
+        this.uploadedFileIds = uploadedFileIds;
     }
 
     /**
@@ -256,7 +282,33 @@ public class ChatInput implements Serializable {
      * @return A new {@code ChatInput} containing the same message, images, and files, but with the given history.
      */
     public ChatInput withHistory(List<Message> history) {
-        return new ChatInput(message, images, files, unmodifiableList(history));
+        return new ChatInput(message, images, files, unmodifiableList(history), uploadedFileIds);
+    }
+
+    /**
+     * Gets the ID of the given file attachment if it is already uploaded.
+     *
+     * @param file One of the file attachments of this input.
+     * @return The ID of the given file attachment, or empty if it is not uploaded yet.
+     * @since 1.2
+     * @see #withUploadedFileIds(Map)
+     */
+    public Optional<String> getUploadedFileId(Attachment file) {
+        return Optional.ofNullable(uploadedFileIds.get(file));
+    }
+
+    /**
+     * Returns a copy of this input with the specified IDs of already uploaded file attachments.
+     * <p>
+     * This is used by {@link org.omnifaces.ai.AITextHandler#buildChatPayloadAsync(org.omnifaces.ai.AIService, ChatInput, ChatOptions, boolean)}
+     * to pass the file IDs obtained from concurrent uploads to the chat payload builder, so that it does not need to upload them once again.
+     *
+     * @param uploadedFileIds The IDs of already uploaded file attachments, keyed by the file attachment of this input.
+     * @return A new {@code ChatInput} containing the same message, images, files, and history, but with the given uploaded file IDs.
+     * @since 1.2
+     */
+    public ChatInput withUploadedFileIds(Map<Attachment, String> uploadedFileIds) {
+        return new ChatInput(message, images, files, history, Map.copyOf(uploadedFileIds));
     }
 
     /**
@@ -13,6 +13,7 @@
 package org.omnifaces.ai.model;
 
 import static java.util.Collections.emptyList;
+import static java.util.Objects.requireNonNull;
 import static java.util.stream.Collectors.toUnmodifiableList;
 import static java.util.stream.IntStream.iterate;
 import static org.omnifaces.ai.helper.JsonHelper.parseJson;
@@ -21,6 +22,7 @@ import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.io.Serializable;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -50,6 +52,24 @@ public class ChatOptions implements Serializable {
 
     private static final long serialVersionUID = 1L;
 
+    /**
+     * The priority of a chat request, used to order chat requests which are queued by the bulkhead of the AI service.
+     *
+     * @since 1.2
+     * @see org.omnifaces.ai.AIConfig#PROPERTY_MAX_CONCURRENT_REQUESTS
+     */
+    public enum Priority {
+
+        /** Interactive chat requests, e.g. from a user interface, which always go ahead of all other queued requests. */
+        INTERACTIVE,
+
+        /** Default chat requests. */
+        DEFAULT,
+
+        /** Bulk chat requests, e.g. from a batch job, which only go when no other requests are queued. */
+        BULK;
+    }
+
     /** Default temperature: {@value}. */
     public static final double DEFAULT_TEMPERATURE = 0.7;
 
@@ -90,6 +110,12 @@ public class ChatOptions implements Serializable {
     private final int maxHistory;
     /** The uploaded file history for memory-enabled chat sessions. */
     private final Map<Message, List<UploadedFile>> uploadedFileHistory;
+    /** The priority. */
+    private final Priority priority;
+    /** The timeout. */
+    private final Duration timeout;
+    /** Whether the response may be cached. */
+    private final boolean cacheable;
 
     private ChatOptions(Builder builder) {
         this.systemPrompt = builder.systemPrompt;
@@ -100,6 +126,9 @@ public class ChatOptions implements Serializable {
         this.history = builder.maxHistory > 0 ? new ArrayList<>() : null;
         this.maxHistory = builder.maxHistory;
         this.uploadedFileHistory = builder.maxHistory > 0 ? new HashMap<>() : null;
+        this.priority = builder.priority;
+        this.timeout = builder.timeout;
+        this.cacheable = builder.cacheable;
     }
 
     private ChatOptions(ChatOptions source, JsonObject jsonSchema) {
@@ -111,6 +140,9 @@ public class ChatOptions implements Serializable {
         this.history = source.history;
         this.maxHistory = source.maxHistory;
         this.uploadedFileHistory = source.uploadedFileHistory;
+        this.priority = source.priority;
+        this.timeout = source.timeout;
+        this.cacheable = source.cacheable;
     }
 
     private ChatOptions(ChatOptions source, String systemPrompt) {
@@ -122,6 +154,37 @@ public class ChatOptions implements Serializable {
         this.history = source.history;
         this.maxHistory = source.maxHistory;
         this.uploadedFileHistory = source.uploadedFileHistory;
+        this.priority = source.priority;
+        this.timeout = source.timeout;
+        this.cacheable = source.cacheable;
+    }
+
+    private ChatOptions(ChatOptions source, Priority priority) {
+        this.systemPrompt = source.systemPrompt;
+        this.jsonSchema = source.jsonSchema;
+        this.temperature = source.temperature;
+        this.maxTokens = source.maxTokens;
+        this.topP = source.topP;
+        this.history = source.history;
+        this.maxHistory = source.maxHistory;
+        this.uploadedFileHistory = source.uploadedFileHistory;
+        this.priority = priority;
+        this.timeout = source.timeout;
+        this.cacheable = source.cacheable;
+    }
+
+    private ChatOptions(ChatOptions source, Duration timeout) {
+        this.systemPrompt = source.systemPrompt;
+        this.jsonSchema = source.jsonSchema;
+        this.temperature = source.temperature;
+        this.maxTokens = source.maxTokens;
+        this.topP = source.topP;
+        this.history = source.history;
+        this.maxHistory = source.maxHistory;
+        this.uploadedFileHistory = source.uploadedFileHistory;
+        this.priority = source.priority;
+        this.timeout = timeout;
+        this.cacheable = source.cacheable;
     }
 
     /**
@@ -269,6 +332,84 @@ public class ChatOptions implements Serializable {
         return topP;
     }
 
+    /**
+     * Gets the priority of the chat request. Defaults to {@link Priority#DEFAULT}.
+     * <p>
+     * This only has effect when the AI service has a bulkhead configured via
+     * {@link org.omnifaces.ai.AIConfig#PROPERTY_MAX_CONCURRENT_REQUESTS} and the chat request has to wait in its queue: the queued
+     * requests with a higher priority always go first.
+     *
+     * @return The priority of the chat request.
+     * @since 1.2
+     */
+    public Priority getPriority() {
+        return priority;
+    }
+
+    /**
+     * Returns a copy of this instance with the given priority set, preserving all other options including
+     * any shared {@link #hasMemory() memory} state.
+     *
+     * @param priority The priority of the chat request.
+     * @return A new {@code ChatOptions} instance with the specified priority.
+     * @throws NullPointerException if priority is null.
+     * @since 1.2
+     */
+    public ChatOptions withPriority(Priority priority) {
+        return new ChatOptions(this, requireNonNull(priority, "priority"));
+    }
+
+    /**
+     * Gets the timeout of the chat request, which is the time budget of the whole call, including any time spent in queues, in rate limit
+     * delays and in retries. Defaults to the timeout of the AI service as configured via {@link org.omnifaces.ai.AIConfig#PROPERTY_TIMEOUT}.
+     * <p>
+     * The deadline of the call starts when the chat method is invoked. The timeout of each attempt is capped at the remaining time, retries
+     * which cannot be started before the deadline are skipped, and when the deadline expires, the call fails with
+     * {@link org.omnifaces.ai.exception.AIDeadlineExceededException} and its HTTP exchange is aborted.
+     *
+     * @return The timeout of the chat request, or {@code null} to use the AI service's default.
+     * @since 1.2
+     */
+    public Duration getTimeout() {
+        return timeout;
+    }
+
+    /**
+     * Returns a copy of this instance with the given timeout set, preserving all other options including
+     * any shared {@link #hasMemory() memory} state.
+     *
+     * @param timeout The timeout of the chat request. Must be positive, or {@code null} to use the AI service's default.
+     * @return A new {@code ChatOptions} instance with the specified timeout.
+     * @throws IllegalArgumentException if timeout is zero or negative.
+     * @since 1.2
+     * @see #getTimeout()
+     */
+    public ChatOptions withTimeout(Duration timeout) {
+        return new ChatOptions(this, requirePositive(timeout));
+    }
+
+    private static Duration requirePositive(Duration timeout) {
+        if (timeout != null && (timeout.isZero() || timeout.isNegative())) {
+            throw new IllegalArgumentException("Timeout must be positive");
+        }
+
+        return timeout;
+    }
+
+    /**
+     * Returns whether the response of the chat request may be cached. Defaults to {@code false}.
+     * <p>
+     * This only has effect when the AI service has a response cache configured via
+     * {@link org.omnifaces.ai.AIConfig#PROPERTY_RESPONSE_CACHE_TTL}, and only for non-streaming chat requests. The responses of chat
+     * requests with a temperature of {@link #DETERMINISTIC_TEMPERATURE} are already cached regardless of this flag.
+     *
+     * @return Whether the response of the chat request may be cached.
+     * @since 1.2
+     */
+    public boolean isCacheable() {
+        return cacheable;
+    }
+
     /**
      * Returns whether conversation memory is enabled for this instance.
      * <p>
@@ -399,6 +540,9 @@ public class ChatOptions implements Serializable {
         private Integer maxTokens;
         private double topP = ChatOptions.DEFAULT_TOP_P;
         private int maxHistory;
+        private Priority priority = Priority.DEFAULT;
+        private Duration timeout;
+        private boolean cacheable;
 
         private Builder() {}
 
@@ -567,6 +711,56 @@ public class ChatOptions implements Serializable {
             return this;
         }
 
+        /**
+         * Sets the priority of the chat request. Defaults to {@link Priority#DEFAULT}.
+         * <p>
+         * This only has effect when the AI service has a bulkhead configured via
+         * {@link org.omnifaces.ai.AIConfig#PROPERTY_MAX_CONCURRENT_REQUESTS} and the chat request has to wait in its queue: the queued
+         * requests with a higher priority always go first.
+         *
+         * @param priority The priority of the chat request.
+         * @return This builder instance for chaining.
+         * @throws NullPointerException if priority is null.
+         * @since 1.2
+         */
+        public Builder priority(Priority priority) {
+            this.priority = requireNonNull(priority, "priority");
+            return this;
+        }
+
+        /**
+         * Sets the timeout of the chat request, which is the time budget of the whole call, including any time spent in queues, in rate
+         * limit delays and in retries. Defaults to the timeout of the AI service as configured via
+         * {@link org.omnifaces.ai.AIConfig#PROPERTY_TIMEOUT}.
+         *
+         * @param timeout The timeout of the chat request. Must be positive, or {@code null} to use the AI service's default.
+         * @return This builder instance for chaining.
+         * @throws IllegalArgumentException if timeout is zero or negative.
+         * @since 1.2
+         * @see ChatOptions#getTimeout()
+         */
+        public Builder timeout(Duration timeout) {
+            this.timeout = requirePositive(timeout);
+            return this;
+        }
+
+        /**
+         * Allows the response of the chat request to be cached, even when the temperature is not
+         * {@link ChatOptions#DETERMINISTIC_TEMPERATURE}. This is useful when an identical prompt may be answered with an earlier
+         * response, e.g. a product description for the same product data.
+         * <p>
+         * This only has effect when the AI service has a response cache configured via
+         * {@link org.omnifaces.ai.AIConfig#PROPERTY_RESPONSE_CACHE_TTL}, and only for non-streaming chat requests.
+         *
+         * @return This builder instance for chaining.
+         * @since 1.2
+         * @see ChatOptions#isCacheable()
+         */
+        public Builder cacheable() {
+            this.cacheable = true;
+            return this;
+        }
+
         /**
          * Finalizes the configuration and creates a {@link ChatOptions} instance.
          *
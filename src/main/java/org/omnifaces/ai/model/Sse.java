@@ -12,12 +12,16 @@
  */
 package org.omnifaces.ai.model;
 
+import static java.util.Objects.requireNonNull;
+
 import java.io.Serializable;
+import java.util.Set;
 
 /**
  * Server-Sent Events (SSE) model.
  * <p>
- * Contains the {@link Event} record representing individual SSE fields.
+ * Contains the {@link Event} record representing individual SSE fields, and the {@link EventFilter} record representing the
+ * fields of interest.
  */
 public final class Sse {
 
@@ -40,4 +44,48 @@ public final class Sse {
             DATA;
         }
     }
+
+    /**
+     * Represents the SSE fields of interest. Fields which are not of interest are skipped by the SSE decoder before they are
+     * decoded into {@link Event} instances, so they never reach the stream event processor.
+     * <p>
+     * When {@code eventNames} is {@code null}, all "event" fields are of interest, and also all "id" fields. Otherwise only "event" fields
+     * whose value exactly equals one of the given event names are of interest, and no "id" fields.
+     * When {@code dataMarkers} is {@code null}, all "data" fields are of interest. Otherwise only "data" fields whose (joined) value
+     * contains at least one of the given data markers are of interest.
+     *
+     * @param eventNames The names of the "event" fields of interest, or {@code null} to accept all "event" and "id" fields.
+     * @param dataMarkers The markers of the "data" fields of interest, or {@code null} to accept all "data" fields.
+     * @since 1.2
+     */
+    public final record EventFilter(Set<String> eventNames, Set<String> dataMarkers) implements Serializable {
+
+        /** Event filter which accepts all SSE fields. */
+        public static final EventFilter ACCEPT_ALL = new EventFilter(null, null);
+
+        /**
+         * Validates the record components.
+         *
+         * @param eventNames The names of the "event" fields of interest, or {@code null} to accept all "event" and "id" fields.
+         * @param dataMarkers The markers of the "data" fields of interest, or {@code null} to accept all "data" fields.
+         */
+        public EventFilter {
+            eventNames = eventNames == null ? null : Set.copyOf(eventNames);
+            dataMarkers = dataMarkers == null ? null : Set.copyOf(dataMarkers);
+        }
+
+        /**
+         * Returns whether the given SSE field is of interest.
+         * @param event The SSE field to check.
+         * @return Whether the given SSE field is of interest.
+         */
+        public boolean accepts(Event event) {
+            requireNonNull(event, "event");
+            return switch (event.type()) {
+                case ID -> eventNames == null;
+                case EVENT -> eventNames == null || eventNames.contains(event.value());
+                case DATA -> dataMarkers == null || dataMarkers.stream().anyMatch(event.value()::contains);
+            };
+        }
+    }
 }
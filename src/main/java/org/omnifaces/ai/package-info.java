@@ -23,6 +23,7 @@
  * <li>{@link org.omnifaces.ai.AIModality} - capabilities supported by AI providers (text input/output, image input/output, etc.)</li>
  * <li>{@link org.omnifaces.ai.AITextHandler} - customization point for text-based request/response handling</li>
  * <li>{@link org.omnifaces.ai.AIImageHandler} - customization point for image-based request/response handling</li>
+ * <li>{@link org.omnifaces.ai.AIRateLimitStore} - customization point for sharing client-side rate limits across JVMs</li>
  * </ul>
  * <p>
  * This package also contains {@link org.omnifaces.ai.OmniHai} for access to application properties (name, version, user agent).
@@ -18,19 +18,19 @@ import static java.nio.charset.StandardCharsets.UTF_8;
 import static java.util.concurrent.CompletableFuture.completedFuture;
 import static java.util.concurrent.CompletableFuture.delayedExecutor;
 import static java.util.concurrent.CompletableFuture.failedFuture;
-import static java.util.concurrent.CompletableFuture.runAsync;
 import static java.util.concurrent.CompletableFuture.supplyAsync;
 import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
 import static java.util.function.Function.identity;
 import static java.util.logging.Level.FINER;
 import static java.util.stream.Stream.iterate;
 import static org.omnifaces.ai.exception.AIHttpException.fromStatusCode;
 
-import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
 import java.io.OutputStream;
 import java.net.ConnectException;
 import java.net.http.HttpClient;
@@ -38,11 +38,19 @@ import java.net.http.HttpRequest;
 import java.net.http.HttpRequest.BodyPublisher;
 import java.net.http.HttpRequest.BodyPublishers;
 import java.net.http.HttpResponse;
+import java.net.http.HttpResponse.BodyHandler;
+import java.net.http.HttpResponse.BodySubscribers;
 import java.time.Duration;
 import java.util.Objects;
+import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.CompletionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Function;
 import java.util.function.Predicate;
 import java.util.function.Supplier;
@@ -53,11 +61,14 @@ import jakarta.json.JsonObject;
 
 import org.omnifaces.ai.OmniHai;
 import org.omnifaces.ai.exception.AIBadRequestException;
+import org.omnifaces.ai.exception.AICircuitBreakerOpenException;
 import org.omnifaces.ai.exception.AIException;
 import org.omnifaces.ai.exception.AIHttpException;
+import org.omnifaces.ai.exception.AIRateLimitExceededException;
+import org.omnifaces.ai.exception.AIServiceUnavailableException;
 import org.omnifaces.ai.model.ChatInput.Attachment;
 import org.omnifaces.ai.model.Sse.Event;
-import org.omnifaces.ai.model.Sse.Event.Type;
+import org.omnifaces.ai.model.Sse.EventFilter;
 
 /**
  * HTTP client utility for {@link BaseAIService} implementations.
@@ -79,11 +90,15 @@ final class AIHttpClient {
     private static final String APPLICATION_JSON = "application/json";
     private static final String EVENT_STREAM = "text/event-stream";
     private static final String MULTIPART_FORM_DATA = "multipart/form-data";
+    private static final int SERVER_ERROR_STATUS_CODE = 500;
+    private static final CompletableFuture<?> CANCELLED_EXCHANGE = new CompletableFuture<>();
 
     /** Default max retries: {@value} */
     public static final int MAX_RETRIES = 3;
-    /** Initial retry backoff time: {@value}ms (increases exponentially on every retry) */
+    /** Initial retry backoff time: {@value}ms (increases with decorrelated jitter on every retry) */
     public static final long INITIAL_BACKOFF_MS = 1000;
+    /** Max retry backoff time: {@value}ms (a longer retry hint of the AI provider fails the request immediately) */
+    public static final long MAX_BACKOFF_MS = 30000;
 
     private final HttpClient client;
     private final Duration requestTimeout;
@@ -112,7 +127,7 @@ final class AIHttpClient {
 
     /**
      * Sends a GET request for the specified {@link BaseAIService}.
-     * Will retry at most {@value #MAX_RETRIES} times in case of a connection error with exponentially incremental backoff of {@value #INITIAL_BACKOFF_MS}ms.
+     * Will retry at most {@value #MAX_RETRIES} times in case of a transient failure as per {@link #isRetryable(Throwable)}, see {@link #computeBackoffMillis(Throwable, long)}.
      *
      * @param service The {@link BaseAIService} to extract URI and headers from.
      * @param path the API path
@@ -126,7 +141,7 @@ final class AIHttpClient {
 
     /**
      * Sends a POST request for the specified {@link BaseAIService} with JSON payload.
-     * Will retry at most {@value #MAX_RETRIES} times in case of a connection error with exponentially incremental backoff of {@value #INITIAL_BACKOFF_MS}ms.
+     * Will retry at most {@value #MAX_RETRIES} times in case of a transient failure as per {@link #isRetryable(Throwable)}, see {@link #computeBackoffMillis(Throwable, long)}.
      *
      * @param service The {@link BaseAIService} to extract URI and headers from.
      * @param path the API path
@@ -138,9 +153,27 @@ final class AIHttpClient {
         return sendWithRetryAsync(service, path, payload, newJsonRequest(service, path, payload, APPLICATION_JSON));
     }
 
+    /**
+     * Sends a POST request for the specified {@link BaseAIService} with JSON payload and parses the response body stream with the given
+     * parser, so that the response body doesn't need to be read into a string first.
+     * Will retry at most {@value #MAX_RETRIES} times in case of a transient failure as per {@link #isRetryable(Throwable)}, see {@link #computeBackoffMillis(Throwable, long)}.
+     *
+     * @param <R> The parsed response type.
+     * @param service The {@link BaseAIService} to extract URI and headers from.
+     * @param path the API path
+     * @param payload The JSON payload
+     * @param responseParser The response body stream parser, it does not need to close the stream.
+     * @return The parsed response body
+     * @throws AIHttpException if the request fails
+     * @since 1.2
+     */
+    public <R> CompletableFuture<R> post(BaseAIService service, String path, JsonObject payload, Function<InputStream, R> responseParser) throws AIHttpException {
+        return sendWithRetryAsync(service, path, payload, newJsonRequest(service, path, payload, APPLICATION_JSON), responseParser);
+    }
+
     /**
      * Sends a POST request for the specified {@link BaseAIService} with raw payload.
-     * Will retry at most {@value #MAX_RETRIES} times in case of a connection error with exponentially incremental backoff of {@value #INITIAL_BACKOFF_MS}ms.
+     * Will retry at most {@value #MAX_RETRIES} times in case of a transient failure as per {@link #isRetryable(Throwable)}, see {@link #computeBackoffMillis(Throwable, long)}.
      *
      * @param service The {@link BaseAIService} to extract URI and headers from.
      * @param path the API path
@@ -155,23 +188,27 @@ final class AIHttpClient {
 
     /**
      * Sends a STREAM (SSE) request for the specified {@link BaseAIService}.
-     * Will retry at most {@value #MAX_RETRIES} times in case of a connection error with exponentially incremental backoff of {@value #INITIAL_BACKOFF_MS}ms.
+     * Will retry at most {@value #MAX_RETRIES} times in case of a transient failure as per {@link #isRetryable(Throwable)}, see {@link #computeBackoffMillis(Throwable, long)}.
      *
      * @param service The {@link BaseAIService} to extract URI and headers from.
      * @param path the API path
      * @param payload The request payload
+     * @param eventFilter The stream events of interest, all other stream events are skipped before they are decoded.
      * @param eventProcessor The stream event processor.
      * @return A future that completes when stream ends or fails.
      * @throws AIHttpException if the request fails
      */
-    public CompletableFuture<Void> stream(BaseAIService service, String path, JsonObject payload, Predicate<Event> eventProcessor) throws AIHttpException {
+    public CompletableFuture<Void> stream(BaseAIService service, String path, JsonObject payload, EventFilter eventFilter, Predicate<Event> eventProcessor) throws AIHttpException {
         final int requestId = logRequest(service, path, payload);
-        return sendWithRetryAsync(newJsonRequest(service, path, payload, EVENT_STREAM), r -> consumeEventStream(requestId, r, eventProcessor), 0);
+        var request = newJsonRequest(service, path, payload, EVENT_STREAM);
+        var deadline = Deadline.current();
+        var exchange = new AtomicReference<CompletableFuture<?>>();
+        return abortOnCancel(withRetry(() -> sendAsync(service, withDeadline(request, deadline), ofEventStream(requestId, eventFilter, eventProcessor), exchange).thenCompose(response -> handleResponse(service, request, response, HttpResponse::body, r -> completedFuture(null))), service, estimateTokens(request), deadline), exchange);
     }
 
     /**
      * Sends a UPLOAD (multipart/form-data) request for the specified {@link BaseAIService}.
-     * Will retry at most {@value #MAX_RETRIES} times in case of a connection error with exponentially incremental backoff of {@value #INITIAL_BACKOFF_MS}ms.
+     * Will retry at most {@value #MAX_RETRIES} times in case of a transient failure as per {@link #isRetryable(Throwable)}, see {@link #computeBackoffMillis(Throwable, long)}.
      *
      * @param service The {@link BaseAIService} to extract URI and headers from.
      * @param path the API path
@@ -185,7 +222,7 @@ final class AIHttpClient {
 
     /**
      * Sends a DELETE request for the specified {@link BaseAIService}.
-     * Will retry at most {@value #MAX_RETRIES} times in case of a connection error with exponentially incremental backoff of {@value #INITIAL_BACKOFF_MS}ms.
+     * Will retry at most {@value #MAX_RETRIES} times in case of a transient failure as per {@link #isRetryable(Throwable)}, see {@link #computeBackoffMillis(Throwable, long)}.
      *
      * @param service The {@link BaseAIService} to extract URI and headers from.
      * @param path the API path
@@ -199,12 +236,20 @@ final class AIHttpClient {
 
     private CompletableFuture<String> sendWithRetryAsync(BaseAIService service, String path, Object payload, HttpRequest request) {
         final int requestId = logRequest(service, path, payload);
-        return sendWithRetryAsync(request, r -> completedFuture(readBody(r)), 0).thenApply(response -> {
+        var estimatedTokens = estimateTokens(request);
+        return sendWithRetryAsync(service, request, estimatedTokens, r -> {
+            var response = settle(service, estimatedTokens, readBody(r));
             logger.log(FINER, () -> "Response for #" + requestId + ": " + response);
-            return response;
+            return completedFuture(response);
         });
     }
 
+    private <R> CompletableFuture<R> sendWithRetryAsync(BaseAIService service, String path, Object payload, HttpRequest request, Function<InputStream, R> responseParser) {
+        final int requestId = logRequest(service, path, payload);
+        var estimatedTokens = estimateTokens(request);
+        return sendWithRetryAsync(service, request, estimatedTokens, r -> completedFuture(parseBody(requestId, r, responseParser, service, estimatedTokens)));
+    }
+
     private static int logRequest(BaseAIService service, String path, Object payload) {
         if (logger.isLoggable(FINER)) {
             int requestId = requestCounter.incrementAndGet();
@@ -218,7 +263,7 @@ final class AIHttpClient {
     }
 
     private HttpRequest newJsonRequest(BaseAIService service, String path, JsonObject payload, String accept) {
-        return newRequest(service, path, POST, APPLICATION_JSON, accept, BodyPublishers.ofString(payload.toString()));
+        return newRequest(service, path, POST, APPLICATION_JSON, accept, JsonBodyPublisher.of(payload));
     }
 
     private HttpRequest newUploadRequest(BaseAIService service, String path, Attachment attachment, String accept) {
@@ -233,120 +278,193 @@ final class AIHttpClient {
             builder.header("Content-Type", contentType);
         }
         builder.header("Accept", accept);
-        builder.header("Accept-Encoding", "gzip");
+        if (!EVENT_STREAM.equals(accept)) { // Event streams are parsed incrementally by EventStreamSubscriber and are thus not compressed.
+            builder.header("Accept-Encoding", "gzip");
+        }
         service.getRequestHeaders().forEach(builder::header);
         return builder.build();
     }
 
-    private <R> CompletableFuture<R> sendWithRetryAsync(HttpRequest request, Function<HttpResponse<InputStream>, CompletableFuture<R>> successHandler, int attempt) {
-        return withRetry(() -> client.sendAsync(request, ofInputStream()).thenCompose(response -> handleResponse(request, response, AIHttpClient::readBody, successHandler)), attempt);
+    private <R> CompletableFuture<R> sendWithRetryAsync(BaseAIService service, HttpRequest request, long estimatedTokens, Function<HttpResponse<InputStream>, CompletableFuture<R>> successHandler) {
+        var deadline = Deadline.current();
+        var exchange = new AtomicReference<CompletableFuture<?>>();
+        return abortOnCancel(withRetry(() -> sendAsync(service, withDeadline(request, deadline), ofInputStream(), exchange).thenCompose(response -> handleResponse(service, request, response, AIHttpClient::readBody, successHandler)), service, estimatedTokens, deadline), exchange);
     }
 
-    private static <R, T> CompletableFuture<R> handleResponse(HttpRequest request, HttpResponse<T> response, Function<HttpResponse<T>, String> bodyExtractor, Function<HttpResponse<T>, CompletableFuture<R>> successHandler) {
-        var statusCode = response.statusCode();
-
-        if (statusCode >= AIBadRequestException.STATUS_CODE) {
-            return failedFuture(fromStatusCode(request.uri(), statusCode, bodyExtractor.apply(response)));
+    /**
+     * Returns the given request with its timeout capped at the remaining time of the given {@link Deadline}, if any.
+     */
+    private static HttpRequest withDeadline(HttpRequest request, Deadline deadline) {
+        if (deadline == null) {
+            return request;
         }
 
-        return successHandler.apply(response);
+        var remaining = Duration.ofNanos(Math.max(MILLISECONDS.toNanos(1), deadline.getRemainingNanos()));
+        return request.timeout().filter(timeout -> timeout.compareTo(remaining) <= 0).isPresent() ? request : HttpRequest.newBuilder(request, (name, value) -> true).timeout(remaining).build();
     }
 
-    private static CompletableFuture<Void> consumeEventStream(int requestId, HttpResponse<InputStream> response, Predicate<Event> eventProcessor) {
-        var future = new CompletableFuture<Void>();
-        runAsync(() -> processEvents(requestId, response, future, eventProcessor));
+    /**
+     * Aborts the in-flight HTTP exchange when the given future is cancelled, e.g. by a {@link HedgePolicy} which doesn't need it anymore, or
+     * when it times out, e.g. by the {@link Deadline} of the call. Any pending retry of the request is then not sent anymore either.
+     */
+    private static <R> CompletableFuture<R> abortOnCancel(CompletableFuture<R> future, AtomicReference<CompletableFuture<?>> exchange) {
+        future.whenComplete((result, throwable) -> {
+            if (future.isCancelled() || throwable instanceof TimeoutException) {
+                var inFlight = exchange.getAndSet(CANCELLED_EXCHANGE);
+
+                if (inFlight != null && inFlight != CANCELLED_EXCHANGE) {
+                    inFlight.cancel(true);
+                }
+            }
+        });
+
         return future;
     }
 
-    private static void processEvents(int requestId, HttpResponse<InputStream> response, CompletableFuture<Void> future, Predicate<Event> eventProcessor) {
-        try (var reader = new BufferedReader(new InputStreamReader(decompressIfNeeded(response), UTF_8))) {
-            var dataBuffer = new StringBuilder();
-            String line;
+    /**
+     * Sends the given request as soon as the {@link AdaptiveConcurrencyLimiter}, if any, has a slot for it. While waiting for the slot, the
+     * waiting is remembered as the in-flight HTTP exchange in the given reference, so that it can be aborted as well, see
+     * {@link #abortOnCancel(CompletableFuture, AtomicReference)}.
+     */
+    private <T> CompletableFuture<HttpResponse<T>> sendAsync(BaseAIService service, HttpRequest request, BodyHandler<T> bodyHandler, AtomicReference<CompletableFuture<?>> exchange) {
+        if (exchange.get() == CANCELLED_EXCHANGE) {
+            return failedFuture(new CancellationException("Request was cancelled"));
+        }
 
-            while ((line = reader.readLine()) != null) {
+        var concurrencyLimiter = service.concurrencyLimiter;
 
-                if (line.isBlank()) {
-                    if (!processDataEvent(requestId, dataBuffer, eventProcessor)) {
-                        break;
-                    }
+        if (concurrencyLimiter == null) {
+            return sendAsync(service, request, bodyHandler, exchange, null);
+        }
 
-                    continue;
-                }
+        var slot = concurrencyLimiter.acquire();
 
-                line = line.strip();
+        if (slot.isDone()) {
+            return sendAsync(service, request, bodyHandler, exchange, concurrencyLimiter);
+        }
 
-                if (line.startsWith(":")) {
-                    continue;
-                }
+        if (exchange.getAndSet(slot) == CANCELLED_EXCHANGE) {
+            exchange.set(CANCELLED_EXCHANGE);
+            slot.cancel(true);
+        }
 
-                var event = createEvent(line, requestId);
+        return slot.thenComposeAsync(acquired -> sendAsync(service, request, bodyHandler, exchange, concurrencyLimiter)); // Async, so that it doesn't run in the thread releasing the slot.
+    }
 
-                if (event == null) {
-                    continue;
+    /**
+     * Sends the given request if the {@link CircuitBreaker} permits, and records its outcome as soon as the response headers arrive, so that
+     * the duration of a streamed or large response body is not taken into account. The slot of the given concurrency limiter, if any, is
+     * released as soon as the HTTP exchange completes. The in-flight HTTP exchange is remembered in the given reference, so that it can be
+     * aborted, see {@link #abortOnCancel(CompletableFuture, AtomicReference)}.
+     */
+    private <T> CompletableFuture<HttpResponse<T>> sendAsync(BaseAIService service, HttpRequest request, BodyHandler<T> bodyHandler, AtomicReference<CompletableFuture<?>> exchange, AdaptiveConcurrencyLimiter concurrencyLimiter) {
+        if (exchange.get() == CANCELLED_EXCHANGE) {
+            release(concurrencyLimiter);
+            return failedFuture(new CancellationException("Request was cancelled"));
+        }
+
+        var circuitBreaker = service.circuitBreaker;
+
+        if (!circuitBreaker.tryAcquirePermission()) {
+            release(concurrencyLimiter);
+            return failedFuture(new AICircuitBreakerOpenException(request.uri(), circuitBreaker.getRemainingOpenDuration()));
+        }
+
+        var startTime = System.nanoTime();
+        var recorded = new AtomicBoolean();
+        BodyHandler<T> recordingBodyHandler = responseInfo -> {
+            if (recorded.compareAndSet(false, true)) {
+                var duration = System.nanoTime() - startTime;
+                var statusCode = responseInfo.statusCode();
+                circuitBreaker.record(statusCode >= SERVER_ERROR_STATUS_CODE, duration);
+
+                if (concurrencyLimiter != null) {
+                    concurrencyLimiter.record(statusCode == AIRateLimitExceededException.STATUS_CODE || statusCode >= SERVER_ERROR_STATUS_CODE, duration);
                 }
+            }
 
-                if (event.type() == Type.DATA) {
-                    if (!dataBuffer.isEmpty()) {
-                        dataBuffer.append('\n');
-                    }
+            return bodyHandler.apply(responseInfo);
+        };
 
-                    dataBuffer.append(line.substring(5).strip());
+        var inFlight = client.sendAsync(request, recordingBodyHandler);
+
+        if (exchange.getAndSet(inFlight) == CANCELLED_EXCHANGE) {
+            exchange.set(CANCELLED_EXCHANGE);
+            inFlight.cancel(true);
+        }
+
+        return inFlight.whenComplete((response, throwable) -> {
+            if (throwable != null && recorded.compareAndSet(false, true)) {
+                if (throwable instanceof CancellationException) {
+                    circuitBreaker.release(); // E.g. a losing hedge request or an aborted request; it says nothing about the host.
                 }
-                else if (!processDataEvent(requestId, dataBuffer, eventProcessor) || !eventProcessor.test(event)) {
-                    break;
+                else {
+                    var duration = System.nanoTime() - startTime;
+                    circuitBreaker.record(true, duration);
+
+                    if (concurrencyLimiter != null) {
+                        concurrencyLimiter.record(true, duration);
+                    }
                 }
             }
 
-            processDataEvent(requestId, dataBuffer, eventProcessor);
-            future.complete(null);
-        }
-        catch (Exception e) {
-            future.completeExceptionally(e);
-        }
+            release(concurrencyLimiter);
+        });
     }
 
-    private static Event createEvent(String line, int requestId) {
-        Event event = null;
-
-        if (line.startsWith("id:")) {
-            event = new Event(Type.ID, line.substring(3).strip());
-        }
-        if (line.startsWith("event:")) {
-            event = new Event(Type.EVENT, line.substring(6).strip());
-        }
-        if (line.startsWith("data:")) {
-            event = new Event(Type.DATA, line.substring(5).strip());
+    private static void release(AdaptiveConcurrencyLimiter concurrencyLimiter) {
+        if (concurrencyLimiter != null) {
+            concurrencyLimiter.release();
         }
+    }
 
-        if (event == null) {
-            logger.log(FINER, () -> "Ignoring unknown SSE line for #" + requestId + ": " + line);
+    /**
+     * Estimates the amount of tokens of the given request for the {@link RateLimiter} and the {@link RateLimitTracker}. Only JSON requests
+     * are estimated to use tokens, and their inline attachments are estimated at a fixed amount of tokens each.
+     */
+    private static long estimateTokens(HttpRequest request) {
+        if (!request.headers().firstValue("Content-Type").filter(APPLICATION_JSON::equals).isPresent()) {
+            return 0;
         }
-        else if (event.type() != Type.DATA) { // Final data event is logged in processDataEvent.
-            logEvent(requestId, event);
+
+        if (request.bodyPublisher().orElse(null) instanceof JsonBodyPublisher.Body body) {
+            return RateLimiter.estimateTokens(body.textLength(), body.attachments());
         }
 
-        return event;
+        return RateLimiter.estimateTokens(request.bodyPublisher().map(BodyPublisher::contentLength).orElse(0L));
     }
 
-    private static boolean processDataEvent(int requestId, StringBuilder dataBuffer, Predicate<Event> eventProcessor) {
-        if (!dataBuffer.isEmpty()) {
-            var event = new Event(Type.DATA, dataBuffer.toString());
-            dataBuffer.setLength(0);
-            logEvent(requestId, event);
-
-            if (!eventProcessor.test(event)) {
-                return false;
-            }
+    /**
+     * Settles the estimated amount of tokens at the {@link RateLimiter} against the actual token usage found in the given response body.
+     */
+    private static <T extends CharSequence> T settle(BaseAIService service, long estimatedTokens, T responseBody) {
+        if (service.rateLimiter != null && estimatedTokens > 0) {
+            RateLimiter.findTokenUsage(responseBody).ifPresent(actualTokens -> service.rateLimiter.settle(estimatedTokens, actualTokens));
         }
 
-        return true;
+        return responseBody;
     }
 
-    private static void logEvent(int requestId, Event event) {
-        if (logger.isLoggable(FINER)) {
-            final var eventString = event.toString();
-            logger.log(FINER, () -> "SSE event for #" + requestId + ": " + eventString);
+    /**
+     * Returns a body handler which consumes the SSE response body with a non-blocking {@link EventStreamSubscriber} on the callbacks of
+     * the HTTP client. The body is only read as string when the status code represents an error, so that it can be included in the
+     * exception. On success the body is therefore always {@code null}.
+     */
+    private static BodyHandler<String> ofEventStream(int requestId, EventFilter eventFilter, Predicate<Event> eventProcessor) {
+        return responseInfo -> responseInfo.statusCode() >= AIBadRequestException.STATUS_CODE
+            ? BodySubscribers.ofString(UTF_8)
+            : BodySubscribers.mapping(new EventStreamSubscriber(requestId, eventFilter, eventProcessor), nothing -> null);
+    }
+
+    private static <R, T> CompletableFuture<R> handleResponse(BaseAIService service, HttpRequest request, HttpResponse<T> response, Function<HttpResponse<T>, String> bodyExtractor, Function<HttpResponse<T>, CompletableFuture<R>> successHandler) {
+        service.rateLimitTracker.update(response.headers());
+        var statusCode = response.statusCode();
+
+        if (statusCode >= AIBadRequestException.STATUS_CODE) {
+            return failedFuture(fromStatusCode(request.uri(), statusCode, bodyExtractor.apply(response), response.headers().map()));
         }
+
+        return successHandler.apply(response);
     }
 
     private static InputStream decompressIfNeeded(HttpResponse<InputStream> response) throws IOException {
@@ -354,6 +472,32 @@ final class AIHttpClient {
         return "gzip".equalsIgnoreCase(encoding) ? new GZIPInputStream(response.body()) : response.body();
     }
 
+    private static <R> R parseBody(int requestId, HttpResponse<InputStream> response, Function<InputStream, R> responseParser, BaseAIService service, long estimatedTokens) {
+        if (logger.isLoggable(FINER)) { // Then the response body needs to be read into a string anyway.
+            var body = settle(service, estimatedTokens, readBody(response));
+            logger.log(FINER, () -> "Response for #" + requestId + ": " + body);
+            return responseParser.apply(new ByteArrayInputStream(body.getBytes(UTF_8)));
+        }
+
+        if (service.rateLimiter != null && estimatedTokens > 0) { // Then the token usage needs to be found in the tail of the response body.
+            try (var is = new TailInputStream(decompressIfNeeded(response))) {
+                var result = responseParser.apply(is);
+                settle(service, estimatedTokens, is.tail());
+                return result;
+            }
+            catch (IOException e) {
+                throw new AIException("Cannot read response body", e);
+            }
+        }
+
+        try (var is = decompressIfNeeded(response)) {
+            return responseParser.apply(is);
+        }
+        catch (IOException e) {
+            throw new AIException("Cannot read response body", e);
+        }
+    }
+
     private static String readBody(HttpResponse<InputStream> response) {
         try (var is = decompressIfNeeded(response)) {
             return new String(is.readAllBytes(), UTF_8);
@@ -363,30 +507,84 @@ final class AIHttpClient {
         }
     }
 
-    private static <R> CompletableFuture<R> withRetry(Supplier<CompletableFuture<R>> action, int attempt) {
-        return action.get().exceptionallyCompose(throwable -> handleFailureWithRetry(action, attempt, throwable));
+    private static <R> CompletableFuture<R> withRetry(Supplier<CompletableFuture<R>> action, BaseAIService service, long estimatedTokens, Deadline deadline) {
+        service.retryBudget.recordRequest();
+        var trackerDelayNanos = service.rateLimitTracker.acquire(estimatedTokens);
+
+        if (service.rateLimiter == null) {
+            return withDelay(action, service, trackerDelayNanos, deadline);
+        }
+
+        return service.rateLimiter.reserve(estimatedTokens).thenCompose(delayNanos -> withDelay(action, service, Math.max(delayNanos, trackerDelayNanos), deadline));
+    }
+
+    /**
+     * Sends the request supplied by the given action with retry after the given rate limit delay, unless the delay exceeds the deadline.
+     */
+    private static <R> CompletableFuture<R> withDelay(Supplier<CompletableFuture<R>> action, BaseAIService service, long delayNanos, Deadline deadline) {
+        if (deadline != null && delayNanos >= deadline.getRemainingNanos()) {
+            return failedFuture(deadline.exceeded());
+        }
+
+        if (delayNanos > 0) {
+            logger.log(FINER, () -> "Delaying request by " + NANOSECONDS.toMillis(delayNanos) + "ms as per rate limit");
+            return supplyAsync(() -> withRetry(action, service, 0, INITIAL_BACKOFF_MS, deadline), delayedExecutor(delayNanos, NANOSECONDS)).thenCompose(identity());
+        }
+
+        return withRetry(action, service, 0, INITIAL_BACKOFF_MS, deadline);
     }
 
-    private static <R> CompletableFuture<R> handleFailureWithRetry(Supplier<CompletableFuture<R>> action, int attempt, Throwable throwable) {
+    private static <R> CompletableFuture<R> withRetry(Supplier<CompletableFuture<R>> action, BaseAIService service, int attempt, long previousBackoffMs, Deadline deadline) {
+        return action.get().exceptionallyCompose(throwable -> handleFailureWithRetry(action, service, attempt, previousBackoffMs, deadline, throwable));
+    }
+
+    private static <R> CompletableFuture<R> handleFailureWithRetry(Supplier<CompletableFuture<R>> action, BaseAIService service, int attempt, long previousBackoffMs, Deadline deadline, Throwable throwable) {
         var cause = throwable instanceof CompletionException ce ? ce.getCause() : throwable;
+        var backoffMs = attempt < MAX_RETRIES - 1 && isRetryable(cause) && !isFailFast(service, cause) ? computeBackoffMillis(cause, previousBackoffMs) : -1;
 
-        if (cause instanceof AIException) {
-            return failedFuture(cause);
+        if (backoffMs < 0 || (deadline != null && MILLISECONDS.toNanos(backoffMs) >= deadline.getRemainingNanos()) || !service.retryBudget.tryAcquireRetry()) {
+            return failedFuture(cause instanceof AIException ? cause : new AIHttpException("Request failed (" + attempt + " retries)", cause));
         }
 
-        if (attempt >= MAX_RETRIES - 1 || !isRetryable(cause)) {
-            return failedFuture(new AIHttpException("Request failed (" + attempt + " retries)", cause));
+        logger.log(FINER, () -> "Retrying in " + backoffMs + "ms after: " + cause);
+        return supplyAsync(() -> withRetry(action, service, attempt + 1, backoffMs, deadline), delayedExecutor(backoffMs, MILLISECONDS)).thenCompose(identity());
+    }
+
+    /**
+     * Computes the backoff time before retrying a failed request.
+     * <p>
+     * When the failure is an {@link AIHttpException} with a retry hint as per {@link AIHttpException#getRetryAfter()}, then the hint
+     * is honored, plus a small random spread, so that multiple clients don't retry in lockstep at the very same moment. When the hint
+     * exceeds {@value #MAX_BACKOFF_MS}ms, then the request should not be retried at all. Otherwise the backoff time is computed with
+     * decorrelated jitter: a random value between {@value #INITIAL_BACKOFF_MS}ms and three times the previous backoff time, capped at
+     * {@value #MAX_BACKOFF_MS}ms. This prevents retry storms of multiple clients from synchronizing.
+     *
+     * @param cause The failure.
+     * @param previousBackoffMs The previous backoff time, or {@value #INITIAL_BACKOFF_MS}ms if this is the first retry.
+     * @return The backoff time in ms, or -1 if the request should not be retried.
+     */
+    static long computeBackoffMillis(Throwable cause, long previousBackoffMs) {
+        var random = ThreadLocalRandom.current();
+        var retryAfter = cause instanceof AIHttpException httpException ? httpException.getRetryAfter() : Optional.<Duration>empty();
+
+        if (retryAfter.isPresent()) {
+            var retryAfterMs = retryAfter.get().toMillis();
+            return retryAfterMs > MAX_BACKOFF_MS ? -1 : retryAfterMs + random.nextLong(INITIAL_BACKOFF_MS / 4 + 1);
         }
 
-        return supplyAsync(() -> withRetry(action, attempt + 1), delayedExecutor(INITIAL_BACKOFF_MS * (1L << attempt), MILLISECONDS)).thenCompose(identity());
+        return Math.min(MAX_BACKOFF_MS, random.nextLong(INITIAL_BACKOFF_MS, Math.max(INITIAL_BACKOFF_MS, previousBackoffMs) * 3 + 1));
     }
 
     /**
      * Determines whether a failed request should be retried based on the exception.
      * <p>
-     * Retryable errors are transient connection issues indicated by an {@link IOException} which is either an instance
-     * of {@link ConnectException} or has a message containing "timed", "terminated", "reset", "refused", or "goaway"
-     * anywhere in the cause chain.
+     * Retryable errors are:
+     * <ul>
+     * <li>{@link AIRateLimitExceededException} (429) and {@link AIServiceUnavailableException} (503), except for
+     * {@link AICircuitBreakerOpenException} which must fail fast
+     * <li>transient connection issues indicated by an {@link IOException} which is either an instance of {@link ConnectException} or has a
+     * message containing "timed", "terminated", "reset", "refused", or "goaway" anywhere in the cause chain.
+     * </ul>
      *
      * @param throwable The exception to check.
      * @return {@code true} if the error is transient and the request should be retried.
@@ -396,6 +594,14 @@ final class AIHttpClient {
             return false;
         }
 
+        if (throwable instanceof AICircuitBreakerOpenException) {
+            return false;
+        }
+
+        if (throwable instanceof AIRateLimitExceededException || throwable instanceof AIServiceUnavailableException) {
+            return true;
+        }
+
         return iterate(throwable, Objects::nonNull, Throwable::getCause)
             .filter(IOException.class::isInstance)
             .findFirst()
@@ -413,6 +619,74 @@ final class AIHttpClient {
             .orElse(false);
     }
 
+    /**
+     * Returns whether the given exception must not be retried by the given service, because the composite AI service of which it is a
+     * member fails over on its status code instead, see {@link CompositeAIService#failFastOn(java.util.List, int...)}.
+     */
+    private static boolean isFailFast(BaseAIService service, Throwable throwable) {
+        return throwable instanceof AIHttpException httpException && service.failFastStatusCodes.contains(httpException.getStatusCode());
+    }
+
+    /**
+     * Input stream which remembers the last {@value #TAIL_SIZE} bytes read, so that e.g. the token usage can be found at the end of the
+     * response body without reading the whole response body into a string.
+     */
+    static class TailInputStream extends FilterInputStream {
+
+        static final int TAIL_SIZE = 4096;
+
+        private final byte[] tail = new byte[TAIL_SIZE];
+        private long count;
+
+        TailInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false; // Otherwise reset bytes would be remembered twice.
+        }
+
+        @Override
+        public int read() throws IOException {
+            var read = super.read();
+
+            if (read != -1) {
+                tail[(int) (count++ % TAIL_SIZE)] = (byte) read;
+            }
+
+            return read;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) throws IOException {
+            var read = super.read(bytes, offset, length);
+
+            for (var i = Math.max(0, read - TAIL_SIZE); i < read; i++) {
+                tail[(int) (count++ % TAIL_SIZE)] = bytes[offset + i];
+            }
+
+            return read;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            return n <= 0 ? 0 : Math.max(0, read(new byte[(int) Math.min(n, TAIL_SIZE)])); // So that skipped bytes are remembered as well.
+        }
+
+        String tail() {
+            var size = (int) Math.min(count, TAIL_SIZE);
+            var start = (int) ((count - size) % TAIL_SIZE);
+            var ordered = new byte[size];
+
+            for (var i = 0; i < size; i++) {
+                ordered[i] = tail[(start + i) % TAIL_SIZE];
+            }
+
+            return new String(ordered, UTF_8); // Possibly cut off multi-byte characters at the start are irrelevant for the token usage.
+        }
+    }
+
     private class MultipartBodyPublisher {
 
         private final BodyPublisher body;
@@ -421,13 +695,17 @@ final class AIHttpClient {
         private MultipartBodyPublisher(Attachment attachment) {
             this.boundary = multipartBoundaryPrefix + System.currentTimeMillis();
 
-            try (var os = new ByteArrayOutputStream()) {
+            try (var head = new ByteArrayOutputStream(); var tail = new ByteArrayOutputStream()) {
                 for (var entry : attachment.metadata().entrySet()) {
-                    writeTextPart(os, entry.getKey(), entry.getValue());
+                    writeTextPart(head, entry.getKey(), entry.getValue());
                 }
-                writeFilePart(os, "file", uploadedFileNamePrefix + attachment.fileName(), attachment.mimeType().value(), attachment.content());
-                writeLine(os, "--" + boundary + "--");
-                body = HttpRequest.BodyPublishers.ofByteArray(os.toByteArray());
+                writeFilePartHeader(head, "file", uploadedFileNamePrefix + attachment.fileName(), attachment.mimeType().value());
+                writeLine(tail, "");
+                writeLine(tail, "--" + boundary + "--");
+                body = BodyPublishers.concat( // So that the file content doesn't need to be copied into the request body.
+                    BodyPublishers.ofByteArray(head.toByteArray()),
+                    BodyPublishers.ofByteArray(attachment.content()),
+                    BodyPublishers.ofByteArray(tail.toByteArray()));
             }
             catch (IOException e) {
                 throw new AIException("Cannot prepare multipart/form-data request for " + attachment.fileName(), e);
@@ -440,12 +718,10 @@ final class AIHttpClient {
             writeLine(os, value);
         }
 
-        private void writeFilePart(OutputStream os, String name, String filename, String contentType, byte[] data) throws IOException {
+        private void writeFilePartHeader(OutputStream os, String name, String filename, String contentType) throws IOException {
             writeLine(os, "--" + boundary);
             writeLine(os, "Content-Disposition: form-data; name=\"" + name + "\"; filename=\"" + filename + "\"");
             writeLine(os, "Content-Type: " + contentType + "\r\n");
-            os.write(data);
-            writeLine(os, "");
         }
 
         private static void writeLine(OutputStream os, String line) throws IOException {
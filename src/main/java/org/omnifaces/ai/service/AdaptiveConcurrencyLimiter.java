@@ -0,0 +1,217 @@
+/*
+ * Copyright OmniFaces
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.omnifaces.ai.service;
+
+import static java.util.concurrent.CompletableFuture.completedFuture;
+import static org.omnifaces.ai.AIConfig.PROPERTY_ADAPTIVE_CONCURRENCY;
+
+import java.io.Serializable;
+import java.net.URI;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.omnifaces.ai.AIConfig;
+
+/**
+ * Adaptive concurrency limiter of an AI service endpoint, used by {@link AIHttpClient}.
+ * <p>
+ * The limit of concurrent requests starts at {@value #INITIAL_LIMIT} and adapts to the capacity which the AI provider actually has at the
+ * moment, using additive increase and multiplicative decrease (AIMD). The latency until the response headers arrive is compared against a
+ * baseline, which is the moving average of the latencies of the last {@value #SMOOTHING_SAMPLES} requests.
+ * <ul>
+ * <li>When a request is dropped, i.e. it failed with status code 429 or 500 or higher, or with a timeout or another I/O exception, the
+ * limit is multiplied by {@value #BACKOFF_RATIO}.
+ * <li>When its latency exceeds {@value #LATENCY_TOLERANCE} times the baseline, once at least {@value #MIN_SAMPLES} latencies are known,
+ * the limit is multiplied by {@value #BACKOFF_RATIO} as well.
+ * <li>Else, when at least half of the limit is in use, the limit is increased by one.
+ * </ul>
+ * The limit always stays between {@value #MIN_LIMIT} and {@value #MAX_LIMIT}. Any request beyond the limit waits in a queue rather than
+ * hitting the AI provider, and starts as soon as a slot becomes available.
+ * <p>
+ * The limiters are shared by all services of the same endpoint and API key which have it enabled via
+ * {@link AIConfig#PROPERTY_ADAPTIVE_CONCURRENCY}, because that's what the capacity of the AI provider applies to.
+ *
+ * @author Bauke Scholtz
+ * @since 1.2
+ */
+final class AdaptiveConcurrencyLimiter implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /** The initial limit of concurrent requests: {@value} */
+    static final int INITIAL_LIMIT = 10;
+    /** The minimum limit of concurrent requests: {@value} */
+    static final int MIN_LIMIT = 1;
+    /** The maximum limit of concurrent requests: {@value} */
+    static final int MAX_LIMIT = 200;
+    /** The factor by which the limit is multiplied on a dropped or slow request: {@value} */
+    static final double BACKOFF_RATIO = 0.9;
+    /** The factor of the baseline latency above which a request is considered slow: {@value} */
+    static final double LATENCY_TOLERANCE = 2.0;
+    /** The minimum amount of latencies before slow requests decrease the limit: {@value} */
+    static final int MIN_SAMPLES = 10;
+    /** The amount of most recent latencies which the baseline latency approximately averages: {@value} */
+    static final int SMOOTHING_SAMPLES = 100;
+
+    private static final Map<String, AdaptiveConcurrencyLimiter> SHARED_ADAPTIVE_CONCURRENCY_LIMITERS = new ConcurrentHashMap<>();
+
+    private final String key;
+    private transient double limit = INITIAL_LIMIT;
+    private transient int inFlight;
+    private transient double baselineNanos;
+    private transient long sampleCount;
+    private final transient Deque<CompletableFuture<Void>> waiters = new ArrayDeque<>();
+
+    AdaptiveConcurrencyLimiter(String key) {
+        this.key = key;
+    }
+
+    /**
+     * Returns the shared adaptive concurrency limiter for the given endpoint and API key, if enabled via
+     * {@link AIConfig#PROPERTY_ADAPTIVE_CONCURRENCY} of the given AI configuration.
+     *
+     * @param config The AI configuration.
+     * @param endpoint The resolved endpoint.
+     * @param apiKey The resolved API key, may be {@code null}.
+     * @return The shared adaptive concurrency limiter, or {@code null} if adaptive concurrency is not enabled.
+     * @throws IllegalStateException if the configured value is not {@code true} or {@code false}.
+     */
+    static AdaptiveConcurrencyLimiter of(AIConfig config, URI endpoint, String apiKey) {
+        var value = config.property(PROPERTY_ADAPTIVE_CONCURRENCY);
+
+        if (value == null || "false".equalsIgnoreCase(value.strip())) {
+            return null;
+        }
+
+        if (!"true".equalsIgnoreCase(value.strip())) {
+            throw new IllegalStateException(PROPERTY_ADAPTIVE_CONCURRENCY + " property must be true or false: " + value);
+        }
+
+        return SHARED_ADAPTIVE_CONCURRENCY_LIMITERS.computeIfAbsent(RateLimiter.computeKey(endpoint.toString(), apiKey), AdaptiveConcurrencyLimiter::new);
+    }
+
+    /**
+     * Acquires a slot for a request. Every acquired slot must be released via {@link #release()} once the request completes.
+     *
+     * @return A future which completes as soon as the slot is acquired. It is already completed when a slot is available right away. When
+     * it is cancelled before completion, no slot is acquired.
+     */
+    synchronized CompletableFuture<Void> acquire() {
+        if (waiters.isEmpty() && inFlight < (int) limit) {
+            inFlight++;
+            return completedFuture(null);
+        }
+
+        var waiter = new CompletableFuture<Void>();
+        waiters.add(waiter);
+        return waiter;
+    }
+
+    /**
+     * Adapts the limit to the outcome of a request which acquired a slot.
+     *
+     * @param dropped Whether the request was dropped, e.g. rate limited, overloaded or timed out.
+     * @param latencyNanos The latency until the response headers arrived.
+     */
+    void record(boolean dropped, long latencyNanos) {
+        synchronized (this) {
+            if (dropped) {
+                backoff();
+            }
+            else {
+                var slow = sampleCount >= MIN_SAMPLES && latencyNanos > baselineNanos * LATENCY_TOLERANCE;
+                sampleCount++;
+                baselineNanos += (latencyNanos - baselineNanos) / Math.min(sampleCount, SMOOTHING_SAMPLES);
+
+                if (slow) {
+                    backoff();
+                }
+                else if (inFlight * 2 >= limit) {
+                    limit = Math.min(MAX_LIMIT, limit + 1);
+                }
+            }
+        }
+
+        drain();
+    }
+
+    private void backoff() {
+        limit = Math.max(MIN_LIMIT, limit * BACKOFF_RATIO);
+    }
+
+    /**
+     * Releases a slot acquired via {@link #acquire()}.
+     */
+    void release() {
+        synchronized (this) {
+            inFlight--;
+        }
+
+        drain();
+    }
+
+    /**
+     * Hands the available slots over to the waiters, skipping the ones which were cancelled in the meanwhile. The waiters are completed
+     * outside the lock, so the caller should not start the request in the completing thread.
+     */
+    private void drain() {
+        while (true) {
+            CompletableFuture<Void> waiter;
+
+            synchronized (this) {
+                if (inFlight >= (int) limit || (waiter = waiters.poll()) == null) {
+                    return;
+                }
+
+                inFlight++;
+            }
+
+            if (!waiter.complete(null)) {
+                synchronized (this) {
+                    inFlight--;
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the current limit of concurrent requests.
+     * @return The current limit of concurrent requests.
+     */
+    synchronized int getLimit() {
+        return (int) limit;
+    }
+
+    /**
+     * Returns the current amount of requests in flight.
+     * @return The current amount of requests in flight.
+     */
+    synchronized int getInFlight() {
+        return inFlight;
+    }
+
+    /**
+     * Returns the current amount of waiting requests, including the cancelled ones which are not yet skipped.
+     * @return The current amount of waiting requests.
+     */
+    synchronized int getQueued() {
+        return waiters.size();
+    }
+
+    private Object readResolve() {
+        return SHARED_ADAPTIVE_CONCURRENCY_LIMITERS.computeIfAbsent(key, AdaptiveConcurrencyLimiter::new);
+    }
+}
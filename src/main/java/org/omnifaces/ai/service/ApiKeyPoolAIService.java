@@ -0,0 +1,206 @@
+/*
+ * Copyright OmniFaces
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.omnifaces.ai.service;
+
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+import org.omnifaces.ai.AIConfig;
+import org.omnifaces.ai.AIService;
+import org.omnifaces.ai.exception.AIException;
+import org.omnifaces.ai.exception.AIRateLimitExceededException;
+import org.omnifaces.ai.model.ChatInput.Attachment;
+import org.omnifaces.ai.model.ChatOptions;
+
+/**
+ * AI service which spreads the calls across a pool of member AI services which only differ in their API key, so that the throughput is
+ * not capped by the rate limit of a single API key. This is created by {@link AIConfig#createService()} when
+ * {@link AIConfig#PROPERTY_API_KEYS} is configured.
+ * <p>
+ * Each call goes to the least recently throttled API key, and the API keys which were never throttled take turns. An API key which
+ * receives a 429 rate limit response goes into a cooldown for the period advertised by its {@code Retry-After} header, or else for
+ * {@link #DEFAULT_COOLDOWN}, and the call transparently fails over to another API key which is not in a cooldown. An API key in a
+ * cooldown is only picked when all API keys are in a cooldown. The members do not retry a 429 response themselves, so that the API key
+ * goes into the cooldown and the call fails over right away instead of after the retries of the member.
+ * <p>
+ * Calls with memory-enabled {@link ChatOptions} are sticky: all calls of the same {@link ChatOptions} instance go to the same API key and
+ * do not fail over, because the conversation history, including the IDs of uploaded files, belongs to that API key. Only when that API
+ * key is in a cooldown and the conversation has no uploaded files yet, the conversation moves to another API key. Likewise, chat calls
+ * whose {@link org.omnifaces.ai.model.ChatInput} refers to a file ID obtained via {@link #upload(Attachment)} of this service go to the
+ * API key which created that file ID.
+ * <p>
+ * Each member has its own client-side rate limiter, rate limit tracker and adaptive concurrency limiter, because these are already shared
+ * per API key.
+ *
+ * @author Bauke Scholtz
+ * @since 1.2
+ * @see AIConfig#PROPERTY_API_KEYS
+ */
+public class ApiKeyPoolAIService extends CompositeAIService {
+
+    private static final long serialVersionUID = 1L;
+
+    /** The cooldown of a throttled API key when the 429 response does not advertise a {@code Retry-After}. */
+    static final Duration DEFAULT_COOLDOWN = Duration.ofMinutes(1);
+
+    private final transient LongSupplier clock;
+    private final transient List<Key> keys;
+    private final transient StickyRoutes<Key> stickyRoutes = new StickyRoutes<>();
+    private final transient AtomicInteger nextIndex = new AtomicInteger();
+
+    /**
+     * Constructs an API key pool AI service with the given member AI services, each configured with another API key.
+     *
+     * @param services The member AI services.
+     * @throws IllegalArgumentException if there are no member AI services.
+     */
+    public ApiKeyPoolAIService(List<AIService> services) {
+        this(services, System::nanoTime);
+    }
+
+    ApiKeyPoolAIService(List<AIService> services, LongSupplier clock) {
+        super(services);
+        this.clock = clock;
+        this.keys = getServices().stream().map(Key::new).toList();
+        failFastOn(getServices(), AIRateLimitExceededException.STATUS_CODE);
+    }
+
+    @Override
+    protected <R> CompletableFuture<R> dispatch(Call call, Function<AIService, CompletableFuture<R>> invocation) {
+        var pinned = stickyRoutes.find(call, key -> !key.isCoolingDown(clock.getAsLong()), this::choose);
+        var tried = new HashSet<Key>();
+        Function<AIService, CompletableFuture<R>> tracked = service -> {
+            var key = findKey(service);
+            tried.add(key);
+            return track(key, invocation);
+        };
+        BiFunction<AIService, Throwable, AIService> failover = (service, cause) -> {
+            var next = pinned == null && cause instanceof AIRateLimitExceededException ? choose(tried) : null;
+            return next != null && !next.isCoolingDown(clock.getAsLong()) ? next.service : null;
+        };
+
+        return dispatchWithFailover(call, (pinned != null ? pinned : choose(Set.of())).service, tracked, failover);
+    }
+
+    /**
+     * @implNote The API key which created the returned file ID is remembered, so that chat calls referring to it go to that API key.
+     */
+    @Override
+    public CompletableFuture<String> uploadAsync(Attachment attachment) throws AIException {
+        return dispatch(new Call(null, null, false), service -> service.uploadAsync(attachment).thenApply(fileId -> {
+            stickyRoutes.pinUpload(fileId, findKey(service));
+            return fileId;
+        }));
+    }
+
+    private <R> CompletableFuture<R> track(Key key, Function<AIService, CompletableFuture<R>> invocation) {
+        var future = invocation.apply(key.service);
+        future.whenComplete((response, throwable) -> {
+            if (throwable != null && unwrap(throwable) instanceof AIRateLimitExceededException rateLimitExceeded) {
+                key.throttle(clock.getAsLong(), rateLimitExceeded.getRetryAfter().orElse(DEFAULT_COOLDOWN));
+            }
+        });
+        return future;
+    }
+
+    /**
+     * Chooses the least recently throttled API key which is not excluded, preferring the API keys which are not in a cooldown. API keys
+     * which are equally good take turns.
+     * @return The chosen API key, or {@code null} if all API keys are excluded.
+     */
+    private Key choose(Set<Key> excluded) {
+        var now = clock.getAsLong();
+        var start = Math.floorMod(nextIndex.getAndIncrement(), keys.size());
+        Key best = null;
+
+        for (var i = 0; i < keys.size(); i++) {
+            var key = keys.get((start + i) % keys.size());
+
+            if (!excluded.contains(key) && (best == null || key.isBetterThan(best, now))) {
+                best = key;
+            }
+        }
+
+        return best;
+    }
+
+    /**
+     * Returns the state of the API key of the given member AI service.
+     */
+    Key findKey(AIService service) {
+        return keys.stream().filter(key -> key.service == service).findFirst().orElseThrow();
+    }
+
+    private Object readResolve() {
+        return new ApiKeyPoolAIService(getServices());
+    }
+
+    /**
+     * The throttling state of the API key of a member AI service.
+     */
+    static final class Key {
+
+        private final AIService service;
+        private volatile Throttle throttle;
+
+        private Key(AIService service) {
+            this.service = service;
+        }
+
+        boolean isCoolingDown(long now) {
+            return isCoolingDown(throttle, now);
+        }
+
+        void throttle(long now, Duration cooldown) {
+            throttle = new Throttle(now, now + cooldown.toNanos());
+        }
+
+        private boolean isBetterThan(Key other, long now) {
+            var mine = throttle;
+            var theirs = other.throttle;
+            var coolingDown = isCoolingDown(mine, now);
+
+            if (coolingDown != isCoolingDown(theirs, now)) {
+                return !coolingDown;
+            }
+            else if (coolingDown) {
+                return mine.cooldownUntil() - theirs.cooldownUntil() < 0;
+            }
+            else if (mine == null || theirs == null) {
+                return mine == null && theirs != null;
+            }
+            else {
+                return mine.throttledAt() - theirs.throttledAt() < 0;
+            }
+        }
+
+        private static boolean isCoolingDown(Throttle throttle, long now) {
+            return throttle != null && now - throttle.cooldownUntil() < 0;
+        }
+
+        /**
+         * The most recent throttling of an API key.
+         *
+         * @param throttledAt The {@link System#nanoTime()} at which the API key was throttled.
+         * @param cooldownUntil The {@link System#nanoTime()} until which the API key is in a cooldown.
+         */
+        private record Throttle(long throttledAt, long cooldownUntil) {}
+    }
+}
@@ -12,6 +12,7 @@
  */
 package org.omnifaces.ai.service;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static java.util.Collections.emptyMap;
 import static java.util.Objects.requireNonNull;
 import static java.util.Optional.ofNullable;
@@ -21,29 +22,45 @@ import static java.util.logging.Level.WARNING;
 import static org.omnifaces.ai.AIConfig.PROPERTY_API_KEY;
 import static org.omnifaces.ai.AIConfig.PROPERTY_ENDPOINT;
 import static org.omnifaces.ai.AIConfig.PROPERTY_MODEL;
+import static org.omnifaces.ai.AIConfig.PROPERTY_TIMEOUT;
 import static org.omnifaces.ai.helper.JsonHelper.findNonBlankByPath;
 import static org.omnifaces.ai.helper.JsonHelper.parseJson;
+import static org.omnifaces.ai.helper.JsonProviderHelper.createArrayBuilder;
+import static org.omnifaces.ai.helper.JsonProviderHelper.createObjectBuilder;
+import static org.omnifaces.ai.helper.JsonSchemaHelper.buildJsonSchema;
+import static org.omnifaces.ai.helper.JsonSchemaHelper.fromJson;
 import static org.omnifaces.ai.helper.TextHelper.isBlank;
 import static org.omnifaces.ai.helper.TextHelper.requireNonBlank;
 import static org.omnifaces.ai.model.ChatOptions.DETERMINISTIC;
 import static org.omnifaces.ai.model.ChatOptions.DETERMINISTIC_TEMPERATURE;
+import static org.omnifaces.ai.service.CompletableFutureHelper.propagateCancel;
+import static org.omnifaces.ai.service.CompletableFutureHelper.thenApplyCancellable;
+import static org.omnifaces.ai.service.CompletableFutureHelper.thenComposeCancellable;
 
 import java.net.URI;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.time.Duration;
 import java.time.Instant;
-import java.time.temporal.ChronoUnit;
 import java.util.Arrays;
+import java.util.HexFormat;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
 import java.util.TreeMap;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
 import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.function.Predicate;
+import java.util.function.Supplier;
 import java.util.logging.Logger;
 
-import jakarta.json.Json;
 import jakarta.json.JsonObject;
 import jakarta.json.JsonValue;
 
@@ -55,15 +72,18 @@ import org.omnifaces.ai.AIService;
 import org.omnifaces.ai.AITextHandler;
 import org.omnifaces.ai.exception.AIException;
 import org.omnifaces.ai.exception.AIResponseException;
+import org.omnifaces.ai.helper.JsonSchemaHelper;
 import org.omnifaces.ai.helper.TextHelper;
 import org.omnifaces.ai.model.ChatInput;
 import org.omnifaces.ai.model.ChatInput.Attachment;
 import org.omnifaces.ai.model.ChatInput.Message.Role;
 import org.omnifaces.ai.model.ChatOptions;
+import org.omnifaces.ai.model.ChatOptions.Priority;
 import org.omnifaces.ai.model.GenerateImageOptions;
 import org.omnifaces.ai.model.ModerationOptions;
 import org.omnifaces.ai.model.ModerationResult;
 import org.omnifaces.ai.model.Sse.Event;
+import org.omnifaces.ai.model.Sse.EventFilter;
 
 /**
  * Base class for AI service implementations providing common API functionality.
@@ -81,9 +101,58 @@ public abstract class BaseAIService implements AIService {
     private static final Duration DEFAULT_CONNECT_TIMEOUT = Duration.ofSeconds(10);
     private static final Duration DEFAULT_REQUEST_TIMEOUT = Duration.ofSeconds(60);
 
+    private static final Duration DEFAULT_UPLOADED_FILE_TIME_TO_LIVE = Duration.ofDays(2); // Same default as Google AI.
+    private static final Duration UPLOADED_FILE_EXPIRY_MARGIN = Duration.ofHours(1);
+    private static final int MAX_CACHED_UPLOADS = 1024;
+
+    /** The uploads of file attachments, keyed by content-addressed key, see {@link #computeUploadCacheKey(Attachment)}. */
+    private static final Map<String, CachedUpload> CACHED_UPLOADS = new ConcurrentHashMap<>();
+
+    /** The deterministic chat requests which are currently in flight, keyed by SHA-256 of service, path, priority and payload digest. */
+    private static final Map<String, InFlightChatRequest> IN_FLIGHT_CHAT_REQUESTS = new ConcurrentHashMap<>();
+
+    /** Whether the typed chat must delegate to the string based chat, because a subclass overrides it, keyed by service class. */
+    private static final Map<Class<?>, Boolean> CHAT_OVERRIDDEN = new ConcurrentHashMap<>();
+
     /** Whether the "stale uploadedd files cleanup" task is running. */
     private final AtomicBoolean staleUploadedFilesCleanupRunning = new AtomicBoolean();
 
+    /** The retry budget of this service, used by {@link #HTTP_CLIENT}. */
+    final RetryBudget retryBudget = new RetryBudget();
+
+    /**
+     * The status codes of responses which {@link #HTTP_CLIENT} does not retry, because a composite AI service of which this service is a
+     * member fails over on them, see {@link CompositeAIService#failFastOn(List, int...)}.
+     */
+    volatile Set<Integer> failFastStatusCodes = Set.of();
+
+    /** The rate limiter of this service, used by {@link #HTTP_CLIENT}, or {@code null} if no rate limits are configured. */
+    final RateLimiter rateLimiter;
+
+    /** The rate limit tracker of this service, used by {@link #HTTP_CLIENT}. */
+    final RateLimitTracker rateLimitTracker;
+
+    /** The adaptive concurrency limiter of this service, used by {@link #HTTP_CLIENT}, or {@code null} if not enabled. */
+    final AdaptiveConcurrencyLimiter concurrencyLimiter;
+
+    /** The circuit breaker of this service, used by {@link #HTTP_CLIENT}. */
+    final CircuitBreaker circuitBreaker;
+
+    /** The hedging policy of this service, or {@code null} if hedging is not configured. */
+    final HedgePolicy hedgePolicy;
+
+    /** The bulkhead of this service, or {@code null} if concurrency is not limited. */
+    final Bulkhead bulkhead;
+
+    /** The response cache of this service, or {@code null} if responses are not cached. */
+    final ResponseCache responseCache;
+
+    /** Whether cached responses are shared across API keys, see {@link AIConfig#PROPERTY_RESPONSE_CACHE_SHARED_ACROSS_API_KEYS}. */
+    final boolean responseCacheSharedAcrossApiKeys;
+
+    /** The default timeout of a call to this service, or {@code null} if calls are not limited by a deadline. */
+    final Duration timeout;
+
     /** The shared HTTP client for API requests. */
     static final AIHttpClient HTTP_CLIENT = AIHttpClient.newInstance(DEFAULT_CONNECT_TIMEOUT, DEFAULT_REQUEST_TIMEOUT);
 
@@ -110,7 +179,8 @@ public abstract class BaseAIService implements AIService {
      * @param config The AI configuration containing provider, API key, model, endpoint, prompt, and strategy settings.
      * @throws NullPointerException when config is null.
      * @throws IllegalArgumentException if the provider in the config doesn't match this service class, or if a handler class is unspecified.
-     * @throws IllegalStateException If a required configuration property is missing, or if a handler class cannot be instantiated.
+     * @throws IllegalStateException If a required configuration property is missing, if a rate limit, hedge, concurrency, response
+     * cache or timeout configuration property is invalid, or if a handler class cannot be instantiated.
      */
     protected BaseAIService(AIConfig config) {
         this.provider = requireNonNull(config, "config").resolveProvider();
@@ -126,6 +196,31 @@ public abstract class BaseAIService implements AIService {
         this.textHandler = createHandler(config.strategy().textHandler(), provider.getDefaultTextHandler(), "text");
         this.imageHandler = createHandler(config.strategy().imageHandler(), provider.getDefaultImageHandler(), "image");
         this.audioHandler = createHandler(config.strategy().audioHandler(), provider.getDefaultAudioHandler(), "audio");
+        this.rateLimiter = RateLimiter.of(config, provider, apiKey);
+        this.rateLimitTracker = RateLimitTracker.of(endpoint, apiKey);
+        this.concurrencyLimiter = AdaptiveConcurrencyLimiter.of(config, endpoint, apiKey);
+        this.circuitBreaker = CircuitBreaker.of(endpoint);
+        this.hedgePolicy = HedgePolicy.of(config);
+        this.bulkhead = Bulkhead.of(config);
+        this.responseCache = ResponseCache.of(config);
+        this.responseCacheSharedAcrossApiKeys = responseCache != null && ResponseCache.isSharedAcrossApiKeys(config);
+        this.timeout = parseTimeout(config);
+    }
+
+    private static Duration parseTimeout(AIConfig config) {
+        var value = config.property(PROPERTY_TIMEOUT);
+
+        if (value == null) {
+            return null;
+        }
+
+        var timeout = TextHelper.parseDuration(value);
+
+        if (timeout == null || timeout.isZero()) {
+            throw new IllegalStateException(PROPERTY_TIMEOUT + " property must be a positive duration: " + value);
+        }
+
+        return timeout;
     }
 
     private static <T> T createHandler(Class<? extends T> configuredHandler, Class<? extends T> defaultHandler, String handlerName) {
@@ -158,6 +253,70 @@ public abstract class BaseAIService implements AIService {
         return prompt;
     }
 
+    /**
+     * Returns {@code false} when the {@link #getCircuitBreaker() circuit breaker} of this service is open.
+     */
+    @Override
+    public boolean isAvailable() {
+        return circuitBreaker.getState() != CircuitBreaker.State.OPEN;
+    }
+
+    /**
+     * Returns the circuit breaker of the endpoint host of this service. It is shared by all services of the same endpoint host.
+     * @return The circuit breaker of the endpoint host of this service.
+     * @since 1.2
+     */
+    public CircuitBreaker getCircuitBreaker() {
+        return circuitBreaker;
+    }
+
+    /**
+     * Returns the bulkhead of this service, if concurrency is limited via {@link AIConfig#PROPERTY_MAX_CONCURRENT_REQUESTS}. It is not
+     * shared with other services.
+     * @return The bulkhead of this service, if any.
+     * @since 1.2
+     */
+    public Optional<Bulkhead> getBulkhead() {
+        return ofNullable(bulkhead);
+    }
+
+    /**
+     * Returns the response cache of this service, if responses are cached via {@link AIConfig#PROPERTY_RESPONSE_CACHE_TTL}. It is shared
+     * by all services with the same response cache configuration.
+     * @return The response cache of this service, if any.
+     * @since 1.2
+     */
+    public Optional<ResponseCache> getResponseCache() {
+        return ofNullable(responseCache);
+    }
+
+    /**
+     * Starts the deadline of a call with the timeout of the given chat options, or else the default timeout of this service.
+     */
+    private Deadline newDeadline(ChatOptions options) {
+        return Deadline.of(options.getTimeout() != null ? options.getTimeout() : timeout);
+    }
+
+    /**
+     * Sends the request supplied by the given action within the given deadline, if any, via the bulkhead of this service, if any. When the
+     * deadline expires, a queued request leaves the queue, and an in-flight request is aborted.
+     */
+    private <R> CompletableFuture<R> admit(Deadline deadline, Priority priority, Supplier<CompletableFuture<R>> action) {
+        Supplier<CompletableFuture<R>> send = () -> Deadline.call(deadline, action);
+        var admitted = bulkhead == null ? send.get() : bulkhead.submit(priority, send);
+        return deadline == null ? admitted : deadline.enforce(admitted);
+    }
+
+    /**
+     * Sends the request supplied by the given action within the deadline of the default timeout of this service, if any. This is intended
+     * for subclasses which send a request via {@link #HTTP_CLIENT} on their own.
+     */
+    <R> CompletableFuture<R> withTimeout(Supplier<CompletableFuture<R>> action) {
+        var deadline = Deadline.of(timeout);
+        var future = Deadline.call(deadline, action);
+        return deadline == null ? future : deadline.enforce(future);
+    }
+
 
     // Chat Implementation --------------------------------------------------------------------------------------------
 
@@ -168,20 +327,78 @@ public abstract class BaseAIService implements AIService {
      */
     protected abstract String getChatPath(boolean streaming);
 
+    /**
+     * @implNote When the options have a temperature of {@link ChatOptions#DETERMINISTIC_TEMPERATURE}, then identical chat requests of the
+     * same priority which are in flight at the same time are coalesced into a single request, as long as the deadline of that request does
+     * not expire before the deadline of the attaching caller, and the chat request is hedged when
+     * {@link AIConfig#PROPERTY_HEDGE_PERCENTILE} is configured. When the options have a temperature of
+     * {@link ChatOptions#DETERMINISTIC_TEMPERATURE} or are {@link ChatOptions#isCacheable() cacheable}, then the response is cached when
+     * {@link AIConfig#PROPERTY_RESPONSE_CACHE_TTL} is configured.
+     */
     @Override
     public CompletableFuture<String> chatAsync(ChatInput input, ChatOptions options) throws AIException {
+        return chatAsync(input, options, String.class, this::asyncPostAndParseChatResponse, Function.identity());
+    }
+
+    /**
+     * @implNote This implementation generates a JSON schema via {@link JsonSchemaHelper#buildJsonSchema(Class)}, merges it into the
+     * options via {@link ChatOptions#withJsonSchema(JsonObject)}, parses the response via
+     * {@link AITextHandler#parseStructuredChatResponse(java.io.InputStream)}, and binds the resulting JSON value via
+     * {@link JsonSchemaHelper#fromJson(JsonValue, Class)}, so that the structured message content is parsed only once. When a subclass
+     * overrides {@link #chatAsync(ChatInput, ChatOptions)} or {@link #asyncPostAndParseChatResponse(String, JsonObject)} without also
+     * overriding {@link #asyncPostAndParseStructuredChatResponse(String, JsonObject)}, then it delegates to
+     * {@link #chatAsync(ChatInput, ChatOptions)} and binds its response via {@link JsonSchemaHelper#fromJson(String, Class)} instead.
+     */
+    @Override
+    public <T> CompletableFuture<T> chatAsync(ChatInput input, ChatOptions options, Class<T> type) throws AIException {
+        if (isChatOverridden()) {
+            return thenApplyCancellable(chatAsync(input, options.withJsonSchema(buildJsonSchema(type))), json -> fromJson(json, type));
+        }
+
+        return thenApplyCancellable(chatAsync(input, options.withJsonSchema(buildJsonSchema(type)), JsonValue.class, this::asyncPostAndParseStructuredChatResponse, JsonValue::toString), json -> fromJson(json, type));
+    }
+
+    private boolean isChatOverridden() {
+        return CHAT_OVERRIDDEN.computeIfAbsent(getClass(), type -> isOverridden(type, "chatAsync", ChatInput.class, ChatOptions.class)
+            || isOverridden(type, "asyncPostAndParseChatResponse", String.class, JsonObject.class) && !isOverridden(type, "asyncPostAndParseStructuredChatResponse", String.class, JsonObject.class));
+    }
+
+    private static boolean isOverridden(Class<?> type, String name, Class<?>... parameterTypes) {
+        for (var current = type; current != BaseAIService.class; current = current.getSuperclass()) {
+            try {
+                current.getDeclaredMethod(name, parameterTypes);
+                return true;
+            }
+            catch (NoSuchMethodException e) {
+                // Not declared here, so check the superclass.
+            }
+        }
+
+        return false;
+    }
+
+    private <R> CompletableFuture<R> chatAsync(ChatInput input, ChatOptions options, Class<R> responseType, BiFunction<String, JsonObject, CompletableFuture<R>> poster, Function<R, String> responseMessage) {
+        var deadline = newDeadline(options);
         var effectiveInput = options.hasMemory() ? input.withHistory(options.getHistory()) : input;
 
         if (options.hasMemory()) {
             options.recordMessage(Role.USER, input.getMessage());
         }
 
-        var payload = textHandler.buildChatPayload(this, effectiveInput, options, false);
-        var future = asyncPostAndParseChatResponse(getChatPath(false), payload);
+        var deterministic = options.getTemperature() == DETERMINISTIC_TEMPERATURE;
+        var future = thenComposeCancellable(Deadline.call(deadline, () -> textHandler.buildChatPayloadAsync(this, effectiveInput, options, false)), payload -> {
+            var path = getChatPath(false);
+            var cached = responseCache != null && (deterministic || options.isCacheable());
+            var payloadDigest = deterministic || cached ? JsonBodyPublisher.digest(payload) : null;
+            Supplier<CompletableFuture<R>> send = () -> admit(deadline, options.getPriority(), () -> poster.apply(path, payload));
+            Supplier<CompletableFuture<R>> request = deterministic && hedgePolicy != null ? () -> hedgePolicy.hedge(send) : send;
+            Supplier<CompletableFuture<R>> coalesced = deterministic ? () -> coalesce(path, payloadDigest, deadline, options.getPriority(), request) : request;
+            return cached ? cache(path, payloadDigest, responseType, coalesced, responseMessage) : coalesced.get();
+        });
 
         if (options.hasMemory()) {
-            future = future.thenApply(response -> {
-                options.recordMessage(Role.ASSISTANT, response);
+            future = thenApplyCancellable(future, response -> {
+                options.recordMessage(Role.ASSISTANT, responseMessage.apply(response));
                 return response;
             });
         }
@@ -189,6 +406,100 @@ public abstract class BaseAIService implements AIService {
         return future;
     }
 
+    /**
+     * Coalesces identical deterministic chat requests of the same priority which are in flight at the same time into a single request. A
+     * later caller attaches to the request of an earlier caller when the deadline of that request expires no earlier than its own deadline,
+     * else it sends its own request and takes over as the request to attach to. A request is removed from the in flight requests as soon as
+     * it completes, or as soon as all of its callers have cancelled, in which case the request itself is cancelled as well.
+     */
+    @SuppressWarnings("unchecked")
+    private <R> CompletableFuture<R> coalesce(String path, String payloadDigest, Deadline deadline, Priority priority, Supplier<CompletableFuture<R>> request) {
+        var key = RateLimiter.computeKey(provider.name(), endpoint.toString(), apiKey, path, priority.name(), payloadDigest);
+        var inFlight = new InFlightChatRequest(new CompletableFuture<R>(), deadline, new AtomicInteger(1));
+        var existing = IN_FLIGHT_CHAT_REQUESTS.merge(key, inFlight, (current, candidate) -> Deadline.isNotBefore(current.deadline(), deadline) && current.attach() ? current : candidate);
+
+        if (existing != inFlight) {
+            return existing.copy(key);
+        }
+
+        var future = (CompletableFuture<R>) inFlight.future();
+
+        try {
+            var sent = request.get();
+            propagateCancel(future, sent);
+            sent.whenComplete((result, throwable) -> {
+                IN_FLIGHT_CHAT_REQUESTS.remove(key, inFlight);
+
+                if (throwable == null) {
+                    future.complete(result);
+                }
+                else {
+                    future.completeExceptionally(throwable);
+                }
+            });
+        }
+        catch (RuntimeException e) {
+            IN_FLIGHT_CHAT_REQUESTS.remove(key, inFlight);
+            future.completeExceptionally(e);
+        }
+
+        return inFlight.copy(key);
+    }
+
+    /**
+     * Answers the chat request from the response cache of this service, if any, or else sends it and caches its successful response. The
+     * responses are keyed by SHA-256 of provider, endpoint, API key, model, path, response type and payload digest, so that a service is
+     * never answered with a response paid for by another API key, unless {@link #responseCacheSharedAcrossApiKeys} is {@code true}.
+     */
+    private <R> CompletableFuture<R> cache(String path, String payloadDigest, Class<R> responseType, Supplier<CompletableFuture<R>> request, Function<R, String> responseMessage) {
+        if (responseCache == null) {
+            return request.get();
+        }
+
+        var key = RateLimiter.computeKey(provider.name(), endpoint.toString(), responseCacheSharedAcrossApiKeys ? null : apiKey, model, path, responseType.getName(), payloadDigest);
+        return responseCache.get(key, request, responseMessage);
+    }
+
+    /**
+     * Answers the request from the response cache of this service, if any, or else sends it and caches its successful response. The
+     * payload is only hashed when this service has a response cache. This is also intended for subclasses which send a request via
+     * {@link #HTTP_CLIENT} on their own.
+     */
+    <R> CompletableFuture<R> cache(String path, JsonObject payload, Class<R> responseType, Supplier<CompletableFuture<R>> request, Function<R, String> responseMessage) {
+        return responseCache == null ? request.get() : cache(path, JsonBodyPublisher.digest(payload), responseType, request, responseMessage);
+    }
+
+    /**
+     * A deterministic chat request which is in flight, along with the deadline of the call which sent it and the amount of callers which
+     * have not cancelled yet.
+     */
+    private record InFlightChatRequest(CompletableFuture<?> future, Deadline deadline, AtomicInteger callers) {
+
+        /**
+         * Attaches another caller, unless all callers have already cancelled.
+         */
+        boolean attach() {
+            return callers.getAndUpdate(count -> count > 0 ? count + 1 : count) > 0;
+        }
+
+        /**
+         * Returns a copy of the future for a caller. When the last caller cancels its copy, the request is cancelled.
+         */
+        @SuppressWarnings("unchecked")
+        <R> CompletableFuture<R> copy(String key) {
+            var copy = (CompletableFuture<R>) future.copy();
+
+            copy.whenComplete((result, throwable) -> {
+                if (copy.isCancelled() && callers.decrementAndGet() == 0) {
+                    IN_FLIGHT_CHAT_REQUESTS.remove(key, this);
+                    future.cancel(true);
+                }
+            });
+
+            return copy;
+        }
+    }
+
     @Override
     public CompletableFuture<Void> chatStream(ChatInput input, ChatOptions options, Consumer<String> onToken) {
         if (!supportsStreaming()) {
@@ -201,7 +512,8 @@ public abstract class BaseAIService implements AIService {
             options.recordMessage(Role.USER, input.getMessage());
         }
 
-        var payload = textHandler.buildChatPayload(this, effectiveInput, options, true);
+        var deadline = newDeadline(options);
+        var payload = Deadline.call(deadline, () -> textHandler.buildChatPayloadAsync(this, effectiveInput, options, true));
         var responseAccumulator = options.hasMemory() ? new StringBuilder() : null;
         Consumer<String> effectiveOnToken = responseAccumulator != null ? token -> {
             responseAccumulator.append(token);
@@ -210,7 +522,9 @@ public abstract class BaseAIService implements AIService {
 
         var callerStackTrace = new Exception("Caller stack trace");
 
-        return asyncPostAndProcessStreamEvents(getChatPath(true), payload, event -> textHandler.processChatStreamEvent(this, event, effectiveOnToken)).handle((result, exception) -> {
+        var stream = thenComposeCancellable(payload, json -> admit(deadline, options.getPriority(), () -> asyncPostAndProcessStreamEvents(getChatPath(true), json, textHandler.getChatStreamEventFilter(this), event -> textHandler.processChatStreamEvent(this, event, effectiveOnToken))));
+
+        return propagateCancel(stream.handle((result, exception) -> {
             if (exception == null) {
                 if (responseAccumulator != null) {
                     options.recordMessage(Role.ASSISTANT, responseAccumulator.toString());
@@ -220,7 +534,7 @@ public abstract class BaseAIService implements AIService {
             }
 
             throw AIException.asyncRequestFailed(exception, callerStackTrace);
-        });
+        }), stream);
     }
 
 
@@ -236,14 +550,74 @@ public abstract class BaseAIService implements AIService {
     }
 
     /**
-     * This also cleans up uploaded files older than 2 days if {@link #getUploadedFileJsonStructure()} returns non-{@code null}.
-     * This is called as a fire-and-forget task after each upload. Failures are logged at WARNING level and never propagated.
+     * @implNote This implementation delegates to {@link #uploadAsync(Attachment)}.
      */
     @Override
     public String upload(Attachment attachment) throws AIException {
         try {
-            var fileId = asyncUploadAndParseFileIdResponse(getFilesPath(), attachment).join();
+            return uploadAsync(attachment).join();
+        }
+        catch (CompletionException e) {
+            throw AIException.asyncRequestFailed(e);
+        }
+    }
+
+    /**
+     * Identical file attachments are uploaded only once per AI provider, endpoint and API key. The file ID is reused by subsequent uploads
+     * of an attachment with the same content, MIME type and metadata until shortly before the uploaded file expires as per
+     * {@link #getUploadedFileTimeToLive()}. Concurrent uploads of an identical attachment share the same upload request.
+     * <p>
+     * This also cleans up uploaded files older than 2 days if {@link #getUploadedFileJsonStructure()} returns non-{@code null}.
+     * This is called as a fire-and-forget task after each upload. Failures are logged at WARNING level and never propagated.
+     * File IDs which are still reusable are spared from cleanup.
+     */
+    @Override
+    public CompletableFuture<String> uploadAsync(Attachment attachment) throws AIException {
+        var path = getFilesPath();
+        var timeToLive = getUploadedFileTimeToLive();
+
+        if (timeToLive == null || timeToLive.compareTo(UPLOADED_FILE_EXPIRY_MARGIN) <= 0) {
+            return uploadAndScheduleCleanup(path, attachment);
+        }
+
+        var now = Instant.now();
+
+        if (CACHED_UPLOADS.size() >= MAX_CACHED_UPLOADS) {
+            CACHED_UPLOADS.values().removeIf(upload -> !upload.isReusableAt(now));
+
+            if (CACHED_UPLOADS.size() >= MAX_CACHED_UPLOADS) {
+                return uploadAndScheduleCleanup(path, attachment);
+            }
+        }
+
+        var key = computeUploadCacheKey(attachment);
+        var newUpload = new CachedUpload(new CompletableFuture<>(), now.plus(timeToLive).minus(UPLOADED_FILE_EXPIRY_MARGIN));
+        var upload = CACHED_UPLOADS.compute(key, (k, existing) -> existing != null && existing.isReusableAt(now) ? existing : newUpload);
+
+        if (upload == newUpload) {
+            try {
+                uploadAndScheduleCleanup(path, attachment).whenComplete((fileId, exception) -> {
+                    if (exception != null) {
+                        CACHED_UPLOADS.remove(key, newUpload);
+                        newUpload.fileId().completeExceptionally(exception);
+                    }
+                    else {
+                        newUpload.fileId().complete(fileId);
+                    }
+                });
+            }
+            catch (RuntimeException e) {
+                CACHED_UPLOADS.remove(key, newUpload);
+                newUpload.fileId().completeExceptionally(e);
+                throw e;
+            }
+        }
 
+        return upload.fileId().copy();
+    }
+
+    private CompletableFuture<String> uploadAndScheduleCleanup(String path, Attachment attachment) {
+        return asyncUploadAndParseFileIdResponse(path, attachment).thenApply(fileId -> {
             if (getUploadedFileJsonStructure() != null && staleUploadedFilesCleanupRunning.compareAndSet(false, true)) {
                 ExecutorServiceHelper.runAsync(() -> {
                     try {
@@ -256,15 +630,66 @@ public abstract class BaseAIService implements AIService {
             }
 
             return fileId;
+        });
+    }
+
+    /**
+     * Returns how long an uploaded file remains available at the AI provider. This is used to determine how long the file ID of an
+     * uploaded file can be reused by {@link #uploadAsync(Attachment)} for identical file attachments.
+     * @implNote The default implementation returns 2 days, which is the expiry of OpenAI file uploads with {@code expires_after}, the
+     * expiry of Google AI file URIs, and the age after which stale uploaded files are cleaned up.
+     * @return How long an uploaded file remains available at the AI provider, or {@code null} if uploaded file IDs may not be reused.
+     * @since 1.2
+     */
+    protected Duration getUploadedFileTimeToLive() {
+        return DEFAULT_UPLOADED_FILE_TIME_TO_LIVE;
+    }
+
+    /**
+     * Cached upload of a file attachment.
+     *
+     * @param fileId The file ID of the upload, possibly still in progress.
+     * @param reusableUntil The moment until which the file ID may be reused.
+     */
+    private record CachedUpload(CompletableFuture<String> fileId, Instant reusableUntil) {
+
+        boolean isReusableAt(Instant moment) {
+            return moment.isBefore(reusableUntil) && !fileId.isCompletedExceptionally();
         }
-        catch (CompletionException e) {
-            throw AIException.asyncRequestFailed(e);
+    }
+
+    /**
+     * Computes the content-addressed key of the given file attachment. This is the SHA-256 hash of the provider, endpoint, API key,
+     * MIME type, metadata and content, so that the key doesn't retain the API key nor the content.
+     */
+    private String computeUploadCacheKey(Attachment attachment) {
+        MessageDigest digest;
+
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
         }
+        catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+
+        for (var part : List.of(provider.name(), endpoint.toString(), String.valueOf(apiKey), attachment.mimeType().value(), new TreeMap<>(attachment.metadata()).toString())) {
+            digest.update(part.getBytes(UTF_8));
+            digest.update((byte) 0);
+        }
+
+        return HexFormat.of().formatHex(digest.digest(attachment.content()));
+    }
+
+    private static boolean isCachedUploadedFileId(String fileId) {
+        var now = Instant.now();
+        return CACHED_UPLOADS.values().stream()
+            .filter(upload -> upload.isReusableAt(now) && upload.fileId().isDone())
+            .anyMatch(upload -> fileId.equals(upload.fileId().getNow(null)));
     }
 
     /**
      * Describes the JSON structure of the file listing response, used by the clean up task of
-     * {@link BaseAIService#upload(Attachment)} to identify and delete stale uploads.
+     * {@link BaseAIService#uploadAsync(Attachment)} to identify and delete stale uploads.
      *
      * @param filesArrayProperty JSON property name of the array containing file objects.
      * @param fileNameProperty JSON property name of the file name within each file object.
@@ -313,7 +738,7 @@ public abstract class BaseAIService implements AIService {
                 return;
             }
 
-            var cutoff = Instant.now().minus(2, ChronoUnit.DAYS); // Same default as Google AI.
+            var cutoff = Instant.now().minus(DEFAULT_UPLOADED_FILE_TIME_TO_LIVE);
 
             files.stream()
                 .map(JsonValue::asJsonObject)
@@ -336,7 +761,7 @@ public abstract class BaseAIService implements AIService {
             var id = findNonBlankByPath(file, jsonStructure.fileIdProperty);
             var createdAt = findNonBlankByPath(file, jsonStructure.createdAtProperty);
 
-            if (id.isPresent() && createdAt.isPresent()) {
+            if (id.isPresent() && createdAt.isPresent() && !isCachedUploadedFileId(id.get())) {
                 var timestamp = tryParseFileCreatedAtTimestamp(createdAt.get());
 
                 if (timestamp.isBefore(cutoff)) {
@@ -378,7 +803,7 @@ public abstract class BaseAIService implements AIService {
             .temperature(textHandler.getDefaultCreativeTemperature())
             .build();
 
-        return chatAsync(requireNonBlank(text, "text"), options).thenApply(response -> Arrays.asList(response.split("\n")).stream().map(String::strip).filter(not(TextHelper::isBlank)).toList());
+        return thenApplyCancellable(chatAsync(requireNonBlank(text, "text"), options), response -> Arrays.asList(response.split("\n")).stream().map(String::strip).filter(not(TextHelper::isBlank)).toList());
     }
 
 
@@ -386,7 +811,7 @@ public abstract class BaseAIService implements AIService {
 
     @Override
     public CompletableFuture<String> detectLanguageAsync(String text) throws AIException {
-        return chatAsync(requireNonBlank(text, "text"), DETERMINISTIC.withSystemPrompt(textHandler.buildDetectLanguagePrompt())).thenApply(response -> {
+        return thenApplyCancellable(chatAsync(requireNonBlank(text, "text"), DETERMINISTIC.withSystemPrompt(textHandler.buildDetectLanguagePrompt())), response -> {
             if (isBlank(response)) {
                 throw new AIResponseException("Response is empty", response);
             }
@@ -423,27 +848,27 @@ public abstract class BaseAIService implements AIService {
             .temperature(DETERMINISTIC_TEMPERATURE)
             .build();
 
-        return chatAsync(requireNonBlank(content, "content"), chatOptions).thenApply(response -> parseModerationResult(response, options));
+        return thenApplyCancellable(chatAsync(requireNonBlank(content, "content"), chatOptions), response -> parseModerationResult(response, options));
     }
 
     private static JsonObject buildModerationJsonSchema(ModerationOptions options) {
-        var categoryProperties = Json.createObjectBuilder();
-        var requiredCategories = Json.createArrayBuilder();
+        var categoryProperties = createObjectBuilder();
+        var requiredCategories = createArrayBuilder();
 
         for (var category : options.getCategories()) {
-            categoryProperties.add(category, Json.createObjectBuilder().add("type", "number"));
+            categoryProperties.add(category, createObjectBuilder().add("type", "number"));
             requiredCategories.add(category);
         }
 
-        var scoresSchema = Json.createObjectBuilder()
+        var scoresSchema = createObjectBuilder()
             .add("type", "object")
             .add("properties", categoryProperties)
             .add("required", requiredCategories);
 
-        return Json.createObjectBuilder()
+        return createObjectBuilder()
             .add("type", "object")
-            .add("properties", Json.createObjectBuilder().add("scores", scoresSchema))
-            .add("required", Json.createArrayBuilder().add("scores"))
+            .add("properties", createObjectBuilder().add("scores", scoresSchema))
+            .add("required", createArrayBuilder().add("scores"))
             .build();
     }
 
@@ -475,7 +900,8 @@ public abstract class BaseAIService implements AIService {
     public CompletableFuture<String> analyzeImageAsync(byte[] image, String prompt) throws AIException {
         var input = ChatInput.newBuilder().message(isBlank(prompt) ? "Analyze image" : prompt).attach(image).build();
         var options = DETERMINISTIC.withSystemPrompt(isBlank(prompt) ? imageHandler.buildAnalyzeImagePrompt() : null);
-        return asyncPostAndParseChatResponse(getChatPath(false), textHandler.buildChatPayload(this, input, options, false));
+        var deadline = newDeadline(options);
+        return thenComposeCancellable(Deadline.call(deadline, () -> textHandler.buildChatPayloadAsync(this, input, options, false)), payload -> cache(getChatPath(false), payload, String.class, () -> admit(deadline, options.getPriority(), () -> asyncPostAndParseChatResponse(getChatPath(false), payload)), Function.identity()));
     }
 
     @Override
@@ -497,7 +923,8 @@ public abstract class BaseAIService implements AIService {
 
     @Override
     public CompletableFuture<byte[]> generateImageAsync(String prompt, GenerateImageOptions options) throws AIException {
-        return asyncPostAndParseImageContent(getGenerateImagePath(), imageHandler.buildGenerateImagePayload(this, requireNonBlank(prompt, "prompt"), options));
+        var payload = imageHandler.buildGenerateImagePayload(this, requireNonBlank(prompt, "prompt"), options);
+        return admit(Deadline.of(timeout), Priority.DEFAULT, () -> asyncPostAndParseImageContent(getGenerateImagePath(), payload));
     }
 
     // Audio Transcription Implementation ------------------------------------------------------------------------------
@@ -506,7 +933,8 @@ public abstract class BaseAIService implements AIService {
     public CompletableFuture<String> transcribeAsync(byte[] audio) throws AIException {
         var input = ChatInput.newBuilder().message("Transcribe audio").attach(audio).build();
         var options = DETERMINISTIC.withSystemPrompt(audioHandler.buildTranscribePrompt());
-        return asyncPostAndParseChatResponse(getChatPath(false), textHandler.buildChatPayload(this, input, options, false));
+        var deadline = newDeadline(options);
+        return thenComposeCancellable(Deadline.call(deadline, () -> textHandler.buildChatPayloadAsync(this, input, options, false)), payload -> cache(getChatPath(false), payload, String.class, () -> admit(deadline, options.getPriority(), () -> asyncPostAndParseChatResponse(getChatPath(false), payload)), Function.identity()));
     }
 
 
@@ -537,14 +965,27 @@ public abstract class BaseAIService implements AIService {
 
     /**
      * Send POST request to API at given path with given payload along with request headers obtained from {@link #getRequestHeaders()}, and parse
-     * chat response from the POST response with help of {@link AITextHandler#parseChatResponse(String)}.
+     * chat response from the POST response with help of {@link AITextHandler#parseChatResponse(java.io.InputStream)}.
      * @param path API path, relative to {@link #endpoint}.
      * @param payload POST request payload.
      * @return The message content of the POST request.
      * @throws AIException if anything fails during the process.
      */
     protected CompletableFuture<String> asyncPostAndParseChatResponse(String path, JsonObject payload) throws AIException {
-        return HTTP_CLIENT.post(this, path, payload).thenApply(textHandler::parseChatResponse);
+        return HTTP_CLIENT.post(this, path, payload, textHandler::parseChatResponse);
+    }
+
+    /**
+     * Send POST request to API at given path with given payload along with request headers obtained from {@link #getRequestHeaders()}, and parse
+     * structured chat response from the POST response with help of {@link AITextHandler#parseStructuredChatResponse(java.io.InputStream)}.
+     * @param path API path, relative to {@link #endpoint}.
+     * @param payload POST request payload.
+     * @return The structured message content of the POST request.
+     * @throws AIException if anything fails during the process.
+     * @since 1.2
+     */
+    protected CompletableFuture<JsonValue> asyncPostAndParseStructuredChatResponse(String path, JsonObject payload) throws AIException {
+        return HTTP_CLIENT.post(this, path, payload, textHandler::parseStructuredChatResponse);
     }
 
     /**
@@ -562,14 +1003,14 @@ public abstract class BaseAIService implements AIService {
 
     /**
      * Send POST request to API at given path with given payload along with request headers obtained from {@link #getRequestHeaders()}, and parse
-     * image content from the POST response with help of {@link AIImageHandler#parseImageContent(String)}.
+     * image content from the POST response with help of {@link AIImageHandler#parseImageContent(java.io.InputStream)}.
      * @param path API path, relative to {@link #endpoint}.
      * @param payload POST request payload.
      * @return The image content of the POST request.
      * @throws AIException if anything fails during the process.
      */
     protected CompletableFuture<byte[]> asyncPostAndParseImageContent(String path, JsonObject payload) throws AIException {
-        return HTTP_CLIENT.post(this, path, payload).thenApply(imageHandler::parseImageContent);
+        return HTTP_CLIENT.post(this, path, payload, imageHandler::parseImageContent);
     }
 
     /**
@@ -582,6 +1023,21 @@ public abstract class BaseAIService implements AIService {
      * @throws AIException if anything fails during the process.
      */
     protected CompletableFuture<Void> asyncPostAndProcessStreamEvents(String path, JsonObject payload, Predicate<Event> eventProcessor) throws AIException {
-        return HTTP_CLIENT.stream(this, path, payload, eventProcessor);
+        return asyncPostAndProcessStreamEvents(path, payload, EventFilter.ACCEPT_ALL, eventProcessor);
+    }
+
+    /**
+     * Send SSE request to API at given path with given payload along with request headers obtained from {@link #getRequestHeaders()}, and process
+     * each reveived stream event accepted by supplied {@code eventFilter} using supplied {@code eventProcessor}.
+     * @param path API path, relative to {@link #endpoint}.
+     * @param payload Initial SSE POST request payload.
+     * @param eventFilter The stream events of interest; all other stream events are skipped before they are decoded.
+     * @param eventProcessor Callback invoked for each accepted stream event; it must return {@code true} to continue processing the stream, or {@code false} to stop processing the stream.
+     * @return A future that completes when stream ends normally, is stopped by the processor, or fails exceptionally.
+     * @throws AIException if anything fails during the process.
+     * @since 1.2
+     */
+    protected CompletableFuture<Void> asyncPostAndProcessStreamEvents(String path, JsonObject payload, EventFilter eventFilter, Predicate<Event> eventProcessor) throws AIException {
+        return HTTP_CLIENT.stream(this, path, payload, eventFilter, eventProcessor);
     }
 }
@@ -0,0 +1,306 @@
+/*
+ * Copyright OmniFaces
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.omnifaces.ai.service;
+
+import static java.util.concurrent.CompletableFuture.failedFuture;
+import static org.omnifaces.ai.AIConfig.PROPERTY_MAX_CONCURRENT_REQUESTS;
+import static org.omnifaces.ai.AIConfig.PROPERTY_MAX_QUEUED_REQUESTS;
+
+import java.io.Serializable;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+import org.omnifaces.ai.AIConfig;
+import org.omnifaces.ai.exception.AIBulkheadFullException;
+import org.omnifaces.ai.model.ChatOptions.Priority;
+
+/**
+ * Bulkhead of a {@link BaseAIService}, limiting its concurrent requests.
+ * <p>
+ * At most {@link AIConfig#PROPERTY_MAX_CONCURRENT_REQUESTS} requests are in flight at the same time. Any further request waits in a queue
+ * with a lane per {@link Priority}, and when a request completes, the longest waiting request of the highest non-empty lane is started. So
+ * {@link Priority#INTERACTIVE} requests always go ahead of {@link Priority#DEFAULT} requests, which in turn always go ahead of
+ * {@link Priority#BULK} requests. When the queue already holds {@link AIConfig#PROPERTY_MAX_QUEUED_REQUESTS} requests, any further request
+ * fails fast with {@link AIBulkheadFullException}. A queued request which is cancelled or timed out leaves the queue, and a started request
+ * which is cancelled or timed out aborts its HTTP exchange.
+ * <p>
+ * The time which the requests waited in the queue is measured per priority, see {@link #getTotalQueueWait(Priority)} and
+ * {@link #getAverageQueueWait(Priority)}.
+ * <p>
+ * The bulkheads are not shared: every service instance has its own bulkhead, because that's what is isolated from the rest of the
+ * application.
+ *
+ * @author Bauke Scholtz
+ * @since 1.2
+ * @see BaseAIService#getBulkhead()
+ */
+public final class Bulkhead implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final int maxConcurrentRequests;
+    private final int maxQueuedRequests;
+    private transient Map<Priority, Deque<Queued>> queues;
+    private transient int activeRequests;
+    private transient int queuedRequests;
+    private transient long rejectedRequests;
+    private transient long[] admittedRequests;
+    private transient long[] totalQueueWaitNanos;
+
+    Bulkhead(int maxConcurrentRequests, int maxQueuedRequests) {
+        this.maxConcurrentRequests = maxConcurrentRequests;
+        this.maxQueuedRequests = maxQueuedRequests;
+        this.queues = new EnumMap<>(Priority.class);
+        this.admittedRequests = new long[Priority.values().length];
+        this.totalQueueWaitNanos = new long[Priority.values().length];
+
+        for (var priority : Priority.values()) {
+            queues.put(priority, new ArrayDeque<>());
+        }
+    }
+
+    /**
+     * Returns the bulkhead configured via {@link AIConfig#PROPERTY_MAX_CONCURRENT_REQUESTS} and {@link AIConfig#PROPERTY_MAX_QUEUED_REQUESTS}
+     * of the given AI configuration.
+     *
+     * @param config The AI configuration.
+     * @return The bulkhead, or {@code null} if the maximum amount of concurrent requests is not configured.
+     * @throws IllegalStateException if the configured maximum amount of concurrent requests is not a positive integer, or if the configured
+     * maximum amount of queued requests is not a non-negative integer.
+     */
+    static Bulkhead of(AIConfig config) {
+        var maxConcurrentRequests = parseInt(config, PROPERTY_MAX_CONCURRENT_REQUESTS, 1);
+
+        if (maxConcurrentRequests < 0) {
+            return null;
+        }
+
+        var maxQueuedRequests = parseInt(config, PROPERTY_MAX_QUEUED_REQUESTS, 0);
+        return new Bulkhead(maxConcurrentRequests, maxQueuedRequests < 0 ? Integer.MAX_VALUE : maxQueuedRequests);
+    }
+
+    private static int parseInt(AIConfig config, String key, int min) {
+        var value = config.property(key);
+
+        if (value == null) {
+            return -1;
+        }
+
+        try {
+            var number = Integer.parseInt(value.strip());
+
+            if (number >= min) {
+                return number;
+            }
+        }
+        catch (NumberFormatException ignore) {
+            // Handled below.
+        }
+
+        throw new IllegalStateException(key + " property must be an integer of at least " + min + ": " + value);
+    }
+
+    /**
+     * Sends the request supplied by the given action as soon as the bulkhead has room for it.
+     *
+     * @param <R> The response type.
+     * @param priority The priority of the request.
+     * @param action The action which sends the request. The returned future must abort the request when it is cancelled.
+     * @return The future of the request, or a failed future with {@link AIBulkheadFullException} if the queue is full.
+     */
+    <R> CompletableFuture<R> submit(Priority priority, Supplier<CompletableFuture<R>> action) {
+        var result = new CompletableFuture<R>();
+        var queued = new Queued(priority, System.nanoTime(), () -> start(action, result));
+
+        synchronized (this) {
+            if (activeRequests >= maxConcurrentRequests) {
+                if (queuedRequests >= maxQueuedRequests) {
+                    rejectedRequests++;
+                    return failedFuture(new AIBulkheadFullException(maxConcurrentRequests, maxQueuedRequests));
+                }
+
+                queues.get(priority).add(queued);
+                queuedRequests++;
+                result.whenComplete((response, throwable) -> dequeue(queued));
+                return result;
+            }
+
+            activeRequests++;
+        }
+
+        admit(queued);
+        return result;
+    }
+
+    private <R> void start(Supplier<CompletableFuture<R>> action, CompletableFuture<R> result) {
+        if (result.isDone()) { // Cancelled while being started.
+            release();
+            return;
+        }
+
+        CompletableFuture<R> request;
+
+        try {
+            request = action.get();
+        }
+        catch (RuntimeException e) {
+            request = failedFuture(e);
+        }
+
+        var inFlight = request;
+        inFlight.whenComplete((response, throwable) -> {
+            release();
+
+            if (throwable == null) {
+                result.complete(response);
+            }
+            else {
+                result.completeExceptionally(throwable);
+            }
+        });
+        result.whenComplete((response, throwable) -> {
+            if (!inFlight.isDone()) { // Cancelled or timed out.
+                inFlight.cancel(true);
+            }
+        });
+    }
+
+    private synchronized void dequeue(Queued queued) {
+        if (queues.get(queued.priority()).remove(queued)) {
+            queuedRequests--;
+        }
+    }
+
+    private void release() {
+        Queued next = null;
+
+        synchronized (this) {
+            for (var queue : queues.values()) {
+                next = queue.poll();
+
+                if (next != null) {
+                    queuedRequests--;
+                    break;
+                }
+            }
+
+            if (next == null) {
+                activeRequests--;
+            }
+        }
+
+        if (next != null) {
+            admit(next);
+        }
+    }
+
+    private void admit(Queued queued) {
+        synchronized (this) {
+            admittedRequests[queued.priority().ordinal()]++;
+            totalQueueWaitNanos[queued.priority().ordinal()] += System.nanoTime() - queued.enqueuedAt();
+        }
+
+        queued.start().run();
+    }
+
+    /**
+     * Returns the maximum amount of concurrent requests.
+     * @return The maximum amount of concurrent requests.
+     */
+    public int getMaxConcurrentRequests() {
+        return maxConcurrentRequests;
+    }
+
+    /**
+     * Returns the maximum amount of queued requests, or {@link Integer#MAX_VALUE} if the queue is unbounded.
+     * @return The maximum amount of queued requests, or {@link Integer#MAX_VALUE} if the queue is unbounded.
+     */
+    public int getMaxQueuedRequests() {
+        return maxQueuedRequests;
+    }
+
+    /**
+     * Returns the current amount of requests in flight.
+     * @return The current amount of requests in flight.
+     */
+    public synchronized int getActiveRequests() {
+        return activeRequests;
+    }
+
+    /**
+     * Returns the current amount of requests waiting in the queue.
+     * @return The current amount of requests waiting in the queue.
+     */
+    public synchronized int getQueuedRequests() {
+        return queuedRequests;
+    }
+
+    /**
+     * Returns the total amount of requests which failed fast because the queue was full.
+     * @return The total amount of requests which failed fast because the queue was full.
+     */
+    public synchronized long getRejectedRequests() {
+        return rejectedRequests;
+    }
+
+    /**
+     * Returns the total amount of requests of the given priority which were started, whether or not they had to wait in the queue.
+     * @param priority The priority.
+     * @return The total amount of requests of the given priority which were started.
+     */
+    public synchronized long getAdmittedRequests(Priority priority) {
+        return admittedRequests[priority.ordinal()];
+    }
+
+    /**
+     * Returns the total time which the started requests of the given priority waited in the queue.
+     * @param priority The priority.
+     * @return The total time which the started requests of the given priority waited in the queue.
+     */
+    public synchronized Duration getTotalQueueWait(Priority priority) {
+        return Duration.ofNanos(totalQueueWaitNanos[priority.ordinal()]);
+    }
+
+    /**
+     * Returns the average time which the started requests of the given priority waited in the queue.
+     * @param priority The priority.
+     * @return The average time which the started requests of the given priority waited in the queue, or zero if none were started.
+     */
+    public synchronized Duration getAverageQueueWait(Priority priority) {
+        var admitted = admittedRequests[priority.ordinal()];
+        return admitted == 0 ? Duration.ZERO : Duration.ofNanos(totalQueueWaitNanos[priority.ordinal()] / admitted);
+    }
+
+    private Object readResolve() {
+        return new Bulkhead(maxConcurrentRequests, maxQueuedRequests);
+    }
+
+    @Override
+    public String toString() {
+        return "Bulkhead[" + getActiveRequests() + "/" + maxConcurrentRequests + " active, " + getQueuedRequests() + " queued]";
+    }
+
+    /**
+     * A request waiting in the queue.
+     *
+     * @param priority The priority of the request.
+     * @param enqueuedAt The {@link System#nanoTime()} at which the request was enqueued.
+     * @param start The action which starts the request.
+     */
+    private record Queued(Priority priority, long enqueuedAt, Runnable start) {}
+}
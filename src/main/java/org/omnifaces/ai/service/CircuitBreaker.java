@@ -0,0 +1,243 @@
+/*
+ * Copyright OmniFaces
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.omnifaces.ai.service;
+
+import java.io.Serializable;
+import java.net.URI;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+
+import org.omnifaces.ai.exception.AICircuitBreakerOpenException;
+
+/**
+ * Circuit breaker of an AI service endpoint host, used by {@link AIHttpClient}.
+ * <p>
+ * The outcomes of the last {@value #WINDOW_SIZE} requests are kept in a sliding window. A request is considered failed when it threw an
+ * exception, such as a connect or request timeout, or when the response status code is 500 or higher. A request which was cancelled,
+ * e.g. a losing hedge request or an aborted request, has no outcome and is therefore not recorded. A request is considered slow when
+ * its response headers took longer than {@link #SLOW_CALL_DURATION} to arrive. Once at least {@value #MINIMUM_CALLS} outcomes are in the
+ * window, and at least {@value #FAILURE_RATE_THRESHOLD}% of them failed or at least {@value #SLOW_CALL_RATE_THRESHOLD}% of them were slow,
+ * the circuit breaker opens.
+ * <p>
+ * While {@link State#OPEN}, requests fail fast with {@link AICircuitBreakerOpenException} without being sent. After
+ * {@link #OPEN_DURATION}, the circuit breaker becomes {@link State#HALF_OPEN} and permits {@value #PROBE_CALLS} probe requests. When all of
+ * them succeed in time, the circuit breaker closes again, else it opens again.
+ * <p>
+ * The circuit breakers are shared by all services of the same endpoint host, because that's what has the incident.
+ *
+ * @author Bauke Scholtz
+ * @since 1.2
+ * @see BaseAIService#getCircuitBreaker()
+ */
+public final class CircuitBreaker implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The state of the circuit breaker.
+     */
+    public enum State {
+
+        /** Requests are sent and their outcomes are recorded. */
+        CLOSED,
+
+        /** Requests fail fast without being sent. */
+        OPEN,
+
+        /** A limited number of probe requests is sent in order to find out whether the endpoint host has recovered. */
+        HALF_OPEN;
+    }
+
+    /** The amount of most recent request outcomes in the sliding window: {@value} */
+    static final int WINDOW_SIZE = 20;
+
+    /** The minimum amount of request outcomes in the sliding window before the rates are evaluated: {@value} */
+    static final int MINIMUM_CALLS = 10;
+
+    /** The failure rate percentage at which the circuit breaker opens: {@value} */
+    static final int FAILURE_RATE_THRESHOLD = 50;
+
+    /** The slow call rate percentage at which the circuit breaker opens: {@value} */
+    static final int SLOW_CALL_RATE_THRESHOLD = 80;
+
+    /** The amount of permitted probe requests while half-open: {@value} */
+    static final int PROBE_CALLS = 3;
+
+    /** The duration after which a request is considered slow when its response headers haven't yet arrived. */
+    static final Duration SLOW_CALL_DURATION = Duration.ofSeconds(45);
+
+    /** The duration of the open state before probe requests are permitted. */
+    static final Duration OPEN_DURATION = Duration.ofSeconds(30);
+
+    private static final Map<String, CircuitBreaker> SHARED_CIRCUIT_BREAKERS = new ConcurrentHashMap<>();
+
+    private final String host;
+    private final transient LongSupplier clock;
+    private final transient boolean[] failedWindow = new boolean[WINDOW_SIZE];
+    private final transient boolean[] slowWindow = new boolean[WINDOW_SIZE];
+    private transient int windowIndex;
+    private transient int windowCount;
+    private transient State state = State.CLOSED;
+    private transient long openedAt;
+    private transient int probesPermitted;
+    private transient int probesSucceeded;
+
+    CircuitBreaker(String host, LongSupplier clock) {
+        this.host = host;
+        this.clock = clock;
+    }
+
+    /**
+     * Returns the shared circuit breaker for the host of the given endpoint.
+     *
+     * @param endpoint The resolved endpoint.
+     * @return The shared circuit breaker.
+     */
+    static CircuitBreaker of(URI endpoint) {
+        return SHARED_CIRCUIT_BREAKERS.computeIfAbsent(Objects.toString(endpoint.getHost(), endpoint.toString()), host -> new CircuitBreaker(host, System::nanoTime));
+    }
+
+    /**
+     * Returns the endpoint host of this circuit breaker.
+     * @return The endpoint host of this circuit breaker.
+     */
+    public String getHost() {
+        return host;
+    }
+
+    /**
+     * Returns the current state of this circuit breaker. When the {@link #OPEN_DURATION} has elapsed, this already returns
+     * {@link State#HALF_OPEN} even though no probe request has been permitted yet.
+     * @return The current state of this circuit breaker.
+     */
+    public synchronized State getState() {
+        return state == State.OPEN && getRemainingOpenNanos() == 0 ? State.HALF_OPEN : state;
+    }
+
+    /**
+     * Acquires permission to send a request.
+     *
+     * @return {@code true} if the request may be sent, or {@code false} if it must fail fast with {@link AICircuitBreakerOpenException}.
+     */
+    synchronized boolean tryAcquirePermission() {
+        if (state == State.OPEN && getRemainingOpenNanos() == 0) {
+            state = State.HALF_OPEN;
+            probesPermitted = 0;
+            probesSucceeded = 0;
+        }
+
+        return switch (state) {
+            case CLOSED -> true;
+            case OPEN -> false;
+            case HALF_OPEN -> {
+                if (probesPermitted < PROBE_CALLS) {
+                    probesPermitted++;
+                    yield true;
+                }
+
+                yield false;
+            }
+        };
+    }
+
+    /**
+     * Returns the remaining duration of the open state, or zero if not open.
+     * @return The remaining duration of the open state, or zero if not open.
+     */
+    synchronized Duration getRemainingOpenDuration() {
+        return state == State.OPEN ? Duration.ofNanos(getRemainingOpenNanos()) : Duration.ZERO;
+    }
+
+    private long getRemainingOpenNanos() {
+        return Math.max(0, openedAt + OPEN_DURATION.toNanos() - clock.getAsLong());
+    }
+
+    /**
+     * Records the outcome of a permitted request.
+     *
+     * @param failed Whether the request failed.
+     * @param durationNanos The duration until the response headers arrived or until the request failed.
+     */
+    synchronized void record(boolean failed, long durationNanos) {
+        var slow = durationNanos >= SLOW_CALL_DURATION.toNanos();
+
+        switch (state) {
+            case CLOSED -> {
+                failedWindow[windowIndex] = failed;
+                slowWindow[windowIndex] = slow;
+                windowIndex = (windowIndex + 1) % WINDOW_SIZE;
+                windowCount = Math.min(windowCount + 1, WINDOW_SIZE);
+
+                if (windowCount >= MINIMUM_CALLS && (rate(failedWindow) >= FAILURE_RATE_THRESHOLD || rate(slowWindow) >= SLOW_CALL_RATE_THRESHOLD)) {
+                    open();
+                }
+            }
+            case HALF_OPEN -> {
+                if (failed || slow) {
+                    open();
+                }
+                else if (++probesSucceeded >= PROBE_CALLS) {
+                    close();
+                }
+            }
+            case OPEN -> {
+                // Outcome of a request which was sent before the circuit breaker opened; it has nothing to add.
+            }
+        }
+    }
+
+    /**
+     * Releases the permission of a permitted request which was cancelled before it had an outcome. While half-open, this permits
+     * another probe request in its place.
+     */
+    synchronized void release() {
+        if (state == State.HALF_OPEN && probesPermitted > probesSucceeded) {
+            probesPermitted--;
+        }
+    }
+
+    private int rate(boolean[] window) {
+        var count = 0;
+
+        for (var i = 0; i < windowCount; i++) {
+            if (window[i]) {
+                count++;
+            }
+        }
+
+        return count * 100 / windowCount;
+    }
+
+    private void open() {
+        state = State.OPEN;
+        openedAt = clock.getAsLong();
+    }
+
+    private void close() {
+        state = State.CLOSED;
+        windowIndex = 0;
+        windowCount = 0;
+    }
+
+    private Object readResolve() {
+        return SHARED_CIRCUIT_BREAKERS.computeIfAbsent(host, h -> new CircuitBreaker(h, System::nanoTime));
+    }
+
+    @Override
+    public String toString() {
+        return "CircuitBreaker[" + host + ", " + getState() + "]";
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright OmniFaces
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.omnifaces.ai.service;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+/**
+ * Package-private helper for composing futures whose cancellation must reach the in-flight HTTP exchange.
+ * <p>
+ * A future returned by e.g. {@link CompletableFuture#thenApply(Function)} or {@link CompletableFuture#thenCompose(Function)} does not
+ * cancel the future it depends on when it is cancelled itself, so that the {@link AIHttpClient} would never know that the caller has lost
+ * interest in the response. The methods of this helper do.
+ *
+ * @author Bauke Scholtz
+ * @since 1.2
+ */
+final class CompletableFutureHelper {
+
+    private static final CompletableFuture<?> CANCELLED = new CompletableFuture<>();
+
+    private CompletableFutureHelper() {
+        throw new AssertionError();
+    }
+
+    /**
+     * Cancels the given source future when the given dependent future is cancelled.
+     *
+     * @param <R> The response type.
+     * @param dependent The dependent future.
+     * @param source The future the dependent future depends on.
+     * @return The given dependent future.
+     */
+    static <R> CompletableFuture<R> propagateCancel(CompletableFuture<R> dependent, CompletableFuture<?> source) {
+        dependent.whenComplete((response, throwable) -> {
+            if (dependent.isCancelled()) {
+                source.cancel(true);
+            }
+        });
+
+        return dependent;
+    }
+
+    /**
+     * Applies the given function to the response of the given future, like {@link CompletableFuture#thenApply(Function)}, and cancels the
+     * given future when the returned future is cancelled.
+     *
+     * @param <T> The response type of the given future.
+     * @param <R> The response type of the returned future.
+     * @param future The future.
+     * @param function The function.
+     * @return The future of the result of the given function.
+     */
+    static <T, R> CompletableFuture<R> thenApplyCancellable(CompletableFuture<T> future, Function<? super T, ? extends R> function) {
+        return propagateCancel(future.thenApply(function), future);
+    }
+
+    /**
+     * Composes the given future with the future returned by the given function, like {@link CompletableFuture#thenCompose(Function)}, and
+     * cancels both the given future and the composed future when the returned future is cancelled.
+     *
+     * @param <T> The response type of the given future.
+     * @param <R> The response type of the returned future.
+     * @param future The future.
+     * @param function The function returning the composed future.
+     * @return The future of the composed future.
+     */
+    static <T, R> CompletableFuture<R> thenComposeCancellable(CompletableFuture<T> future, Function<? super T, ? extends CompletableFuture<R>> function) {
+        var composed = new AtomicReference<CompletableFuture<?>>();
+        var result = future.thenCompose(response -> {
+            var next = function.apply(response);
+
+            if (composed.getAndSet(next) == CANCELLED) { // Cancelled while composing.
+                next.cancel(true);
+            }
+
+            return next;
+        });
+
+        result.whenComplete((response, throwable) -> {
+            if (result.isCancelled()) {
+                future.cancel(true);
+                var next = composed.getAndSet(CANCELLED);
+
+                if (next != null) {
+                    next.cancel(true);
+                }
+            }
+        });
+
+        return result;
+    }
+}
@@ -0,0 +1,542 @@
+/*
+ * Copyright OmniFaces
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.omnifaces.ai.service;
+
+import static java.util.Collections.emptyList;
+import static java.util.Collections.emptySet;
+import static java.util.Collections.unmodifiableSet;
+import static java.util.logging.Level.FINE;
+import static java.util.stream.Collectors.joining;
+
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.logging.Logger;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import org.omnifaces.ai.AIModality;
+import org.omnifaces.ai.AIService;
+import org.omnifaces.ai.exception.AIException;
+import org.omnifaces.ai.model.ChatInput;
+import org.omnifaces.ai.model.ChatInput.Attachment;
+import org.omnifaces.ai.model.ChatInput.Message;
+import org.omnifaces.ai.model.ChatOptions;
+import org.omnifaces.ai.model.GenerateImageOptions;
+import org.omnifaces.ai.model.ModerationOptions;
+import org.omnifaces.ai.model.ModerationResult;
+
+/**
+ * Base class for AI service implementations which dispatch each call to one or more member AI services.
+ * <p>
+ * Every asynchronous operation of {@link AIService} is funneled through {@link #dispatch(Call, Function)}, which receives a description of
+ * the call and a function which performs the call on a given member. The synchronous operations delegate to the asynchronous ones as per
+ * the default implementations of {@link AIService}.
+ * <p>
+ * The service metadata is taken from the first member. The capabilities such as {@link #supportsStreaming()} and
+ * {@link #supportsModality(AIModality)} are only reported when all members have them, because a call may be dispatched to any member.
+ *
+ * @author Bauke Scholtz
+ * @since 1.2
+ * @see LoadBalancingAIService
+ */
+public abstract class CompositeAIService implements AIService {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final Logger logger = Logger.getLogger(CompositeAIService.class.getPackageName());
+
+    /** The member AI services. */
+    private final List<AIService> services;
+
+    /**
+     * Constructs a composite AI service with the given member AI services.
+     *
+     * @param services The member AI services.
+     * @throws IllegalArgumentException if there are no member AI services.
+     */
+    protected CompositeAIService(List<AIService> services) {
+        this.services = List.copyOf(services);
+
+        if (this.services.isEmpty()) {
+            throw new IllegalArgumentException("There must be at least one member AI service");
+        }
+    }
+
+    /**
+     * Returns the member AI services.
+     * @return The member AI services, in the order they were given.
+     */
+    public List<AIService> getServices() {
+        return services;
+    }
+
+    /**
+     * Dispatches the given call to one or more of the member AI services.
+     *
+     * @param <R> The response type.
+     * @param call The description of the call.
+     * @param invocation The function which performs the call on the given member AI service.
+     * @return The future of the response.
+     */
+    protected abstract <R> CompletableFuture<R> dispatch(Call call, Function<AIService, CompletableFuture<R>> invocation);
+
+    /**
+     * Sends the given call to the given first member, and fails over to the next member for as long as the given failover function
+     * returns one. A {@link Call#isCommitted() committed} call never fails over. When the returned future is cancelled, the call of the
+     * current member is cancelled as well.
+     *
+     * @param <R> The response type.
+     * @param call The description of the call.
+     * @param first The first member.
+     * @param invocation The function which performs the call on the given member AI service.
+     * @param failover The function which returns the next member after the given member failed with the given unwrapped exception, or
+     * {@code null} if the call must not fail over.
+     * @return The future of the response.
+     */
+    <R> CompletableFuture<R> dispatchWithFailover(Call call, AIService first, Function<AIService, CompletableFuture<R>> invocation, BiFunction<AIService, Throwable, AIService> failover) {
+        var result = new CompletableFuture<R>();
+        var attempt = new AtomicReference<CompletableFuture<R>>();
+        send(call, first, invocation, failover, result, attempt, true);
+        result.whenComplete((response, throwable) -> {
+            if (result.isCancelled() && attempt.get() != null) {
+                attempt.get().cancel(true);
+            }
+        });
+        return result;
+    }
+
+    private static <R> void send(Call call, AIService service, Function<AIService, CompletableFuture<R>> invocation, BiFunction<AIService, Throwable, AIService> failover, CompletableFuture<R> result, AtomicReference<CompletableFuture<R>> attempt, boolean first) {
+        CompletableFuture<R> future;
+
+        try {
+            future = invocation.apply(service);
+        }
+        catch (RuntimeException e) {
+            if (first) {
+                throw e;
+            }
+
+            result.completeExceptionally(e);
+            return;
+        }
+
+        attempt.set(future);
+
+        if (result.isCancelled()) {
+            future.cancel(true);
+        }
+
+        future.whenComplete((response, throwable) -> {
+            if (throwable == null) {
+                result.complete(response);
+                return;
+            }
+
+            var cause = unwrap(throwable);
+            var next = result.isDone() || call.isCommitted() ? null : failover.apply(service, cause);
+
+            if (next == null) {
+                result.completeExceptionally(cause);
+                return;
+            }
+
+            logger.log(FINE, () -> "Failing over from " + service.getName() + " to " + next.getName() + " after: " + cause);
+            send(call, next, invocation, failover, result, attempt, false);
+        });
+    }
+
+    /**
+     * Unwraps the cause of the given exception as thrown by an asynchronous operation.
+     *
+     * @param throwable The exception.
+     * @return The cause if the given exception is a {@link CompletionException}, else the given exception itself.
+     */
+    protected static Throwable unwrap(Throwable throwable) {
+        return throwable instanceof CompletionException completionException && completionException.getCause() != null ? completionException.getCause() : throwable;
+    }
+
+    /**
+     * Lets the given member AI services, including the members of composite ones, fail right away instead of retrying on a response with
+     * one of the given status codes, so that the composite AI service which fails over on them can do so right away. This has no effect
+     * when there is only one member AI service, because there is then nothing to fail over to.
+     *
+     * @param services The member AI services.
+     * @param statusCodes The status codes on which the composite AI service fails over.
+     */
+    static void failFastOn(List<AIService> services, int... statusCodes) {
+        if (services.size() < 2) {
+            return;
+        }
+
+        for (var service : services) {
+            failFastOn(service, statusCodes);
+        }
+    }
+
+    private static void failFastOn(AIService service, int... statusCodes) {
+        if (service instanceof BaseAIService baseService) {
+            var failFastStatusCodes = new HashSet<>(baseService.failFastStatusCodes);
+            IntStream.of(statusCodes).forEach(failFastStatusCodes::add);
+            baseService.failFastStatusCodes = Set.copyOf(failFastStatusCodes);
+        }
+        else if (service instanceof CompositeAIService compositeService) {
+            compositeService.getServices().forEach(member -> failFastOn(member, statusCodes));
+        }
+    }
+
+
+    // Chat Implementation --------------------------------------------------------------------------------------------
+
+    @Override
+    public CompletableFuture<String> chatAsync(ChatInput input, ChatOptions options) throws AIException {
+        return dispatch(new Call(input, options, false), service -> service.chatAsync(input, options));
+    }
+
+    @Override
+    public <T> CompletableFuture<T> chatAsync(ChatInput input, ChatOptions options, Class<T> type) throws AIException {
+        return dispatch(new Call(input, options, false, true), service -> service.chatAsync(input, options, type));
+    }
+
+    /**
+     * @implNote The call is {@link Call#isCommitted() committed} as soon as the first token has been passed to the given consumer.
+     */
+    @Override
+    public CompletableFuture<Void> chatStream(ChatInput input, ChatOptions options, Consumer<String> onToken) {
+        var call = new Call(input, options, true);
+        Consumer<String> committingOnToken = token -> {
+            call.committed.set(true);
+            onToken.accept(token);
+        };
+
+        return dispatch(call, service -> service.chatStream(input, options, committingOnToken));
+    }
+
+
+    // Files Implementation -------------------------------------------------------------------------------------------
+
+    /**
+     * @implNote This implementation delegates to {@link #uploadAsync(Attachment)}.
+     */
+    @Override
+    public String upload(Attachment attachment) throws AIException {
+        try {
+            return uploadAsync(attachment).join();
+        }
+        catch (CompletionException e) {
+            throw AIException.asyncRequestFailed(e);
+        }
+    }
+
+    @Override
+    public CompletableFuture<String> uploadAsync(Attachment attachment) throws AIException {
+        return dispatch(new Call(null, null, false), service -> service.uploadAsync(attachment));
+    }
+
+
+    // Text Analysis Implementation -----------------------------------------------------------------------------------
+
+    @Override
+    public CompletableFuture<String> summarizeAsync(String text, int maxWords) throws AIException {
+        return dispatch(new Call(text), service -> service.summarizeAsync(text, maxWords));
+    }
+
+    @Override
+    public CompletableFuture<List<String>> extractKeyPointsAsync(String text, int maxPoints) throws AIException {
+        return dispatch(new Call(text), service -> service.extractKeyPointsAsync(text, maxPoints));
+    }
+
+    @Override
+    public CompletableFuture<String> detectLanguageAsync(String text) throws AIException {
+        return dispatch(new Call(text), service -> service.detectLanguageAsync(text));
+    }
+
+    @Override
+    public CompletableFuture<String> translateAsync(String text, String sourceLang, String targetLang) throws AIException {
+        return dispatch(new Call(text), service -> service.translateAsync(text, sourceLang, targetLang));
+    }
+
+    @Override
+    public CompletableFuture<String> proofreadAsync(String text) throws AIException {
+        return dispatch(new Call(text), service -> service.proofreadAsync(text));
+    }
+
+    @Override
+    public CompletableFuture<ModerationResult> moderateContentAsync(String content, ModerationOptions options) throws AIException {
+        return dispatch(new Call(content), service -> service.moderateContentAsync(content, options));
+    }
+
+
+    // Image and Audio Implementation ---------------------------------------------------------------------------------
+
+    @Override
+    public CompletableFuture<String> analyzeImageAsync(byte[] image, String prompt) throws AIException {
+        return dispatch(new Call(prompt, AIModality.IMAGE_ANALYSIS), service -> service.analyzeImageAsync(image, prompt));
+    }
+
+    @Override
+    public CompletableFuture<String> generateAltTextAsync(byte[] image) throws AIException {
+        return dispatch(new Call(null, AIModality.IMAGE_ANALYSIS), service -> service.generateAltTextAsync(image));
+    }
+
+    @Override
+    public CompletableFuture<byte[]> generateImageAsync(String prompt, GenerateImageOptions options) throws AIException {
+        return dispatch(new Call(prompt, AIModality.IMAGE_GENERATION), service -> service.generateImageAsync(prompt, options));
+    }
+
+    @Override
+    public CompletableFuture<String> transcribeAsync(byte[] audio) throws AIException {
+        return dispatch(new Call(null, AIModality.AUDIO_ANALYSIS), service -> service.transcribeAsync(audio));
+    }
+
+
+    // Service Metadata -----------------------------------------------------------------------------------------------
+
+    /**
+     * Returns the simple class name of this AI service followed by the names of all members.
+     */
+    @Override
+    public String getName() {
+        return getClass().getSimpleName() + services.stream().map(AIService::getName).collect(joining(", ", " [", "]"));
+    }
+
+    /**
+     * Returns the AI provider name of the first member.
+     */
+    @Override
+    public String getProviderName() {
+        return services.get(0).getProviderName();
+    }
+
+    /**
+     * Returns the AI model name of the first member.
+     */
+    @Override
+    public String getModelName() {
+        return services.get(0).getModelName();
+    }
+
+    /**
+     * Returns the chat prompt of the first member.
+     */
+    @Override
+    public String getChatPrompt() {
+        return services.get(0).getChatPrompt();
+    }
+
+    /**
+     * Returns whether all members support streaming.
+     */
+    @Override
+    public boolean supportsStreaming() {
+        return services.stream().allMatch(AIService::supportsStreaming);
+    }
+
+    /**
+     * Returns whether all members support file attachments.
+     */
+    @Override
+    public boolean supportsFileAttachments() {
+        return services.stream().allMatch(AIService::supportsFileAttachments);
+    }
+
+    /**
+     * Returns whether all members support structured outputs.
+     */
+    @Override
+    public boolean supportsStructuredOutput() {
+        return services.stream().allMatch(AIService::supportsStructuredOutput);
+    }
+
+    /**
+     * Returns whether at least one member is available.
+     */
+    @Override
+    public boolean isAvailable() {
+        return services.stream().anyMatch(AIService::isAvailable);
+    }
+
+    /**
+     * Returns whether all members support the given modality.
+     */
+    @Override
+    public boolean supportsModality(AIModality modality) {
+        return services.stream().allMatch(service -> service.supportsModality(modality));
+    }
+
+    @Override
+    public String toString() {
+        return getName();
+    }
+
+    /**
+     * Description of a call which is dispatched via {@link CompositeAIService#dispatch(Call, Function)}.
+     */
+    public static final class Call {
+
+        private final ChatInput input;
+        private final ChatOptions options;
+        private final boolean streaming;
+        private final boolean structuredOutput;
+        private final String text;
+        private final Set<AIModality> modalities;
+        private final AtomicBoolean committed = new AtomicBoolean();
+
+        Call(ChatInput input, ChatOptions options, boolean streaming) {
+            this(input, options, streaming, options != null && options.getJsonSchema() != null);
+        }
+
+        Call(ChatInput input, ChatOptions options, boolean streaming, boolean structuredOutput) {
+            this.input = input;
+            this.options = options;
+            this.streaming = streaming;
+            this.structuredOutput = structuredOutput;
+            this.text = input != null ? input.getMessage() : null;
+            this.modalities = input != null ? getModalities(input) : emptySet();
+        }
+
+        Call(String text, AIModality... modalities) {
+            this.input = null;
+            this.options = null;
+            this.streaming = false;
+            this.structuredOutput = false;
+            this.text = text;
+            this.modalities = modalities.length > 0 ? unmodifiableSet(EnumSet.copyOf(List.of(modalities))) : emptySet();
+        }
+
+        private static Set<AIModality> getModalities(ChatInput input) {
+            var modalities = EnumSet.noneOf(AIModality.class);
+
+            for (var attachment : getAttachments(input)) {
+                var mimeType = attachment.mimeType();
+
+                if (mimeType.isImage()) {
+                    modalities.add(AIModality.IMAGE_ANALYSIS);
+                }
+                else if (mimeType.isAudio()) {
+                    modalities.add(AIModality.AUDIO_ANALYSIS);
+                }
+                else if (mimeType.isVideo()) {
+                    modalities.add(AIModality.VIDEO_ANALYSIS);
+                }
+            }
+
+            return unmodifiableSet(modalities);
+        }
+
+        private static List<Attachment> getAttachments(ChatInput input) {
+            return Stream.concat(input.getImages().stream(), input.getFiles().stream()).toList();
+        }
+
+        /**
+         * Returns the chat input of the call.
+         * @return The chat input of the call, or {@code null} if this is not a chat call.
+         */
+        public ChatInput getInput() {
+            return input;
+        }
+
+        /**
+         * Returns the chat options of the call.
+         * @return The chat options of the call, or {@code null} if this is not a chat call.
+         */
+        public ChatOptions getOptions() {
+            return options;
+        }
+
+        /**
+         * Returns whether this is a chat streaming call.
+         * @return Whether this is a chat streaming call.
+         */
+        public boolean isStreaming() {
+            return streaming;
+        }
+
+        /**
+         * Returns whether the call requires structured output, i.e. whether it is a typed chat call or its chat options have a
+         * {@link ChatOptions#getJsonSchema() JSON schema}.
+         * @return Whether the call requires structured output.
+         */
+        public boolean isStructuredOutput() {
+            return structuredOutput;
+        }
+
+        /**
+         * Returns the input text of the call: the message of a chat call, the text to process of a text analysis call, or the prompt of
+         * an image call.
+         * @return The input text of the call, or {@code null} if there is none, such as for an upload or transcription call.
+         */
+        public String getText() {
+            return text;
+        }
+
+        /**
+         * Returns the file attachments of the call, i.e. the images and files of the chat input.
+         * @return The file attachments of the call, or an empty list if there are none or if this is not a chat call.
+         */
+        public List<Attachment> getAttachments() {
+            return input != null ? getAttachments(input) : emptyList();
+        }
+
+        /**
+         * Returns the modalities which the call requires besides text, such as {@link AIModality#IMAGE_ANALYSIS} for an image analysis
+         * call or for a chat call with an image attachment.
+         * @return The modalities which the call requires besides text, or an empty set if it requires only text.
+         */
+        public Set<AIModality> getModalities() {
+            return modalities;
+        }
+
+        /**
+         * Returns the estimated amount of input tokens of the call. This is based on the amount of characters of the input text and of
+         * the conversation history, assuming four characters per token. The system prompt and the file
+         * attachments are not taken into account.
+         * @return The estimated amount of input tokens of the call.
+         */
+        public long getEstimatedInputTokens() {
+            long characters = text != null ? text.length() : 0;
+
+            if (input != null) {
+                characters += countCharacters(input.getHistory());
+            }
+
+            if (options != null && options.hasMemory()) {
+                characters += countCharacters(options.getHistory());
+            }
+
+            return RateLimiter.estimateTokens(characters);
+        }
+
+        private static long countCharacters(List<Message> history) {
+            return history.stream().map(Message::content).filter(Objects::nonNull).mapToLong(String::length).sum();
+        }
+
+        /**
+         * Returns whether the call has already delivered output to the caller, such as a streamed token. A committed call must not be
+         * repeated on another member, because the caller would then receive the output twice.
+         * @return Whether the call has already delivered output to the caller.
+         */
+        public boolean isCommitted() {
+            return committed.get();
+        }
+    }
+}
@@ -0,0 +1,157 @@
+/*
+ * Copyright OmniFaces
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.omnifaces.ai.service;
+
+import static java.util.concurrent.CompletableFuture.failedFuture;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static org.omnifaces.ai.service.CompletableFutureHelper.propagateCancel;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+import org.omnifaces.ai.exception.AIDeadlineExceededException;
+
+/**
+ * Deadline of a single call to a {@link BaseAIService}, carried through its queues, rate limit delays and retries.
+ * <p>
+ * The {@link BaseAIService} starts the deadline when the call is invoked, and makes it {@link #current()} while it sends the request via
+ * {@link #call(Deadline, Supplier)}, so that the {@link AIHttpClient} picks it up without the need to change the signatures of the protected
+ * {@code asyncPostAndXxx} methods of the service. The {@link AIHttpClient} caps the timeout of each attempt at the remaining time and skips
+ * any rate limit delay or retry which cannot start before the deadline. The {@link BaseAIService} {@link #enforce(CompletableFuture)
+ * enforces} the deadline on the future of the request, so that a queued request leaves its queue and an in-flight HTTP exchange is aborted
+ * when the deadline expires.
+ *
+ * @author Bauke Scholtz
+ * @since 1.2
+ */
+final class Deadline {
+
+    private static final ThreadLocal<Deadline> CURRENT = new ThreadLocal<>();
+
+    private final Duration timeout;
+    private final long expiresAt;
+
+    private Deadline(Duration timeout) {
+        this.timeout = timeout;
+        this.expiresAt = System.nanoTime() + timeout.toNanos();
+    }
+
+    /**
+     * Starts a new deadline with the given timeout.
+     *
+     * @param timeout The timeout, may be {@code null}.
+     * @return The deadline, or {@code null} if the timeout is {@code null}.
+     */
+    static Deadline of(Duration timeout) {
+        return timeout == null ? null : new Deadline(timeout);
+    }
+
+    /**
+     * Returns the deadline of the call which is currently sending its request in the current thread.
+     * @return The deadline of the call which is currently sending its request in the current thread, or {@code null} if there is none.
+     */
+    static Deadline current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Returns the timeout of this deadline.
+     * @return The timeout of this deadline.
+     */
+    Duration getTimeout() {
+        return timeout;
+    }
+
+    /**
+     * Returns the remaining time until this deadline expires.
+     * @return The remaining time in nanoseconds until this deadline expires, or zero if already expired.
+     */
+    long getRemainingNanos() {
+        return Math.max(0, expiresAt - System.nanoTime());
+    }
+
+    /**
+     * Returns whether this deadline has expired.
+     * @return Whether this deadline has expired.
+     */
+    boolean isExpired() {
+        return getRemainingNanos() == 0;
+    }
+
+    /**
+     * Returns whether the given deadline expires no earlier than the other deadline.
+     *
+     * @param deadline The deadline, may be {@code null}, which means that it never expires.
+     * @param other The other deadline, may be {@code null}, which means that it never expires.
+     * @return Whether the given deadline expires no earlier than the other deadline.
+     */
+    static boolean isNotBefore(Deadline deadline, Deadline other) {
+        return deadline == null || other != null && deadline.expiresAt - other.expiresAt >= 0;
+    }
+
+    /**
+     * Returns a new exception indicating that this deadline has expired.
+     * @return A new exception indicating that this deadline has expired.
+     */
+    AIDeadlineExceededException exceeded() {
+        return new AIDeadlineExceededException(timeout);
+    }
+
+    /**
+     * Sends the request supplied by the given action with the given deadline as {@link #current()}.
+     *
+     * @param <R> The response type.
+     * @param deadline The deadline, may be {@code null}.
+     * @param action The action which sends the request.
+     * @return The future of the request, or a failed future with {@link AIDeadlineExceededException} if the deadline has already expired.
+     */
+    static <R> CompletableFuture<R> call(Deadline deadline, Supplier<CompletableFuture<R>> action) {
+        if (deadline != null && deadline.isExpired()) {
+            return failedFuture(deadline.exceeded());
+        }
+
+        var previous = CURRENT.get();
+        CURRENT.set(deadline);
+
+        try {
+            return action.get();
+        }
+        finally {
+            if (previous == null) {
+                CURRENT.remove();
+            }
+            else {
+                CURRENT.set(previous);
+            }
+        }
+    }
+
+    /**
+     * Completes the given future with a {@link TimeoutException} when this deadline expires before it completes. The given future is
+     * responsible for aborting its work when it is completed this way. Cancelling the returned future cancels the given future.
+     *
+     * @param <R> The response type.
+     * @param future The future to enforce this deadline on.
+     * @return A future which completes the same as the given future, but with {@link AIDeadlineExceededException} instead of the
+     * {@link TimeoutException} of this deadline.
+     */
+    <R> CompletableFuture<R> enforce(CompletableFuture<R> future) {
+        return propagateCancel(future.orTimeout(getRemainingNanos(), NANOSECONDS).exceptionallyCompose(throwable -> {
+            var cause = throwable instanceof CompletionException ce ? ce.getCause() : throwable;
+            return failedFuture(cause instanceof TimeoutException ? exceeded() : cause);
+        }), future);
+    }
+}
@@ -0,0 +1,318 @@
+/*
+ * Copyright OmniFaces
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.omnifaces.ai.service;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.logging.Level.FINER;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.function.Predicate;
+import java.util.logging.Logger;
+
+import org.omnifaces.ai.model.Sse.Event;
+import org.omnifaces.ai.model.Sse.Event.Type;
+import org.omnifaces.ai.model.Sse.EventFilter;
+
+/**
+ * Byte oriented Server-Sent Events (SSE) decoder.
+ * <p>
+ * This decoder scans the raw bytes for line terminators and field names without decoding them. Only the SSE fields which are accepted
+ * by the given {@link EventFilter} are decoded into {@link Event} instances and passed to the event processor. Subsequent "data" fields
+ * are joined with a newline directly in a reusable byte buffer, and the "event" field values are matched byte-by-byte against the
+ * event names of interest, so skipped fields do not cause any string allocation.
+ * <p>
+ * This class is not thread safe. The bytes are expected to be supplied serially, as is the case with a
+ * {@link java.net.http.HttpResponse.BodySubscriber}.
+ *
+ * @author Bauke Scholtz
+ * @since 1.2
+ * @see EventStreamSubscriber
+ */
+final class EventStreamDecoder {
+
+    private static final Logger logger = Logger.getLogger(EventStreamDecoder.class.getPackageName());
+    private static final int INITIAL_BUFFER_SIZE = 256;
+
+    private static final byte[] FIELD_ID = "id:".getBytes(UTF_8);
+    private static final byte[] FIELD_EVENT = "event:".getBytes(UTF_8);
+    private static final byte[] FIELD_DATA = "data:".getBytes(UTF_8);
+
+    private final int requestId;
+    private final Predicate<Event> eventProcessor;
+    private final String[] eventNames;
+    private final byte[][] eventNameBytes;
+    private final byte[][] dataMarkerBytes;
+
+    private byte[] lineBuffer = new byte[INITIAL_BUFFER_SIZE];
+    private int lineLength;
+    private byte[] dataBuffer = new byte[INITIAL_BUFFER_SIZE];
+    private int dataLength;
+    private boolean skipNextLineFeed;
+
+    /**
+     * Creates a new event stream decoder.
+     *
+     * @param requestId The request ID, used for logging only.
+     * @param eventFilter The SSE fields of interest.
+     * @param eventProcessor The stream event processor, returning {@code false} when the stream should be stopped.
+     */
+    EventStreamDecoder(int requestId, EventFilter eventFilter, Predicate<Event> eventProcessor) {
+        this.requestId = requestId;
+        this.eventProcessor = eventProcessor;
+        this.eventNames = eventFilter.eventNames() == null ? null : eventFilter.eventNames().toArray(String[]::new);
+        this.eventNameBytes = eventNames == null ? null : Arrays.stream(eventNames).map(name -> name.getBytes(UTF_8)).toArray(byte[][]::new);
+        this.dataMarkerBytes = eventFilter.dataMarkers() == null ? null : eventFilter.dataMarkers().stream().map(marker -> marker.getBytes(UTF_8)).toArray(byte[][]::new);
+    }
+
+    /**
+     * Decodes the remaining bytes of the given buffer. Any incomplete line is retained until the next buffer or {@link #finish()}.
+     *
+     * @param buffer The buffer to decode.
+     * @return {@code true} to continue decoding the stream, or {@code false} when the event processor has stopped the stream.
+     */
+    boolean decode(ByteBuffer buffer) {
+        while (buffer.hasRemaining()) {
+            if (skipNextLineFeed) {
+                skipNextLineFeed = false;
+
+                if (buffer.get(buffer.position()) == '\n') { // Second half of CRLF which was split across buffers.
+                    buffer.get();
+                    continue;
+                }
+            }
+
+            var start = buffer.position();
+            var limit = buffer.limit();
+            var end = start;
+
+            while (end < limit) {
+                var b = buffer.get(end);
+
+                if (b == '\n' || b == '\r') {
+                    break;
+                }
+
+                end++;
+            }
+
+            appendToLine(buffer, end - start);
+
+            if (end == limit) {
+                return true;
+            }
+
+            if (buffer.get() == '\r') {
+                if (buffer.hasRemaining() && buffer.get(buffer.position()) == '\n') {
+                    buffer.get();
+                }
+                else {
+                    skipNextLineFeed = true;
+                }
+            }
+
+            if (!processLine()) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Finishes the stream by processing any incomplete line and any pending "data" fields.
+     *
+     * @return {@code true} when the stream has been fully processed, or {@code false} when the event processor has stopped the stream.
+     */
+    boolean finish() {
+        return (lineLength == 0 || processLine()) && processDataEvent();
+    }
+
+    // Line processing ------------------------------------------------------------------------------------------------
+
+    private void appendToLine(ByteBuffer buffer, int length) {
+        if (lineLength + length > lineBuffer.length) {
+            lineBuffer = Arrays.copyOf(lineBuffer, Math.max(lineBuffer.length * 2, lineLength + length));
+        }
+
+        buffer.get(lineBuffer, lineLength, length);
+        lineLength += length;
+    }
+
+    private boolean processLine() {
+        var start = skipWhitespace(lineBuffer, 0, lineLength);
+        var end = trimWhitespace(lineBuffer, start, lineLength);
+        lineLength = 0;
+
+        if (start == end) {
+            return processDataEvent();
+        }
+
+        if (lineBuffer[start] == ':') {
+            return true; // Comment line.
+        }
+
+        if (startsWith(lineBuffer, start, end, FIELD_DATA)) {
+            appendToData(skipWhitespace(lineBuffer, start + FIELD_DATA.length, end), end);
+            return true;
+        }
+
+        if (startsWith(lineBuffer, start, end, FIELD_EVENT)) {
+            return processDataEvent() && processEvent(Type.EVENT, skipWhitespace(lineBuffer, start + FIELD_EVENT.length, end), end);
+        }
+
+        if (startsWith(lineBuffer, start, end, FIELD_ID)) {
+            return processDataEvent() && processEvent(Type.ID, skipWhitespace(lineBuffer, start + FIELD_ID.length, end), end);
+        }
+
+        if (logger.isLoggable(FINER)) {
+            var line = new String(lineBuffer, start, end - start, UTF_8);
+            logger.log(FINER, () -> "Ignoring unknown SSE line for #" + requestId + ": " + line);
+        }
+
+        return true;
+    }
+
+    private void appendToData(int start, int end) {
+        var length = end - start;
+        var separatorLength = dataLength > 0 ? 1 : 0;
+
+        if (dataLength + separatorLength + length > dataBuffer.length) {
+            dataBuffer = Arrays.copyOf(dataBuffer, Math.max(dataBuffer.length * 2, dataLength + separatorLength + length));
+        }
+
+        if (separatorLength > 0) {
+            dataBuffer[dataLength++] = '\n';
+        }
+
+        System.arraycopy(lineBuffer, start, dataBuffer, dataLength, length);
+        dataLength += length;
+    }
+
+    // Event processing -----------------------------------------------------------------------------------------------
+
+    private boolean processEvent(Type type, int start, int end) {
+        String value;
+
+        if (eventNames == null) {
+            value = new String(lineBuffer, start, end - start, UTF_8);
+        }
+        else {
+            value = type == Type.EVENT ? findEventName(start, end) : null;
+
+            if (value == null) {
+                logSkippedEvent(type, lineBuffer, start, end);
+                return true;
+            }
+        }
+
+        var event = new Event(type, value);
+        logEvent(event);
+        return eventProcessor.test(event);
+    }
+
+    private String findEventName(int start, int end) {
+        for (var i = 0; i < eventNameBytes.length; i++) {
+            if (Arrays.equals(lineBuffer, start, end, eventNameBytes[i], 0, eventNameBytes[i].length)) {
+                return eventNames[i];
+            }
+        }
+
+        return null;
+    }
+
+    private boolean processDataEvent() {
+        if (dataLength == 0) {
+            return true;
+        }
+
+        var length = dataLength;
+        dataLength = 0;
+
+        if (dataMarkerBytes != null && !containsAny(dataBuffer, length, dataMarkerBytes)) {
+            logSkippedEvent(Type.DATA, dataBuffer, 0, length);
+            return true;
+        }
+
+        var event = new Event(Type.DATA, new String(dataBuffer, 0, length, UTF_8));
+        logEvent(event);
+        return eventProcessor.test(event);
+    }
+
+    private void logEvent(Event event) {
+        if (logger.isLoggable(FINER)) {
+            final var eventString = event.toString();
+            logger.log(FINER, () -> "SSE event for #" + requestId + ": " + eventString);
+        }
+    }
+
+    private void logSkippedEvent(Type type, byte[] bytes, int start, int end) {
+        if (logger.isLoggable(FINER)) {
+            final var eventString = new Event(type, new String(bytes, start, end - start, UTF_8)).toString();
+            logger.log(FINER, () -> "Skipping SSE event for #" + requestId + ": " + eventString);
+        }
+    }
+
+    // Byte helpers ---------------------------------------------------------------------------------------------------
+
+    private static int skipWhitespace(byte[] bytes, int start, int end) {
+        while (start < end && isWhitespace(bytes[start])) {
+            start++;
+        }
+
+        return start;
+    }
+
+    private static int trimWhitespace(byte[] bytes, int start, int end) {
+        while (end > start && isWhitespace(bytes[end - 1])) {
+            end--;
+        }
+
+        return end;
+    }
+
+    private static boolean isWhitespace(byte b) {
+        return b == ' ' || b == '\t' || b == '\f' || b == 0x0B; // UTF-8 multi-byte sequences never contain ASCII bytes.
+    }
+
+    private static boolean startsWith(byte[] bytes, int start, int end, byte[] prefix) {
+        return end - start >= prefix.length && Arrays.equals(bytes, start, start + prefix.length, prefix, 0, prefix.length);
+    }
+
+    private static boolean containsAny(byte[] bytes, int length, byte[][] markers) {
+        for (var marker : markers) {
+            if (indexOf(bytes, length, marker) >= 0) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private static int indexOf(byte[] bytes, int length, byte[] marker) {
+        if (marker.length == 0) {
+            return 0;
+        }
+
+        var first = marker[0];
+        var max = length - marker.length;
+
+        for (var i = 0; i <= max; i++) {
+            if (bytes[i] == first && Arrays.equals(bytes, i + 1, i + marker.length, marker, 1, marker.length)) {
+                return i;
+            }
+        }
+
+        return -1;
+    }
+}
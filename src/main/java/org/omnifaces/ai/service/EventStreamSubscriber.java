@@ -0,0 +1,125 @@
+/*
+ * Copyright OmniFaces
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.omnifaces.ai.service;
+
+import java.net.http.HttpResponse.BodySubscriber;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Flow.Subscription;
+import java.util.function.Predicate;
+
+import org.omnifaces.ai.model.Sse.Event;
+import org.omnifaces.ai.model.Sse.EventFilter;
+
+/**
+ * Non-blocking Server-Sent Events (SSE) body subscriber for {@link AIHttpClient}.
+ * <p>
+ * The response body is decoded incrementally by {@link EventStreamDecoder} as the byte buffers arrive on the callbacks of the
+ * {@link java.net.http.HttpClient}, so no thread is parked for the duration of the stream. Only one buffer list is requested at a time
+ * and the subscription is cancelled as soon as the event processor returns {@code false} or throws an exception.
+ *
+ * @author Bauke Scholtz
+ * @since 1.2
+ */
+final class EventStreamSubscriber implements BodySubscriber<Void> {
+
+    private final EventStreamDecoder decoder;
+    private final CompletableFuture<Void> future = new CompletableFuture<>();
+
+    private Subscription subscription;
+    private boolean done;
+
+    /**
+     * Creates a new event stream subscriber.
+     *
+     * @param requestId The request ID, used for logging only.
+     * @param eventFilter The SSE fields of interest.
+     * @param eventProcessor The stream event processor, returning {@code false} when the stream should be stopped.
+     */
+    EventStreamSubscriber(int requestId, EventFilter eventFilter, Predicate<Event> eventProcessor) {
+        this.decoder = new EventStreamDecoder(requestId, eventFilter, eventProcessor);
+    }
+
+    @Override
+    public CompletionStage<Void> getBody() {
+        return future;
+    }
+
+    @Override
+    public void onSubscribe(Subscription subscription) {
+        this.subscription = subscription;
+        subscription.request(1);
+    }
+
+    @Override
+    public void onNext(List<ByteBuffer> buffers) {
+        if (done) {
+            return;
+        }
+
+        try {
+            for (var buffer : buffers) {
+                if (!decoder.decode(buffer)) {
+                    stop();
+                    return;
+                }
+            }
+        }
+        catch (Exception e) {
+            fail(e);
+            return;
+        }
+
+        subscription.request(1);
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+        if (!done) {
+            done = true;
+            future.completeExceptionally(throwable);
+        }
+    }
+
+    @Override
+    public void onComplete() {
+        if (done) {
+            return;
+        }
+
+        try {
+            decoder.finish();
+            done = true;
+            future.complete(null);
+        }
+        catch (Exception e) {
+            fail(e);
+        }
+    }
+
+    // Completion -----------------------------------------------------------------------------------------------------
+
+    private void stop() {
+        done = true;
+        subscription.cancel();
+        future.complete(null);
+    }
+
+    private void fail(Exception exception) {
+        done = true;
+        subscription.cancel();
+        future.completeExceptionally(exception);
+    }
+}
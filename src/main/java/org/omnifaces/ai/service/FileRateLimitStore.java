@@ -0,0 +1,113 @@
+/*
+ * Copyright OmniFaces
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.omnifaces.ai.service;
+
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.omnifaces.ai.AIConfig;
+import org.omnifaces.ai.AIRateLimitStore;
+
+/**
+ * File based {@link AIRateLimitStore}, sharing the rate limits with all JVMs on the same host which use the same directory.
+ * <p>
+ * Each rate limit is a token bucket, implemented as generic cell rate algorithm (GCRA), whose theoretical arrival time (TAT) of the next
+ * permit is kept as epoch nanoseconds in a file named after the key of the rate limit. A reservation reads and advances the TAT while
+ * holding an exclusive {@link FileChannel#lock() file lock}, which is honored across JVMs. Concurrent reservations within the same JVM
+ * are serialized on a lock per file beforehand, because file locks are held on behalf of the whole JVM.
+ *
+ * @author Bauke Scholtz
+ * @since 1.2
+ * @see AIConfig#PROPERTY_RATE_LIMIT_STORE
+ */
+public final class FileRateLimitStore implements AIRateLimitStore {
+
+    private static final long ONE_MINUTE_NANOS = TimeUnit.MINUTES.toNanos(1);
+    private static final Map<Path, Object> LOCKS = new ConcurrentHashMap<>();
+
+    private final Path directory;
+
+    /**
+     * Creates a file based rate limit store in the given directory. The directory is created when it does not exist.
+     *
+     * @param directory The directory wherein the rate limit files are kept.
+     * @throws UncheckedIOException When the directory cannot be created.
+     */
+    public FileRateLimitStore(Path directory) {
+        try {
+            this.directory = Files.createDirectories(directory).toAbsolutePath().normalize();
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException("Cannot create rate limit store directory " + directory, e);
+        }
+    }
+
+    /**
+     * Returns the directory wherein the rate limit files are kept.
+     * @return The directory wherein the rate limit files are kept.
+     */
+    public Path getDirectory() {
+        return directory;
+    }
+
+    @Override
+    public Duration reserve(String key, long permitsPerMinute, long permits) {
+        var cost = Math.round((double) permits * ONE_MINUTE_NANOS / permitsPerMinute);
+
+        var file = directory.resolve(key);
+
+        synchronized (LOCKS.computeIfAbsent(file, k -> new Object())) {
+            try (var channel = FileChannel.open(file, READ, WRITE, CREATE)) {
+                var lock = channel.lock();
+
+                try {
+                    var buffer = ByteBuffer.allocate(Long.BYTES);
+                    var now = epochNanos();
+                    var current = channel.read(buffer, 0) == Long.BYTES ? buffer.flip().getLong() : now;
+                    var next = Math.max(current, now) + cost;
+                    channel.write(buffer.clear().putLong(next).flip(), 0);
+                    return Duration.ofNanos(Math.max(0, next - ONE_MINUTE_NANOS - now));
+                }
+                finally {
+                    lock.release();
+                }
+            }
+            catch (IOException e) {
+                throw new UncheckedIOException("Cannot reserve rate limit " + key + " in " + directory, e);
+            }
+        }
+    }
+
+    private static long epochNanos() {
+        var now = Instant.now();
+        return TimeUnit.SECONDS.toNanos(now.getEpochSecond()) + now.getNano();
+    }
+
+    @Override
+    public String toString() {
+        return "FileRateLimitStore[" + directory + "]";
+    }
+}
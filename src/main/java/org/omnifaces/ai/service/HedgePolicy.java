@@ -0,0 +1,212 @@
+/*
+ * Copyright OmniFaces
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.omnifaces.ai.service;
+
+import static java.util.concurrent.CompletableFuture.delayedExecutor;
+import static java.util.concurrent.CompletableFuture.failedFuture;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static org.omnifaces.ai.AIConfig.PROPERTY_HEDGE_PERCENTILE;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+import org.omnifaces.ai.AIConfig;
+
+/**
+ * Hedging policy of a {@link BaseAIService}, used for idempotent and deterministic requests.
+ * <p>
+ * The latencies of the last {@value #WINDOW_SIZE} successful hedgeable requests are kept in a sliding window. Once at least
+ * {@value #MIN_SAMPLES} latencies are known, a hedgeable request which did not complete within the latency percentile configured via
+ * {@link AIConfig#PROPERTY_HEDGE_PERCENTILE} gets a second identical request, the hedge. The first successful completion wins, and the
+ * other request is cancelled, which aborts its HTTP exchange. A failure only wins when the other request has failed as well or was never
+ * sent.
+ * <p>
+ * The hedges are capped by a hedge budget: every hedgeable request deposits {@value #HEDGE_RATIO} hedge, and every hedge withdraws one
+ * hedge. The balance starts empty and is capped at {@value #MAX_HEDGES} hedges, so that the extra traffic never exceeds a few percent.
+ *
+ * @author Bauke Scholtz
+ * @since 1.2
+ */
+final class HedgePolicy implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /** The amount of most recent latencies in the sliding window: {@value} */
+    static final int WINDOW_SIZE = 100;
+    /** The minimum amount of latencies in the sliding window before requests are hedged: {@value} */
+    static final int MIN_SAMPLES = 20;
+    /** The amount of hedges deposited per hedgeable request: {@value} */
+    static final double HEDGE_RATIO = 0.05;
+    /** The maximum amount of hedges: {@value} */
+    static final int MAX_HEDGES = 10;
+
+    private static final long SCALE = 1000;
+    private static final long DEPOSIT = Math.round(HEDGE_RATIO * SCALE);
+
+    private final double percentile;
+    private final long[] latencies = new long[WINDOW_SIZE];
+    private int latencyIndex;
+    private int latencyCount;
+
+    /** The balance in thousandths of a hedge. */
+    private final AtomicLong balance = new AtomicLong();
+
+    HedgePolicy(double percentile) {
+        this.percentile = percentile;
+    }
+
+    /**
+     * Returns the hedging policy configured via {@link AIConfig#PROPERTY_HEDGE_PERCENTILE} of the given AI configuration.
+     *
+     * @param config The AI configuration.
+     * @return The hedging policy, or {@code null} if hedging is not configured.
+     * @throws IllegalStateException if the configured percentile is not a number between 0 and 100, exclusive.
+     */
+    static HedgePolicy of(AIConfig config) {
+        var value = config.property(PROPERTY_HEDGE_PERCENTILE);
+
+        if (value == null) {
+            return null;
+        }
+
+        try {
+            var percentile = Double.parseDouble(value);
+
+            if (percentile > 0 && percentile < 100) {
+                return new HedgePolicy(percentile);
+            }
+        }
+        catch (NumberFormatException ignore) {
+            // Handled below.
+        }
+
+        throw new IllegalStateException(PROPERTY_HEDGE_PERCENTILE + " property must be a number between 0 and 100, exclusive: " + value);
+    }
+
+    /**
+     * Sends the request supplied by the given action, and sends it once again when it didn't complete within the configured latency
+     * percentile and the hedge budget allows.
+     *
+     * @param <R> The response type.
+     * @param action The action which sends the request. The returned future must abort the request when it is cancelled.
+     * @return The future of the first successful completion.
+     */
+    <R> CompletableFuture<R> hedge(Supplier<CompletableFuture<R>> action) {
+        balance.accumulateAndGet(DEPOSIT, (current, deposit) -> Math.min(current + deposit, MAX_HEDGES * SCALE));
+        var hedgeDelayNanos = getHedgeDelayNanos();
+        var result = new CompletableFuture<R>();
+        var pending = new AtomicInteger(1);
+        var startTime = System.nanoTime();
+        var primary = action.get();
+        var hedge = new AtomicReference<CompletableFuture<R>>();
+        complete(primary, startTime, result, pending, hedge::get);
+
+        if (hedgeDelayNanos >= 0) {
+            delayedExecutor(hedgeDelayNanos, NANOSECONDS).execute(() -> {
+                if (result.isDone() || pending.getAndUpdate(count -> count == 0 ? 0 : count + 1) == 0) {
+                    return;
+                }
+
+                if (!tryAcquireHedge()) {
+                    pending.decrementAndGet();
+                    return;
+                }
+
+                var hedgeStartTime = System.nanoTime();
+                CompletableFuture<R> secondary;
+
+                try {
+                    secondary = action.get();
+                }
+                catch (RuntimeException e) {
+                    secondary = failedFuture(e);
+                }
+
+                hedge.set(secondary);
+
+                if (result.isCancelled()) {
+                    secondary.cancel(true);
+                }
+
+                complete(secondary, hedgeStartTime, result, pending, () -> primary);
+            });
+        }
+
+        result.whenComplete((response, throwable) -> {
+            if (result.isCancelled()) {
+                primary.cancel(true);
+                cancel(hedge.get());
+            }
+        });
+
+        return result;
+    }
+
+    private <R> void complete(CompletableFuture<R> request, long startTime, CompletableFuture<R> result, AtomicInteger pending, Supplier<CompletableFuture<R>> other) {
+        request.whenComplete((response, throwable) -> {
+            if (throwable == null) {
+                recordLatency(System.nanoTime() - startTime);
+
+                if (result.complete(response)) {
+                    cancel(other.get());
+                }
+            }
+            else if (pending.decrementAndGet() == 0) {
+                result.completeExceptionally(throwable);
+            }
+        });
+    }
+
+    private static void cancel(CompletableFuture<?> request) {
+        if (request != null) {
+            request.cancel(true);
+        }
+    }
+
+    /**
+     * Returns the configured latency percentile of the recent hedgeable requests.
+     * @return The configured latency percentile of the recent hedgeable requests, or -1 if not enough latencies are known yet.
+     */
+    synchronized long getHedgeDelayNanos() {
+        if (latencyCount < MIN_SAMPLES) {
+            return -1;
+        }
+
+        var sorted = Arrays.copyOf(latencies, latencyCount);
+        Arrays.sort(sorted);
+        return sorted[Math.min(latencyCount - 1, (int) Math.ceil(percentile / 100 * latencyCount) - 1)];
+    }
+
+    /**
+     * Records the latency of a successful hedgeable request.
+     * @param latencyNanos The latency in nanoseconds.
+     */
+    synchronized void recordLatency(long latencyNanos) {
+        latencies[latencyIndex] = latencyNanos;
+        latencyIndex = (latencyIndex + 1) % WINDOW_SIZE;
+        latencyCount = Math.min(latencyCount + 1, WINDOW_SIZE);
+    }
+
+    /**
+     * Attempts to withdraw one hedge.
+     * @return {@code true} if the hedge is allowed, {@code false} if the budget is exhausted.
+     */
+    boolean tryAcquireHedge() {
+        return balance.getAndAccumulate(SCALE, (current, withdrawal) -> current >= withdrawal ? current - withdrawal : current) >= SCALE;
+    }
+}
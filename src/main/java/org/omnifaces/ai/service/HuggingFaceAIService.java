@@ -13,9 +13,12 @@
 package org.omnifaces.ai.service;
 
 import static java.util.Collections.emptyMap;
+import static org.omnifaces.ai.helper.JsonProviderHelper.createObjectBuilder;
+import static org.omnifaces.ai.service.CompletableFutureHelper.thenApplyCancellable;
 
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
 
 import org.omnifaces.ai.AIConfig;
 import org.omnifaces.ai.AIModality;
@@ -123,6 +126,8 @@ public class HuggingFaceAIService extends OpenAIService {
         }
 
         var attachment = new Attachment(audio, mimeType, "audio." + mimeType.extension(), emptyMap());
-        return HTTP_CLIENT.post(this, "../hf-inference/models/" + getModelName(), attachment).thenApply(this::parseOpenAITranscribeResponse);
+        var path = "../hf-inference/models/" + getModelName();
+        var cacheKey = createObjectBuilder().add("file", attachment.toBase64Slot()).build();
+        return thenApplyCancellable(cache(path, cacheKey, String.class, () -> withTimeout(() -> HTTP_CLIENT.post(this, path, attachment)), Function.identity()), this::parseOpenAITranscribeResponse);
     }
 }
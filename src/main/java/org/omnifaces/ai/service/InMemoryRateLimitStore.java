@@ -0,0 +1,48 @@
+/*
+ * Copyright OmniFaces
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.omnifaces.ai.service;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.omnifaces.ai.AIConfig;
+import org.omnifaces.ai.AIRateLimitStore;
+
+/**
+ * In-memory {@link AIRateLimitStore}, sharing the rate limits within the JVM. This is the default rate limit store.
+ * <p>
+ * Each rate limit is a lock-free token bucket, implemented as generic cell rate algorithm (GCRA). Instead of a permit count, it keeps track
+ * of the theoretical arrival time (TAT) of the next permit, which is advanced by the emission interval for every reserved permit.
+ *
+ * @author Bauke Scholtz
+ * @since 1.2
+ * @see AIConfig#PROPERTY_RATE_LIMIT_STORE
+ */
+public final class InMemoryRateLimitStore implements AIRateLimitStore {
+
+    private static final long ONE_MINUTE_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+    private final Map<String, AtomicLong> theoreticalArrivalTimes = new ConcurrentHashMap<>();
+
+    @Override
+    public Duration reserve(String key, long permitsPerMinute, long permits) {
+        var now = System.nanoTime();
+        var cost = Math.round((double) permits * ONE_MINUTE_NANOS / permitsPerMinute);
+        var theoreticalArrivalTime = theoreticalArrivalTimes.computeIfAbsent(key, k -> new AtomicLong(now));
+        var next = theoreticalArrivalTime.accumulateAndGet(cost, (current, increment) -> Math.max(current, now) + increment);
+        return Duration.ofNanos(Math.max(0, next - ONE_MINUTE_NANOS - now));
+    }
+}
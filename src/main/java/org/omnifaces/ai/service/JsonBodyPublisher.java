@@ -0,0 +1,227 @@
+/*
+ * Copyright OmniFaces
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.omnifaces.ai.service;
+
+import static org.omnifaces.ai.helper.JsonProviderHelper.createGenerator;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.net.http.HttpRequest.BodyPublisher;
+import java.net.http.HttpRequest.BodyPublishers;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.Flow;
+
+import jakarta.json.JsonArray;
+import jakarta.json.JsonObject;
+import jakarta.json.JsonValue;
+import jakarta.json.stream.JsonGenerator;
+
+import org.omnifaces.ai.model.AttachmentSlot;
+
+/**
+ * Streaming JSON body publisher for {@link AIHttpClient}.
+ * <p>
+ * The JSON payload is written with a {@link JsonGenerator} directly into byte segments instead of being serialized into a string first.
+ * Any {@link AttachmentSlot} in the payload is not materialized but split off into its own body publisher which Base64 encodes the
+ * attachment content on the fly in bounded chunks. All segments are finally concatenated into a single body publisher with a known
+ * content length. The bytes of the resulting request body are identical to the UTF-8 encoded {@link JsonObject#toString()}. The resulting
+ * {@link Body} also knows the amount and length of the attachments, so that these do not need to be estimated as tokens.
+ * <p>
+ * The same writer is used to compute a cheap {@link #digest(JsonObject) digest} of a payload, wherein each {@link AttachmentSlot} is hashed
+ * by its raw content instead of its Base64 encoded content.
+ *
+ * @author Bauke Scholtz
+ * @since 1.2
+ * @see AttachmentSlot
+ */
+final class JsonBodyPublisher {
+
+    private final List<BodyPublisher> segments = new ArrayList<>();
+    private final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+    private final MessageDigest digest;
+    private final JsonGenerator generator;
+    private int attachments;
+    private long attachmentsLength;
+
+    private JsonBodyPublisher(MessageDigest digest) {
+        // Use of() or digest().
+        this.digest = digest;
+        this.generator = createGenerator(digest == null ? buffer : new DigestOutputStream(OutputStream.nullOutputStream(), digest));
+    }
+
+    /**
+     * Returns a body publisher for the given JSON payload.
+     *
+     * @param payload The JSON payload.
+     * @return A body publisher for the given JSON payload.
+     */
+    static Body of(JsonObject payload) {
+        var publisher = new JsonBodyPublisher(null);
+        publisher.writeObject(null, payload);
+        publisher.generator.close();
+
+        if (publisher.segments.isEmpty()) {
+            return new Body(BodyPublishers.ofByteArray(publisher.buffer.toByteArray()), 0, 0);
+        }
+
+        publisher.segments.add(BodyPublishers.ofByteArray(publisher.buffer.toByteArray()));
+        return new Body(BodyPublishers.concat(publisher.segments.toArray(BodyPublisher[]::new)), publisher.attachments, publisher.attachmentsLength);
+    }
+
+    /**
+     * Returns the hex encoded SHA-256 digest of the given JSON payload. This is equivalent to the digest of its request body, except that
+     * any {@link AttachmentSlot} is hashed by its raw content, so that its content doesn't need to be Base64 encoded.
+     *
+     * @param payload The JSON payload.
+     * @return The hex encoded SHA-256 digest of the given JSON payload.
+     */
+    static String digest(JsonObject payload) {
+        try {
+            var publisher = new JsonBodyPublisher(MessageDigest.getInstance("SHA-256"));
+            publisher.writeObject(null, payload);
+            publisher.generator.close();
+            return HexFormat.of().formatHex(publisher.digest.digest());
+        }
+        catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private void writeObject(String name, JsonObject object) {
+        if (name == null) {
+            generator.writeStartObject();
+        }
+        else {
+            generator.writeStartObject(name);
+        }
+
+        for (var entry : object.entrySet()) {
+            writeValue(entry.getKey(), entry.getValue());
+        }
+
+        generator.writeEnd();
+    }
+
+    private void writeArray(String name, JsonArray array) {
+        if (name == null) {
+            generator.writeStartArray();
+        }
+        else {
+            generator.writeStartArray(name);
+        }
+
+        for (var value : array) {
+            writeValue(null, value);
+        }
+
+        generator.writeEnd();
+    }
+
+    private void writeValue(String name, JsonValue value) {
+        if (value instanceof AttachmentSlot slot) {
+            writeSlot(name, slot);
+        }
+        else if (value instanceof JsonObject object) {
+            writeObject(name, object);
+        }
+        else if (value instanceof JsonArray array) {
+            writeArray(name, array);
+        }
+        else if (name == null) {
+            generator.write(value);
+        }
+        else {
+            generator.write(name, value);
+        }
+    }
+
+    /**
+     * Writes an empty JSON string as placeholder, then cuts the segment right after its opening quote, and adds the slot as a separate
+     * segment. The next segment then starts with the closing quote of the placeholder.
+     */
+    private void writeSlot(String name, AttachmentSlot slot) {
+        if (name == null) {
+            generator.write("");
+        }
+        else {
+            generator.write(name, "");
+        }
+
+        if (slot.length() == 0) {
+            return; // Nothing to stream, placeholder is then the actual value.
+        }
+
+        generator.flush();
+
+        if (digest != null) {
+            slot.updateDigest(digest);
+            return;
+        }
+
+        var bytes = buffer.toByteArray();
+        attachments++;
+        attachmentsLength += slot.length();
+        segments.add(BodyPublishers.ofByteArray(bytes, 0, bytes.length - 1));
+        segments.add(BodyPublishers.fromPublisher(BodyPublishers.ofInputStream(slot::newInputStream), slot.length()));
+        buffer.reset();
+        buffer.write('"');
+    }
+
+    /**
+     * The body publisher of a JSON payload, along with the amount and the total length of the {@link AttachmentSlot}s in it.
+     */
+    static final class Body implements BodyPublisher {
+
+        private final BodyPublisher body;
+        private final int attachments;
+        private final long attachmentsLength;
+
+        private Body(BodyPublisher body, int attachments, long attachmentsLength) {
+            this.body = body;
+            this.attachments = attachments;
+            this.attachmentsLength = attachmentsLength;
+        }
+
+        @Override
+        public long contentLength() {
+            return body.contentLength();
+        }
+
+        @Override
+        public void subscribe(Flow.Subscriber<? super ByteBuffer> subscriber) {
+            body.subscribe(subscriber);
+        }
+
+        /**
+         * Returns the amount of attachments in the body.
+         * @return The amount of attachments in the body.
+         */
+        int attachments() {
+            return attachments;
+        }
+
+        /**
+         * Returns the length of the body without the attachments.
+         * @return The length of the body without the attachments.
+         */
+        long textLength() {
+            return contentLength() - attachmentsLength;
+        }
+    }
+}
@@ -0,0 +1,341 @@
+/*
+ * Copyright OmniFaces
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.omnifaces.ai.service;
+
+import static java.util.Objects.requireNonNull;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+import org.omnifaces.ai.AIService;
+import org.omnifaces.ai.exception.AIAuthenticationException;
+import org.omnifaces.ai.exception.AIAuthorizationException;
+import org.omnifaces.ai.exception.AIBulkheadFullException;
+import org.omnifaces.ai.exception.AIException;
+import org.omnifaces.ai.exception.AIHttpException;
+import org.omnifaces.ai.exception.AIRateLimitExceededException;
+import org.omnifaces.ai.exception.AIServiceUnavailableException;
+import org.omnifaces.ai.model.ChatInput.Attachment;
+import org.omnifaces.ai.model.ChatOptions;
+
+/**
+ * AI service which balances the calls across multiple member AI services offering the same model, e.g. the same model via
+ * {@link OpenAIService}, two regions of {@link AzureAIService} and {@link OpenRouterAIService}. For example:
+ * <pre>
+ * AIService service = LoadBalancingAIService.newBuilder()
+ *     .add(openAI, 2)
+ *     .add(azureWestEurope)
+ *     .add(azureSwedenCentral)
+ *     .add(openRouter)
+ *     .build();
+ * </pre>
+ * <p>
+ * Each call goes to the better of two members picked at random as per their weights ("power of two choices"), wherein the better one
+ * is the one with the lowest exponentially weighted moving average (EWMA) latency multiplied by its amount of in-flight calls. A member
+ * without known latency is assumed to have the mean latency of the members with known latency.
+ * <p>
+ * When a call fails on a connection error, a 401 or 403 response of a member with e.g. a bad API key, a 429 rate limit response, a 5xx
+ * server response, an open circuit breaker or a full bulkhead, then the call transparently fails over to another member, until every
+ * member has been tried. A chat streaming call only fails
+ * over when no token has been streamed yet. The members do not retry a 429 or 503 response themselves, so that the call fails over right
+ * away instead of after the retries of the member. After {@value #UNHEALTHY_THRESHOLD} consecutive failures of this kind, a member is considered
+ * unhealthy for {@link #UNHEALTHY_DURATION} and is then only picked when no healthy member is left. A member whose
+ * {@link AIService#isAvailable()} returns {@code false} is considered unhealthy as well.
+ * <p>
+ * Calls with memory-enabled {@link ChatOptions} are sticky: all calls of the same {@link ChatOptions} instance go to the same member and
+ * do not fail over, because the conversation history, including the IDs of uploaded files, belongs to that member. Only when that member
+ * has become unhealthy and the conversation has no uploaded files yet, the conversation moves to another member. Likewise, chat calls
+ * whose {@link org.omnifaces.ai.model.ChatInput} refers to a file ID obtained via {@link #upload(Attachment)} of this service go to the
+ * member which issued that file ID.
+ *
+ * @author Bauke Scholtz
+ * @since 1.2
+ */
+public class LoadBalancingAIService extends CompositeAIService {
+
+    private static final long serialVersionUID = 1L;
+
+    /** The amount of consecutive failures after which a member is considered unhealthy: {@value} */
+    static final int UNHEALTHY_THRESHOLD = 3;
+
+    /** The duration during which an unhealthy member is skipped. */
+    static final Duration UNHEALTHY_DURATION = Duration.ofSeconds(30);
+
+    /** The weight of the most recent latency in the EWMA latency: {@value} */
+    static final double EWMA_ALPHA = 0.2;
+
+    private final int[] weights;
+    private final transient LongSupplier clock;
+    private final transient List<Member> members = new ArrayList<>();
+    private final transient StickyRoutes<Member> stickyRoutes = new StickyRoutes<>();
+
+    LoadBalancingAIService(List<AIService> services, int[] weights, LongSupplier clock) {
+        super(services);
+        this.weights = weights.clone();
+        this.clock = clock;
+
+        for (var i = 0; i < services.size(); i++) {
+            members.add(new Member(services.get(i), weights[i]));
+        }
+
+        failFastOn(getServices(), AIRateLimitExceededException.STATUS_CODE, AIServiceUnavailableException.STATUS_CODE);
+    }
+
+    /**
+     * Creates a new builder for constructing {@link LoadBalancingAIService} instances.
+     * @return A new {@code LoadBalancingAIService.Builder} instance.
+     */
+    public static Builder newBuilder() {
+        return new Builder();
+    }
+
+    @Override
+    protected <R> CompletableFuture<R> dispatch(Call call, Function<AIService, CompletableFuture<R>> invocation) {
+        var pinned = stickyRoutes.find(call, member -> member.isHealthy(clock.getAsLong()), this::choose);
+        var tried = new HashSet<Member>();
+        Function<AIService, CompletableFuture<R>> tracked = service -> {
+            var member = findMember(service);
+            tried.add(member);
+            return track(call, member, invocation);
+        };
+        BiFunction<AIService, Throwable, AIService> failover = (service, cause) -> {
+            var next = pinned == null && isFailoverable(cause) ? choose(tried) : null;
+            return next != null ? next.service : null;
+        };
+
+        return dispatchWithFailover(call, (pinned != null ? pinned : choose(Set.of())).service, tracked, failover);
+    }
+
+    /**
+     * @implNote The member which issued the returned file ID is remembered, so that chat calls referring to it go to that member.
+     */
+    @Override
+    public CompletableFuture<String> uploadAsync(Attachment attachment) throws AIException {
+        return dispatch(new Call(null, null, false), service -> service.uploadAsync(attachment).thenApply(fileId -> {
+            stickyRoutes.pinUpload(fileId, findMember(service));
+            return fileId;
+        }));
+    }
+
+    private <R> CompletableFuture<R> track(Call call, Member member, Function<AIService, CompletableFuture<R>> invocation) {
+        member.inFlight.incrementAndGet();
+        var startTime = clock.getAsLong();
+        CompletableFuture<R> future;
+
+        try {
+            future = invocation.apply(member.service);
+        }
+        catch (RuntimeException e) {
+            member.inFlight.decrementAndGet();
+            throw e;
+        }
+
+        future.whenComplete((response, throwable) -> {
+            member.inFlight.decrementAndGet();
+            var now = clock.getAsLong();
+
+            if (throwable == null) {
+                member.recordSuccess(call.isStreaming() ? -1 : now - startTime);
+            }
+            else if (isFailoverable(unwrap(throwable))) {
+                member.recordFailure(now);
+            }
+        });
+
+        return future;
+    }
+
+    /**
+     * Returns whether the given failure warrants failing over to another member: a connection error, a 401, 403, 429 or 5xx response, an
+     * open circuit breaker or a full bulkhead.
+     */
+    static boolean isFailoverable(Throwable cause) {
+        if (cause instanceof AIHttpException httpException) {
+            var statusCode = httpException.getStatusCode();
+            return statusCode == 0 || statusCode == AIAuthenticationException.STATUS_CODE || statusCode == AIAuthorizationException.STATUS_CODE
+                || statusCode == AIRateLimitExceededException.STATUS_CODE || statusCode >= 500;
+        }
+
+        return cause instanceof AIBulkheadFullException;
+    }
+
+    /**
+     * Chooses the better of two random members as per their weights, among the healthy members which are not excluded, or else among all
+     * members which are not excluded.
+     * @return The chosen member, or {@code null} if all members are excluded.
+     */
+    private Member choose(Set<Member> excluded) {
+        var now = clock.getAsLong();
+        var candidates = members.stream().filter(member -> !excluded.contains(member) && member.isHealthy(now)).toList();
+
+        if (candidates.isEmpty()) {
+            candidates = members.stream().filter(member -> !excluded.contains(member)).toList();
+        }
+
+        if (candidates.size() <= 1) {
+            return candidates.isEmpty() ? null : candidates.get(0);
+        }
+
+        var coldLatencyNanos = members.stream().mapToDouble(Member::getLatencyNanos).filter(latencyNanos -> latencyNanos > 0).average().orElse(0);
+        var first = pickWeighted(candidates, null);
+        var second = pickWeighted(candidates, first);
+        return second.getCost(coldLatencyNanos) < first.getCost(coldLatencyNanos) ? second : first;
+    }
+
+    private static Member pickWeighted(List<Member> candidates, Member excluded) {
+        var totalWeight = candidates.stream().filter(member -> member != excluded).mapToLong(member -> member.weight).sum();
+        var random = ThreadLocalRandom.current().nextLong(totalWeight);
+
+        for (var member : candidates) {
+            if (member != excluded && (random -= member.weight) < 0) {
+                return member;
+            }
+        }
+
+        throw new IllegalStateException("Unreachable");
+    }
+
+    /**
+     * Returns the member state of the given member AI service.
+     */
+    Member findMember(AIService service) {
+        return members.stream().filter(member -> member.service == service).findFirst().orElseThrow();
+    }
+
+    private Object readResolve() {
+        return new LoadBalancingAIService(getServices(), weights, System::nanoTime);
+    }
+
+    /**
+     * The state of a member AI service.
+     */
+    static final class Member {
+
+        private final AIService service;
+        private final int weight;
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private double latencyNanos;
+        private int consecutiveFailures;
+        private long unhealthyUntil;
+        private boolean unhealthy;
+
+        private Member(AIService service, int weight) {
+            this.service = service;
+            this.weight = weight;
+        }
+
+        synchronized boolean isHealthy(long now) {
+            if (unhealthy && now - unhealthyUntil >= 0) {
+                unhealthy = false;
+            }
+
+            return !unhealthy && service.isAvailable();
+        }
+
+        synchronized double getLatencyNanos() {
+            return latencyNanos;
+        }
+
+        int getInFlight() {
+            return inFlight.get();
+        }
+
+        /**
+         * Returns the EWMA latency multiplied by the amount of in-flight calls plus one, wherein the given cold latency is used as long as
+         * the EWMA latency is unknown.
+         */
+        synchronized double getCost(double coldLatencyNanos) {
+            return (latencyNanos > 0 ? latencyNanos : coldLatencyNanos) * (inFlight.get() + 1);
+        }
+
+        synchronized void recordSuccess(long latencyNanos) {
+            consecutiveFailures = 0;
+            unhealthy = false;
+
+            if (latencyNanos >= 0) {
+                this.latencyNanos = this.latencyNanos == 0 ? latencyNanos : this.latencyNanos + EWMA_ALPHA * (latencyNanos - this.latencyNanos);
+            }
+        }
+
+        synchronized void recordFailure(long now) {
+            if (++consecutiveFailures >= UNHEALTHY_THRESHOLD) {
+                unhealthy = true;
+                unhealthyUntil = now + UNHEALTHY_DURATION.toNanos();
+            }
+        }
+    }
+
+    /**
+     * Builder for constructing {@link LoadBalancingAIService} instances.
+     */
+    public static class Builder {
+        private final List<AIService> services = new ArrayList<>();
+        private final List<Integer> weights = new ArrayList<>();
+
+        private Builder() {}
+
+        /**
+         * Adds a member AI service with a weight of 1.
+         *
+         * @param service The member AI service.
+         * @return This builder instance for chaining.
+         */
+        public Builder add(AIService service) {
+            return add(service, 1);
+        }
+
+        /**
+         * Adds a member AI service with the given weight. A member with weight 2 is picked twice as often as a member with weight 1,
+         * provided that their latencies and amounts of in-flight calls are equal.
+         *
+         * @param service The member AI service.
+         * @param weight The weight of the member AI service.
+         * @return This builder instance for chaining.
+         * @throws IllegalArgumentException if the weight is not positive, or if the member AI service is already added.
+         */
+        public Builder add(AIService service, int weight) {
+            requireNonNull(service, "service");
+
+            if (weight <= 0) {
+                throw new IllegalArgumentException("Weight must be positive: " + weight);
+            }
+
+            if (services.stream().anyMatch(existing -> existing == service)) {
+                throw new IllegalArgumentException("Service is already added: " + service.getName());
+            }
+
+            services.add(service);
+            weights.add(weight);
+            return this;
+        }
+
+        /**
+         * Builds the load balancing AI service.
+         *
+         * @return A new {@code LoadBalancingAIService} instance.
+         * @throws IllegalArgumentException if no member AI service is added.
+         */
+        public LoadBalancingAIService build() {
+            return new LoadBalancingAIService(services, weights.stream().mapToInt(Integer::intValue).toArray(), System::nanoTime);
+        }
+    }
+}
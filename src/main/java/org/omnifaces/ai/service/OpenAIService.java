@@ -15,14 +15,15 @@ package org.omnifaces.ai.service;
 import static org.omnifaces.ai.helper.JsonHelper.findFirstNonBlankByPaths;
 import static org.omnifaces.ai.helper.JsonHelper.isEmpty;
 import static org.omnifaces.ai.helper.JsonHelper.parseJson;
+import static org.omnifaces.ai.helper.JsonProviderHelper.createObjectBuilder;
+import static org.omnifaces.ai.service.CompletableFutureHelper.thenApplyCancellable;
 
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
-
-import jakarta.json.Json;
+import java.util.function.Function;
 
 import org.omnifaces.ai.AIConfig;
 import org.omnifaces.ai.AIModality;
@@ -195,8 +196,8 @@ public class OpenAIService extends BaseAIService {
     @Override
     public CompletableFuture<ModerationResult> moderateContentAsync(String content, ModerationOptions options) throws AIException {
         if (supportsOpenAIModerationCapability(options.getCategories())) {
-            var payload = Json.createObjectBuilder().add("input", content).build();
-            return HTTP_CLIENT.post(this, "moderations", payload).thenApply(response -> parseOpenAIModerationResult(response, options));
+            var payload = createObjectBuilder().add("input", content).build();
+            return thenApplyCancellable(cache("moderations", payload, String.class, () -> withTimeout(() -> HTTP_CLIENT.post(this, "moderations", payload)), Function.identity()), response -> parseOpenAIModerationResult(response, options));
         }
         else {
             return super.moderateContentAsync(content, options);
@@ -246,7 +247,8 @@ public class OpenAIService extends BaseAIService {
         if (supportsOpenAITranscriptionCapability()) {
             var mimeType = MimeType.guessMimeType(audio);
             var attachment = new Attachment(audio, mimeType, "audio." + mimeType.extension(), Map.of("model", getModelName(), "response_format", "json"));
-            return HTTP_CLIENT.upload(this, "audio/transcriptions", attachment).thenApply(this::parseOpenAITranscribeResponse);
+            var cacheKey = createObjectBuilder().add("file", attachment.toBase64Slot()).build();
+            return thenApplyCancellable(cache("audio/transcriptions", cacheKey, String.class, () -> withTimeout(() -> HTTP_CLIENT.upload(this, "audio/transcriptions", attachment)), Function.identity()), this::parseOpenAITranscribeResponse);
         }
         else {
             return super.transcribeAsync(audio);
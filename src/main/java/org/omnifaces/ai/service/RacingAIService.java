@@ -0,0 +1,223 @@
+/*
+ * Copyright OmniFaces
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.omnifaces.ai.service;
+
+import static java.util.Comparator.comparing;
+import static java.util.concurrent.CompletableFuture.failedFuture;
+import static java.util.function.Predicate.not;
+import static java.util.logging.Level.FINE;
+
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.logging.Logger;
+
+import org.omnifaces.ai.AIService;
+import org.omnifaces.ai.exception.AIException;
+import org.omnifaces.ai.model.ChatInput;
+import org.omnifaces.ai.model.ChatInput.Attachment;
+import org.omnifaces.ai.model.ChatOptions;
+
+/**
+ * AI service which races each call across all member AI services, for latency critical calls where the tail latency matters more than
+ * the costs. Each member builds its own payload for its own AI provider, and the first successful response wins. The calls of the other
+ * members are then cancelled, which aborts their HTTP exchanges. A failure only wins when all members have failed. Members which are not
+ * {@link AIService#isAvailable() available} do not participate, unless none of them is available.
+ * <p>
+ * A chat stream is won by the first member which delivers a token, so that the caller never receives tokens from more than one member.
+ * <p>
+ * The amount of races won by each member is recorded and available via {@link #getWins()}, so that the members can be tuned over time.
+ * <p>
+ * Calls with memory-enabled {@link ChatOptions} are not raced, because every member would then record the same message in the
+ * conversation history. All calls of the same {@link ChatOptions} instance go to one member, preferably the one which won the most races.
+ * The same applies to {@link #upload(Attachment)}, and chat calls whose {@link ChatInput} refers to a file ID obtained via
+ * {@link #upload(Attachment)} of this service go to the member which created that file ID.
+ *
+ * @author Bauke Scholtz
+ * @since 1.2
+ */
+public class RacingAIService extends CompositeAIService {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final Logger logger = Logger.getLogger(RacingAIService.class.getPackageName());
+
+    private final transient Map<AIService, AtomicLong> wins = new IdentityHashMap<>();
+    private final transient StickyRoutes<AIService> stickyRoutes = new StickyRoutes<>();
+
+    /**
+     * Constructs a racing AI service with the given member AI services.
+     *
+     * @param services The member AI services.
+     * @throws IllegalArgumentException if there are no member AI services.
+     */
+    public RacingAIService(List<AIService> services) {
+        super(services);
+        getServices().forEach(service -> wins.put(service, new AtomicLong()));
+    }
+
+    @Override
+    protected <R> CompletableFuture<R> dispatch(Call call, Function<AIService, CompletableFuture<R>> invocation) {
+        return race(call, (race, service) -> invocation.apply(service));
+    }
+
+    /**
+     * @implNote The tokens are only passed to the given consumer when they come from the member which delivered the first token.
+     */
+    @Override
+    public CompletableFuture<Void> chatStream(ChatInput input, ChatOptions options, Consumer<String> onToken) {
+        return race(new Call(input, options, true), (race, service) -> service.chatStream(input, options, token -> {
+            if (race.lead(service)) {
+                onToken.accept(token);
+            }
+        }));
+    }
+
+    /**
+     * @implNote The attachment is uploaded to one member only, preferably the one which won the most races, and the returned file ID is
+     * remembered, so that chat calls referring to it go to that member.
+     */
+    @Override
+    public CompletableFuture<String> uploadAsync(Attachment attachment) throws AIException {
+        var service = choose(Set.of());
+        return service.uploadAsync(attachment).thenApply(fileId -> {
+            stickyRoutes.pinUpload(fileId, service);
+            return fileId;
+        });
+    }
+
+    private <R> CompletableFuture<R> race(Call call, BiFunction<Race<R>, AIService, CompletableFuture<R>> invocation) {
+        var pinned = stickyRoutes.find(call, AIService::isAvailable, this::choose);
+        var racers = pinned != null ? List.of(pinned) : getRacers();
+        var race = new Race<R>(racers.size());
+
+        for (var service : racers) {
+            race.start(service, invocation);
+        }
+
+        return race.result;
+    }
+
+    private List<AIService> getRacers() {
+        var available = getServices().stream().filter(AIService::isAvailable).toList();
+        return available.isEmpty() ? getServices() : available;
+    }
+
+    /**
+     * Chooses the member which is not excluded and won the most races, preferring the available members.
+     */
+    private AIService choose(Set<AIService> excluded) {
+        return getServices().stream().filter(not(excluded::contains))
+            .max(comparing(AIService::isAvailable).thenComparing(service -> wins.get(service).get()))
+            .orElse(getServices().get(0));
+    }
+
+    /**
+     * Returns the amount of races won by each member. A call which was not raced, such as a call with memory-enabled {@link ChatOptions},
+     * counts as won by the member which handled it.
+     * @return The amount of races won by each member, in the order of {@link #getServices()}.
+     */
+    public Map<AIService, Long> getWins() {
+        var result = new LinkedHashMap<AIService, Long>();
+        getServices().forEach(service -> result.put(service, wins.get(service).get()));
+        return result;
+    }
+
+    private Object readResolve() {
+        return new RacingAIService(getServices());
+    }
+
+    /**
+     * A single race of a call across the members.
+     */
+    private final class Race<R> {
+
+        private final CompletableFuture<R> result = new CompletableFuture<>();
+        private final Map<AIService, CompletableFuture<R>> attempts = new ConcurrentHashMap<>();
+        private final AtomicReference<AIService> leader = new AtomicReference<>();
+        private final AtomicInteger pending;
+
+        private Race(int racers) {
+            pending = new AtomicInteger(racers);
+            result.whenComplete((response, throwable) -> {
+                if (result.isCancelled()) {
+                    attempts.values().forEach(attempt -> attempt.cancel(true));
+                }
+            });
+        }
+
+        private void start(AIService service, BiFunction<Race<R>, AIService, CompletableFuture<R>> invocation) {
+            CompletableFuture<R> attempt;
+
+            try {
+                attempt = invocation.apply(this, service);
+            }
+            catch (RuntimeException e) {
+                attempt = failedFuture(e);
+            }
+
+            attempts.put(service, attempt);
+
+            if (result.isCancelled() || !isLeaderOrOpen(service)) {
+                attempt.cancel(true);
+            }
+
+            attempt.whenComplete((response, throwable) -> {
+                var last = pending.decrementAndGet() == 0;
+
+                if (throwable == null) {
+                    if (lead(service) && result.complete(response)) {
+                        wins.get(service).incrementAndGet();
+                        logger.log(FINE, () -> "Race won by " + service.getName());
+                    }
+                }
+                else if (leader.get() == null ? last : leader.get() == service) {
+                    result.completeExceptionally(unwrap(throwable));
+                }
+            });
+        }
+
+        /**
+         * Lets the given member lead the race if no other member leads it yet, and cancels the calls of the other members.
+         * @return Whether the given member leads the race.
+         */
+        private boolean lead(AIService service) {
+            if (leader.compareAndSet(null, service)) {
+                attempts.forEach((other, attempt) -> {
+                    if (other != service) {
+                        attempt.cancel(true);
+                    }
+                });
+
+                return true;
+            }
+
+            return leader.get() == service;
+        }
+
+        private boolean isLeaderOrOpen(AIService service) {
+            var current = leader.get();
+            return current == null || current == service;
+        }
+    }
+}
@@ -0,0 +1,179 @@
+/*
+ * Copyright OmniFaces
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.omnifaces.ai.service;
+
+import java.io.Serializable;
+import java.net.URI;
+import java.net.http.HttpHeaders;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.omnifaces.ai.helper.TextHelper;
+
+/**
+ * Tracks the rate limit state as advertised by the AI provider in the HTTP response headers, used by {@link AIHttpClient}.
+ * <p>
+ * The following headers are recognized, separately for requests and for tokens:
+ * <ul>
+ * <li>{@code x-ratelimit-limit-*}, {@code x-ratelimit-remaining-*} and {@code x-ratelimit-reset-*} - e.g. sent by OpenAI, Azure OpenAI,
+ * xAI and other OpenAI-compatible providers
+ * <li>{@code anthropic-ratelimit-*-limit}, {@code anthropic-ratelimit-*-remaining} and {@code anthropic-ratelimit-*-reset} - sent by
+ * Anthropic
+ * </ul>
+ * <p>
+ * Every response updates the remaining capacity and the time of the next reset, and every request locally deducts from the remaining
+ * capacity until the next response corrects it. Once the remaining capacity drops below {@value #LOW_WATERMARK_PERCENTAGE}% of the limit,
+ * the requests are increasingly delayed towards the advertised reset, and once it is exhausted, the requests are delayed until the
+ * advertised reset. When no reset is advertised, a reset after one minute is assumed. The delay never exceeds
+ * {@link AIHttpClient#MAX_BACKOFF_MS}.
+ * <p>
+ * The trackers are shared by all services of the same endpoint and API key, because that's what the AI provider rate limits.
+ *
+ * @author Bauke Scholtz
+ * @since 1.2
+ */
+final class RateLimitTracker implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /** The percentage of the limit below which the requests are slowed down: {@value} */
+    static final int LOW_WATERMARK_PERCENTAGE = 5;
+
+    private static final long DEFAULT_RESET_NANOS = TimeUnit.MINUTES.toNanos(1);
+    private static final long MAX_DELAY_NANOS = TimeUnit.MILLISECONDS.toNanos(AIHttpClient.MAX_BACKOFF_MS);
+    private static final Map<String, RateLimitTracker> SHARED_RATE_LIMIT_TRACKERS = new ConcurrentHashMap<>();
+
+    private final String key;
+    private final transient Window requests = new Window();
+    private final transient Window tokens = new Window();
+
+    private RateLimitTracker(String key) {
+        this.key = key;
+    }
+
+    /**
+     * Returns the shared rate limit tracker for the given endpoint and API key.
+     *
+     * @param endpoint The resolved endpoint.
+     * @param apiKey The resolved API key, may be {@code null}.
+     * @return The shared rate limit tracker.
+     */
+    static RateLimitTracker of(URI endpoint, String apiKey) {
+        return SHARED_RATE_LIMIT_TRACKERS.computeIfAbsent(RateLimiter.computeKey(endpoint.toString(), apiKey), RateLimitTracker::new);
+    }
+
+    /**
+     * Updates the rate limit state from the given HTTP response headers. Headers which are absent or unparseable are ignored.
+     *
+     * @param headers The HTTP response headers.
+     */
+    void update(HttpHeaders headers) {
+        var now = System.nanoTime();
+        update(requests, headers, "requests", now);
+        update(tokens, headers, "tokens", now);
+    }
+
+    private static void update(Window window, HttpHeaders headers, String type, long now) {
+        var remaining = parseCount(headers, "x-ratelimit-remaining-" + type, "anthropic-ratelimit-" + type + "-remaining");
+
+        if (remaining < 0) {
+            return;
+        }
+
+        var limit = parseCount(headers, "x-ratelimit-limit-" + type, "anthropic-ratelimit-" + type + "-limit");
+        var reset = headers.firstValue("x-ratelimit-reset-" + type).or(() -> headers.firstValue("anthropic-ratelimit-" + type + "-reset"))
+            .map(TextHelper::parseDuration).map(Duration::toNanos).orElse(DEFAULT_RESET_NANOS);
+        window.state.set(new State(limit, remaining, now + reset));
+    }
+
+    private static long parseCount(HttpHeaders headers, String name, String alternativeName) {
+        var value = headers.firstValue(name).or(() -> headers.firstValue(alternativeName));
+
+        try {
+            return value.isPresent() ? Math.max(0, Math.round(Double.parseDouble(value.get().strip()))) : -1;
+        }
+        catch (NumberFormatException ignore) {
+            return -1;
+        }
+    }
+
+    /**
+     * Acquires one request and the given estimated amount of tokens from the remaining capacity.
+     *
+     * @param estimatedTokens The estimated amount of tokens of the request.
+     * @return The delay in nanoseconds after which the request may be sent, or 0 if it may be sent immediately.
+     */
+    long acquire(long estimatedTokens) {
+        var now = System.nanoTime();
+        var delay = requests.acquire(1, now);
+
+        if (estimatedTokens > 0) {
+            delay = Math.max(delay, tokens.acquire(estimatedTokens, now));
+        }
+
+        return Math.min(delay, MAX_DELAY_NANOS);
+    }
+
+    private Object readResolve() {
+        return SHARED_RATE_LIMIT_TRACKERS.computeIfAbsent(key, RateLimitTracker::new);
+    }
+
+    /**
+     * The advertised state of a rate limit window.
+     *
+     * @param limit The limit, or -1 if unknown.
+     * @param remaining The remaining capacity.
+     * @param resetAt The {@link System#nanoTime()} at which the window resets.
+     */
+    private record State(long limit, long remaining, long resetAt) {}
+
+    /**
+     * Lock-free rate limit window, deducting the acquired units from the advertised remaining capacity.
+     */
+    private static final class Window {
+
+        private final AtomicReference<State> state = new AtomicReference<>();
+
+        private long acquire(long units, long now) {
+            while (true) {
+                var current = state.get();
+
+                if (current == null || now - current.resetAt() >= 0) {
+                    return 0; // Unknown or already reset.
+                }
+
+                var remainingAfter = current.remaining() - units;
+                var lowWatermark = current.limit() > 0 ? Math.max(1, current.limit() * LOW_WATERMARK_PERCENTAGE / 100) : units;
+                var untilReset = current.resetAt() - now;
+                long delay;
+
+                if (remainingAfter < 0) {
+                    delay = untilReset;
+                }
+                else if (remainingAfter < lowWatermark) {
+                    delay = Math.round((double) untilReset * (lowWatermark - remainingAfter) / lowWatermark);
+                }
+                else {
+                    delay = 0;
+                }
+
+                if (state.compareAndSet(current, new State(current.limit(), Math.max(0, remainingAfter), current.resetAt()))) {
+                    return delay;
+                }
+            }
+        }
+    }
+}
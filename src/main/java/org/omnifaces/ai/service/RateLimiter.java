@@ -0,0 +1,389 @@
+/*
+ * Copyright OmniFaces
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.omnifaces.ai.service;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.concurrent.CompletableFuture.completedFuture;
+import static java.util.logging.Level.WARNING;
+import static org.omnifaces.ai.AIConfig.PROPERTY_RATE_LIMIT_STORE;
+import static org.omnifaces.ai.AIConfig.PROPERTY_RPM;
+import static org.omnifaces.ai.AIConfig.PROPERTY_TPM;
+
+import java.io.Serializable;
+import java.net.URI;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Objects;
+import java.util.OptionalLong;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.logging.Logger;
+import java.util.regex.Pattern;
+
+import org.omnifaces.ai.AIConfig;
+import org.omnifaces.ai.AIProvider;
+import org.omnifaces.ai.AIRateLimitStore;
+
+/**
+ * Client-side rate limiter of a {@link BaseAIService}, used by {@link AIHttpClient}.
+ * <p>
+ * This paces the requests as per the requests per minute and tokens per minute limits configured via {@link AIConfig#PROPERTY_RPM} and
+ * {@link AIConfig#PROPERTY_TPM}. Each limit is a token bucket with a capacity of one minute worth of the limit, kept in the
+ * {@link AIRateLimitStore} configured via {@link AIConfig#PROPERTY_RATE_LIMIT_STORE}. A request reserves one request and its estimated
+ * amount of tokens, and is delayed until the reservation fits in the buckets, instead of being fired into a 429 response. Once the actual
+ * token usage is known from the response, the reservation is settled against it. The delay never exceeds {@link AIHttpClient#MAX_BACKOFF_MS},
+ * so that an underestimated limit or an overestimated request cannot hold a request back for minutes.
+ * <p>
+ * The permits are not reserved one by one at the store, but leased in batches of at least {@link #LEASE_DURATION} worth of the limit,
+ * and then handed out locally without locking, so that most requests never touch the store. The store is never called on the thread of
+ * the request, and at most one lease per limit is in flight, on which all requests needing more permits wait. Settlements are applied to
+ * the local lease as well. Unused leased permits expire one minute after they became available, so that they cannot pile up into a burst
+ * beyond the limit. When the store fails, the request is let through.
+ * <p>
+ * The rate limiters are shared by all services of the same AI provider and API key, so that they pace their requests together. When
+ * those services are configured with different limits or stores, the limits and store of the first created service apply.
+ *
+ * @author Bauke Scholtz
+ * @since 1.2
+ */
+final class RateLimiter implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /** The estimated amount of characters per token: {@value} */
+    static final int CHARS_PER_TOKEN = 4;
+
+    /** The estimated amount of tokens per inline attachment, such as an image or document: {@value} */
+    static final int TOKENS_PER_ATTACHMENT = 1000;
+
+    /** The minimum duration worth of the limit which is leased from the store at once. */
+    static final Duration LEASE_DURATION = Duration.ofSeconds(1);
+
+    /** The name of the in-memory rate limit store: {@value} */
+    static final String MEMORY_STORE = "memory";
+
+    private static final Logger logger = Logger.getLogger(RateLimiter.class.getPackageName());
+    private static final long ONE_MINUTE_NANOS = TimeUnit.MINUTES.toNanos(1);
+    private static final long MAX_DELAY_NANOS = TimeUnit.MILLISECONDS.toNanos(AIHttpClient.MAX_BACKOFF_MS);
+    private static final Pattern TOTAL_TOKENS = Pattern.compile("\"(?:total_tokens|totalTokenCount)\"\\s*:\\s*(\\d+)");
+    private static final Pattern INPUT_OR_OUTPUT_TOKENS = Pattern.compile("\"(?:input_tokens|output_tokens)\"\\s*:\\s*(\\d+)");
+    private static final Map<String, RateLimiter> SHARED_RATE_LIMITERS = new ConcurrentHashMap<>();
+    private static final Map<String, AIRateLimitStore> SHARED_RATE_LIMIT_STORES = new ConcurrentHashMap<>();
+
+    private final String key;
+    private final int requestsPerMinute;
+    private final int tokensPerMinute;
+    private final String storeName;
+    private final transient Lease requests;
+    private final transient Lease tokens;
+
+    private RateLimiter(String key, int requestsPerMinute, int tokensPerMinute, String storeName) {
+        var store = resolveStore(storeName);
+        this.key = key;
+        this.requestsPerMinute = requestsPerMinute;
+        this.tokensPerMinute = tokensPerMinute;
+        this.storeName = storeName;
+        this.requests = requestsPerMinute > 0 ? new Lease(store, key + "-requests", requestsPerMinute) : null;
+        this.tokens = tokensPerMinute > 0 ? new Lease(store, key + "-tokens", tokensPerMinute) : null;
+    }
+
+    /**
+     * Returns the shared rate limiter for the given AI provider and API key, configured with {@link AIConfig#PROPERTY_RPM} and
+     * {@link AIConfig#PROPERTY_TPM} of the given AI configuration, and backed by the store configured with
+     * {@link AIConfig#PROPERTY_RATE_LIMIT_STORE}.
+     *
+     * @param config The AI configuration.
+     * @param provider The resolved AI provider.
+     * @param apiKey The resolved API key, may be {@code null}.
+     * @return The shared rate limiter, or {@code null} if no limits are configured.
+     * @throws IllegalStateException if a configured limit is not a positive integer, or if the configured store cannot be resolved.
+     */
+    static RateLimiter of(AIConfig config, AIProvider provider, String apiKey) {
+        var requestsPerMinute = parseLimit(config, PROPERTY_RPM);
+        var tokensPerMinute = parseLimit(config, PROPERTY_TPM);
+
+        if (requestsPerMinute == 0 && tokensPerMinute == 0) {
+            return null;
+        }
+
+        var storeName = Objects.requireNonNullElse(config.property(PROPERTY_RATE_LIMIT_STORE), MEMORY_STORE);
+        var key = computeKey(provider.name(), apiKey);
+        return SHARED_RATE_LIMITERS.computeIfAbsent(key, k -> new RateLimiter(k, requestsPerMinute, tokensPerMinute, storeName));
+    }
+
+    private static int parseLimit(AIConfig config, String property) {
+        var value = config.property(property);
+
+        if (value == null) {
+            return 0;
+        }
+
+        try {
+            var limit = Integer.parseInt(value);
+
+            if (limit > 0) {
+                return limit;
+            }
+        }
+        catch (NumberFormatException ignore) {
+            // Handled below.
+        }
+
+        throw new IllegalStateException(property + " property must be a positive integer: " + value);
+    }
+
+    /**
+     * Returns the shared rate limit store of the given name.
+     *
+     * @param storeName Either {@value #MEMORY_STORE}, or a {@code file:} URI of a directory, or the fully qualified name of an
+     * {@link AIRateLimitStore} implementation.
+     * @return The shared rate limit store.
+     * @throws IllegalStateException if the store cannot be resolved.
+     */
+    static AIRateLimitStore resolveStore(String storeName) {
+        return SHARED_RATE_LIMIT_STORES.computeIfAbsent(storeName, RateLimiter::createStore);
+    }
+
+    private static AIRateLimitStore createStore(String storeName) {
+        try {
+            if (MEMORY_STORE.equals(storeName)) {
+                return new InMemoryRateLimitStore();
+            }
+            else if (storeName.startsWith("file:")) {
+                return new FileRateLimitStore(Path.of(URI.create(storeName)));
+            }
+            else {
+                return Class.forName(storeName).asSubclass(AIRateLimitStore.class).getDeclaredConstructor().newInstance();
+            }
+        }
+        catch (ReflectiveOperationException | RuntimeException e) {
+            throw new IllegalStateException(PROPERTY_RATE_LIMIT_STORE + " property must be '" + MEMORY_STORE + "', a 'file:' URI of a directory,"
+                + " or the class name of an AIRateLimitStore implementation: " + storeName, e);
+        }
+    }
+
+    /**
+     * Computes a SHA-256 based key of the given parts, so that API keys are not kept in plain text as map keys.
+     */
+    static String computeKey(String... parts) {
+        try {
+            var digest = MessageDigest.getInstance("SHA-256");
+
+            for (var part : parts) {
+                digest.update(String.valueOf(part).getBytes(UTF_8));
+                digest.update((byte) 0);
+            }
+
+            return HexFormat.of().formatHex(digest.digest());
+        }
+        catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Reserves one request and the given estimated amount of tokens.
+     *
+     * @param estimatedTokens The estimated amount of tokens of the request.
+     * @return The future of the delay in nanoseconds after which the request may be sent, or 0 if it may be sent immediately, capped at
+     * {@link AIHttpClient#MAX_BACKOFF_MS}. It is already completed when the permits are available locally.
+     */
+    CompletableFuture<Long> reserve(long estimatedTokens) {
+        var now = System.nanoTime();
+        var delay = requests != null ? requests.reserve(1, now) : completedFuture(0L);
+
+        if (tokens != null && estimatedTokens > 0) {
+            delay = delay.thenCombine(tokens.reserve(estimatedTokens, now), Math::max);
+        }
+
+        return delay.thenApply(nanos -> Math.min(nanos, MAX_DELAY_NANOS));
+    }
+
+    /**
+     * Settles the reserved estimated amount of tokens against the actual amount of tokens.
+     *
+     * @param estimatedTokens The reserved estimated amount of tokens of the request.
+     * @param actualTokens The actual amount of tokens as reported in the response.
+     */
+    void settle(long estimatedTokens, long actualTokens) {
+        if (tokens != null && actualTokens != estimatedTokens) {
+            tokens.adjust(actualTokens - estimatedTokens);
+        }
+    }
+
+    /**
+     * Estimates the amount of tokens of a request with the given body length.
+     *
+     * @param contentLength The request body length in bytes, or a negative value if unknown.
+     * @return The estimated amount of tokens.
+     */
+    static long estimateTokens(long contentLength) {
+        return Math.max(0, contentLength) / CHARS_PER_TOKEN;
+    }
+
+    /**
+     * Estimates the amount of tokens of a request with the given text length and amount of inline attachments. The attachments are not
+     * estimated by their Base64 encoded length, because an image or document costs far fewer tokens than its length in characters.
+     *
+     * @param textLength The request body length in bytes without the attachments.
+     * @param attachments The amount of inline attachments.
+     * @return The estimated amount of tokens.
+     */
+    static long estimateTokens(long textLength, int attachments) {
+        return estimateTokens(textLength) + (long) attachments * TOKENS_PER_ATTACHMENT;
+    }
+
+    /**
+     * Finds the total token usage in the given (tail of a) JSON response body. This recognizes the last {@code total_tokens} (OpenAI and
+     * compatible) or {@code totalTokenCount} (Google AI), or else the sum of the last {@code input_tokens} and {@code output_tokens}
+     * (Anthropic).
+     *
+     * @param responseBody The (tail of the) JSON response body.
+     * @return The total token usage, or empty if not found.
+     */
+    static OptionalLong findTokenUsage(CharSequence responseBody) {
+        var total = findLast(TOTAL_TOKENS, responseBody);
+
+        if (total.isPresent()) {
+            return total;
+        }
+
+        var matcher = INPUT_OR_OUTPUT_TOKENS.matcher(responseBody);
+        var sum = -1L;
+
+        while (matcher.find()) {
+            sum = Math.max(sum, 0) + Long.parseLong(matcher.group(1));
+        }
+
+        return sum < 0 ? OptionalLong.empty() : OptionalLong.of(sum);
+    }
+
+    private static OptionalLong findLast(Pattern pattern, CharSequence responseBody) {
+        var matcher = pattern.matcher(responseBody);
+        var last = OptionalLong.empty();
+
+        while (matcher.find()) {
+            last = OptionalLong.of(Long.parseLong(matcher.group(1)));
+        }
+
+        return last;
+    }
+
+    private Object readResolve() {
+        return SHARED_RATE_LIMITERS.computeIfAbsent(key, k -> new RateLimiter(k, requestsPerMinute, tokensPerMinute, storeName));
+    }
+
+    /**
+     * Lease of permits of a single limit in the store. The permits are leased in batches and then handed out locally without locking. A
+     * settlement which ends up in debt is paid off with the next lease. The store is only called asynchronously, and at most one lease is
+     * in flight at a time, so that requests which need more permits wait on the same lease instead of on a lock.
+     */
+    private static final class Lease {
+
+        private final AIRateLimitStore store;
+        private final String key;
+        private final long limitPerMinute;
+        private final long batchSize;
+        private final AtomicReference<Permits> permits = new AtomicReference<>(new Permits(0, 0, 0));
+        private final AtomicReference<CompletableFuture<Void>> refill = new AtomicReference<>();
+
+        private Lease(AIRateLimitStore store, String key, long limitPerMinute) {
+            this.store = store;
+            this.key = key;
+            this.limitPerMinute = limitPerMinute;
+            this.batchSize = Math.max(1, limitPerMinute * LEASE_DURATION.toNanos() / ONE_MINUTE_NANOS);
+        }
+
+        private CompletableFuture<Long> reserve(long units, long now) {
+            while (true) {
+                var current = permits.get();
+                var available = current.available(now);
+
+                if (available < units) {
+                    return refill(units - available).thenCompose(ignore -> reserve(units, System.nanoTime()));
+                }
+
+                if (permits.compareAndSet(current, new Permits(available - units, current.availableAt(), current.expiresAt()))) {
+                    return completedFuture(Math.max(0, current.availableAt() - now));
+                }
+            }
+        }
+
+        /**
+         * Leases at least the given amount of needed permits from the store, unless a lease is already in flight, then that one is
+         * returned instead.
+         */
+        private CompletableFuture<Void> refill(long needed) {
+            var pending = new CompletableFuture<Void>();
+            var inFlight = refill.compareAndExchange(null, pending);
+
+            if (inFlight != null) {
+                return inFlight;
+            }
+
+            Runnable task = () -> {
+                try {
+                    var leased = Math.max(needed, batchSize);
+                    var leasedAt = System.nanoTime();
+                    var availableAt = leasedAt + lease(leased);
+                    permits.updateAndGet(current -> new Permits(current.available(leasedAt) + leased, Math.max(current.availableAt(), availableAt), availableAt + ONE_MINUTE_NANOS));
+                }
+                finally {
+                    refill.set(null);
+                    pending.complete(null);
+                }
+            };
+
+            try {
+                ExecutorServiceHelper.runAsync(task);
+            }
+            catch (RejectedExecutionException e) {
+                task.run(); // Executor is shutting down.
+            }
+
+            return pending;
+        }
+
+        private long lease(long permits) {
+            try {
+                return store.reserve(key, limitPerMinute, permits).toNanos();
+            }
+            catch (RuntimeException e) {
+                logger.log(WARNING, e, () -> "Failed to lease " + permits + " permits from " + store + ", letting the request through");
+                return 0;
+            }
+        }
+
+        private void adjust(long units) {
+            permits.updateAndGet(current -> new Permits(current.available() - units, current.availableAt(), current.expiresAt()));
+        }
+    }
+
+    /**
+     * The locally available permits of a lease, which may be negative when in debt, along with the time at which they became available and
+     * the time at which unused ones expire.
+     */
+    private record Permits(long available, long availableAt, long expiresAt) {
+
+        private long available(long now) {
+            return available > 0 && now - expiresAt >= 0 ? 0 : available;
+        }
+    }
+}
@@ -0,0 +1,377 @@
+/*
+ * Copyright OmniFaces
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.omnifaces.ai.service;
+
+import static java.util.concurrent.CompletableFuture.completedFuture;
+import static org.omnifaces.ai.AIConfig.PROPERTY_RESPONSE_CACHE_MAX_BYTES;
+import static org.omnifaces.ai.AIConfig.PROPERTY_RESPONSE_CACHE_MAX_ENTRIES;
+import static org.omnifaces.ai.AIConfig.PROPERTY_RESPONSE_CACHE_SHARED_ACROSS_API_KEYS;
+import static org.omnifaces.ai.AIConfig.PROPERTY_RESPONSE_CACHE_TTL;
+import static org.omnifaces.ai.service.CompletableFutureHelper.thenApplyCancellable;
+
+import java.io.Serializable;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+import org.omnifaces.ai.AIConfig;
+import org.omnifaces.ai.helper.TextHelper;
+
+/**
+ * Response cache of a {@link BaseAIService}, used for deterministic and explicitly cacheable chat requests.
+ * <p>
+ * The successful responses are cached for {@link AIConfig#PROPERTY_RESPONSE_CACHE_TTL}, keyed by a SHA-256 hash of the AI provider,
+ * endpoint, API key, model, path, response type and request payload. The API key is only left out when
+ * {@link AIConfig#PROPERTY_RESPONSE_CACHE_SHARED_ACROSS_API_KEYS} is {@code true}. The cache is bounded by {@link AIConfig#PROPERTY_RESPONSE_CACHE_MAX_ENTRIES}
+ * entries and by {@link AIConfig#PROPERTY_RESPONSE_CACHE_MAX_BYTES} bytes, wherein the size of a response is estimated at two bytes per
+ * character. The cache is split into {@value #STRIPES} stripes by key, each holding an equal share of the bounds and evicting its least
+ * recently used entries on its own, so that concurrent lookups of different keys rarely contend for the same lock. Failures are never
+ * cached.
+ * <p>
+ * The amounts of hits, misses and evictions are counted, see {@link #getHits()}, {@link #getMisses()} and {@link #getEvictions()}.
+ * <p>
+ * The response caches are shared by all services with the same response cache configuration, because the keys already tell apart the
+ * responses of different services.
+ *
+ * @author Bauke Scholtz
+ * @since 1.2
+ * @see BaseAIService#getResponseCache()
+ */
+public final class ResponseCache implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /** The default maximum amount of cached responses: {@value} */
+    static final int DEFAULT_MAX_ENTRIES = 1000;
+
+    /** The default maximum size of cached responses in bytes: {@value} */
+    static final long DEFAULT_MAX_BYTES = 16 * 1024 * 1024;
+
+    /** The amount of stripes: {@value} */
+    static final int STRIPES = 16;
+
+    private static final Map<String, ResponseCache> SHARED_RESPONSE_CACHES = new ConcurrentHashMap<>();
+
+    private final Duration timeToLive;
+    private final int maxEntries;
+    private final long maxBytes;
+    private final transient LongSupplier clock;
+    private final transient Stripe[] stripes;
+    private final transient LongAdder hits = new LongAdder();
+    private final transient LongAdder misses = new LongAdder();
+    private final transient LongAdder evictions = new LongAdder();
+
+    ResponseCache(Duration timeToLive, int maxEntries, long maxBytes, LongSupplier clock) {
+        this.timeToLive = timeToLive;
+        this.maxEntries = maxEntries;
+        this.maxBytes = maxBytes;
+        this.clock = clock;
+        this.stripes = new Stripe[Math.min(STRIPES, maxEntries)];
+
+        for (var i = 0; i < stripes.length; i++) {
+            stripes[i] = new Stripe();
+        }
+    }
+
+    /**
+     * Returns the shared response cache configured via {@link AIConfig#PROPERTY_RESPONSE_CACHE_TTL},
+     * {@link AIConfig#PROPERTY_RESPONSE_CACHE_MAX_ENTRIES} and {@link AIConfig#PROPERTY_RESPONSE_CACHE_MAX_BYTES} of the given AI
+     * configuration.
+     *
+     * @param config The AI configuration.
+     * @return The shared response cache, or {@code null} if response caching is not configured.
+     * @throws IllegalStateException if the configured time to live is not a positive duration, or if the configured maximum amount of
+     * entries or bytes is not a positive integer.
+     */
+    static ResponseCache of(AIConfig config) {
+        var value = config.property(PROPERTY_RESPONSE_CACHE_TTL);
+
+        if (value == null) {
+            return null;
+        }
+
+        var timeToLive = TextHelper.parseDuration(value);
+
+        if (timeToLive == null || timeToLive.isZero()) {
+            throw new IllegalStateException(PROPERTY_RESPONSE_CACHE_TTL + " property must be a positive duration: " + value);
+        }
+
+        var maxEntries = (int) parseLong(config, PROPERTY_RESPONSE_CACHE_MAX_ENTRIES, DEFAULT_MAX_ENTRIES, Integer.MAX_VALUE);
+        var maxBytes = parseLong(config, PROPERTY_RESPONSE_CACHE_MAX_BYTES, DEFAULT_MAX_BYTES, Long.MAX_VALUE);
+        return shared(timeToLive, maxEntries, maxBytes);
+    }
+
+    /**
+     * Returns whether cached responses are shared across API keys as per
+     * {@link AIConfig#PROPERTY_RESPONSE_CACHE_SHARED_ACROSS_API_KEYS} of the given AI configuration.
+     *
+     * @param config The AI configuration.
+     * @return Whether cached responses are shared across API keys.
+     * @throws IllegalStateException if the configured value is not {@code true} or {@code false}.
+     */
+    static boolean isSharedAcrossApiKeys(AIConfig config) {
+        var value = config.property(PROPERTY_RESPONSE_CACHE_SHARED_ACROSS_API_KEYS);
+
+        if (value == null || "false".equalsIgnoreCase(value.strip())) {
+            return false;
+        }
+
+        if (!"true".equalsIgnoreCase(value.strip())) {
+            throw new IllegalStateException(PROPERTY_RESPONSE_CACHE_SHARED_ACROSS_API_KEYS + " property must be true or false: " + value);
+        }
+
+        return true;
+    }
+
+    private static ResponseCache shared(Duration timeToLive, int maxEntries, long maxBytes) {
+        return SHARED_RESPONSE_CACHES.computeIfAbsent(timeToLive + "-" + maxEntries + "-" + maxBytes, key -> new ResponseCache(timeToLive, maxEntries, maxBytes, System::nanoTime));
+    }
+
+    private static long parseLong(AIConfig config, String key, long defaultValue, long max) {
+        var value = config.property(key);
+
+        if (value == null) {
+            return defaultValue;
+        }
+
+        try {
+            var number = Long.parseLong(value.strip());
+
+            if (number > 0 && number <= max) {
+                return number;
+            }
+        }
+        catch (NumberFormatException ignore) {
+            // Handled below.
+        }
+
+        throw new IllegalStateException(key + " property must be a positive integer: " + value);
+    }
+
+    /**
+     * Returns the cached response of the given key, or else sends the request supplied by the given action and caches its successful
+     * response.
+     *
+     * @param <R> The response type, which must be immutable.
+     * @param key The cache key.
+     * @param action The action which sends the request.
+     * @param text The function which returns the text of the response, used to estimate its size.
+     * @return The future of the cached or received response. Cancelling it cancels the request.
+     */
+    @SuppressWarnings("unchecked")
+    <R> CompletableFuture<R> get(String key, Supplier<CompletableFuture<R>> action, Function<R, String> text) {
+        var stripe = stripe(key);
+        var cached = stripe.find(key, clock.getAsLong());
+
+        if (cached != null) {
+            hits.increment();
+            return completedFuture((R) cached);
+        }
+
+        misses.increment();
+        return thenApplyCancellable(action.get(), response -> {
+            stripe.store(key, response, 2L * text.apply(response).length(), clock.getAsLong() + timeToLive.toNanos());
+            return response;
+        });
+    }
+
+    private Stripe stripe(String key) {
+        return stripes[Math.floorMod(key.hashCode(), stripes.length)];
+    }
+
+    /**
+     * Removes all cached responses. The statistics are not reset.
+     */
+    public void clear() {
+        for (var stripe : stripes) {
+            stripe.clear();
+        }
+    }
+
+    /**
+     * Returns the time to live of a cached response.
+     * @return The time to live of a cached response.
+     */
+    public Duration getTimeToLive() {
+        return timeToLive;
+    }
+
+    /**
+     * Returns the maximum amount of cached responses.
+     * @return The maximum amount of cached responses.
+     */
+    public int getMaxEntries() {
+        return maxEntries;
+    }
+
+    /**
+     * Returns the maximum estimated size of cached responses in bytes.
+     * @return The maximum estimated size of cached responses in bytes.
+     */
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    /**
+     * Returns the current amount of cached responses, including the expired ones which are not yet evicted.
+     * @return The current amount of cached responses.
+     */
+    public int getSize() {
+        var size = 0;
+
+        for (var stripe : stripes) {
+            size += stripe.size();
+        }
+
+        return size;
+    }
+
+    /**
+     * Returns the current estimated size of cached responses in bytes, including the expired ones which are not yet evicted.
+     * @return The current estimated size of cached responses in bytes.
+     */
+    public long getBytes() {
+        var bytes = 0L;
+
+        for (var stripe : stripes) {
+            bytes += stripe.bytes();
+        }
+
+        return bytes;
+    }
+
+    /**
+     * Returns the amount of requests which were answered from the cache.
+     * @return The amount of requests which were answered from the cache.
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * Returns the amount of requests which were not answered from the cache.
+     * @return The amount of requests which were not answered from the cache.
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * Returns the ratio of requests which were answered from the cache.
+     * @return The ratio of requests which were answered from the cache, between 0 and 1, or 0 if there were no requests yet.
+     */
+    public double getHitRatio() {
+        var hitCount = getHits();
+        var requestCount = hitCount + getMisses();
+        return requestCount == 0 ? 0 : (double) hitCount / requestCount;
+    }
+
+    /**
+     * Returns the amount of responses which were evicted because the cache was full, or because they had expired.
+     * @return The amount of responses which were evicted.
+     */
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    private Object readResolve() {
+        return shared(timeToLive, maxEntries, maxBytes);
+    }
+
+    @Override
+    public String toString() {
+        return "ResponseCache[" + getSize() + "/" + maxEntries + " entries, " + getBytes() + "/" + maxBytes + " bytes, " + getHits() + " hits, " + getMisses() + " misses]";
+    }
+
+    /**
+     * A cached response.
+     *
+     * @param response The response.
+     * @param bytes The estimated size of the response in bytes.
+     * @param expiresAt The {@link System#nanoTime()} at which the response expires.
+     */
+    private record Entry(Object response, long bytes, long expiresAt) {}
+
+    /**
+     * A stripe of the cache, evicting its least recently used entries once it exceeds its share of the bounds.
+     */
+    private final class Stripe {
+
+        private final Map<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+        private final int maxStripeEntries = Math.max(1, maxEntries / stripes.length);
+        private final long maxStripeBytes = Math.max(1, maxBytes / stripes.length);
+        private long stripeBytes;
+
+        private synchronized Object find(String key, long now) {
+            var entry = entries.get(key);
+
+            if (entry == null) {
+                return null;
+            }
+
+            if (now - entry.expiresAt() >= 0) {
+                remove(key, entry);
+                return null;
+            }
+
+            return entry.response();
+        }
+
+        private synchronized void store(String key, Object response, long bytes, long expiresAt) {
+            if (bytes > maxStripeBytes) {
+                return;
+            }
+
+            var previous = entries.put(key, new Entry(response, bytes, expiresAt));
+            stripeBytes += bytes - (previous != null ? previous.bytes() : 0);
+            var iterator = entries.values().iterator();
+
+            while (iterator.hasNext()) {
+                var eldest = iterator.next();
+
+                if (entries.size() <= maxStripeEntries && stripeBytes <= maxStripeBytes && expiresAt - eldest.expiresAt() < timeToLive.toNanos()) {
+                    break; // Within bounds and not expired.
+                }
+
+                iterator.remove();
+                stripeBytes -= eldest.bytes();
+                evictions.increment();
+            }
+        }
+
+        private void remove(String key, Entry entry) {
+            entries.remove(key);
+            stripeBytes -= entry.bytes();
+            evictions.increment();
+        }
+
+        private synchronized void clear() {
+            entries.clear();
+            stripeBytes = 0;
+        }
+
+        private synchronized int size() {
+            return entries.size();
+        }
+
+        private synchronized long bytes() {
+            return stripeBytes;
+        }
+    }
+}
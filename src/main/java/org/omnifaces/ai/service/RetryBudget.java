@@ -0,0 +1,61 @@
+/*
+ * Copyright OmniFaces
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.omnifaces.ai.service;
+
+import java.io.Serializable;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Retry budget of a {@link BaseAIService}, used by {@link AIHttpClient}.
+ * <p>
+ * This caps the retries to a percentage of the recent requests, so that retries do not amplify an outage of the AI provider. Every
+ * initial request deposits {@value #RETRY_RATIO} retry, and every retry withdraws one retry. When the budget is exhausted, failed requests
+ * are not retried anymore. The budget starts with a reserve of {@value #MIN_RETRIES} retries, so that a low traffic service can still
+ * retry, and the balance is capped at {@value #MAX_RETRIES} retries, so that a long period of successful requests does not allow a burst
+ * of retries during a subsequent outage.
+ *
+ * @author Bauke Scholtz
+ * @since 1.2
+ */
+final class RetryBudget implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /** The amount of retries deposited per initial request: {@value} */
+    static final double RETRY_RATIO = 0.2;
+    /** The initial amount of retries: {@value} */
+    static final int MIN_RETRIES = 10;
+    /** The maximum amount of retries: {@value} */
+    static final int MAX_RETRIES = 100;
+
+    private static final long SCALE = 1000;
+    private static final long DEPOSIT = Math.round(RETRY_RATIO * SCALE);
+
+    /** The balance in thousandths of a retry. */
+    private final AtomicLong balance = new AtomicLong(MIN_RETRIES * SCALE);
+
+    /**
+     * Records an initial request, this deposits {@value #RETRY_RATIO} retry.
+     */
+    void recordRequest() {
+        balance.accumulateAndGet(DEPOSIT, (current, deposit) -> Math.min(current + deposit, MAX_RETRIES * SCALE));
+    }
+
+    /**
+     * Attempts to withdraw one retry.
+     * @return {@code true} if the retry is allowed, {@code false} if the budget is exhausted.
+     */
+    boolean tryAcquireRetry() {
+        return balance.getAndAccumulate(SCALE, (current, withdrawal) -> current >= withdrawal ? current - withdrawal : current) >= SCALE;
+    }
+}
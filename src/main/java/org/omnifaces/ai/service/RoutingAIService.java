@@ -0,0 +1,273 @@
+/*
+ * Copyright OmniFaces
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.omnifaces.ai.service;
+
+import static java.util.Objects.requireNonNull;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+import org.omnifaces.ai.AIModality;
+import org.omnifaces.ai.AIService;
+import org.omnifaces.ai.exception.AIException;
+import org.omnifaces.ai.model.ChatInput.Attachment;
+import org.omnifaces.ai.model.ChatOptions;
+
+/**
+ * AI service which routes each call to the first of multiple tiers of member AI services whose rule matches the call, so that short and
+ * simple inputs can go to a small and fast model, and only big or complex inputs go to a large and slow model. For example:
+ * <pre>
+ * AIService service = RoutingAIService.newBuilder()
+ *     .add(smallModel, Rule.maxInputTokens(2000).and(Rule.maxAttachments(0)).and(Rule.modalities()).and(Rule.structuredOutput(false)))
+ *     .add(visionModel, Rule.maxInputTokens(20000).and(Rule.modalities(AIModality.IMAGE_ANALYSIS)))
+ *     .add(flagshipModel)
+ *     .build();
+ * </pre>
+ * <p>
+ * The rules can test the {@link Call#getEstimatedInputTokens() estimated input tokens}, the {@link Call#getAttachments() attachments},
+ * whether {@link Call#isStructuredOutput() structured output} is required, and the {@link Call#getModalities() modalities} which the call
+ * requires. When no rule matches, the call goes to the last tier.
+ * <p>
+ * Calls with memory-enabled {@link ChatOptions} are routed anew on every call, so a conversation moves to a bigger tier once its history
+ * has grown. Only when the conversation has uploaded files, all calls of the same {@link ChatOptions} instance go to the same tier,
+ * because the IDs of uploaded files belong to that tier. Likewise, chat calls whose {@link org.omnifaces.ai.model.ChatInput} refers to a
+ * file ID obtained via {@link #upload(Attachment)} of this service go to the tier which issued that file ID.
+ *
+ * @author Bauke Scholtz
+ * @since 1.2
+ */
+public class RoutingAIService extends CompositeAIService {
+
+    private static final long serialVersionUID = 1L;
+
+    /** The tiers, in the order they were added. */
+    private final List<Tier> tiers;
+    private final transient StickyRoutes<Tier> stickyRoutes = new StickyRoutes<>();
+
+    private RoutingAIService(List<Tier> tiers) {
+        super(tiers.stream().map(Tier::service).toList());
+        this.tiers = List.copyOf(tiers);
+    }
+
+    /**
+     * Creates a new builder for constructing {@link RoutingAIService} instances.
+     * @return A new {@code RoutingAIService.Builder} instance.
+     */
+    public static Builder newBuilder() {
+        return new Builder();
+    }
+
+    @Override
+    protected <R> CompletableFuture<R> dispatch(Call call, Function<AIService, CompletableFuture<R>> invocation) {
+        var routed = route(call);
+        var pinned = stickyRoutes.find(call, tier -> tier == routed, excluded -> routed);
+        return invocation.apply((pinned != null ? pinned : routed).service());
+    }
+
+    /**
+     * @implNote The tier which issued the returned file ID is remembered, so that chat calls referring to it go to that tier.
+     */
+    @Override
+    public CompletableFuture<String> uploadAsync(Attachment attachment) throws AIException {
+        var tier = route(new Call(null, null, false));
+        return tier.service().uploadAsync(attachment).thenApply(fileId -> {
+            stickyRoutes.pinUpload(fileId, tier);
+            return fileId;
+        });
+    }
+
+    /**
+     * Returns the first tier whose rule matches the given call, or else the last tier.
+     */
+    private Tier route(Call call) {
+        return tiers.stream().filter(tier -> tier.rule().matches(call)).findFirst().orElse(tiers.get(tiers.size() - 1));
+    }
+
+    private Object readResolve() {
+        return new RoutingAIService(tiers);
+    }
+
+    /**
+     * A member AI service along with the rule of the calls which it handles.
+     */
+    private record Tier(AIService service, Rule rule) implements Serializable {}
+
+    /**
+     * Rule which tests whether a call should be routed to a tier. The rules can be combined via {@link #and(Rule)}, {@link #or(Rule)} and
+     * {@link #negate()}, and custom rules can be given as a lambda. They must be serializable, which is already the case for a lambda
+     * which only captures serializable values.
+     */
+    @FunctionalInterface
+    public interface Rule extends Serializable {
+
+        /**
+         * Returns whether the given call matches this rule.
+         *
+         * @param call The call.
+         * @return Whether the given call matches this rule.
+         */
+        boolean matches(Call call);
+
+        /**
+         * Returns a rule which matches when both this rule and the given rule match.
+         *
+         * @param other The other rule.
+         * @return The combined rule.
+         */
+        default Rule and(Rule other) {
+            requireNonNull(other, "other");
+            return call -> matches(call) && other.matches(call);
+        }
+
+        /**
+         * Returns a rule which matches when this rule or the given rule matches.
+         *
+         * @param other The other rule.
+         * @return The combined rule.
+         */
+        default Rule or(Rule other) {
+            requireNonNull(other, "other");
+            return call -> matches(call) || other.matches(call);
+        }
+
+        /**
+         * Returns a rule which matches when this rule does not match.
+         *
+         * @return The negated rule.
+         */
+        default Rule negate() {
+            return call -> !matches(call);
+        }
+
+        /**
+         * Returns a rule which matches any call.
+         *
+         * @return A rule which matches any call.
+         */
+        static Rule any() {
+            return call -> true;
+        }
+
+        /**
+         * Returns a rule which matches when the {@link Call#getEstimatedInputTokens() estimated input tokens} of the call do not exceed
+         * the given maximum.
+         *
+         * @param maxInputTokens The maximum amount of estimated input tokens.
+         * @return A rule which matches when the estimated input tokens of the call do not exceed the given maximum.
+         */
+        static Rule maxInputTokens(long maxInputTokens) {
+            return call -> call.getEstimatedInputTokens() <= maxInputTokens;
+        }
+
+        /**
+         * Returns a rule which matches when the amount of {@link Call#getAttachments() attachments} of the call does not exceed the given
+         * maximum.
+         *
+         * @param maxAttachments The maximum amount of attachments.
+         * @return A rule which matches when the amount of attachments of the call does not exceed the given maximum.
+         */
+        static Rule maxAttachments(int maxAttachments) {
+            return call -> call.getAttachments().size() <= maxAttachments;
+        }
+
+        /**
+         * Returns a rule which matches when every {@link Call#getAttachments() attachment} of the call has one of the given mime types.
+         * A mime type ending with {@code /*}, such as {@code image/*}, matches all mime types with the same primary type.
+         *
+         * @param mimeTypes The allowed mime types, such as {@code image/*} and {@code application/pdf}.
+         * @return A rule which matches when every attachment of the call has one of the given mime types.
+         */
+        static Rule attachmentTypes(String... mimeTypes) {
+            var allowed = List.of(mimeTypes);
+            return call -> call.getAttachments().stream().map(attachment -> attachment.mimeType().value())
+                .allMatch(mimeType -> allowed.stream().anyMatch(type -> type.endsWith("/*") ? mimeType.startsWith(type.substring(0, type.length() - 1)) : mimeType.equals(type)));
+        }
+
+        /**
+         * Returns a rule which matches when the call does or does not require {@link Call#isStructuredOutput() structured output}.
+         *
+         * @param structuredOutput Whether the call must require structured output.
+         * @return A rule which matches when the call does or does not require structured output.
+         */
+        static Rule structuredOutput(boolean structuredOutput) {
+            return call -> call.isStructuredOutput() == structuredOutput;
+        }
+
+        /**
+         * Returns a rule which matches when the call requires no other {@link Call#getModalities() modalities} than the given ones.
+         * Without arguments, this matches only calls which require text only.
+         *
+         * @param modalities The allowed modalities besides text.
+         * @return A rule which matches when the call requires no other modalities than the given ones.
+         */
+        static Rule modalities(AIModality... modalities) {
+            var allowed = Set.of(modalities);
+            return call -> allowed.containsAll(call.getModalities());
+        }
+    }
+
+    /**
+     * Builder for creating {@link RoutingAIService} instances.
+     */
+    public static class Builder {
+        private final List<Tier> tiers = new ArrayList<>();
+
+        private Builder() {}
+
+        /**
+         * Adds a tier with the given member AI service which handles all calls. This is usually the last tier.
+         *
+         * @param service The member AI service.
+         * @return This builder instance for chaining.
+         * @throws IllegalArgumentException if the member AI service is already added.
+         */
+        public Builder add(AIService service) {
+            return add(service, Rule.any());
+        }
+
+        /**
+         * Adds a tier with the given member AI service which handles the calls matching the given rule and not matching the rules of the
+         * previously added tiers.
+         *
+         * @param service The member AI service.
+         * @param rule The rule of the calls which the member AI service handles.
+         * @return This builder instance for chaining.
+         * @throws IllegalArgumentException if the member AI service is already added.
+         */
+        public Builder add(AIService service, Rule rule) {
+            requireNonNull(service, "service");
+            requireNonNull(rule, "rule");
+
+            if (tiers.stream().anyMatch(existing -> existing.service() == service)) {
+                throw new IllegalArgumentException("Service is already added: " + service.getName());
+            }
+
+            tiers.add(new Tier(service, rule));
+            return this;
+        }
+
+        /**
+         * Builds the routing AI service.
+         *
+         * @return A new {@code RoutingAIService} instance.
+         * @throws IllegalArgumentException if no member AI service is added.
+         */
+        public RoutingAIService build() {
+            return new RoutingAIService(tiers);
+        }
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright OmniFaces
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.omnifaces.ai.service;
+
+import static java.util.Collections.synchronizedMap;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+import org.omnifaces.ai.model.ChatOptions;
+import org.omnifaces.ai.service.CompositeAIService.Call;
+
+/**
+ * Sticky routes of a {@link CompositeAIService} whose calls would break when they go to another member than a previous related call.
+ * <p>
+ * Calls with memory-enabled {@link ChatOptions} are pinned to one member per {@link ChatOptions} instance, because the conversation
+ * history, including the IDs of uploaded files, belongs to that member. The conversation only moves to another member when the pinned
+ * member is no longer usable and the conversation has no uploaded files yet. Chat calls whose input refers to a file ID obtained via
+ * {@link CompositeAIService#upload(org.omnifaces.ai.model.ChatInput.Attachment)} are pinned to the member which issued that file ID.
+ *
+ * @param <M> The member type.
+ * @author Bauke Scholtz
+ * @since 1.2
+ */
+final class StickyRoutes<M> {
+
+    /** The maximum amount of remembered file IDs: {@value} */
+    static final int MAX_PINNED_UPLOADS = 1024;
+
+    private final Map<ChatOptions, M> pinnedConversations = synchronizedMap(new WeakHashMap<>());
+    private final Map<String, M> pinnedUploads = synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, M> eldest) {
+            return size() > MAX_PINNED_UPLOADS;
+        }
+    });
+
+    /**
+     * Finds the member to which the given call is pinned.
+     *
+     * @param call The call.
+     * @param usable Tests whether the given pinned member is still usable.
+     * @param chooser Chooses a new member to pin a conversation to, excluding the given members.
+     * @return The pinned member, or {@code null} if the call is not sticky.
+     */
+    M find(Call call, Predicate<M> usable, Function<Set<M>, M> chooser) {
+        var input = call.getInput();
+
+        if (input != null) {
+            for (var file : input.getFiles()) {
+                var pinned = input.getUploadedFileId(file).map(pinnedUploads::get).orElse(null);
+
+                if (pinned != null) {
+                    return pinned;
+                }
+            }
+        }
+
+        var options = call.getOptions();
+
+        if (options == null || !options.hasMemory()) {
+            return null;
+        }
+
+        return pinnedConversations.compute(options, (conversation, pinned) -> {
+            if (pinned != null && (usable.test(pinned) || hasUploadedFiles(conversation))) {
+                return pinned;
+            }
+
+            return chooser.apply(pinned != null ? Set.of(pinned) : Set.of());
+        });
+    }
+
+    private static boolean hasUploadedFiles(ChatOptions conversation) {
+        return conversation.getHistory().stream().anyMatch(message -> !message.uploadedFiles().isEmpty());
+    }
+
+    /**
+     * Pins the given file ID to the given member which issued it.
+     *
+     * @param fileId The file ID.
+     * @param member The member which issued it.
+     */
+    void pinUpload(String fileId, M member) {
+        pinnedUploads.put(fileId, member);
+    }
+}
@@ -29,6 +29,15 @@
  * </ul>
  * All implementations extend {@link org.omnifaces.ai.service.BaseAIService} which provides common HTTP client
  * functionality via {@link java.net.http.HttpClient}.
+ * <p>
+ * This package also contains {@link org.omnifaces.ai.service.CompositeAIService} implementations which dispatch each call to one or more
+ * member AI services:
+ * <ul>
+ * <li>{@link org.omnifaces.ai.service.LoadBalancingAIService} - latency-aware load balancing with failover</li>
+ * <li>{@link org.omnifaces.ai.service.ApiKeyPoolAIService} - rotation across multiple API keys, created via {@link org.omnifaces.ai.AIConfig#PROPERTY_API_KEYS}</li>
+ * <li>{@link org.omnifaces.ai.service.RacingAIService} - first response wins racing across members for latency critical calls</li>
+ * <li>{@link org.omnifaces.ai.service.RoutingAIService} - routing to tiers of members by input size, attachments and required modalities</li>
+ * </ul>
  *
  * @see org.omnifaces.ai.AIProvider
  */
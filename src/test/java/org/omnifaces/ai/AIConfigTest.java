@@ -37,6 +37,7 @@ import org.omnifaces.ai.model.ChatOptions;
 import org.omnifaces.ai.model.GenerateImageOptions;
 import org.omnifaces.ai.model.ModerationOptions;
 import org.omnifaces.ai.model.ModerationResult;
+import org.omnifaces.ai.service.ApiKeyPoolAIService;
 import org.omnifaces.ai.service.OpenAIService;
 
 class AIConfigTest {
@@ -621,6 +622,28 @@ class AIConfigTest {
         }
     }
 
+    @Test
+    void createService_apiKeys_createsApiKeyPool() {
+        var config = AIConfig.of(AIProvider.OPENAI, "ignored-key").withProperty(AIConfig.PROPERTY_API_KEYS, "k1, k2,,k3,k1");
+        var service = assertInstanceOf(ApiKeyPoolAIService.class, config.createService());
+
+        assertEquals(3, service.getServices().size());
+        service.getServices().forEach(member -> assertInstanceOf(OpenAIService.class, member));
+        assertEquals(3, service.getServices().stream().distinct().count());
+    }
+
+    @Test
+    void createService_singleApiKeyInPool_createsPlainService() {
+        var config = AIConfig.of(AIProvider.OPENAI, null).withProperty(AIConfig.PROPERTY_API_KEYS, "k1");
+        assertInstanceOf(OpenAIService.class, config.createService());
+    }
+
+    @Test
+    void createService_emptyApiKeys_shouldThrow() {
+        var config = AIConfig.of(AIProvider.OPENAI, "test-key").withProperty(AIConfig.PROPERTY_API_KEYS, " , ");
+        assertThrows(IllegalStateException.class, config::createService);
+    }
+
     @Test
     void createService_customClassNotImplementingAIService_shouldThrow() {
         var config = new AIConfig(String.class.getName(), null, null, null, null, null, emptyMap());
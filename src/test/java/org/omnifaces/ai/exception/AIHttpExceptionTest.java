@@ -0,0 +1,112 @@
+/*
+ * Copyright OmniFaces
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.omnifaces.ai.exception;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.net.URI;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+class AIHttpExceptionTest {
+
+    private static final URI URI = java.net.URI.create("https://api.example.com/v1/chat");
+
+    private static AIHttpException withHeaders(Map<String, List<String>> headers) {
+        return AIHttpException.fromStatusCode(URI, AIRateLimitExceededException.STATUS_CODE, "{}", headers);
+    }
+
+    // =================================================================================================================
+    // fromStatusCode / response headers
+    // =================================================================================================================
+
+    @Test
+    void fromStatusCode_withHeaders_createsSpecificSubclass() {
+        var exception = AIHttpException.fromStatusCode(URI, AIServiceUnavailableException.STATUS_CODE, "down", Map.of("Retry-After", List.of("5")));
+
+        assertInstanceOf(AIServiceUnavailableException.class, exception);
+        assertEquals("5", exception.getResponseHeader("retry-after").orElseThrow());
+    }
+
+    @Test
+    void fromStatusCode_withoutHeaders_hasNoRetryAfter() {
+        var exception = AIHttpException.fromStatusCode(URI, AIRateLimitExceededException.STATUS_CODE, "slow down");
+
+        assertTrue(exception.getResponseHeaders().isEmpty());
+        assertTrue(exception.getRetryAfter().isEmpty());
+    }
+
+    // =================================================================================================================
+    // getRetryAfter
+    // =================================================================================================================
+
+    @Test
+    void getRetryAfter_retryAfterSeconds() {
+        assertEquals(Duration.ofSeconds(7), withHeaders(Map.of("retry-after", List.of("7"))).getRetryAfter().orElseThrow());
+    }
+
+    @Test
+    void getRetryAfter_retryAfterMsTakesPrecedence() {
+        assertEquals(Duration.ofMillis(1500), withHeaders(Map.of("Retry-After", List.of("2"), "retry-after-ms", List.of("1500"))).getRetryAfter().orElseThrow());
+    }
+
+    @Test
+    void getRetryAfter_retryAfterHttpDate() {
+        var date = DateTimeFormatter.RFC_1123_DATE_TIME.format(Instant.now().plusSeconds(30).atOffset(ZoneOffset.UTC));
+        var retryAfter = withHeaders(Map.of("Retry-After", List.of(date))).getRetryAfter().orElseThrow();
+
+        assertTrue(retryAfter.compareTo(Duration.ofSeconds(28)) > 0 && retryAfter.compareTo(Duration.ofSeconds(31)) < 0, retryAfter::toString);
+    }
+
+    @Test
+    void getRetryAfter_retryAfterPastDate_isZero() {
+        var date = DateTimeFormatter.RFC_1123_DATE_TIME.format(Instant.now().minusSeconds(30).atOffset(ZoneOffset.UTC));
+
+        assertEquals(Duration.ZERO, withHeaders(Map.of("Retry-After", List.of(date))).getRetryAfter().orElseThrow());
+    }
+
+    @Test
+    void getRetryAfter_rateLimitResetDurations_longestExhaustedLimit() {
+        var headers = Map.of(
+            "x-ratelimit-remaining-requests", List.of("0"),
+            "x-ratelimit-reset-requests", List.of("1m30.5s"),
+            "x-ratelimit-remaining-tokens", List.of("0"),
+            "x-ratelimit-reset-tokens", List.of("20ms"));
+
+        assertEquals(Duration.ofMillis(90500), withHeaders(headers).getRetryAfter().orElseThrow());
+    }
+
+    @Test
+    void getRetryAfter_rateLimitResetDurations_ignoresNonExhaustedLimit() {
+        var headers = Map.of(
+            "x-ratelimit-remaining-requests", List.of("42"),
+            "x-ratelimit-reset-requests", List.of("6m0s"),
+            "x-ratelimit-remaining-tokens", List.of("0"),
+            "x-ratelimit-reset-tokens", List.of("2s"));
+
+        assertEquals(Duration.ofSeconds(2), withHeaders(headers).getRetryAfter().orElseThrow());
+    }
+
+    @Test
+    void getRetryAfter_unparseableValue_isEmpty() {
+        assertTrue(withHeaders(Map.of("Retry-After", List.of("soon"))).getRetryAfter().isEmpty());
+    }
+}
@@ -12,11 +12,15 @@
  */
 package org.omnifaces.ai.helper;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
 import java.util.List;
 
 import jakarta.json.Json;
@@ -27,6 +31,10 @@ import org.omnifaces.ai.exception.AIResponseException;
 
 class JsonHelperTest {
 
+    private static InputStream stream(String json) {
+        return new ByteArrayInputStream(json.getBytes(UTF_8));
+    }
+
     // =================================================================================================================
     // isEmpty tests
     // =================================================================================================================
@@ -115,6 +123,57 @@ class JsonHelperTest {
         assertThrows(AIResponseException.class, () -> JsonHelper.parseJson("just text"));
     }
 
+    @Test
+    void parseJson_stream_validJson() {
+        var result = JsonHelper.parseJson(stream("  \n{\"name\":\"test\",\"value\":42}"));
+
+        assertEquals("test", result.getString("name"));
+        assertEquals(42, result.getInt("value"));
+    }
+
+    @Test
+    void parseJson_stream_jsonInMarkdownBlock() {
+        var result = JsonHelper.parseJson(stream("```json\n{\"key\":\"value\"}\n```"));
+
+        assertEquals("value", result.getString("key"));
+    }
+
+    @Test
+    void parseJson_stream_invalidJson_throwsException() {
+        assertThrows(AIResponseException.class, () -> JsonHelper.parseJson(stream("{\"key\":")));
+        assertThrows(AIResponseException.class, () -> JsonHelper.parseJson(stream("not json")));
+    }
+
+    @Test
+    void parseJson_streamWithPaths_retainsOnlyGivenPaths() {
+        var json = "{\"id\":\"x\",\"usage\":{\"tokens\":1},\"choices\":[{\"message\":{\"role\":\"assistant\",\"content\":\"Hello\"}},{\"message\":{\"content\":\"Other\"}}]}";
+        var result = JsonHelper.parseJson(stream(json), List.of("choices[0].message.content"));
+
+        assertEquals("Hello", JsonHelper.findByPath(result, "choices[0].message.content").orElse(null));
+        assertFalse(result.containsKey("id"));
+        assertFalse(result.containsKey("usage"));
+        assertFalse(result.getJsonArray("choices").getJsonObject(0).getJsonObject("message").containsKey("role"));
+        assertEquals(JsonValue.NULL, result.getJsonArray("choices").get(1));
+    }
+
+    @Test
+    void parseJson_streamWithWildcardPaths_retainsAllMatchingElements() {
+        var json = "{\"output\":[{\"type\":\"reasoning\",\"summary\":[]},{\"content\":[{\"text\":\"a\",\"annotations\":[]},{\"text\":\"b\"}]}]}";
+        var result = JsonHelper.parseJson(stream(json), List.of("output[*].content[*].text"));
+
+        assertEquals(List.of("a", "b"), JsonHelper.findAllByPath(result, "output[*].content[*].text"));
+        assertFalse(result.getJsonArray("output").getJsonObject(0).containsKey("summary"));
+        assertFalse(result.getJsonArray("output").getJsonObject(1).getJsonArray("content").getJsonObject(0).containsKey("annotations"));
+    }
+
+    @Test
+    void parseJson_streamWithPaths_retainsWholeValueAtEndOfPath() {
+        var result = JsonHelper.parseJson(stream("{\"data\":[{\"b64_json\":\"AAAA\"}],\"created\":1}"), List.of("data"));
+
+        assertEquals(Json.createArrayBuilder().add(Json.createObjectBuilder().add("b64_json", "AAAA")).build(), result.getJsonArray("data"));
+        assertFalse(result.containsKey("created"));
+    }
+
     // =================================================================================================================
     // findByPath tests
     // =================================================================================================================
@@ -297,6 +356,62 @@ class JsonHelperTest {
         assertTrue(JsonHelper.findFirstNonBlankByPaths(json, List.of("missing1", "missing2")).isEmpty());
     }
 
+    // =================================================================================================================
+    // compile tests
+    // =================================================================================================================
+
+    @Test
+    void compile_samePath_returnsCachedInstance() {
+        assertSame(JsonHelper.compile("choices[0].message.content"), JsonHelper.compile("choices[0].message.content"));
+    }
+
+    @Test
+    void compile_invalidPath_throwsException() {
+        assertThrows(IllegalArgumentException.class, () -> JsonHelper.compile("choices[0.message"));
+        assertThrows(IllegalArgumentException.class, () -> JsonHelper.compile("choices[x].message"));
+    }
+
+    @Test
+    void compile_find_returnsFirstNonEmptyMatch() {
+        var json = JsonHelper.parseJson("{\"output\":[{\"type\":\"reasoning\"},{\"content\":[{\"text\":\"\"},{\"text\":\"a\"},{\"text\":\"b\"}]}]}");
+        var path = JsonHelper.compile("output[*].content[*].text");
+
+        assertEquals("a", path.find(json).orElse(null));
+        assertEquals(List.of("a", "b"), path.findAll(json));
+        assertEquals(JsonHelper.findAllByPath(json, "output[*].content[*].text"), path.findAll(json));
+    }
+
+    @Test
+    void compile_findNonBlank_stripsAndSkipsBlank() {
+        var json = JsonHelper.parseJson("{\"a\":[\"  \",\" b \"],\"c\":\" \"}");
+
+        assertEquals("b", JsonHelper.compile("a[1]").findNonBlank(json).orElse(null));
+        assertTrue(JsonHelper.compile("c").findNonBlank(json).isEmpty());
+    }
+
+    @Test
+    void compile_find_unexpectedStructure_returnsEmpty() {
+        var json = JsonHelper.parseJson("{\"choices\":{\"message\":\"x\"},\"data\":null}");
+
+        assertTrue(JsonHelper.compile("choices[0].message").find(json).isEmpty());
+        assertTrue(JsonHelper.compile("data.value").find(json).isEmpty());
+        assertTrue(JsonHelper.compile("data").find(null).isEmpty());
+        assertTrue(JsonHelper.compile("data").findAll(null).isEmpty());
+    }
+
+    @Test
+    void compile_findValue_returnsStructuredValue() {
+        var json = JsonHelper.parseJson("{\"choices\":[{\"message\":{\"content\":{\"a\":[1]}}}]}");
+
+        assertEquals(Json.createObjectBuilder().add("a", Json.createArrayBuilder().add(1)).build(), JsonHelper.compile("choices[0].message.content").findValue(json).orElse(null));
+        assertEquals("{\"a\":[1]}", JsonHelper.compile("choices[0].message.content").find(json).orElse(null));
+    }
+
+    @Test
+    void compile_toString_returnsExpression() {
+        assertEquals("candidates[0].finishReason", JsonHelper.compile("candidates[0].finishReason").toString());
+    }
+
     // =================================================================================================================
     // parseAndCheckErrors tests
     // =================================================================================================================
@@ -320,6 +435,39 @@ class JsonHelperTest {
         assertTrue(exception.getMessage().contains("Something went wrong"));
     }
 
+    @Test
+    void parseAndCheckErrors_stream_error_retainsRawBody() {
+        var body = "{\"error\":{\"message\":\"Something went wrong\",\"code\":\"invalid\"}}";
+        var exception = assertThrows(AIResponseException.class,
+                () -> JsonHelper.parseAndCheckErrors(stream(body), List.of("error.message", "error"), List.of("result")));
+
+        assertEquals(body, exception.getResponseBody());
+    }
+
+    @Test
+    void parseAndCheckErrors_stream_contentParser_receivesRawBody() {
+        var body = "{\"result\":\"success\",\"other\":{\"a\":1}}";
+        var result = JsonHelper.parseAndCheckErrors(stream(body), List.of("error"), List.of("result"), (json, raw) -> json.getString("result") + " " + raw);
+
+        assertEquals("success " + body, result);
+    }
+
+    @Test
+    void parseAndCheckErrors_stream_longBody_retainsBoundedHead() {
+        var body = "{\"other\":\"" + "x".repeat(10_000) + "\",\"error\":\"Something went wrong\"}";
+        var exception = assertThrows(AIResponseException.class,
+                () -> JsonHelper.parseAndCheckErrors(stream(body), List.of("error"), List.of("result")));
+
+        assertEquals(body.substring(0, 4096) + "...", exception.getResponseBody());
+    }
+
+    @Test
+    void parseJson_stream_invalidJson_retainsRawBody() {
+        var exception = assertThrows(AIResponseException.class, () -> JsonHelper.parseJson(stream("{\"broken\": }"), List.of("broken")));
+
+        assertEquals("{\"broken\": }", exception.getResponseBody());
+    }
+
     @Test
     void parseAndCheckErrors_errorAtSecondPath_throwsException() {
         var responseBody = "{\"error\":\"Simple error\"}";
@@ -336,6 +484,22 @@ class JsonHelperTest {
                 () -> JsonHelper.parseAndCheckErrors("not json", List.of("error")));
     }
 
+    @Test
+    void parseAndCheckErrors_stream_noError_returnsRetainedJson() {
+        var result = JsonHelper.parseAndCheckErrors(stream("{\"result\":\"success\",\"other\":{}}"), List.of("error.message", "error"), List.of("result"));
+
+        assertEquals("success", result.getString("result"));
+        assertFalse(result.containsKey("other"));
+    }
+
+    @Test
+    void parseAndCheckErrors_stream_error_throwsException() {
+        var exception = assertThrows(AIResponseException.class,
+                () -> JsonHelper.parseAndCheckErrors(stream("{\"error\":{\"message\":\"Something went wrong\"}}"), List.of("error.message", "error"), List.of("result")));
+
+        assertTrue(exception.getMessage().contains("Something went wrong"));
+    }
+
     // =================================================================================================================
     // addStrictAdditionalProperties tests
     // =================================================================================================================
@@ -392,6 +556,16 @@ class JsonHelperTest {
         assertFalse(itemsSchema.getBoolean("additionalProperties"));
     }
 
+    @Test
+    void addStrictAdditionalProperties_sameSchema_returnsCachedInstance() {
+        var schema = JsonSchemaHelper.buildJsonSchema(StrictSchemaTestRecord.class);
+
+        assertSame(JsonHelper.addStrictAdditionalProperties(schema), JsonHelper.addStrictAdditionalProperties(schema));
+        assertFalse(JsonHelper.addStrictAdditionalProperties(schema).getBoolean("additionalProperties"));
+    }
+
+    record StrictSchemaTestRecord(String name) {}
+
     // =================================================================================================================
     // replaceField tests
     // =================================================================================================================
@@ -0,0 +1,97 @@
+/*
+ * Copyright OmniFaces
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.omnifaces.ai.helper;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.List;
+
+import jakarta.json.Json;
+
+import org.junit.jupiter.api.Test;
+
+class JsonProviderHelperTest {
+
+    // =================================================================================================================
+    // Caching tests
+    // =================================================================================================================
+
+    @Test
+    void factories_areCached() {
+        assertSame(JsonProviderHelper.getProvider(), JsonProviderHelper.getProvider());
+        assertSame(JsonProviderHelper.getBuilderFactory(), JsonProviderHelper.getBuilderFactory());
+        assertSame(JsonProviderHelper.getReaderFactory(), JsonProviderHelper.getReaderFactory());
+        assertSame(JsonProviderHelper.getWriterFactory(), JsonProviderHelper.getWriterFactory());
+    }
+
+    // =================================================================================================================
+    // Builder tests
+    // =================================================================================================================
+
+    @Test
+    void createObjectBuilder_sameAsJson() {
+        var expected = Json.createObjectBuilder().add("a", 1).add("b", Json.createArrayBuilder().add("c")).build();
+        var actual = JsonProviderHelper.createObjectBuilder().add("a", 1).add("b", JsonProviderHelper.createArrayBuilder().add("c")).build();
+
+        assertEquals(expected, actual);
+    }
+
+    @Test
+    void createObjectBuilder_withInitialObject() {
+        var initial = JsonProviderHelper.createObjectBuilder().add("a", 1).build();
+
+        assertEquals("{\"a\":1,\"b\":2}", JsonProviderHelper.createObjectBuilder(initial).add("b", 2).build().toString());
+    }
+
+    @Test
+    void createArrayBuilder_withInitialValues() {
+        var initial = JsonProviderHelper.createArrayBuilder(List.of("a", 1)).build();
+
+        assertEquals("[\"a\",1,true]", JsonProviderHelper.createArrayBuilder(initial).add(true).build().toString());
+    }
+
+    // =================================================================================================================
+    // Reader/writer and parser/generator tests
+    // =================================================================================================================
+
+    @Test
+    void createReaderAndWriter_roundTrip() {
+        var json = "{\"a\":[1,2],\"b\":\"c\"}";
+        var writer = new StringWriter();
+
+        try (var jsonReader = JsonProviderHelper.createReader(new StringReader(json)); var jsonWriter = JsonProviderHelper.createWriter(writer)) {
+            jsonWriter.writeObject(jsonReader.readObject());
+        }
+
+        assertEquals(json, writer.toString());
+    }
+
+    @Test
+    void createParserAndGenerator_roundTrip() {
+        var json = "{\"a\":[1,2],\"b\":\"wörld\"}";
+        var output = new ByteArrayOutputStream();
+
+        try (var parser = JsonProviderHelper.createParser(new ByteArrayInputStream(json.getBytes(UTF_8))); var generator = JsonProviderHelper.createGenerator(output)) {
+            parser.next();
+            generator.write(parser.getObject());
+        }
+
+        assertEquals(json, output.toString(UTF_8));
+    }
+}
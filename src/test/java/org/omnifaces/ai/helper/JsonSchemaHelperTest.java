@@ -15,6 +15,9 @@ package org.omnifaces.ai.helper;
 import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.util.List;
@@ -320,4 +323,55 @@ class JsonSchemaHelperTest {
         assertEquals("array", scoresSchema.getString("type"));
         assertEquals("integer", scoresSchema.getJsonObject("items").getString("type"));
     }
+
+    public static class BeanWithoutDefaultConstructor {
+        private String name;
+        public BeanWithoutDefaultConstructor(String name) { this.name = name; }
+        public String getName() { return name; }
+        public void setName(String name) { this.name = name; }
+    }
+
+    @Test
+    void buildJsonSchema_beanWithoutDefaultConstructor() {
+        var schema = JsonSchemaHelper.buildJsonSchema(BeanWithoutDefaultConstructor.class);
+
+        assertEquals("string", schema.getJsonObject("properties").getJsonObject("name").getString("type"));
+    }
+
+    @Test
+    void fromJson_beanWithoutDefaultConstructor_throwsException() {
+        assertThrows(IllegalArgumentException.class, () -> JsonSchemaHelper.fromJson("{\"name\":\"test\"}", BeanWithoutDefaultConstructor.class));
+    }
+
+    public static class BeanWithFailingSetter {
+        private String name;
+        public String getName() { return name; }
+        public void setName(String name) { throw new IllegalStateException(name); }
+    }
+
+    @Test
+    void fromJson_beanWithFailingSetter_throwsException() {
+        var exception = assertThrows(IllegalArgumentException.class, () -> JsonSchemaHelper.fromJson("{\"name\":\"test\"}", BeanWithFailingSetter.class));
+
+        assertTrue(exception.getCause() instanceof IllegalStateException);
+        assertNotNull(JsonSchemaHelper.fromJson("{}", BeanWithFailingSetter.class));
+    }
+
+    // =================================================================================================================
+    // Test caching
+    // =================================================================================================================
+
+    @Test
+    void buildJsonSchema_sameType_returnsCachedInstance() {
+        assertSame(JsonSchemaHelper.buildJsonSchema(ProductReview.class), JsonSchemaHelper.buildJsonSchema(ProductReview.class));
+        assertSame(JsonSchemaHelper.buildJsonSchema(SimpleBean.class), JsonSchemaHelper.buildJsonSchema(SimpleBean.class));
+    }
+
+    @Test
+    void fromJson_repeatedCalls_returnEqualResults() {
+        var json = "{\"sentiment\":\"positive\",\"rating\":5,\"pros\":[\"great\"],\"cons\":[]}";
+
+        assertEquals(JsonSchemaHelper.fromJson(json, ProductReview.class), JsonSchemaHelper.fromJson(json, ProductReview.class));
+        assertEquals(5, JsonSchemaHelper.fromJson(json, ProductReview.class).rating());
+    }
 }
@@ -0,0 +1,75 @@
+/*
+ * Copyright OmniFaces
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.omnifaces.ai.modality;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+
+import org.junit.jupiter.api.Test;
+import org.omnifaces.ai.exception.AIResponseException;
+
+class DefaultAITextHandlerTest {
+
+    private static final String RESPONSE_BODY = "{\"choices\":[{\"message\":{\"content\":\"Hello\"}}],\"usage\":{\"total_tokens\":42}}";
+
+    private static InputStream stream(String body) {
+        return new ByteArrayInputStream(body.getBytes(UTF_8));
+    }
+
+    private static class CustomAITextHandler extends OpenAITextHandler {
+
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        public String parseChatResponse(String responseBody) throws AIResponseException {
+            return "Custom " + super.parseChatResponse(responseBody);
+        }
+    }
+
+    @Test
+    void parseChatResponse_stream() {
+        assertEquals("Hello", new OpenAITextHandler().parseChatResponse(stream(RESPONSE_BODY)));
+    }
+
+    @Test
+    void parseChatResponse_stream_delegatesToOverriddenStringVariant() {
+        assertEquals("Custom Hello", new CustomAITextHandler().parseChatResponse(stream(RESPONSE_BODY)));
+    }
+
+    @Test
+    void parseStructuredChatResponse_stream_delegatesToOverriddenStringVariant() {
+        var body = RESPONSE_BODY.replace("\"Hello\"", "\"{\\\"greeting\\\":\\\"Hello\\\"}\"");
+        var handler = new OpenAITextHandler() {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            public String parseChatResponse(String responseBody) throws AIResponseException {
+                return super.parseChatResponse(responseBody).replace("Hello", "Custom");
+            }
+        };
+
+        assertEquals("Custom", handler.parseStructuredChatResponse(stream(body)).asJsonObject().getString("greeting"));
+    }
+
+    @Test
+    void parseChatResponse_stream_noContent_retainsRawBody() {
+        var body = "{\"choices\":[],\"usage\":{\"total_tokens\":42}}";
+        var exception = assertThrows(AIResponseException.class, () -> new OpenAITextHandler().parseChatResponse(stream(body)));
+
+        assertEquals(body, exception.getResponseBody());
+    }
+}
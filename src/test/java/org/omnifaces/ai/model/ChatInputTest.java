@@ -30,6 +30,7 @@ import java.io.ObjectOutputStream;
 import java.io.Serializable;
 import java.util.Base64;
 import java.util.List;
+import java.util.Random;
 
 import javax.imageio.ImageIO;
 
@@ -280,6 +281,30 @@ class ChatInputTest {
         assertTrue(dataUri.startsWith("data:image/png;base64,"));
     }
 
+    @Test
+    void attachment_base64Slot() throws IOException {
+        var content = new byte[100_000];
+        new Random(42).nextBytes(content);
+        var attachment = new Attachment(content, TEST_PNG, "test.png", emptyMap());
+        var slot = attachment.toBase64Slot();
+
+        assertEquals(attachment.toBase64(), slot.getString());
+        assertEquals(slot.getString().length(), slot.length());
+        assertArrayEquals(slot.getString().getBytes(), slot.newInputStream().readAllBytes());
+    }
+
+    @Test
+    void attachment_dataUriSlot() throws IOException {
+        var content = new byte[] { 1, 2, 3, 4, 5 };
+        var attachment = new Attachment(content, TEST_PNG, "test.png", emptyMap());
+        var slot = attachment.toDataUriSlot();
+
+        assertEquals(attachment.toDataUri(), slot.getString());
+        assertEquals(slot.getString().length(), slot.length());
+        assertArrayEquals(slot.getString().getBytes(), slot.newInputStream().readAllBytes());
+        assertEquals("\"" + attachment.toDataUri() + "\"", slot.toString());
+    }
+
     // =================================================================================================================
     // Serialization tests
     // =================================================================================================================
@@ -323,5 +348,7 @@ class ChatInputTest {
         assertEquals(0, attachment.content().length);
         assertNotNull(attachment.toBase64());
         assertNotNull(attachment.toDataUri());
+        assertEquals(0, attachment.toBase64Slot().length());
+        assertEquals("", attachment.toBase64Slot().getString());
     }
 }
@@ -25,6 +25,7 @@ import java.io.ByteArrayOutputStream;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.io.Serializable;
+import java.time.Duration;
 
 import jakarta.json.Json;
 
@@ -50,6 +51,7 @@ class ChatOptionsTest {
         assertEquals(ChatOptions.DEFAULT_TEMPERATURE, options.getTemperature());
         assertNull(options.getMaxTokens());
         assertEquals(ChatOptions.DEFAULT_TOP_P, options.getTopP());
+        assertEquals(ChatOptions.Priority.DEFAULT, options.getPriority());
     }
 
     @Test
@@ -143,6 +145,7 @@ class ChatOptionsTest {
                 .temperature(0.5)
                 .maxTokens(1000)
                 .topP(0.8)
+                .priority(ChatOptions.Priority.INTERACTIVE)
                 .build();
 
         assertEquals("You are helpful.", options.getSystemPrompt());
@@ -150,6 +153,41 @@ class ChatOptionsTest {
         assertEquals(0.5, options.getTemperature());
         assertEquals(1000, options.getMaxTokens());
         assertEquals(0.8, options.getTopP());
+        assertEquals(ChatOptions.Priority.INTERACTIVE, options.getPriority());
+    }
+
+    @Test
+    void builder_timeout_positive() {
+        assertNull(ChatOptions.DEFAULT.getTimeout());
+        assertEquals(Duration.ofSeconds(10), ChatOptions.newBuilder().timeout(Duration.ofSeconds(10)).build().getTimeout());
+        assertNull(ChatOptions.newBuilder().timeout(null).build().getTimeout());
+    }
+
+    @Test
+    void builder_timeout_notPositive_throwsException() {
+        var builder = ChatOptions.newBuilder();
+
+        var exception = assertThrows(IllegalArgumentException.class, () -> builder.timeout(Duration.ZERO));
+        assertEquals("Timeout must be positive", exception.getMessage());
+        assertThrows(IllegalArgumentException.class, () -> builder.timeout(Duration.ofSeconds(-1)));
+    }
+
+    @Test
+    void builder_priority_null_throwsException() {
+        var builder = ChatOptions.newBuilder();
+
+        assertThrows(NullPointerException.class, () -> builder.priority(null));
+    }
+
+    @Test
+    void builder_cacheable_preservedByCopies() {
+        var options = ChatOptions.newBuilder().cacheable().build();
+
+        assertFalse(ChatOptions.DEFAULT.isCacheable());
+        assertTrue(options.isCacheable());
+        assertTrue(options.withSystemPrompt("Test prompt").isCacheable());
+        assertTrue(options.withTimeout(Duration.ofSeconds(10)).isCacheable());
+        assertTrue(options.withPriority(ChatOptions.Priority.BULK).isCacheable());
     }
 
     // =================================================================================================================
@@ -314,6 +352,65 @@ class ChatOptionsTest {
         assertEquals("Hello", original.getHistory().get(0).content());
     }
 
+    // =================================================================================================================
+    // withPriority and withTimeout tests
+    // =================================================================================================================
+
+    @Test
+    void withPriority_copiesAllFields() {
+        var schema = Json.createObjectBuilder().add("type", "object").build();
+        var original = ChatOptions.newBuilder()
+                .systemPrompt("Test prompt")
+                .jsonSchema(schema)
+                .temperature(0.5)
+                .maxTokens(500)
+                .topP(0.8)
+                .build();
+
+        var copy = original.withPriority(ChatOptions.Priority.BULK);
+
+        assertEquals("Test prompt", copy.getSystemPrompt());
+        assertEquals(schema, copy.getJsonSchema());
+        assertEquals(0.5, copy.getTemperature());
+        assertEquals(500, copy.getMaxTokens());
+        assertEquals(0.8, copy.getTopP());
+        assertEquals(ChatOptions.Priority.BULK, copy.getPriority());
+        assertEquals(ChatOptions.Priority.DEFAULT, original.getPriority());
+    }
+
+    @Test
+    void withPriority_isPreservedByOtherCopies() {
+        var copy = ChatOptions.DETERMINISTIC.withPriority(ChatOptions.Priority.INTERACTIVE).withSystemPrompt("Test prompt");
+
+        assertEquals(ChatOptions.Priority.INTERACTIVE, copy.getPriority());
+        assertEquals(ChatOptions.DETERMINISTIC_TEMPERATURE, copy.getTemperature());
+    }
+
+    @Test
+    void withPriority_sharesMemory() {
+        var original = ChatOptions.newBuilder().withMemory().build();
+        var copy = original.withPriority(ChatOptions.Priority.BULK);
+
+        assertTrue(copy.hasMemory());
+        copy.recordMessage(Role.USER, "Hello");
+
+        assertEquals(1, original.getHistory().size());
+    }
+
+    @Test
+    void withTimeout_copiesAllFields() {
+        var original = ChatOptions.newBuilder().systemPrompt("Test prompt").temperature(0.5).priority(ChatOptions.Priority.BULK).build();
+
+        var copy = original.withTimeout(Duration.ofSeconds(10));
+
+        assertEquals("Test prompt", copy.getSystemPrompt());
+        assertEquals(0.5, copy.getTemperature());
+        assertEquals(ChatOptions.Priority.BULK, copy.getPriority());
+        assertEquals(Duration.ofSeconds(10), copy.getTimeout());
+        assertNull(original.getTimeout());
+        assertEquals(Duration.ofSeconds(10), copy.withSystemPrompt("Other prompt").withPriority(ChatOptions.Priority.DEFAULT).getTimeout());
+    }
+
     // =================================================================================================================
     // Serialization tests
     // =================================================================================================================
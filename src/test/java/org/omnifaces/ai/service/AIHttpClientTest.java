@@ -12,14 +12,24 @@
  */
 package org.omnifaces.ai.service;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.io.IOException;
 import java.net.ConnectException;
+import java.net.URI;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
 
 import org.junit.jupiter.api.Test;
 
+import org.omnifaces.ai.exception.AIBadRequestException;
+import org.omnifaces.ai.exception.AICircuitBreakerOpenException;
+import org.omnifaces.ai.exception.AIRateLimitExceededException;
+import org.omnifaces.ai.exception.AIServiceUnavailableException;
+
 class AIHttpClientTest {
 
     // =================================================================================================================
@@ -112,4 +122,67 @@ class AIHttpClientTest {
     void isRetryable_nonRetryableMessageInAllCauses_returnsFalse() {
         assertFalse(AIHttpClient.isRetryable(new IOException("outer", new IOException("inner"))));
     }
+
+    // =================================================================================================================
+    // isRetryable - HTTP status
+    // =================================================================================================================
+
+    private static final URI URI = java.net.URI.create("https://api.example.com/v1/chat");
+
+    @Test
+    void isRetryable_rateLimitExceeded_returnsTrue() {
+        assertTrue(AIHttpClient.isRetryable(new AIRateLimitExceededException(URI, "slow down")));
+    }
+
+    @Test
+    void isRetryable_serviceUnavailable_returnsTrue() {
+        assertTrue(AIHttpClient.isRetryable(new AIServiceUnavailableException(URI, "down")));
+    }
+
+    @Test
+    void isRetryable_circuitBreakerOpen_returnsFalse() {
+        assertFalse(AIHttpClient.isRetryable(new AICircuitBreakerOpenException(URI, Duration.ofSeconds(10))));
+    }
+
+    @Test
+    void computeBackoffMillis_circuitBreakerOpen_honorsRemainingOpenDuration() {
+        var backoff = AIHttpClient.computeBackoffMillis(new AICircuitBreakerOpenException(URI, Duration.ofSeconds(10)), AIHttpClient.INITIAL_BACKOFF_MS);
+        assertTrue(backoff >= 10_000 && backoff <= 10_000 + AIHttpClient.INITIAL_BACKOFF_MS / 4, () -> String.valueOf(backoff));
+    }
+
+    @Test
+    void isRetryable_badRequest_returnsFalse() {
+        assertFalse(AIHttpClient.isRetryable(new AIBadRequestException(URI, "bad")));
+    }
+
+    // =================================================================================================================
+    // computeBackoffMillis
+    // =================================================================================================================
+
+    @Test
+    void computeBackoffMillis_withoutHint_decorrelatedJitterWithinBounds() {
+        var previous = AIHttpClient.INITIAL_BACKOFF_MS;
+
+        for (var i = 0; i < 100; i++) {
+            var max = Math.min(AIHttpClient.MAX_BACKOFF_MS, previous * 3);
+            var backoff = AIHttpClient.computeBackoffMillis(new ConnectException("Connection refused"), previous);
+            assertTrue(backoff >= AIHttpClient.INITIAL_BACKOFF_MS && backoff <= max, () -> backoff + " exceeds " + max);
+            previous = backoff;
+        }
+    }
+
+    @Test
+    void computeBackoffMillis_withRetryAfterHint_honorsHint() {
+        var exception = new AIRateLimitExceededException(URI, "slow down", Map.of("Retry-After", List.of("3")));
+        var backoff = AIHttpClient.computeBackoffMillis(exception, AIHttpClient.INITIAL_BACKOFF_MS);
+
+        assertTrue(backoff >= 3000 && backoff <= 3000 + AIHttpClient.INITIAL_BACKOFF_MS / 4, () -> String.valueOf(backoff));
+    }
+
+    @Test
+    void computeBackoffMillis_withTooLongRetryAfterHint_doesNotRetry() {
+        var exception = new AIServiceUnavailableException(URI, "down", Map.of("Retry-After", List.of("3600")));
+
+        assertEquals(-1, AIHttpClient.computeBackoffMillis(exception, AIHttpClient.INITIAL_BACKOFF_MS));
+    }
 }
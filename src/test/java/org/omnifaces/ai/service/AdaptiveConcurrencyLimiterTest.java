@@ -0,0 +1,208 @@
+/*
+ * Copyright OmniFaces
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.omnifaces.ai.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.concurrent.CompletableFuture;
+
+import org.junit.jupiter.api.Test;
+
+import org.omnifaces.ai.AIConfig;
+import org.omnifaces.ai.AIProvider;
+
+class AdaptiveConcurrencyLimiterTest {
+
+    private static final URI ENDPOINT = URI.create("https://api.example.com/v1/");
+    private static final long LATENCY = 1_000_000_000L;
+
+    /**
+     * Returns a limiter which has enough flat latencies to detect slow requests, without having changed its limit.
+     */
+    private static AdaptiveConcurrencyLimiter newWarmedUpLimiter() {
+        var limiter = new AdaptiveConcurrencyLimiter("test");
+
+        for (var i = 0; i < AdaptiveConcurrencyLimiter.MIN_SAMPLES; i++) {
+            limiter.record(false, LATENCY); // Nothing in flight, so the limit is not increased.
+        }
+
+        assertEquals(AdaptiveConcurrencyLimiter.INITIAL_LIMIT, limiter.getLimit());
+        return limiter;
+    }
+
+    private static void acquire(AdaptiveConcurrencyLimiter limiter, int count) {
+        for (var i = 0; i < count; i++) {
+            assertTrue(limiter.acquire().isDone());
+        }
+    }
+
+    // =================================================================================================================
+    // Configuration
+    // =================================================================================================================
+
+    @Test
+    void of_withoutProperty_returnsNull() {
+        assertNull(AdaptiveConcurrencyLimiter.of(AIConfig.of(AIProvider.OPENAI, "test"), ENDPOINT, "key"));
+        assertNull(AdaptiveConcurrencyLimiter.of(AIConfig.of(AIProvider.OPENAI, "test").withProperty(AIConfig.PROPERTY_ADAPTIVE_CONCURRENCY, "false"), ENDPOINT, "key"));
+    }
+
+    @Test
+    void of_enabled_isSharedPerEndpointAndApiKey() {
+        var config = AIConfig.of(AIProvider.OPENAI, "test").withProperty(AIConfig.PROPERTY_ADAPTIVE_CONCURRENCY, "true");
+        var limiter = AdaptiveConcurrencyLimiter.of(config, ENDPOINT, "key");
+
+        assertNotNull(limiter);
+        assertSame(limiter, AdaptiveConcurrencyLimiter.of(config, ENDPOINT, "key"));
+        assertNotSame(limiter, AdaptiveConcurrencyLimiter.of(config, ENDPOINT, "otherKey"));
+    }
+
+    @Test
+    void of_invalidValue_throwsException() {
+        assertThrows(IllegalStateException.class, () -> AdaptiveConcurrencyLimiter.of(AIConfig.of(AIProvider.OPENAI, "test").withProperty(AIConfig.PROPERTY_ADAPTIVE_CONCURRENCY, "yes"), ENDPOINT, "key"));
+    }
+
+    // =================================================================================================================
+    // Limit adaptation
+    // =================================================================================================================
+
+    @Test
+    void record_flatLatencyWhileUtilized_increasesLimit() {
+        var limiter = newWarmedUpLimiter();
+        acquire(limiter, AdaptiveConcurrencyLimiter.INITIAL_LIMIT / 2);
+
+        limiter.record(false, LATENCY);
+
+        assertEquals(AdaptiveConcurrencyLimiter.INITIAL_LIMIT + 1, limiter.getLimit());
+    }
+
+    @Test
+    void record_flatLatencyWhileUnderutilized_keepsLimit() {
+        var limiter = newWarmedUpLimiter();
+        acquire(limiter, 1);
+
+        limiter.record(false, LATENCY);
+
+        assertEquals(AdaptiveConcurrencyLimiter.INITIAL_LIMIT, limiter.getLimit());
+    }
+
+    @Test
+    void record_risingLatency_decreasesLimit() {
+        var limiter = newWarmedUpLimiter();
+        acquire(limiter, AdaptiveConcurrencyLimiter.INITIAL_LIMIT);
+
+        limiter.record(false, Math.round(LATENCY * AdaptiveConcurrencyLimiter.LATENCY_TOLERANCE) + 1);
+
+        assertEquals((int) (AdaptiveConcurrencyLimiter.INITIAL_LIMIT * AdaptiveConcurrencyLimiter.BACKOFF_RATIO), limiter.getLimit());
+    }
+
+    @Test
+    void record_dropped_decreasesLimitDownToMinimum() {
+        var limiter = new AdaptiveConcurrencyLimiter("test");
+
+        limiter.record(true, LATENCY);
+        assertEquals((int) (AdaptiveConcurrencyLimiter.INITIAL_LIMIT * AdaptiveConcurrencyLimiter.BACKOFF_RATIO), limiter.getLimit());
+
+        for (var i = 0; i < 100; i++) {
+            limiter.record(true, LATENCY);
+        }
+
+        assertEquals(AdaptiveConcurrencyLimiter.MIN_LIMIT, limiter.getLimit());
+    }
+
+    @Test
+    void record_flatLatency_neverExceedsMaximum() {
+        var limiter = new AdaptiveConcurrencyLimiter("test");
+        acquire(limiter, AdaptiveConcurrencyLimiter.INITIAL_LIMIT);
+
+        for (var i = 0; i < AdaptiveConcurrencyLimiter.MAX_LIMIT * 2; i++) {
+            limiter.acquire();
+            limiter.record(false, LATENCY);
+        }
+
+        assertEquals(AdaptiveConcurrencyLimiter.MAX_LIMIT, limiter.getLimit());
+    }
+
+    // =================================================================================================================
+    // Queueing
+    // =================================================================================================================
+
+    @Test
+    void acquire_beyondLimit_waitsUntilRelease() {
+        var limiter = new AdaptiveConcurrencyLimiter("test");
+        acquire(limiter, AdaptiveConcurrencyLimiter.INITIAL_LIMIT);
+
+        var waiter = limiter.acquire();
+
+        assertFalse(waiter.isDone());
+        assertEquals(1, limiter.getQueued());
+
+        limiter.release();
+
+        assertTrue(waiter.isDone());
+        assertEquals(0, limiter.getQueued());
+        assertEquals(AdaptiveConcurrencyLimiter.INITIAL_LIMIT, limiter.getInFlight());
+    }
+
+    @Test
+    void acquire_waitersAreServedInOrder() {
+        var limiter = new AdaptiveConcurrencyLimiter("test");
+        acquire(limiter, AdaptiveConcurrencyLimiter.INITIAL_LIMIT);
+        var waiters = new ArrayList<CompletableFuture<Void>>();
+
+        for (var i = 0; i < 3; i++) {
+            waiters.add(limiter.acquire());
+        }
+
+        limiter.release();
+
+        assertTrue(waiters.get(0).isDone());
+        assertFalse(waiters.get(1).isDone());
+        assertFalse(waiters.get(2).isDone());
+    }
+
+    @Test
+    void release_skipsCancelledWaiters() {
+        var limiter = new AdaptiveConcurrencyLimiter("test");
+        acquire(limiter, AdaptiveConcurrencyLimiter.INITIAL_LIMIT);
+        var cancelled = limiter.acquire();
+        var waiting = limiter.acquire();
+
+        cancelled.cancel(true);
+        limiter.release();
+
+        assertTrue(waiting.isDone());
+        assertFalse(waiting.isCancelled());
+        assertEquals(AdaptiveConcurrencyLimiter.INITIAL_LIMIT, limiter.getInFlight());
+    }
+
+    @Test
+    void record_increasedLimit_startsWaiters() {
+        var limiter = newWarmedUpLimiter();
+        acquire(limiter, AdaptiveConcurrencyLimiter.INITIAL_LIMIT);
+        var waiter = limiter.acquire();
+
+        limiter.record(false, LATENCY);
+
+        assertTrue(waiter.isDone());
+        assertEquals(AdaptiveConcurrencyLimiter.INITIAL_LIMIT + 1, limiter.getInFlight());
+    }
+}
@@ -0,0 +1,237 @@
+/*
+ * Copyright OmniFaces
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.omnifaces.ai.service;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.concurrent.CompletableFuture.failedFuture;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+
+import org.omnifaces.ai.AIConfig;
+import org.omnifaces.ai.AIProvider;
+import org.omnifaces.ai.AIService;
+import org.omnifaces.ai.exception.AIRateLimitExceededException;
+import org.omnifaces.ai.exception.AIServiceUnavailableException;
+import org.omnifaces.ai.model.ChatInput;
+import org.omnifaces.ai.model.ChatOptions;
+
+class ApiKeyPoolAIServiceTest {
+
+    private static final URI ENDPOINT = URI.create("https://example.com/chat");
+
+    private final AtomicLong clock = new AtomicLong();
+
+    private ApiKeyPoolAIService newService(AIService... services) {
+        return new ApiKeyPoolAIService(List.of(services), clock::get);
+    }
+
+    private static CompletableFuture<String> rateLimited() {
+        return failedFuture(new AIRateLimitExceededException(ENDPOINT, "slow down"));
+    }
+
+    private static CompletableFuture<String> rateLimited(int retryAfterSeconds) {
+        return failedFuture(new AIRateLimitExceededException(ENDPOINT, "slow down", Map.of("Retry-After", List.of(String.valueOf(retryAfterSeconds)))));
+    }
+
+    // =================================================================================================================
+    // Rotation
+    // =================================================================================================================
+
+    @Test
+    void chat_keysTakeTurns() {
+        var a = new StubAIService("a");
+        var b = new StubAIService("b");
+        var c = new StubAIService("c");
+        var service = newService(a, b, c);
+
+        for (var i = 0; i < 9; i++) {
+            service.chat("hello");
+        }
+
+        assertEquals(3, a.chatCalls.get());
+        assertEquals(3, b.chatCalls.get());
+        assertEquals(3, c.chatCalls.get());
+    }
+
+    @Test
+    void chat_prefersLeastRecentlyThrottledKey() {
+        var a = new StubAIService("a");
+        var b = new StubAIService("b");
+        var service = newService(a, b);
+        service.findKey(a).throttle(clock.get(), Duration.ofSeconds(1));
+        clock.addAndGet(Duration.ofSeconds(1).toNanos());
+        service.findKey(b).throttle(clock.get(), Duration.ofSeconds(1));
+        clock.addAndGet(Duration.ofSeconds(1).toNanos());
+
+        for (var i = 0; i < 5; i++) {
+            assertEquals("a", service.chat("hello"));
+        }
+    }
+
+    // =================================================================================================================
+    // Cooldown
+    // =================================================================================================================
+
+    @Test
+    void chat_rateLimited_coolsDownKeyAndFailsOver() {
+        var limited = new StubAIService("limited").respondWith(input -> rateLimited(30));
+        var other = new StubAIService("other");
+        var service = newService(limited, other);
+
+        for (var i = 0; i < 5; i++) {
+            assertEquals("other", service.chat("hello"));
+        }
+
+        assertEquals(1, limited.chatCalls.get());
+        assertTrue(service.findKey(limited).isCoolingDown(clock.get()));
+
+        clock.addAndGet(Duration.ofSeconds(30).toNanos());
+        assertFalse(service.findKey(limited).isCoolingDown(clock.get()));
+    }
+
+    @Test
+    void chat_rateLimitedWithoutRetryAfter_usesDefaultCooldown() {
+        var limited = new StubAIService("limited").respondWith(input -> rateLimited());
+        var service = newService(limited, new StubAIService("other"));
+
+        for (var i = 0; i < 2; i++) {
+            service.chat("hello");
+        }
+
+        clock.addAndGet(ApiKeyPoolAIService.DEFAULT_COOLDOWN.toNanos() - 1);
+        assertTrue(service.findKey(limited).isCoolingDown(clock.get()));
+        clock.incrementAndGet();
+        assertFalse(service.findKey(limited).isCoolingDown(clock.get()));
+    }
+
+    @Test
+    void chat_serverError_doesNotFailOver() {
+        var failing = new StubAIService("failing").respondWith(input -> failedFuture(new AIServiceUnavailableException(ENDPOINT, "overloaded")));
+        var other = new StubAIService("other");
+        var service = newService(failing, other);
+
+        assertThrows(AIServiceUnavailableException.class, () -> service.chat("hello"));
+        assertEquals(0, other.chatCalls.get());
+        assertFalse(service.findKey(failing).isCoolingDown(clock.get()));
+    }
+
+    @Test
+    void chat_allKeysRateLimited_failsWithRateLimitExceeded() {
+        var a = new StubAIService("a").respondWith(input -> rateLimited(10));
+        var b = new StubAIService("b").respondWith(input -> rateLimited(20));
+        var service = newService(a, b);
+
+        assertThrows(AIRateLimitExceededException.class, () -> service.chat("hello"));
+        assertEquals(1, a.chatCalls.get());
+        assertEquals(1, b.chatCalls.get());
+
+        a.respondWith(input -> CompletableFuture.completedFuture("a"));
+        b.respondWith(input -> CompletableFuture.completedFuture("b"));
+        assertEquals("a", service.chat("hello"));
+    }
+
+    @Test
+    void chat_cancelled_cancelsMemberCall() {
+        var pending = new CompletableFuture<String>();
+        var member = new StubAIService("a").respondWith(input -> pending);
+        var service = newService(member);
+
+        service.chatAsync("hello").cancel(true);
+        assertTrue(pending.isCancelled());
+    }
+
+    @Test
+    void chat_pooledMembers_doNotRetryRateLimitThemselves() {
+        var throttled = new AtomicInteger();
+
+        try (var server = new LocalAIServer(exchange -> {
+            if (exchange.getRequestHeaders().getFirst("Authorization").endsWith("throttled")) {
+                throttled.incrementAndGet();
+                exchange.getResponseHeaders().add("Retry-After", "5");
+                exchange.sendResponseHeaders(429, -1);
+            }
+            else {
+                LocalAIServer.respond(exchange, "{\"choices\":[{\"message\":{\"content\":\"Hello\"}}]}");
+            }
+        })) {
+            var config = new AIConfig(AIProvider.OPENAI.name(), null, "gpt-4o", server.getEndpoint(), null, null, Map.of(AIConfig.PROPERTY_API_KEYS, "throttled," + UUID.randomUUID()));
+            var service = config.createService();
+
+            for (var i = 0; i < 2; i++) {
+                assertEquals("Hello", service.chat("Hi"));
+            }
+
+            assertEquals(1, throttled.get());
+        }
+    }
+
+    // =================================================================================================================
+    // Sticky routing
+    // =================================================================================================================
+
+    @Test
+    void chat_withMemory_isSticky() {
+        var a = new StubAIService("a");
+        var b = new StubAIService("b");
+        var service = newService(a, b);
+        var options = ChatOptions.newBuilder().withMemory().build();
+        var pinned = service.chat("hello", options);
+
+        for (var i = 0; i < 5; i++) {
+            assertEquals(pinned, service.chat("hello", options));
+        }
+    }
+
+    @Test
+    void chat_withMemory_doesNotFailOverButMovesAwayFromCoolingDownKey() {
+        var a = new StubAIService("a");
+        var b = new StubAIService("b");
+        var service = newService(a, b);
+        var options = ChatOptions.newBuilder().withMemory().build();
+        var pinned = service.chat("hello", options).equals("a") ? a : b;
+        var other = pinned == a ? b : a;
+        pinned.respondWith(input -> rateLimited(30));
+
+        assertThrows(AIRateLimitExceededException.class, () -> service.chat("hello", options));
+        assertEquals(0, other.chatCalls.get());
+        assertEquals(other.getProviderName(), service.chat("hello", options));
+    }
+
+    @Test
+    void chat_withUploadedFile_goesToIssuingKey() {
+        var a = new StubAIService("a");
+        var b = new StubAIService("b");
+        var service = newService(a, b);
+        var input = ChatInput.newBuilder().message("Read this").attach("%PDF-1.4 document".getBytes(UTF_8)).build();
+        var fileId = service.upload(input.getFiles().get(0));
+        var issuer = fileId.startsWith("a") ? a : b;
+        var withFileId = input.withUploadedFileIds(Map.of(input.getFiles().get(0), fileId));
+
+        for (var i = 0; i < 5; i++) {
+            assertEquals(issuer.getProviderName(), service.chat(withFileId, ChatOptions.DEFAULT));
+        }
+    }
+}
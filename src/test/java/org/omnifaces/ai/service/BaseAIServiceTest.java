@@ -12,11 +12,45 @@
  */
 package org.omnifaces.ai.service;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.concurrent.TimeUnit.SECONDS;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import jakarta.json.JsonObject;
+import jakarta.json.JsonValue;
 
 import org.junit.jupiter.api.Test;
 
+import org.omnifaces.ai.AIConfig;
+import org.omnifaces.ai.AIProvider;
+import org.omnifaces.ai.AIService;
+import org.omnifaces.ai.exception.AIDeadlineExceededException;
+import org.omnifaces.ai.exception.AIException;
+import org.omnifaces.ai.exception.AIResponseException;
+import org.omnifaces.ai.helper.JsonSchemaHelper;
+import org.omnifaces.ai.model.ChatInput;
+import org.omnifaces.ai.model.ChatInput.Attachment;
+import org.omnifaces.ai.model.ChatOptions;
+import org.omnifaces.ai.model.ChatOptions.Priority;
 import org.omnifaces.ai.service.BaseAIService.UploadedFileJsonStructure;
 
 class BaseAIServiceTest {
@@ -62,4 +96,614 @@ class BaseAIServiceTest {
     void uploadedFileJsonStructure_nullFilesArrayProperty_throwsException() {
         assertThrows(IllegalArgumentException.class, () -> new UploadedFileJsonStructure(null, "filename", "id", "created_at"));
     }
+
+    // =================================================================================================================
+    // Structured chat response
+    // =================================================================================================================
+
+    private static final OpenAIService OPENAI_SERVICE = new OpenAIService(new AIConfig(AIProvider.OPENAI.name(), "test", null, null, null, null, Map.of()));
+
+    private static InputStream stream(String json) {
+        return new ByteArrayInputStream(json.getBytes(UTF_8));
+    }
+
+    public record Review(String sentiment, int rating) {}
+
+    @Test
+    void parseStructuredChatResponse_jsonStringContent_parsedOnce() {
+        var response = "{\"id\":\"x\",\"output\":[{\"type\":\"reasoning\"},{\"content\":[{\"type\":\"output_text\",\"text\":\"{\\\"sentiment\\\":\\\"positive\\\",\\\"rating\\\":5}\"}]}]}";
+        var json = OPENAI_SERVICE.textHandler.parseStructuredChatResponse(stream(response));
+
+        assertEquals(new Review("positive", 5), JsonSchemaHelper.fromJson(json, Review.class));
+    }
+
+    @Test
+    void parseStructuredChatResponse_structuredContent_returnedAsIs() {
+        var response = "{\"choices\":[{\"message\":{\"content\":{\"sentiment\":\"negative\",\"rating\":1}}}]}";
+        var json = OPENAI_SERVICE.textHandler.parseStructuredChatResponse(stream(response));
+
+        assertEquals(new Review("negative", 1), JsonSchemaHelper.fromJson(json, Review.class));
+    }
+
+    @Test
+    void parseStructuredChatResponse_markdownFencedContent_isSanitized() {
+        var response = "{\"choices\":[{\"message\":{\"content\":\"```json\\n{\\\"sentiment\\\":\\\"neutral\\\",\\\"rating\\\":3}\\n```\"}}]}";
+        var json = OPENAI_SERVICE.textHandler.parseStructuredChatResponse(stream(response));
+
+        assertEquals(new Review("neutral", 3), JsonSchemaHelper.fromJson(json, Review.class));
+    }
+
+    @Test
+    void parseStructuredChatResponse_errorOrMissingContent_throwsException() {
+        assertThrows(AIResponseException.class, () -> OPENAI_SERVICE.textHandler.parseStructuredChatResponse(stream("{\"error\":{\"message\":\"Nope\"}}")));
+        assertThrows(AIResponseException.class, () -> OPENAI_SERVICE.textHandler.parseStructuredChatResponse(stream("{\"choices\":[]}")));
+    }
+
+    @Test
+    void chatAsync_typed_overriddenChatResponsePoster_stillUsed() {
+        var service = new OpenAIService(new AIConfig(AIProvider.OPENAI.name(), "test", null, null, null, null, Map.of())) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected CompletableFuture<String> asyncPostAndParseChatResponse(String path, JsonObject payload) {
+                return CompletableFuture.completedFuture("{\"sentiment\":\"positive\",\"rating\":5}");
+            }
+        };
+
+        assertEquals(new Review("positive", 5), service.chatAsync("Review", Review.class).join());
+    }
+
+    @Test
+    void chatAsync_typed_overriddenChat_stillUsed() {
+        var service = new OpenAIService(new AIConfig(AIProvider.OPENAI.name(), "test", null, null, null, null, Map.of())) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            public CompletableFuture<String> chatAsync(ChatInput input, ChatOptions options) {
+                return CompletableFuture.completedFuture("{\"sentiment\":\"negative\",\"rating\":1}");
+            }
+        };
+
+        assertEquals(new Review("negative", 1), service.chatAsync("Review", Review.class).join());
+    }
+
+    // =================================================================================================================
+    // Asynchronous chat payload
+    // =================================================================================================================
+
+    private static class UploadRecordingAnthropicAIService extends AnthropicAIService {
+
+        private static final long serialVersionUID = 1L;
+
+        private final List<CompletableFuture<String>> uploads = new ArrayList<>();
+
+        UploadRecordingAnthropicAIService() {
+            super(new AIConfig(AIProvider.ANTHROPIC.name(), "test", null, null, null, null, Map.of()));
+        }
+
+        @Override
+        public String upload(Attachment attachment) {
+            throw new AssertionError("Upload should not block");
+        }
+
+        @Override
+        public CompletableFuture<String> uploadAsync(Attachment attachment) {
+            var upload = new CompletableFuture<String>();
+            uploads.add(upload);
+            return upload;
+        }
+    }
+
+    private static ChatInput inputWithPdfs(int count) {
+        var builder = ChatInput.newBuilder().message("Compare these");
+
+        for (var i = 0; i < count; i++) {
+            builder.attach(("%PDF-1.4 document " + i).getBytes(UTF_8));
+        }
+
+        return builder.build();
+    }
+
+    @Test
+    void buildChatPayloadAsync_uploadsAllFilesConcurrentlyBeforeBuildingPayload() {
+        var service = new UploadRecordingAnthropicAIService();
+        var payload = service.textHandler.buildChatPayloadAsync(service, inputWithPdfs(3), ChatOptions.DEFAULT, false);
+
+        assertEquals(3, service.uploads.size());
+        assertFalse(payload.isDone());
+
+        service.uploads.get(2).complete("file-2");
+        service.uploads.get(0).complete("file-0");
+        assertFalse(payload.isDone());
+
+        service.uploads.get(1).complete("file-1");
+        var fileIds = payload.join().getJsonArray("messages").getJsonObject(0).getJsonArray("content").stream()
+            .map(JsonValue::asJsonObject)
+            .filter(content -> "document".equals(content.getString("type")))
+            .map(content -> content.getJsonObject("source").getString("file_id"))
+            .toList();
+
+        assertEquals(List.of("file-0", "file-1", "file-2"), fileIds);
+    }
+
+    @Test
+    void buildChatPayloadAsync_failedUpload_failsPayload() {
+        var service = new UploadRecordingAnthropicAIService();
+        var payload = service.textHandler.buildChatPayloadAsync(service, inputWithPdfs(2), ChatOptions.DEFAULT, false);
+
+        service.uploads.get(0).complete("file-0");
+        service.uploads.get(1).completeExceptionally(new AIException("Upload failed"));
+
+        var exception = assertThrows(CompletionException.class, payload::join);
+        assertInstanceOf(AIException.class, exception.getCause());
+    }
+
+    @Test
+    void buildChatPayloadAsync_withoutFiles_completesImmediately() {
+        var service = new UploadRecordingAnthropicAIService();
+        var payload = service.textHandler.buildChatPayloadAsync(service, inputWithPdfs(0), ChatOptions.DEFAULT, false);
+
+        assertTrue(payload.isDone());
+        assertTrue(service.uploads.isEmpty());
+    }
+
+    @Test
+    void chatInput_withUploadedFileIds_isRetainedByWithHistory() {
+        var input = inputWithPdfs(1);
+        var file = input.getFiles().get(0);
+        var uploaded = input.withUploadedFileIds(Map.of(file, "file-0")).withHistory(List.of());
+
+        assertEquals("file-0", uploaded.getUploadedFileId(file).orElseThrow());
+        assertTrue(input.getUploadedFileId(file).isEmpty());
+    }
+
+    // =================================================================================================================
+    // Upload cache
+    // =================================================================================================================
+
+    private static class UploadCountingAnthropicAIService extends AnthropicAIService {
+
+        private static final long serialVersionUID = 1L;
+
+        private final AtomicInteger uploadCount = new AtomicInteger();
+        private final List<CompletableFuture<String>> uploads = new ArrayList<>();
+
+        UploadCountingAnthropicAIService(String apiKey) {
+            super(new AIConfig(AIProvider.ANTHROPIC.name(), apiKey, null, null, null, null, Map.of()));
+        }
+
+        @Override
+        protected CompletableFuture<String> asyncUploadAndParseFileIdResponse(String path, Attachment attachment) {
+            var upload = new CompletableFuture<String>();
+            uploads.add(upload);
+            uploadCount.incrementAndGet();
+            return upload;
+        }
+
+        @Override
+        protected UploadedFileJsonStructure getUploadedFileJsonStructure() {
+            return null;
+        }
+    }
+
+    private static Attachment uniquePdf() {
+        return ChatInput.newBuilder().message("Read this").attach(("%PDF-1.4 " + UUID.randomUUID()).getBytes(UTF_8)).build().getFiles().get(0);
+    }
+
+    @Test
+    void uploadAsync_identicalContent_uploadedOnce() {
+        var service = new UploadCountingAnthropicAIService("test");
+        var file = uniquePdf();
+        var sameContent = new Attachment(file.content().clone(), file.mimeType(), "other.pdf", file.metadata());
+
+        var first = service.uploadAsync(file);
+        var second = service.uploadAsync(sameContent);
+        service.uploads.get(0).complete("file-1");
+
+        assertEquals("file-1", first.join());
+        assertEquals("file-1", second.join());
+        assertEquals("file-1", service.upload(file));
+        assertEquals(1, service.uploadCount.get());
+    }
+
+    @Test
+    void uploadAsync_differentContentOrApiKey_uploadedSeparately() {
+        var service = new UploadCountingAnthropicAIService("test");
+        var otherService = new UploadCountingAnthropicAIService("other");
+        var file = uniquePdf();
+
+        service.uploadAsync(file);
+        service.uploadAsync(uniquePdf());
+        otherService.uploadAsync(file);
+
+        assertEquals(2, service.uploadCount.get());
+        assertEquals(1, otherService.uploadCount.get());
+    }
+
+    @Test
+    void uploadAsync_failedUpload_notCached() {
+        var service = new UploadCountingAnthropicAIService("test");
+        var file = uniquePdf();
+
+        var first = service.uploadAsync(file);
+        service.uploads.get(0).completeExceptionally(new AIException("Upload failed"));
+        assertThrows(CompletionException.class, first::join);
+
+        var second = service.uploadAsync(file);
+        service.uploads.get(1).complete("file-2");
+
+        assertEquals("file-2", second.join());
+        assertEquals(2, service.uploadCount.get());
+    }
+
+    // =================================================================================================================
+    // Request coalescing
+    // =================================================================================================================
+
+    private static class ChatCountingAnthropicAIService extends AnthropicAIService {
+
+        private static final long serialVersionUID = 1L;
+
+        private final List<CompletableFuture<String>> chats = new ArrayList<>();
+
+        ChatCountingAnthropicAIService() {
+            this(Map.of());
+        }
+
+        ChatCountingAnthropicAIService(Map<String, String> properties) {
+            this("test", properties);
+        }
+
+        ChatCountingAnthropicAIService(String apiKey, Map<String, String> properties) {
+            super(new AIConfig(AIProvider.ANTHROPIC.name(), apiKey, null, null, null, null, properties));
+        }
+
+        @Override
+        protected CompletableFuture<String> asyncPostAndParseChatResponse(String path, JsonObject payload) {
+            var chat = new CompletableFuture<String>();
+            chats.add(chat);
+            return chat;
+        }
+    }
+
+    @Test
+    void translateAsync_identicalInFlight_coalesced() {
+        var service = new ChatCountingAnthropicAIService();
+        var text = "Hello " + UUID.randomUUID();
+
+        var first = service.translateAsync(text, "en", "nl");
+        var second = service.translateAsync(text, "en", "nl");
+        assertEquals(1, service.chats.size());
+
+        service.chats.get(0).complete("Hallo");
+        assertEquals("Hallo", first.join());
+        assertEquals("Hallo", second.join());
+
+        service.translateAsync(text, "en", "nl");
+        assertEquals(2, service.chats.size(), "Completed request must not be reused");
+    }
+
+    @Test
+    void translateAsync_differentPayload_notCoalesced() {
+        var service = new ChatCountingAnthropicAIService();
+        var text = "Hello " + UUID.randomUUID();
+
+        service.translateAsync(text, "en", "nl");
+        service.translateAsync(text, "en", "de");
+
+        assertEquals(2, service.chats.size());
+    }
+
+    @Test
+    void chatAsync_nonDeterministic_notCoalesced() {
+        var service = new ChatCountingAnthropicAIService();
+        var message = "Hello " + UUID.randomUUID();
+
+        service.chatAsync(message, ChatOptions.DEFAULT);
+        service.chatAsync(message, ChatOptions.DEFAULT);
+
+        assertEquals(2, service.chats.size());
+    }
+
+    @Test
+    void translateAsync_failedInFlight_sharedAndNotReused() {
+        var service = new ChatCountingAnthropicAIService();
+        var text = "Hello " + UUID.randomUUID();
+
+        var first = service.translateAsync(text, "en", "nl");
+        var second = service.translateAsync(text, "en", "nl");
+        service.chats.get(0).completeExceptionally(new AIException("Chat failed"));
+
+        assertThrows(CompletionException.class, first::join);
+        assertThrows(CompletionException.class, second::join);
+
+        service.translateAsync(text, "en", "nl");
+        assertEquals(2, service.chats.size());
+    }
+
+    @Test
+    void chatAsync_earlierDeadlineInFlight_notCoalesced() {
+        var service = new ChatCountingAnthropicAIService();
+        var message = "Hello " + UUID.randomUUID();
+        var deterministic = ChatOptions.newBuilder().temperature(ChatOptions.DETERMINISTIC_TEMPERATURE).build();
+
+        var first = service.chatAsync(message, deterministic.withTimeout(Duration.ofSeconds(2)));
+        var second = service.chatAsync(message, deterministic.withTimeout(Duration.ofSeconds(30)));
+        assertEquals(2, service.chats.size(), "Later deadline must not attach to earlier deadline");
+
+        var third = service.chatAsync(message, deterministic.withTimeout(Duration.ofSeconds(10)));
+        assertEquals(2, service.chats.size(), "Earlier deadline must attach to later deadline");
+
+        service.chats.get(0).complete("Hi");
+        service.chats.get(1).complete("Hi there");
+        assertEquals("Hi", first.join());
+        assertEquals("Hi there", second.join());
+        assertEquals("Hi there", third.join());
+    }
+
+    @Test
+    void chatAsync_differentPriority_notCoalesced() {
+        var service = new ChatCountingAnthropicAIService();
+        var message = "Hello " + UUID.randomUUID();
+        var deterministic = ChatOptions.newBuilder().temperature(ChatOptions.DETERMINISTIC_TEMPERATURE).build();
+
+        service.chatAsync(message, deterministic);
+        service.chatAsync(message, deterministic.withPriority(Priority.INTERACTIVE));
+
+        assertEquals(2, service.chats.size());
+    }
+
+    @Test
+    void translateAsync_coalesced_oneCallerCancelled_requestContinues() {
+        var service = new ChatCountingAnthropicAIService();
+        var text = "Hello " + UUID.randomUUID();
+
+        var first = service.translateAsync(text, "en", "nl");
+        var second = service.translateAsync(text, "en", "nl");
+        first.cancel(true);
+
+        assertFalse(service.chats.get(0).isCancelled());
+        service.chats.get(0).complete("Hallo");
+        assertEquals("Hallo", second.join());
+        assertEquals(1, service.chats.size());
+    }
+
+    @Test
+    void translateAsync_coalesced_allCallersCancelled_requestCancelled() {
+        var service = new ChatCountingAnthropicAIService();
+        var text = "Hello " + UUID.randomUUID();
+
+        var first = service.translateAsync(text, "en", "nl");
+        var second = service.translateAsync(text, "en", "nl");
+        first.cancel(true);
+        second.cancel(true);
+
+        assertTrue(service.chats.get(0).isCancelled());
+        service.translateAsync(text, "en", "nl");
+        assertEquals(2, service.chats.size());
+    }
+
+    // =================================================================================================================
+    // Response caching
+    // =================================================================================================================
+
+    private static final Map<String, String> RESPONSE_CACHE_PROPERTIES = Map.of(AIConfig.PROPERTY_RESPONSE_CACHE_TTL, "10m");
+
+    @Test
+    void translateAsync_responseCache_answersIdenticalRequestFromCache() {
+        var service = new ChatCountingAnthropicAIService(RESPONSE_CACHE_PROPERTIES);
+        var cache = service.getResponseCache().orElseThrow();
+        var hits = cache.getHits();
+        var misses = cache.getMisses();
+        var text = "Hello " + UUID.randomUUID();
+
+        var first = service.translateAsync(text, "en", "nl");
+        service.chats.get(0).complete("Hallo");
+        assertEquals("Hallo", first.join());
+
+        assertEquals("Hallo", service.translateAsync(text, "en", "nl").join());
+        assertEquals(1, service.chats.size());
+        assertEquals(hits + 1, cache.getHits());
+        assertEquals(misses + 1, cache.getMisses());
+    }
+
+    @Test
+    void translateAsync_responseCache_sharedByServicesWithSameConfiguration() {
+        var service = new ChatCountingAnthropicAIService(RESPONSE_CACHE_PROPERTIES);
+        var other = new ChatCountingAnthropicAIService(RESPONSE_CACHE_PROPERTIES);
+        var text = "Hello " + UUID.randomUUID();
+
+        var first = service.translateAsync(text, "en", "nl");
+        service.chats.get(0).complete("Hallo");
+        first.join();
+
+        assertSame(service.getResponseCache().orElseThrow(), other.getResponseCache().orElseThrow());
+        assertEquals("Hallo", other.translateAsync(text, "en", "nl").join());
+        assertEquals(0, other.chats.size());
+    }
+
+    @Test
+    void translateAsync_responseCache_notSharedAcrossApiKeys() {
+        var service = new ChatCountingAnthropicAIService("test", RESPONSE_CACHE_PROPERTIES);
+        var other = new ChatCountingAnthropicAIService("revoked", RESPONSE_CACHE_PROPERTIES);
+        var text = "Hello " + UUID.randomUUID();
+
+        var first = service.translateAsync(text, "en", "nl");
+        service.chats.get(0).complete("Hallo");
+        first.join();
+
+        assertSame(service.getResponseCache().orElseThrow(), other.getResponseCache().orElseThrow());
+        other.translateAsync(text, "en", "nl");
+        assertEquals(1, other.chats.size());
+    }
+
+    @Test
+    void translateAsync_responseCache_sharedAcrossApiKeysWhenEnabled() {
+        var properties = Map.of(AIConfig.PROPERTY_RESPONSE_CACHE_TTL, "10m", AIConfig.PROPERTY_RESPONSE_CACHE_SHARED_ACROSS_API_KEYS, "true");
+        var service = new ChatCountingAnthropicAIService("test", properties);
+        var other = new ChatCountingAnthropicAIService("other", properties);
+        var text = "Hello " + UUID.randomUUID();
+
+        var first = service.translateAsync(text, "en", "nl");
+        service.chats.get(0).complete("Hallo");
+        first.join();
+
+        assertEquals("Hallo", other.translateAsync(text, "en", "nl").join());
+        assertEquals(0, other.chats.size());
+    }
+
+    @Test
+    void translateAsync_responseCache_failureNotCached() {
+        var service = new ChatCountingAnthropicAIService(RESPONSE_CACHE_PROPERTIES);
+        var text = "Hello " + UUID.randomUUID();
+
+        var first = service.translateAsync(text, "en", "nl");
+        service.chats.get(0).completeExceptionally(new AIException("Chat failed"));
+        assertThrows(CompletionException.class, first::join);
+
+        service.translateAsync(text, "en", "nl");
+        assertEquals(2, service.chats.size());
+    }
+
+    @Test
+    void chatAsync_responseCache_nonDeterministicOnlyWhenCacheable() {
+        var service = new ChatCountingAnthropicAIService(RESPONSE_CACHE_PROPERTIES);
+        var message = "Hello " + UUID.randomUUID();
+        var cacheable = ChatOptions.newBuilder().cacheable().build();
+
+        var first = service.chatAsync(message, ChatOptions.DEFAULT);
+        service.chats.get(0).complete("Hi");
+        first.join();
+        service.chatAsync(message, ChatOptions.DEFAULT);
+        assertEquals(2, service.chats.size());
+
+        var second = service.chatAsync(message, cacheable);
+        service.chats.get(2).complete("Hi there");
+        second.join();
+        assertEquals("Hi there", service.chatAsync(message, cacheable).join());
+        assertEquals(3, service.chats.size());
+    }
+
+    @Test
+    void moderateContentAsync_openAIModeration_responseCache_answersIdenticalRequestFromCache() {
+        try (var server = new LocalAIServer(LocalAIServer.respondWith("{\"results\":[{\"flagged\":false,\"category_scores\":{\"hate\":0.01}}]}"))) {
+            var service = new OpenAIService(new AIConfig(AIProvider.OPENAI.name(), "test", "gpt-4o", server.getEndpoint(), null, null, RESPONSE_CACHE_PROPERTIES));
+            var content = "Hello " + UUID.randomUUID();
+
+            assertFalse(service.moderateContent(content).isFlagged());
+            assertFalse(service.moderateContent(content).isFlagged());
+            assertEquals(1, server.requests.get());
+        }
+    }
+
+    @Test
+    void chatAsync_cancelled_abortsHttpExchange() throws Exception {
+        assertCancelAbortsHttpExchange(service -> service.chatAsync("Hello " + UUID.randomUUID()));
+    }
+
+    @Test
+    void translateAsync_coalesced_cancelled_abortsHttpExchange() throws Exception {
+        assertCancelAbortsHttpExchange(service -> service.translateAsync("Hello " + UUID.randomUUID(), "en", "nl"));
+    }
+
+    private static void assertCancelAbortsHttpExchange(Function<AIService, CompletableFuture<?>> call) throws Exception {
+        var arrived = new CountDownLatch(1);
+        var cancelled = new CountDownLatch(1);
+        var aborted = new CompletableFuture<Boolean>();
+
+        try (var server = new LocalAIServer(exchange -> {
+            arrived.countDown();
+
+            try {
+                cancelled.await();
+                exchange.sendResponseHeaders(200, 0);
+
+                for (var i = 0; i < 1000; i++) { // Keeps writing until the client has aborted, but at most 5 seconds.
+                    exchange.getResponseBody().write(new byte[8192]);
+                    exchange.getResponseBody().flush();
+                    Thread.sleep(5);
+                }
+
+                aborted.complete(false);
+            }
+            catch (IOException e) {
+                aborted.complete(true);
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                aborted.complete(false);
+            }
+        })) {
+            var service = new OpenAIService(new AIConfig(AIProvider.OPENAI.name(), "test", "gpt-4o", server.getEndpoint(), null, null, Map.of()));
+            var future = call.apply(service);
+
+            assertTrue(arrived.await(5, SECONDS));
+            assertTrue(future.cancel(true));
+            cancelled.countDown();
+            assertTrue(aborted.get(10, SECONDS));
+        }
+    }
+
+    @Test
+    void translateAsync_noResponseCache_notCached() {
+        var service = new ChatCountingAnthropicAIService();
+        var text = "Hello " + UUID.randomUUID();
+
+        var first = service.translateAsync(text, "en", "nl");
+        service.chats.get(0).complete("Hallo");
+        first.join();
+        service.translateAsync(text, "en", "nl");
+
+        assertTrue(service.getResponseCache().isEmpty());
+        assertEquals(2, service.chats.size());
+    }
+
+    @Test
+    void constructor_invalidResponseCache_throwsException() {
+        assertThrows(IllegalStateException.class, () -> new ChatCountingAnthropicAIService(Map.of(AIConfig.PROPERTY_RESPONSE_CACHE_TTL, "forever")));
+        assertThrows(IllegalStateException.class, () -> new ChatCountingAnthropicAIService(Map.of(AIConfig.PROPERTY_RESPONSE_CACHE_TTL, "1m", AIConfig.PROPERTY_RESPONSE_CACHE_MAX_ENTRIES, "0")));
+        assertThrows(IllegalStateException.class, () -> new ChatCountingAnthropicAIService(Map.of(AIConfig.PROPERTY_RESPONSE_CACHE_TTL, "1m", AIConfig.PROPERTY_RESPONSE_CACHE_MAX_BYTES, "lots")));
+        assertThrows(IllegalStateException.class, () -> new ChatCountingAnthropicAIService(Map.of(AIConfig.PROPERTY_RESPONSE_CACHE_TTL, "1m", AIConfig.PROPERTY_RESPONSE_CACHE_SHARED_ACROSS_API_KEYS, "yes")));
+    }
+
+    // =================================================================================================================
+    // Deadlines
+    // =================================================================================================================
+
+    @Test
+    void chatAsync_timeoutExpired_failsAndTimesOutRequest() {
+        var service = new ChatCountingAnthropicAIService();
+
+        var response = service.chatAsync("Hello", ChatOptions.DEFAULT.withTimeout(Duration.ofMillis(50)));
+
+        var exception = assertThrows(CompletionException.class, response::join);
+        assertInstanceOf(AIDeadlineExceededException.class, exception.getCause());
+        assertTrue(service.chats.get(0).isCompletedExceptionally(), "Request must be timed out as well");
+    }
+
+    @Test
+    void chatAsync_defaultTimeoutFromConfig_failsWhenExpired() {
+        var service = new ChatCountingAnthropicAIService(Map.of(AIConfig.PROPERTY_TIMEOUT, "50ms"));
+
+        var response = service.chatAsync("Hello", ChatOptions.DEFAULT);
+
+        var exception = assertThrows(CompletionException.class, response::join);
+        assertInstanceOf(AIDeadlineExceededException.class, exception.getCause());
+    }
+
+    @Test
+    void chatAsync_completedInTime_returnsResponse() {
+        var service = new ChatCountingAnthropicAIService(Map.of(AIConfig.PROPERTY_TIMEOUT, "1m"));
+
+        var response = service.chatAsync("Hello", ChatOptions.DEFAULT);
+        service.chats.get(0).complete("Hi");
+
+        assertEquals("Hi", response.join());
+    }
+
+    @Test
+    void constructor_invalidTimeout_throwsException() {
+        assertThrows(IllegalStateException.class, () -> new ChatCountingAnthropicAIService(Map.of(AIConfig.PROPERTY_TIMEOUT, "soon")));
+        assertThrows(IllegalStateException.class, () -> new ChatCountingAnthropicAIService(Map.of(AIConfig.PROPERTY_TIMEOUT, "0")));
+    }
 }
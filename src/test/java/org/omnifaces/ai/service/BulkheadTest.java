@@ -0,0 +1,212 @@
+/*
+ * Copyright OmniFaces
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.omnifaces.ai.service;
+
+import static java.util.concurrent.CompletableFuture.completedFuture;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeoutException;
+
+import org.junit.jupiter.api.Test;
+
+import org.omnifaces.ai.AIConfig;
+import org.omnifaces.ai.AIProvider;
+import org.omnifaces.ai.exception.AIBulkheadFullException;
+import org.omnifaces.ai.model.ChatOptions.Priority;
+
+class BulkheadTest {
+
+    private static AIConfig config(String maxConcurrentRequests, String maxQueuedRequests) {
+        var config = AIConfig.of(AIProvider.OPENAI, "test").withProperty(AIConfig.PROPERTY_MAX_CONCURRENT_REQUESTS, maxConcurrentRequests);
+        return maxQueuedRequests == null ? config : config.withProperty(AIConfig.PROPERTY_MAX_QUEUED_REQUESTS, maxQueuedRequests);
+    }
+
+    // =================================================================================================================
+    // Configuration
+    // =================================================================================================================
+
+    @Test
+    void of_withoutMaxConcurrentRequests_returnsNull() {
+        assertNull(Bulkhead.of(AIConfig.of(AIProvider.OPENAI, "test")));
+    }
+
+    @Test
+    void of_withoutMaxQueuedRequests_hasUnboundedQueue() {
+        var bulkhead = Bulkhead.of(config("2", null));
+
+        assertEquals(2, bulkhead.getMaxConcurrentRequests());
+        assertEquals(Integer.MAX_VALUE, bulkhead.getMaxQueuedRequests());
+    }
+
+    @Test
+    void of_invalidValues_throwsException() {
+        assertThrows(IllegalStateException.class, () -> Bulkhead.of(config("0", null)));
+        assertThrows(IllegalStateException.class, () -> Bulkhead.of(config("many", null)));
+        assertThrows(IllegalStateException.class, () -> Bulkhead.of(config("2", "-1")));
+    }
+
+    // =================================================================================================================
+    // Admission
+    // =================================================================================================================
+
+    @Test
+    void submit_belowMaxConcurrentRequests_startsImmediately() throws Exception {
+        var bulkhead = new Bulkhead(2, 0);
+        var first = new CompletableFuture<String>();
+        var second = new CompletableFuture<String>();
+
+        var firstResult = bulkhead.submit(Priority.DEFAULT, () -> first);
+        var secondResult = bulkhead.submit(Priority.DEFAULT, () -> second);
+
+        assertEquals(2, bulkhead.getActiveRequests());
+        assertEquals(0, bulkhead.getQueuedRequests());
+
+        first.complete("first");
+        second.complete("second");
+
+        assertEquals("first", firstResult.get());
+        assertEquals("second", secondResult.get());
+        assertEquals(0, bulkhead.getActiveRequests());
+    }
+
+    @Test
+    void submit_queueFull_failsFast() {
+        var bulkhead = new Bulkhead(1, 1);
+        bulkhead.submit(Priority.DEFAULT, CompletableFuture::new);
+        bulkhead.submit(Priority.DEFAULT, CompletableFuture::new);
+
+        var rejected = bulkhead.submit(Priority.INTERACTIVE, CompletableFuture::new);
+
+        var exception = assertThrows(ExecutionException.class, rejected::get);
+        assertInstanceOf(AIBulkheadFullException.class, exception.getCause());
+        assertEquals(1, bulkhead.getRejectedRequests());
+        assertEquals(1, bulkhead.getQueuedRequests());
+    }
+
+    @Test
+    void submit_queued_startsInPriorityOrder() {
+        var bulkhead = new Bulkhead(1, 10);
+        var blocker = new CompletableFuture<String>();
+        var started = new ArrayList<String>();
+        bulkhead.submit(Priority.DEFAULT, () -> blocker);
+
+        for (var name : List.of("bulk1", "default1", "interactive1", "bulk2", "interactive2", "default2")) {
+            var priority = Priority.valueOf(name.substring(0, name.length() - 1).toUpperCase());
+            bulkhead.submit(priority, () -> {
+                started.add(name);
+                return completedFuture(name);
+            });
+        }
+
+        assertEquals(6, bulkhead.getQueuedRequests());
+        blocker.complete("blocker");
+
+        assertEquals(List.of("interactive1", "interactive2", "default1", "default2", "bulk1", "bulk2"), started);
+        assertEquals(0, bulkhead.getQueuedRequests());
+        assertEquals(0, bulkhead.getActiveRequests());
+    }
+
+    @Test
+    void submit_actionThrows_releasesPermit() {
+        var bulkhead = new Bulkhead(1, 0);
+
+        var result = bulkhead.submit(Priority.DEFAULT, () -> { throw new IllegalStateException("boom"); });
+
+        assertTrue(result.isCompletedExceptionally());
+        assertEquals(0, bulkhead.getActiveRequests());
+    }
+
+    // =================================================================================================================
+    // Cancellation
+    // =================================================================================================================
+
+    @Test
+    void cancel_queued_leavesQueueWithoutStarting() {
+        var bulkhead = new Bulkhead(1, 10);
+        var blocker = new CompletableFuture<String>();
+        var started = new ArrayList<String>();
+        bulkhead.submit(Priority.DEFAULT, () -> blocker);
+        var queued = bulkhead.submit(Priority.DEFAULT, () -> {
+            started.add("queued");
+            return completedFuture("queued");
+        });
+
+        queued.cancel(true);
+
+        assertEquals(0, bulkhead.getQueuedRequests());
+        blocker.complete("blocker");
+        assertTrue(started.isEmpty());
+        assertEquals(0, bulkhead.getActiveRequests());
+    }
+
+    @Test
+    void cancel_started_cancelsRequest() {
+        var bulkhead = new Bulkhead(1, 0);
+        var request = new CompletableFuture<String>();
+        var result = bulkhead.submit(Priority.DEFAULT, () -> request);
+
+        result.cancel(true);
+
+        assertTrue(request.isCancelled());
+        assertEquals(0, bulkhead.getActiveRequests());
+    }
+
+    @Test
+    void timeout_queuedAndStarted_leaveQueueAndCancelRequest() {
+        var bulkhead = new Bulkhead(1, 10);
+        var request = new CompletableFuture<String>();
+        var started = bulkhead.submit(Priority.DEFAULT, () -> request);
+        var queued = bulkhead.submit(Priority.DEFAULT, CompletableFuture::new);
+
+        queued.completeExceptionally(new TimeoutException());
+        started.completeExceptionally(new TimeoutException());
+
+        assertEquals(0, bulkhead.getQueuedRequests());
+        assertTrue(request.isCancelled());
+        assertEquals(0, bulkhead.getActiveRequests());
+    }
+
+    // =================================================================================================================
+    // Queue wait metrics
+    // =================================================================================================================
+
+    @Test
+    void queueWait_isMeasuredPerPriority() throws Exception {
+        var bulkhead = new Bulkhead(1, 10);
+        var blocker = new CompletableFuture<String>();
+        bulkhead.submit(Priority.DEFAULT, () -> blocker);
+        var queued = bulkhead.submit(Priority.BULK, () -> completedFuture("bulk"));
+
+        Thread.sleep(50);
+        blocker.complete("blocker");
+
+        assertEquals("bulk", queued.get());
+        assertEquals(1, bulkhead.getAdmittedRequests(Priority.BULK));
+        assertEquals(1, bulkhead.getAdmittedRequests(Priority.DEFAULT));
+        assertEquals(0, bulkhead.getAdmittedRequests(Priority.INTERACTIVE));
+        assertTrue(bulkhead.getAverageQueueWait(Priority.BULK).compareTo(Duration.ofMillis(50)) >= 0);
+        assertTrue(bulkhead.getAverageQueueWait(Priority.DEFAULT).compareTo(Duration.ofMillis(50)) < 0);
+        assertEquals(Duration.ZERO, bulkhead.getAverageQueueWait(Priority.INTERACTIVE));
+        assertFalse(bulkhead.getTotalQueueWait(Priority.BULK).isZero());
+    }
+}
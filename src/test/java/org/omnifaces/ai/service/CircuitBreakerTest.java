@@ -0,0 +1,192 @@
+/*
+ * Copyright OmniFaces
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.omnifaces.ai.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+
+import org.omnifaces.ai.AIConfig;
+import org.omnifaces.ai.AIProvider;
+import org.omnifaces.ai.service.CircuitBreaker.State;
+
+class CircuitBreakerTest {
+
+    private static final long FAST = Duration.ofMillis(100).toNanos();
+    private static final long SLOW = CircuitBreaker.SLOW_CALL_DURATION.toNanos();
+
+    private final AtomicLong clock = new AtomicLong();
+    private final CircuitBreaker circuitBreaker = new CircuitBreaker("api.example.com", clock::get);
+
+    private void recordAll(int count, boolean failed, long durationNanos) {
+        for (var i = 0; i < count; i++) {
+            assertTrue(circuitBreaker.tryAcquirePermission());
+            circuitBreaker.record(failed, durationNanos);
+        }
+    }
+
+    private void open() {
+        recordAll(CircuitBreaker.MINIMUM_CALLS, true, FAST);
+        assertEquals(State.OPEN, circuitBreaker.getState());
+    }
+
+    // =================================================================================================================
+    // Sharing
+    // =================================================================================================================
+
+    @Test
+    void of_sameHost_isShared() {
+        assertSame(CircuitBreaker.of(URI.create("https://api.example.com/v1/")), CircuitBreaker.of(URI.create("https://api.example.com/v2/")));
+        assertNotSame(CircuitBreaker.of(URI.create("https://api.example.com/v1/")), CircuitBreaker.of(URI.create("https://other.example.com/v1/")));
+    }
+
+    @Test
+    void service_exposesCircuitBreaker() {
+        var service = new OpenAIService(new AIConfig(AIProvider.OPENAI.name(), "test", null, null, null, null, Map.of()));
+
+        assertEquals("api.openai.com", service.getCircuitBreaker().getHost());
+        assertTrue(service.isAvailable());
+    }
+
+    // =================================================================================================================
+    // Closed
+    // =================================================================================================================
+
+    @Test
+    void closed_belowMinimumCalls_staysClosed() {
+        recordAll(CircuitBreaker.MINIMUM_CALLS - 1, true, FAST);
+
+        assertEquals(State.CLOSED, circuitBreaker.getState());
+    }
+
+    @Test
+    void closed_lowFailureRate_staysClosed() {
+        recordAll(CircuitBreaker.WINDOW_SIZE, false, FAST);
+        recordAll(CircuitBreaker.WINDOW_SIZE * CircuitBreaker.FAILURE_RATE_THRESHOLD / 100 - 1, true, FAST);
+
+        assertEquals(State.CLOSED, circuitBreaker.getState());
+    }
+
+    @Test
+    void closed_highFailureRate_opens() {
+        recordAll(CircuitBreaker.MINIMUM_CALLS / 2, false, FAST);
+        recordAll(CircuitBreaker.MINIMUM_CALLS / 2, true, FAST);
+
+        assertEquals(State.OPEN, circuitBreaker.getState());
+    }
+
+    @Test
+    void closed_highSlowCallRate_opens() {
+        recordAll(CircuitBreaker.MINIMUM_CALLS, false, SLOW);
+
+        assertEquals(State.OPEN, circuitBreaker.getState());
+    }
+
+    // =================================================================================================================
+    // Open
+    // =================================================================================================================
+
+    @Test
+    void open_failsFast() {
+        open();
+        clock.addAndGet(CircuitBreaker.OPEN_DURATION.toNanos() / 3);
+
+        assertFalse(circuitBreaker.tryAcquirePermission());
+        assertEquals(CircuitBreaker.OPEN_DURATION.minus(CircuitBreaker.OPEN_DURATION.dividedBy(3)), circuitBreaker.getRemainingOpenDuration());
+    }
+
+    @Test
+    void open_afterOpenDuration_permitsLimitedProbes() {
+        open();
+        clock.addAndGet(CircuitBreaker.OPEN_DURATION.toNanos());
+
+        assertEquals(State.HALF_OPEN, circuitBreaker.getState());
+
+        for (var i = 0; i < CircuitBreaker.PROBE_CALLS; i++) {
+            assertTrue(circuitBreaker.tryAcquirePermission());
+        }
+
+        assertFalse(circuitBreaker.tryAcquirePermission());
+    }
+
+    // =================================================================================================================
+    // Half-open
+    // =================================================================================================================
+
+    @Test
+    void halfOpen_allProbesSucceed_closes() {
+        open();
+        clock.addAndGet(CircuitBreaker.OPEN_DURATION.toNanos());
+        recordAll(CircuitBreaker.PROBE_CALLS, false, FAST);
+
+        assertEquals(State.CLOSED, circuitBreaker.getState());
+        recordAll(CircuitBreaker.MINIMUM_CALLS - 1, true, FAST); // Window must have been reset.
+        assertEquals(State.CLOSED, circuitBreaker.getState());
+    }
+
+    @Test
+    void halfOpen_probeFails_opensAgain() {
+        open();
+        clock.addAndGet(CircuitBreaker.OPEN_DURATION.toNanos());
+        recordAll(1, false, FAST);
+        recordAll(1, true, FAST);
+
+        assertEquals(State.OPEN, circuitBreaker.getState());
+        assertEquals(CircuitBreaker.OPEN_DURATION, circuitBreaker.getRemainingOpenDuration());
+    }
+
+    @Test
+    void halfOpen_probeSlow_opensAgain() {
+        open();
+        clock.addAndGet(CircuitBreaker.OPEN_DURATION.toNanos());
+        recordAll(1, false, SLOW);
+
+        assertEquals(State.OPEN, circuitBreaker.getState());
+    }
+
+    @Test
+    void halfOpen_probeCancelled_permitsAnotherProbe() {
+        open();
+        clock.addAndGet(CircuitBreaker.OPEN_DURATION.toNanos());
+
+        for (var i = 0; i < CircuitBreaker.PROBE_CALLS; i++) {
+            assertTrue(circuitBreaker.tryAcquirePermission());
+        }
+
+        circuitBreaker.release();
+
+        assertEquals(State.HALF_OPEN, circuitBreaker.getState());
+        assertTrue(circuitBreaker.tryAcquirePermission());
+        assertFalse(circuitBreaker.tryAcquirePermission());
+    }
+
+    @Test
+    void closed_cancelled_isNotRecorded() {
+        for (var i = 0; i < CircuitBreaker.MINIMUM_CALLS; i++) {
+            assertTrue(circuitBreaker.tryAcquirePermission());
+            circuitBreaker.release();
+        }
+
+        recordAll(CircuitBreaker.MINIMUM_CALLS - 1, true, FAST);
+        assertEquals(State.CLOSED, circuitBreaker.getState());
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright OmniFaces
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.omnifaces.ai.service;
+
+import static java.util.concurrent.CompletableFuture.completedFuture;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.jupiter.api.Test;
+
+import org.omnifaces.ai.exception.AIDeadlineExceededException;
+
+class DeadlineTest {
+
+    // =================================================================================================================
+    // Remaining time
+    // =================================================================================================================
+
+    @Test
+    void of_null_returnsNull() {
+        assertNull(Deadline.of(null));
+    }
+
+    @Test
+    void getRemainingNanos_beforeExpiry_isPositive() {
+        var deadline = Deadline.of(Duration.ofMinutes(1));
+
+        assertTrue(deadline.getRemainingNanos() > 0);
+        assertTrue(deadline.getRemainingNanos() <= Duration.ofMinutes(1).toNanos());
+        assertFalse(deadline.isExpired());
+    }
+
+    @Test
+    void getRemainingNanos_afterExpiry_isZero() throws Exception {
+        var deadline = Deadline.of(Duration.ofMillis(1));
+        Thread.sleep(5);
+
+        assertEquals(0, deadline.getRemainingNanos());
+        assertTrue(deadline.isExpired());
+    }
+
+    // =================================================================================================================
+    // Current deadline
+    // =================================================================================================================
+
+    @Test
+    void call_setsCurrentDeadlineOnlyDuringAction() {
+        var deadline = Deadline.of(Duration.ofMinutes(1));
+
+        var result = Deadline.call(deadline, () -> completedFuture(Deadline.current()));
+
+        assertSame(deadline, result.join());
+        assertNull(Deadline.current());
+    }
+
+    @Test
+    void call_nested_restoresOuterDeadline() {
+        var outer = Deadline.of(Duration.ofMinutes(1));
+        var inner = Deadline.of(Duration.ofSeconds(1));
+
+        var result = Deadline.call(outer, () -> Deadline.call(inner, () -> completedFuture(Deadline.current())).thenApply(current -> current == inner && Deadline.current() == outer));
+
+        assertTrue(result.join());
+        assertNull(Deadline.current());
+    }
+
+    @Test
+    void call_expired_failsWithoutInvokingAction() throws Exception {
+        var deadline = Deadline.of(Duration.ofMillis(1));
+        var invoked = new AtomicBoolean();
+        Thread.sleep(5);
+
+        var result = Deadline.call(deadline, () -> {
+            invoked.set(true);
+            return completedFuture("response");
+        });
+
+        var exception = assertThrows(ExecutionException.class, result::get);
+        assertInstanceOf(AIDeadlineExceededException.class, exception.getCause());
+        assertEquals(Duration.ofMillis(1), ((AIDeadlineExceededException) exception.getCause()).getTimeout());
+        assertFalse(invoked.get());
+    }
+
+    // =================================================================================================================
+    // Enforcement
+    // =================================================================================================================
+
+    @Test
+    void enforce_completedInTime_passesResponse() {
+        var deadline = Deadline.of(Duration.ofMinutes(1));
+
+        assertEquals("response", deadline.enforce(completedFuture("response")).join());
+    }
+
+    @Test
+    void enforce_notCompletedInTime_timesOutGivenFuture() {
+        var deadline = Deadline.of(Duration.ofMillis(50));
+        var request = new CompletableFuture<String>();
+
+        var result = deadline.enforce(request);
+
+        var exception = assertThrows(ExecutionException.class, result::get);
+        assertInstanceOf(AIDeadlineExceededException.class, exception.getCause());
+        var requestException = assertThrows(ExecutionException.class, request::get);
+        assertInstanceOf(TimeoutException.class, requestException.getCause());
+    }
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright OmniFaces
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.omnifaces.ai.service;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.omnifaces.ai.AIConfig;
+import org.omnifaces.ai.AIProvider;
+import org.omnifaces.ai.model.Sse.Event;
+import org.omnifaces.ai.model.Sse.Event.Type;
+import org.omnifaces.ai.model.Sse.EventFilter;
+
+class EventStreamDecoderTest {
+
+    private static final String RECORDED_OPENAI_RESPONSES_STREAM = "/openai-responses.sse";
+
+    private static byte[] readAllBytes(String resource) {
+        try (var input = EventStreamDecoderTest.class.getResourceAsStream(resource)) {
+            return input.readAllBytes();
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static List<Event> decode(EventFilter filter, Predicate<Event> processor, int chunkSize, byte[] bytes) {
+        var events = new ArrayList<Event>();
+        var decoder = new EventStreamDecoder(0, filter, event -> events.add(event) && processor.test(event));
+
+        for (var offset = 0; offset < bytes.length; offset += Math.min(chunkSize, bytes.length - offset)) {
+            if (!decoder.decode(ByteBuffer.wrap(bytes, offset, Math.min(chunkSize, bytes.length - offset)))) {
+                return events;
+            }
+        }
+
+        decoder.finish();
+        return events;
+    }
+
+    private static List<Event> decode(EventFilter filter, String stream) {
+        var bytes = stream.getBytes(UTF_8);
+        return decode(filter, event -> true, bytes.length, bytes);
+    }
+
+    // =================================================================================================================
+    // Event filtering
+    // =================================================================================================================
+
+    @Test
+    void decode_acceptAll_emitsAllFields() {
+        assertEquals(List.of(new Event(Type.ID, "1"), new Event(Type.EVENT, "a"), new Event(Type.DATA, "x")), decode(EventFilter.ACCEPT_ALL, "id: 1\nevent: a\ndata: x\n\n"));
+    }
+
+    @Test
+    void decode_eventNames_emitsOnlyMatchingEvents() {
+        var filter = new EventFilter(Set.of("b"), null);
+        assertEquals(List.of(new Event(Type.DATA, "x"), new Event(Type.EVENT, "b"), new Event(Type.DATA, "y")), decode(filter, "id: 1\nevent: a\ndata: x\n\nevent: b\ndata: y\n\nevent: bb\n\n"));
+    }
+
+    @Test
+    void decode_dataMarkers_emitsOnlyMatchingData() {
+        var filter = new EventFilter(null, Set.of("\"delta\""));
+        assertEquals(List.of(new Event(Type.DATA, "{\"delta\":1}")), decode(filter, "data: {\"ping\":1}\n\ndata: {\"delta\":1}\n\n"));
+    }
+
+    @Test
+    void decode_dataMarkerSpanningMultipleDataLines_emitsJoinedData() {
+        var filter = new EventFilter(null, Set.of("a\nb"));
+        assertEquals(List.of(new Event(Type.DATA, "a\nb")), decode(filter, "data: a\ndata: b\n\ndata: a\n\ndata: b\n\n"));
+    }
+
+    @Test
+    void decode_emptyFilter_emitsNothing() {
+        assertTrue(decode(new EventFilter(Set.of(), Set.of()), "id: 1\nevent: a\ndata: x\n\n").isEmpty());
+    }
+
+    @Test
+    void filter_accepts_matchesDecoder() {
+        var filter = new EventFilter(Set.of("a"), Set.of("x"));
+        assertTrue(filter.accepts(new Event(Type.EVENT, "a")));
+        assertFalse(filter.accepts(new Event(Type.EVENT, "b")));
+        assertFalse(filter.accepts(new Event(Type.ID, "1")));
+        assertTrue(filter.accepts(new Event(Type.DATA, "xyz")));
+        assertFalse(filter.accepts(new Event(Type.DATA, "yz")));
+    }
+
+    // =================================================================================================================
+    // Recorded OpenAI Responses API stream
+    // =================================================================================================================
+
+    @ParameterizedTest
+    @ValueSource(ints = { 1, 2, 7, 64, 1024, Integer.MAX_VALUE })
+    void decode_recordedOpenAIResponsesStream_filteredEventsAreSameAsUnfilteredAcceptedEvents(int chunkSize) {
+        var bytes = readAllBytes(RECORDED_OPENAI_RESPONSES_STREAM);
+        var service = new OpenAIService(new AIConfig(AIProvider.OPENAI.name(), "test", null, null, null, null, Map.of()));
+        var filter = service.textHandler.getChatStreamEventFilter(service);
+
+        var all = decode(EventFilter.ACCEPT_ALL, event -> true, chunkSize, bytes);
+        var filtered = decode(filter, event -> true, chunkSize, bytes);
+
+        assertEquals(28, all.size());
+        assertEquals(all.stream().filter(filter::accepts).toList(), filtered);
+        assertEquals(5, filtered.size());
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = { 1, 7, Integer.MAX_VALUE })
+    void decode_recordedOpenAIResponsesStream_tokensAreSameAsUnfiltered(int chunkSize) {
+        var bytes = readAllBytes(RECORDED_OPENAI_RESPONSES_STREAM);
+        var service = new OpenAIService(new AIConfig(AIProvider.OPENAI.name(), "test", null, null, null, null, Map.of()));
+        var filter = service.textHandler.getChatStreamEventFilter(service);
+
+        var allTokens = new StringBuilder();
+        decode(EventFilter.ACCEPT_ALL, event -> service.textHandler.processChatStreamEvent(service, event, allTokens::append), chunkSize, bytes);
+        var filteredTokens = new StringBuilder();
+        decode(filter, event -> service.textHandler.processChatStreamEvent(service, event, filteredTokens::append), chunkSize, bytes);
+
+        assertEquals("Hello, wörld!", allTokens.toString());
+        assertEquals(allTokens.toString(), filteredTokens.toString());
+    }
+}
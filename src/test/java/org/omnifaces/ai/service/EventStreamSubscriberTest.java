@@ -0,0 +1,161 @@
+/*
+ * Copyright OmniFaces
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.omnifaces.ai.service;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Flow.Subscription;
+import java.util.function.Predicate;
+
+import org.junit.jupiter.api.Test;
+import org.omnifaces.ai.model.Sse.Event;
+import org.omnifaces.ai.model.Sse.Event.Type;
+import org.omnifaces.ai.model.Sse.EventFilter;
+
+class EventStreamSubscriberTest {
+
+    private static class TestSubscription implements Subscription {
+        int requested;
+        boolean cancelled;
+
+        @Override
+        public void request(long n) {
+            requested += n;
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+        }
+    }
+
+    private static List<Event> feed(Predicate<Event> processor, TestSubscription subscription, String... chunks) {
+        var events = new ArrayList<Event>();
+        var subscriber = new EventStreamSubscriber(0, EventFilter.ACCEPT_ALL, event -> events.add(event) && processor.test(event));
+        subscriber.onSubscribe(subscription);
+
+        for (var chunk : chunks) {
+            subscriber.onNext(List.of(ByteBuffer.wrap(chunk.getBytes(UTF_8))));
+        }
+
+        subscriber.onComplete();
+        assertTrue(subscriber.getBody().toCompletableFuture().isDone());
+        return events;
+    }
+
+    private static List<Event> feed(String... chunks) {
+        return feed(event -> true, new TestSubscription(), chunks);
+    }
+
+    // =================================================================================================================
+    // Line splitting
+    // =================================================================================================================
+
+    @Test
+    void onNext_singleDataEvent_emitsDataEvent() {
+        assertEquals(List.of(new Event(Type.DATA, "{\"a\":1}")), feed("data: {\"a\":1}\n\n"));
+    }
+
+    @Test
+    void onNext_eventSplitAcrossBuffers_emitsSingleDataEvent() {
+        assertEquals(List.of(new Event(Type.DATA, "hello world")), feed("da", "ta: hello ", "world\n", "\n"));
+    }
+
+    @Test
+    void onNext_multiByteCharacterSplitAcrossBuffers_decodesCorrectly() {
+        var bytes = "data: café\n\n".getBytes(UTF_8);
+        var split = 10; // Between the two bytes of the e-acute.
+        var events = new ArrayList<Event>();
+        var subscriber = new EventStreamSubscriber(0, EventFilter.ACCEPT_ALL, events::add);
+        subscriber.onSubscribe(new TestSubscription());
+        subscriber.onNext(List.of(ByteBuffer.wrap(Arrays.copyOfRange(bytes, 0, split)), ByteBuffer.wrap(Arrays.copyOfRange(bytes, split, bytes.length))));
+        subscriber.onComplete();
+        assertEquals(List.of(new Event(Type.DATA, "café")), events);
+    }
+
+    @Test
+    void onNext_crlfLineEndings_emitsDataEvent() {
+        assertEquals(List.of(new Event(Type.DATA, "x")), feed("data: x\r", "\n\r\n"));
+    }
+
+    @Test
+    void onNext_multiLineData_joinedWithNewline() {
+        assertEquals(List.of(new Event(Type.DATA, "a\nb")), feed("data: a\ndata: b\n\n"));
+    }
+
+    @Test
+    void onNext_commentsAndUnknownLines_ignored() {
+        assertEquals(List.of(new Event(Type.DATA, "x")), feed(": keep-alive\nretry: 100\ndata: x\n\n"));
+    }
+
+    @Test
+    void onNext_namedEvent_emitsEventBeforeData() {
+        assertEquals(List.of(new Event(Type.EVENT, "delta"), new Event(Type.DATA, "x")), feed("event: delta\ndata: x\n\n"));
+    }
+
+    @Test
+    void onComplete_withoutTrailingBlankLine_flushesPendingData() {
+        assertEquals(List.of(new Event(Type.DATA, "x")), feed("data: x"));
+    }
+
+    // =================================================================================================================
+    // Flow control
+    // =================================================================================================================
+
+    @Test
+    void onNext_processorContinues_requestsNext() {
+        var subscription = new TestSubscription();
+        feed(event -> true, subscription, "data: a\n\n", "data: b\n\n");
+        assertEquals(3, subscription.requested);
+        assertFalse(subscription.cancelled);
+    }
+
+    @Test
+    void onNext_processorStops_cancelsSubscription() {
+        var subscription = new TestSubscription();
+        var events = feed(event -> false, subscription, "data: a\n\ndata: b\n\n", "data: c\n\n");
+        assertEquals(List.of(new Event(Type.DATA, "a")), events);
+        assertEquals(1, subscription.requested);
+        assertTrue(subscription.cancelled);
+    }
+
+    @Test
+    void onNext_processorThrows_completesExceptionally() {
+        var subscription = new TestSubscription();
+        var subscriber = new EventStreamSubscriber(0, EventFilter.ACCEPT_ALL, event -> { throw new IllegalStateException("boom"); });
+        subscriber.onSubscribe(subscription);
+        subscriber.onNext(List.of(ByteBuffer.wrap("data: x\n\n".getBytes(UTF_8))));
+        var exception = assertThrows(ExecutionException.class, () -> subscriber.getBody().toCompletableFuture().get());
+        assertTrue(exception.getCause() instanceof IllegalStateException);
+        assertTrue(subscription.cancelled);
+    }
+
+    @Test
+    void onError_completesExceptionally() {
+        var subscriber = new EventStreamSubscriber(0, EventFilter.ACCEPT_ALL, event -> true);
+        subscriber.onSubscribe(new TestSubscription());
+        subscriber.onError(new IOException("connection reset"));
+        var exception = assertThrows(ExecutionException.class, () -> subscriber.getBody().toCompletableFuture().get());
+        assertTrue(exception.getCause() instanceof IOException);
+    }
+}
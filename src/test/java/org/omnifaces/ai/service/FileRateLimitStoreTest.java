@@ -0,0 +1,70 @@
+/*
+ * Copyright OmniFaces
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.omnifaces.ai.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.concurrent.CompletableFuture;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class FileRateLimitStoreTest {
+
+    // =================================================================================================================
+    // Reservation
+    // =================================================================================================================
+
+    @Test
+    void constructor_createsDirectory(@TempDir Path directory) {
+        var store = new FileRateLimitStore(directory.resolve("nested"));
+
+        assertTrue(Files.isDirectory(store.getDirectory()));
+    }
+
+    @Test
+    void reserve_delaysBeyondBurst(@TempDir Path directory) {
+        var store = new FileRateLimitStore(directory);
+
+        assertEquals(Duration.ZERO, store.reserve("key", 60, 60));
+
+        var delay = store.reserve("key", 60, 1);
+        assertTrue(delay.toMillis() > 900 && delay.toMillis() <= 1000, delay::toString);
+        assertEquals(Duration.ZERO, store.reserve("other", 60, 1));
+    }
+
+    @Test
+    void reserve_sharedAcrossInstances(@TempDir Path directory) {
+        assertEquals(Duration.ZERO, new FileRateLimitStore(directory).reserve("key", 60, 60));
+        assertTrue(new FileRateLimitStore(directory).reserve("key", 60, 1).toMillis() > 900);
+    }
+
+    @Test
+    void reserve_concurrently_countsAllPermits(@TempDir Path directory) {
+        var stores = new FileRateLimitStore[] { new FileRateLimitStore(directory), new FileRateLimitStore(directory) };
+        var reservations = new ArrayList<CompletableFuture<Duration>>();
+
+        for (var i = 0; i < 60; i++) {
+            var store = stores[i % stores.length];
+            reservations.add(CompletableFuture.supplyAsync(() -> store.reserve("key", 60, 1)));
+        }
+
+        reservations.forEach(reservation -> assertEquals(Duration.ZERO, reservation.join()));
+        assertTrue(stores[0].reserve("key", 60, 1).toMillis() > 900);
+    }
+}
@@ -0,0 +1,202 @@
+/*
+ * Copyright OmniFaces
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.omnifaces.ai.service;
+
+import static java.util.concurrent.CompletableFuture.completedFuture;
+import static java.util.concurrent.CompletableFuture.failedFuture;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import org.junit.jupiter.api.Test;
+
+import org.omnifaces.ai.AIConfig;
+import org.omnifaces.ai.AIProvider;
+
+class HedgePolicyTest {
+
+    /**
+     * Returns a hedge policy which has enough fast latencies and one hedge in its budget.
+     */
+    private static HedgePolicy newWarmedUpHedgePolicy() {
+        var policy = new HedgePolicy(50);
+
+        for (var i = 0; i < 1 / HedgePolicy.HEDGE_RATIO || i < HedgePolicy.MIN_SAMPLES; i++) {
+            policy.hedge(() -> completedFuture("warmup"));
+        }
+
+        return policy;
+    }
+
+    private static <R> Supplier<CompletableFuture<R>> sequence(List<CompletableFuture<R>> requests, AtomicInteger calls) {
+        return () -> requests.get(calls.getAndIncrement());
+    }
+
+    // =================================================================================================================
+    // Configuration
+    // =================================================================================================================
+
+    @Test
+    void of_withoutPercentile_returnsNull() {
+        assertNull(HedgePolicy.of(AIConfig.of(AIProvider.OPENAI, "test")));
+    }
+
+    @Test
+    void of_invalidPercentile_throwsException() {
+        assertThrows(IllegalStateException.class, () -> HedgePolicy.of(AIConfig.of(AIProvider.OPENAI, "test").withProperty(AIConfig.PROPERTY_HEDGE_PERCENTILE, "100")));
+        assertThrows(IllegalStateException.class, () -> HedgePolicy.of(AIConfig.of(AIProvider.OPENAI, "test").withProperty(AIConfig.PROPERTY_HEDGE_PERCENTILE, "p95")));
+    }
+
+    // =================================================================================================================
+    // Latency percentile and budget
+    // =================================================================================================================
+
+    @Test
+    void getHedgeDelayNanos_belowMinSamples_returnsMinusOne() {
+        var policy = new HedgePolicy(95);
+
+        for (var i = 1; i < HedgePolicy.MIN_SAMPLES; i++) {
+            policy.recordLatency(i);
+        }
+
+        assertEquals(-1, policy.getHedgeDelayNanos());
+    }
+
+    @Test
+    void getHedgeDelayNanos_returnsPercentileOfSlidingWindow() {
+        var policy = new HedgePolicy(95);
+
+        for (var i = 1; i <= HedgePolicy.WINDOW_SIZE * 2; i++) {
+            policy.recordLatency(i);
+        }
+
+        assertEquals(HedgePolicy.WINDOW_SIZE + 95, policy.getHedgeDelayNanos());
+    }
+
+    @Test
+    void tryAcquireHedge_capsExtraTrafficAtHedgeRatio() {
+        var policy = new HedgePolicy(95);
+        assertFalse(policy.tryAcquireHedge());
+
+        for (var i = 0; i < 100; i++) {
+            policy.hedge(() -> completedFuture("fast"));
+        }
+
+        var hedges = 0;
+
+        while (policy.tryAcquireHedge()) {
+            hedges++;
+        }
+
+        assertEquals(Math.round(100 * HedgePolicy.HEDGE_RATIO), hedges);
+    }
+
+    // =================================================================================================================
+    // Hedging
+    // =================================================================================================================
+
+    @Test
+    void hedge_withoutLatencies_sendsOnlyOnce() throws Exception {
+        var calls = new AtomicInteger();
+        var primary = new CompletableFuture<String>();
+        var result = new HedgePolicy(50).hedge(sequence(List.of(primary), calls));
+
+        MILLISECONDS.sleep(50);
+        primary.complete("primary");
+
+        assertEquals("primary", result.get(1, SECONDS));
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    void hedge_slowPrimary_hedgeWinsAndPrimaryIsCancelled() throws Exception {
+        var policy = newWarmedUpHedgePolicy();
+        var calls = new AtomicInteger();
+        var primary = new CompletableFuture<String>();
+        var result = policy.hedge(sequence(List.of(primary, completedFuture("hedge")), calls));
+
+        assertEquals("hedge", result.get(1, SECONDS));
+        assertEquals(2, calls.get());
+        assertTrue(primary.handle((response, throwable) -> primary.isCancelled()).get(1, SECONDS));
+    }
+
+    @Test
+    void hedge_bothFail_fails() throws Exception {
+        var policy = newWarmedUpHedgePolicy();
+        var calls = new AtomicInteger();
+        var primary = new CompletableFuture<String>();
+        var result = policy.hedge(sequence(List.of(primary, failedFuture(new IllegalStateException("hedge"))), calls));
+
+        while (calls.get() < 2) {
+            MILLISECONDS.sleep(1);
+        }
+
+        assertFalse(result.isDone(), "Failed hedge must wait for primary");
+        primary.completeExceptionally(new IllegalStateException("primary"));
+
+        var exception = assertThrows(ExecutionException.class, () -> result.get(1, SECONDS));
+        assertEquals("primary", exception.getCause().getMessage());
+    }
+
+    @Test
+    void hedge_hedgeThrows_primaryFailureStillFails() throws Exception {
+        var policy = newWarmedUpHedgePolicy();
+        var calls = new AtomicInteger();
+        var primary = new CompletableFuture<String>();
+        var result = policy.hedge(() -> {
+            if (calls.getAndIncrement() == 0) {
+                return primary;
+            }
+
+            throw new IllegalStateException("hedge");
+        });
+
+        while (calls.get() < 2) {
+            MILLISECONDS.sleep(1);
+        }
+
+        assertFalse(result.isDone(), "Thrown hedge must wait for primary");
+        primary.completeExceptionally(new IllegalStateException("primary"));
+
+        var exception = assertThrows(ExecutionException.class, () -> result.get(1, SECONDS));
+        assertEquals("primary", exception.getCause().getMessage());
+    }
+
+    @Test
+    void hedge_cancelled_cancelsAllRequests() throws Exception {
+        var policy = newWarmedUpHedgePolicy();
+        var calls = new AtomicInteger();
+        var requests = new ArrayList<CompletableFuture<String>>(List.of(new CompletableFuture<>(), new CompletableFuture<>()));
+        var result = policy.hedge(sequence(requests, calls));
+
+        while (calls.get() < 2) {
+            MILLISECONDS.sleep(1);
+        }
+
+        result.cancel(true);
+
+        assertTrue(requests.get(0).isCancelled());
+        assertTrue(requests.get(1).isCancelled());
+    }
+}
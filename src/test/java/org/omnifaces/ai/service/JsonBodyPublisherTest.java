@@ -0,0 +1,163 @@
+/*
+ * Copyright OmniFaces
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.omnifaces.ai.service;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Collections.emptyMap;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.net.http.HttpRequest.BodyPublisher;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Flow.Subscriber;
+import java.util.concurrent.Flow.Subscription;
+
+import jakarta.json.Json;
+import jakarta.json.JsonObject;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.omnifaces.ai.mime.MimeType;
+import org.omnifaces.ai.model.ChatInput.Attachment;
+
+class JsonBodyPublisherTest {
+
+    private static final MimeType TEST_PNG = new MimeType() {
+        @Override public String value() { return "image/png"; }
+        @Override public String extension() { return "png"; }
+    };
+
+    private static String publish(BodyPublisher publisher) {
+        var body = new ByteArrayOutputStream();
+        var done = new CompletableFuture<Void>();
+
+        publisher.subscribe(new Subscriber<ByteBuffer>() {
+            @Override
+            public void onSubscribe(Subscription subscription) {
+                subscription.request(Long.MAX_VALUE);
+            }
+
+            @Override
+            public void onNext(ByteBuffer item) {
+                var bytes = new byte[item.remaining()];
+                item.get(bytes);
+                body.writeBytes(bytes);
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+                done.completeExceptionally(throwable);
+            }
+
+            @Override
+            public void onComplete() {
+                done.complete(null);
+            }
+        });
+
+        done.join();
+        assertEquals(publisher.contentLength(), body.size());
+        return body.toString(UTF_8);
+    }
+
+    private static Attachment attachment(int size) {
+        var content = new byte[size];
+        new Random(size).nextBytes(content);
+        return new Attachment(content, TEST_PNG, "test.png", emptyMap());
+    }
+
+    private static void assertPublishedSameAsToString(JsonObject payload) {
+        assertEquals(payload.toString(), publish(JsonBodyPublisher.of(payload)));
+    }
+
+    // =================================================================================================================
+    // Without slots
+    // =================================================================================================================
+
+    @Test
+    void of_plainPayload_sameAsToString() {
+        assertPublishedSameAsToString(Json.createObjectBuilder()
+            .add("model", "test")
+            .add("temperature", 0.5)
+            .add("stream", true)
+            .addNull("nothing")
+            .add("messages", Json.createArrayBuilder().add(Json.createObjectBuilder().add("content", "Hëllo \"wörld\"\n")).add(42))
+            .build());
+    }
+
+    // =================================================================================================================
+    // With slots
+    // =================================================================================================================
+
+    @ParameterizedTest
+    @ValueSource(ints = { 0, 1, 2, 3, 4, 24576, 24577, 100_000 })
+    void of_payloadWithSlots_sameAsToString(int size) {
+        var attachment = attachment(size);
+        assertPublishedSameAsToString(Json.createObjectBuilder()
+            .add("model", "test")
+            .add("image", attachment.toDataUriSlot())
+            .add("content", Json.createArrayBuilder()
+                .add(attachment.toBase64Slot())
+                .add(Json.createObjectBuilder().add("data", attachment.toBase64Slot()).add("after", "text"))
+                .add("last"))
+            .build());
+    }
+
+    @Test
+    void of_slotAsLastValue_sameAsToString() {
+        assertPublishedSameAsToString(Json.createObjectBuilder().add("data", attachment(10).toBase64Slot()).build());
+    }
+
+    @Test
+    void of_payloadWithSlots_textLengthExcludesSlots() {
+        var body = JsonBodyPublisher.of(Json.createObjectBuilder().add("model", "test").add("image", attachment(100_000).toDataUriSlot()).build());
+
+        assertEquals(1, body.attachments());
+        assertEquals("{\"model\":\"test\",\"image\":\"\"}".length(), body.textLength());
+    }
+
+    @Test
+    void of_copiedPayloadWithSlots_sameAsToString() {
+        var payload = Json.createObjectBuilder().add("data", attachment(10).toBase64Slot()).build();
+        assertPublishedSameAsToString(Json.createObjectBuilder(payload).add("extra", "value").build());
+    }
+
+    // =================================================================================================================
+    // Digest
+    // =================================================================================================================
+
+    @Test
+    void digest_plainPayload_sameAsDigestOfToString() throws Exception {
+        var payload = Json.createObjectBuilder().add("model", "test").add("content", "Hëllo").build();
+        var expected = HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(payload.toString().getBytes(UTF_8)));
+        assertEquals(expected, JsonBodyPublisher.digest(payload));
+    }
+
+    @Test
+    void digest_payloadWithSlots_dependsOnContent() {
+        var payload = Json.createObjectBuilder().add("model", "test").add("data", attachment(100).toBase64Slot()).build();
+        var same = Json.createObjectBuilder().add("model", "test").add("data", attachment(100).toBase64Slot()).build();
+        var otherContent = Json.createObjectBuilder().add("model", "test").add("data", attachment(101).toBase64Slot()).build();
+        var otherPrefix = Json.createObjectBuilder().add("model", "test").add("data", attachment(100).toDataUriSlot()).build();
+
+        assertEquals(JsonBodyPublisher.digest(payload), JsonBodyPublisher.digest(same));
+        assertNotEquals(JsonBodyPublisher.digest(payload), JsonBodyPublisher.digest(otherContent));
+        assertNotEquals(JsonBodyPublisher.digest(payload), JsonBodyPublisher.digest(otherPrefix));
+    }
+}
@@ -0,0 +1,418 @@
+/*
+ * Copyright OmniFaces
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.omnifaces.ai.service;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.concurrent.CompletableFuture.failedFuture;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.net.ConnectException;
+import java.net.URI;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import org.junit.jupiter.api.Test;
+
+import org.omnifaces.ai.AIConfig;
+import org.omnifaces.ai.AIProvider;
+import org.omnifaces.ai.AIService;
+import org.omnifaces.ai.exception.AIAuthenticationException;
+import org.omnifaces.ai.exception.AIAuthorizationException;
+import org.omnifaces.ai.exception.AIBadRequestException;
+import org.omnifaces.ai.exception.AIBulkheadFullException;
+import org.omnifaces.ai.exception.AIDeadlineExceededException;
+import org.omnifaces.ai.exception.AIHttpException;
+import org.omnifaces.ai.exception.AIRateLimitExceededException;
+import org.omnifaces.ai.exception.AIServiceUnavailableException;
+import org.omnifaces.ai.model.ChatInput;
+import org.omnifaces.ai.model.ChatOptions;
+
+class LoadBalancingAIServiceTest {
+
+    private static final URI ENDPOINT = URI.create("https://example.com/chat");
+
+    private final AtomicLong clock = new AtomicLong();
+
+    private LoadBalancingAIService newService(List<AIService> services, int... weights) {
+        return new LoadBalancingAIService(services, weights, clock::get);
+    }
+
+    private static CompletableFuture<String> unavailable() {
+        return failedFuture(new AIServiceUnavailableException(ENDPOINT, "overloaded"));
+    }
+
+    private static void recordLatency(LoadBalancingAIService service, AIService member, long latencyMillis) {
+        service.findMember(member).recordSuccess(TimeUnit.MILLISECONDS.toNanos(latencyMillis));
+    }
+
+    // =================================================================================================================
+    // Builder
+    // =================================================================================================================
+
+    @Test
+    void builder_invalidConfiguration_throwsException() {
+        var member = new StubAIService("a");
+
+        assertThrows(IllegalArgumentException.class, () -> LoadBalancingAIService.newBuilder().build());
+        assertThrows(IllegalArgumentException.class, () -> LoadBalancingAIService.newBuilder().add(member, 0));
+        assertThrows(IllegalArgumentException.class, () -> LoadBalancingAIService.newBuilder().add(member).add(member));
+    }
+
+    @Test
+    void builder_keepsOrderOfMembers() {
+        var a = new StubAIService("a");
+        var b = new StubAIService("b");
+        var service = LoadBalancingAIService.newBuilder().add(a, 2).add(b).build();
+
+        assertEquals(List.of(a, b), service.getServices());
+        assertEquals("a", service.getProviderName());
+    }
+
+    // =================================================================================================================
+    // Balancing
+    // =================================================================================================================
+
+    @Test
+    void chat_prefersLowerLatency() {
+        var slow = new StubAIService("slow");
+        var fast = new StubAIService("fast");
+        var service = newService(List.of(slow, fast), 1, 1);
+        recordLatency(service, slow, 2000);
+        recordLatency(service, fast, 200);
+
+        for (var i = 0; i < 10; i++) {
+            assertEquals("fast", service.chat("hello"));
+        }
+
+        assertEquals(0, slow.chatCalls.get());
+    }
+
+    @Test
+    void chat_unknownLatency_assumesMeanLatency() {
+        var fast = new StubAIService("fast");
+        var slow = new StubAIService("slow");
+        var unknown = new StubAIService("unknown");
+        var service = newService(List.of(fast, slow, unknown), 1, 1, 1);
+        recordLatency(service, fast, 100);
+        recordLatency(service, slow, 300);
+
+        for (var i = 0; i < 20; i++) {
+            assertNotEquals("slow", service.chat("hello"));
+        }
+
+        assertEquals(0, slow.chatCalls.get());
+    }
+
+    @Test
+    void chat_prefersFewerInFlightCalls() {
+        var pending = new CompletableFuture<String>();
+        var busy = new StubAIService("busy").respondWith(input -> pending);
+        var idle = new StubAIService("idle");
+        var service = newService(List.of(busy, idle), 1, 1);
+        recordLatency(service, busy, 100);
+        recordLatency(service, idle, 150);
+
+        service.chatAsync("first");
+        assertEquals(1, service.findMember(busy).getInFlight());
+        assertEquals("idle", service.chat("second"));
+
+        pending.complete("busy");
+        assertEquals(0, service.findMember(busy).getInFlight());
+    }
+
+    @Test
+    void chat_recordsEwmaLatency() {
+        var member = new StubAIService("a");
+        var service = newService(List.of(member), 1);
+        recordLatency(service, member, 100);
+        recordLatency(service, member, 200);
+
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(120), service.findMember(member).getLatencyNanos(), 1);
+    }
+
+    // =================================================================================================================
+    // Failover
+    // =================================================================================================================
+
+    @Test
+    void chat_serverError_failsOver() {
+        var failing = new StubAIService("failing").respondWith(input -> unavailable());
+        var healthy = new StubAIService("healthy");
+        var service = newService(List.of(failing, healthy), 1, 1);
+        recordLatency(service, failing, 100);
+        recordLatency(service, healthy, 200);
+
+        assertEquals("healthy", service.chat("hello"));
+        assertEquals(1, failing.chatCalls.get());
+        assertEquals(1, healthy.chatCalls.get());
+    }
+
+    @Test
+    void chat_connectionError_failsOver() {
+        var failing = new StubAIService("failing").respondWith(input -> failedFuture(new AIHttpException("Request failed (0 retries)", new ConnectException())));
+        var healthy = new StubAIService("healthy");
+        var service = newService(List.of(failing, healthy), 1, 1);
+        recordLatency(service, failing, 100);
+        recordLatency(service, healthy, 200);
+
+        assertEquals("healthy", service.chat("hello"));
+    }
+
+    @Test
+    void chat_badRequest_doesNotFailOver() {
+        var failing = new StubAIService("failing").respondWith(input -> failedFuture(new AIBadRequestException(ENDPOINT, "invalid")));
+        var healthy = new StubAIService("healthy");
+        var service = newService(List.of(failing, healthy), 1, 1);
+        recordLatency(service, failing, 100);
+        recordLatency(service, healthy, 200);
+
+        assertThrows(AIBadRequestException.class, () -> service.chat("hello"));
+        assertEquals(0, healthy.chatCalls.get());
+    }
+
+    @Test
+    void chat_authenticationError_failsOverAndMarksMemberUnhealthy() {
+        var misconfigured = new StubAIService("misconfigured").respondWith(input -> failedFuture(new AIAuthenticationException(ENDPOINT, "invalid api key")));
+        var healthy = new StubAIService("healthy");
+        var service = newService(List.of(misconfigured, healthy), 1, 1);
+
+        for (var i = 0; i < 1000 && misconfigured.chatCalls.get() < LoadBalancingAIService.UNHEALTHY_THRESHOLD; i++) {
+            assertEquals("healthy", service.chat("hello"));
+        }
+
+        assertFalse(service.findMember(misconfigured).isHealthy(clock.get()));
+
+        for (var i = 0; i < 10; i++) {
+            assertEquals("healthy", service.chat("hello"));
+        }
+
+        assertEquals(LoadBalancingAIService.UNHEALTHY_THRESHOLD, misconfigured.chatCalls.get());
+    }
+
+    @Test
+    void chat_allMembersFail_failsWithLastCause() {
+        var a = new StubAIService("a").respondWith(input -> unavailable());
+        var b = new StubAIService("b").respondWith(input -> failedFuture(new AIRateLimitExceededException(ENDPOINT, "slow down")));
+        var service = newService(List.of(a, b), 1, 1);
+        recordLatency(service, a, 100);
+        recordLatency(service, b, 200);
+
+        assertThrows(AIRateLimitExceededException.class, () -> service.chat("hello"));
+        assertEquals(1, a.chatCalls.get());
+        assertEquals(1, b.chatCalls.get());
+    }
+
+    @Test
+    void chatStream_afterFirstToken_doesNotFailOver() {
+        var failing = new StubAIService("failing") {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            public CompletableFuture<Void> chatStream(ChatInput input, ChatOptions options, Consumer<String> onToken) {
+                onToken.accept("partial");
+                return failedFuture(new AIServiceUnavailableException(ENDPOINT, "gone"));
+            }
+        };
+        var healthy = new StubAIService("healthy");
+        var service = newService(List.of(failing, healthy), 1, 1);
+        recordLatency(service, failing, 100);
+        recordLatency(service, healthy, 200);
+        var tokens = new StringBuilder();
+
+        var exception = assertThrows(CompletionException.class, () -> service.chatStream("hello", tokens::append).join());
+        assertInstanceOf(AIServiceUnavailableException.class, exception.getCause());
+        assertEquals("partial", tokens.toString());
+        assertEquals(0, healthy.chatCalls.get());
+    }
+
+    @Test
+    void chatStream_beforeFirstToken_failsOver() {
+        var failing = new StubAIService("failing").respondWith(input -> unavailable());
+        var healthy = new StubAIService("healthy");
+        var service = newService(List.of(failing, healthy), 1, 1);
+        recordLatency(service, failing, 100);
+        recordLatency(service, healthy, 200);
+        var tokens = new StringBuilder();
+
+        service.chatStream("hello", tokens::append).join();
+        assertEquals("healthy", tokens.toString());
+    }
+
+    @Test
+    void isFailoverable() {
+        assertTrue(LoadBalancingAIService.isFailoverable(new AIServiceUnavailableException(ENDPOINT, "")));
+        assertTrue(LoadBalancingAIService.isFailoverable(new AIRateLimitExceededException(ENDPOINT, "")));
+        assertTrue(LoadBalancingAIService.isFailoverable(new AIHttpException(ENDPOINT, 502, "")));
+        assertTrue(LoadBalancingAIService.isFailoverable(new AIHttpException("Request failed", new ConnectException())));
+        assertTrue(LoadBalancingAIService.isFailoverable(new AIBulkheadFullException(1, 1)));
+        assertTrue(LoadBalancingAIService.isFailoverable(new AIAuthenticationException(ENDPOINT, "")));
+        assertTrue(LoadBalancingAIService.isFailoverable(new AIAuthorizationException(ENDPOINT, "")));
+        assertFalse(LoadBalancingAIService.isFailoverable(new AIBadRequestException(ENDPOINT, "")));
+        assertFalse(LoadBalancingAIService.isFailoverable(new AIDeadlineExceededException(Duration.ofSeconds(1))));
+        assertFalse(LoadBalancingAIService.isFailoverable(new IllegalArgumentException()));
+    }
+
+    @Test
+    void chat_cancelled_cancelsMemberCall() {
+        var pending = new CompletableFuture<String>();
+        var member = new StubAIService("a").respondWith(input -> pending);
+        var service = newService(List.of(member), 1);
+
+        service.chatAsync("hello").cancel(true);
+        assertTrue(pending.isCancelled());
+    }
+
+    @Test
+    void build_membersFailFastOnRateLimitAndUnavailable() {
+        var member = new OpenAIService(AIConfig.of(AIProvider.OPENAI, "test"));
+        var single = new OpenAIService(AIConfig.of(AIProvider.OPENAI, "test"));
+        LoadBalancingAIService.newBuilder().add(member).add(new StubAIService("b")).build();
+        LoadBalancingAIService.newBuilder().add(single).build();
+
+        assertEquals(Set.of(AIRateLimitExceededException.STATUS_CODE, AIServiceUnavailableException.STATUS_CODE), member.failFastStatusCodes);
+        assertEquals(Set.of(), single.failFastStatusCodes, "Single member has nothing to fail over to");
+    }
+
+    // =================================================================================================================
+    // Health
+    // =================================================================================================================
+
+    @Test
+    void consecutiveFailures_markMemberUnhealthy() {
+        var failing = new StubAIService("failing").respondWith(input -> unavailable());
+        var healthy = new StubAIService("healthy");
+        var service = newService(List.of(failing, healthy), 1, 1);
+        recordLatency(service, failing, 100);
+        recordLatency(service, healthy, 200);
+
+        for (var i = 0; i < LoadBalancingAIService.UNHEALTHY_THRESHOLD; i++) {
+            assertEquals("healthy", service.chat("hello"));
+        }
+
+        assertFalse(service.findMember(failing).isHealthy(clock.get()));
+        assertEquals("healthy", service.chat("hello"));
+        assertEquals(LoadBalancingAIService.UNHEALTHY_THRESHOLD, failing.chatCalls.get());
+
+        clock.addAndGet(LoadBalancingAIService.UNHEALTHY_DURATION.toNanos());
+        assertTrue(service.findMember(failing).isHealthy(clock.get()));
+    }
+
+    @Test
+    void unavailableMember_isSkipped() {
+        var unavailable = new StubAIService("unavailable").available(false);
+        var available = new StubAIService("available");
+        var service = newService(List.of(unavailable, available), 1, 1);
+
+        for (var i = 0; i < 10; i++) {
+            assertEquals("available", service.chat("hello"));
+        }
+
+        assertTrue(service.isAvailable());
+        assertFalse(newService(List.of(unavailable), 1).isAvailable());
+    }
+
+    @Test
+    void allMembersUnhealthy_stillTriesThem() {
+        var member = new StubAIService("a").available(false);
+        var service = newService(List.of(member), 1);
+
+        assertEquals("a", service.chat("hello"));
+    }
+
+    // =================================================================================================================
+    // Sticky routing
+    // =================================================================================================================
+
+    @Test
+    void chat_withMemory_isSticky() {
+        var a = new StubAIService("a");
+        var b = new StubAIService("b");
+        var service = newService(List.of(a, b), 1, 1);
+        var options = ChatOptions.newBuilder().withMemory().build();
+        var pinned = service.chat("hello", options).equals("a") ? a : b;
+        var other = pinned == a ? b : a;
+        recordLatency(service, pinned, 1000);
+        recordLatency(service, other, 1);
+
+        for (var i = 0; i < 5; i++) {
+            assertEquals(pinned.getProviderName(), service.chat("hello", options));
+        }
+
+        assertEquals(0, other.chatCalls.get());
+    }
+
+    @Test
+    void chat_withMemory_doesNotFailOver() {
+        var a = new StubAIService("a");
+        var b = new StubAIService("b");
+        var service = newService(List.of(a, b), 1, 1);
+        var options = ChatOptions.newBuilder().withMemory().build();
+        var pinned = service.chat("hello", options).equals("a") ? a : b;
+        pinned.respondWith(input -> unavailable());
+
+        assertThrows(AIServiceUnavailableException.class, () -> service.chat("hello", options));
+        assertEquals(0, (pinned == a ? b : a).chatCalls.get());
+    }
+
+    @Test
+    void chat_withMemory_movesAwayFromUnhealthyMember() {
+        var a = new StubAIService("a");
+        var b = new StubAIService("b");
+        var service = newService(List.of(a, b), 1, 1);
+        var options = ChatOptions.newBuilder().withMemory().build();
+        var pinned = service.chat("hello", options).equals("a") ? a : b;
+        pinned.available(false);
+
+        assertEquals(pinned == a ? "b" : "a", service.chat("hello", options));
+    }
+
+    @Test
+    void chat_withUploadedFile_goesToIssuingMember() {
+        var a = new StubAIService("a");
+        var b = new StubAIService("b");
+        var service = newService(List.of(a, b), 1, 1);
+        var input = ChatInput.newBuilder().message("Read this").attach("%PDF-1.4 document".getBytes(UTF_8)).build();
+        var fileId = service.upload(input.getFiles().get(0));
+        var issuer = fileId.startsWith("a") ? a : b;
+        var other = issuer == a ? b : a;
+        recordLatency(service, other, 1);
+        recordLatency(service, issuer, 1000);
+
+        assertEquals(issuer.getProviderName(), service.chat(input.withUploadedFileIds(Map.of(input.getFiles().get(0), fileId)), ChatOptions.DEFAULT));
+        assertEquals(0, other.chatCalls.get());
+    }
+
+    // =================================================================================================================
+    // Metadata
+    // =================================================================================================================
+
+    @Test
+    void metadata_reflectsMembers() {
+        var service = newService(List.of(new StubAIService("a"), new StubAIService("b")), 1, 1);
+
+        assertEquals("LoadBalancingAIService [StubAIService (a stub), StubAIService (b stub)]", service.getName());
+        assertFalse(service.supportsStreaming());
+    }
+}
@@ -0,0 +1,174 @@
+/*
+ * Copyright OmniFaces
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.omnifaces.ai.service;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.concurrent.CompletableFuture.completedFuture;
+import static java.util.concurrent.CompletableFuture.failedFuture;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.net.URI;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+import org.junit.jupiter.api.Test;
+
+import org.omnifaces.ai.exception.AIBadRequestException;
+import org.omnifaces.ai.exception.AIServiceUnavailableException;
+import org.omnifaces.ai.model.ChatInput;
+import org.omnifaces.ai.model.ChatOptions;
+
+class RacingAIServiceTest {
+
+    private static final URI ENDPOINT = URI.create("https://example.com/chat");
+
+    private static CompletableFuture<String> unavailable() {
+        return failedFuture(new AIServiceUnavailableException(ENDPOINT, "overloaded"));
+    }
+
+    // =================================================================================================================
+    // Racing
+    // =================================================================================================================
+
+    @Test
+    void chat_firstSuccessWins_cancelsOthers() {
+        var slowResponse = new CompletableFuture<String>();
+        var fastResponse = new CompletableFuture<String>();
+        var slow = new StubAIService("slow").respondWith(input -> slowResponse);
+        var fast = new StubAIService("fast").respondWith(input -> fastResponse);
+        var service = new RacingAIService(List.of(slow, fast));
+
+        var response = service.chatAsync("hello");
+        assertEquals(1, slow.chatCalls.get());
+        assertEquals(1, fast.chatCalls.get());
+
+        fastResponse.complete("fast");
+        assertEquals("fast", response.join());
+        assertTrue(slowResponse.isCancelled());
+        assertEquals(Map.of(slow, 0L, fast, 1L), service.getWins());
+    }
+
+    @Test
+    void chat_failureDoesNotWin() {
+        var pending = new CompletableFuture<String>();
+        var failing = new StubAIService("failing").respondWith(input -> unavailable());
+        var healthy = new StubAIService("healthy").respondWith(input -> pending);
+        var service = new RacingAIService(List.of(failing, healthy));
+
+        var response = service.chatAsync("hello");
+        assertFalse(response.isDone());
+
+        pending.complete("healthy");
+        assertEquals("healthy", response.join());
+    }
+
+    @Test
+    void chat_allMembersFail_failsWithLastFailure() {
+        var a = new StubAIService("a").respondWith(input -> unavailable());
+        var b = new StubAIService("b").respondWith(input -> failedFuture(new AIBadRequestException(ENDPOINT, "invalid")));
+        var service = new RacingAIService(List.of(a, b));
+
+        assertThrows(AIBadRequestException.class, () -> service.chat("hello"));
+        assertEquals(Map.of(a, 0L, b, 0L), service.getWins());
+    }
+
+    @Test
+    void chat_cancelled_cancelsAllMemberCalls() {
+        var first = new CompletableFuture<String>();
+        var second = new CompletableFuture<String>();
+        var service = new RacingAIService(List.of(new StubAIService("a").respondWith(input -> first), new StubAIService("b").respondWith(input -> second)));
+
+        service.chatAsync("hello").cancel(true);
+        assertTrue(first.isCancelled());
+        assertTrue(second.isCancelled());
+    }
+
+    @Test
+    void chat_unavailableMember_doesNotRace() {
+        var unavailable = new StubAIService("unavailable").available(false);
+        var available = new StubAIService("available");
+        var service = new RacingAIService(List.of(unavailable, available));
+
+        assertEquals("available", service.chat("hello"));
+        assertEquals(0, unavailable.chatCalls.get());
+    }
+
+    @Test
+    void chatStream_firstTokenWins() {
+        var slowStream = new CompletableFuture<Void>();
+        var slow = new StubAIService("slow") {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            public CompletableFuture<Void> chatStream(ChatInput input, ChatOptions options, Consumer<String> onToken) {
+                return slowStream;
+            }
+        };
+        var fast = new StubAIService("fast");
+        var service = new RacingAIService(List.of(slow, fast));
+        var tokens = new StringBuilder();
+
+        service.chatStream("hello", tokens::append).join();
+        assertEquals("fast", tokens.toString());
+        assertTrue(slowStream.isCancelled());
+        assertEquals(1L, service.getWins().get(fast));
+    }
+
+    // =================================================================================================================
+    // Sticky routing
+    // =================================================================================================================
+
+    @Test
+    void chat_withMemory_isNotRaced() {
+        var a = new StubAIService("a");
+        var b = new StubAIService("b");
+        var service = new RacingAIService(List.of(a, b));
+        var options = ChatOptions.newBuilder().withMemory().build();
+
+        for (var i = 0; i < 3; i++) {
+            assertEquals("a", service.chat("hello", options));
+        }
+
+        assertEquals(0, b.chatCalls.get());
+    }
+
+    @Test
+    void chat_withMemory_prefersMostWinningMember() {
+        var a = new StubAIService("a").respondWith(input -> new CompletableFuture<>());
+        var b = new StubAIService("b");
+        var service = new RacingAIService(List.of(a, b));
+        service.chat("race");
+        a.respondWith(input -> completedFuture("a"));
+
+        assertEquals("b", service.chat("hello", ChatOptions.newBuilder().withMemory().build()));
+    }
+
+    @Test
+    void chat_withUploadedFile_goesToIssuingMember() {
+        var a = new StubAIService("a");
+        var b = new StubAIService("b");
+        var service = new RacingAIService(List.of(a, b));
+        var input = ChatInput.newBuilder().message("Read this").attach("%PDF-1.4 document".getBytes(UTF_8)).build();
+        var fileId = service.upload(input.getFiles().get(0));
+
+        assertEquals("a-file-1", fileId);
+        assertEquals(0, b.uploadCalls.get());
+        assertEquals("a", service.chat(input.withUploadedFileIds(Map.of(input.getFiles().get(0), fileId)), ChatOptions.DEFAULT));
+        assertEquals(0, b.chatCalls.get());
+    }
+}
@@ -0,0 +1,148 @@
+/*
+ * Copyright OmniFaces
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.omnifaces.ai.service;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.net.URI;
+import java.net.http.HttpHeaders;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import org.junit.jupiter.api.Test;
+
+import org.omnifaces.ai.AIConfig;
+import org.omnifaces.ai.AIProvider;
+
+class RateLimitTrackerTest {
+
+    private static final URI ENDPOINT = URI.create("https://api.example.com/v1/");
+
+    private static RateLimitTracker newTracker() {
+        return RateLimitTracker.of(ENDPOINT, UUID.randomUUID().toString());
+    }
+
+    private static HttpHeaders headers(String... namesAndValues) {
+        var map = new LinkedHashMap<String, List<String>>();
+
+        for (var i = 0; i < namesAndValues.length; i += 2) {
+            map.put(namesAndValues[i], List.of(namesAndValues[i + 1]));
+        }
+
+        return HttpHeaders.of(map, (name, value) -> true);
+    }
+
+    // =================================================================================================================
+    // Sharing
+    // =================================================================================================================
+
+    @Test
+    void of_sameEndpointAndApiKey_isShared() {
+        var apiKey = UUID.randomUUID().toString();
+
+        assertSame(RateLimitTracker.of(ENDPOINT, apiKey), RateLimitTracker.of(ENDPOINT, apiKey));
+        assertNotSame(RateLimitTracker.of(ENDPOINT, apiKey), RateLimitTracker.of(URI.create("https://other.example.com/v1/"), apiKey));
+        assertNotSame(RateLimitTracker.of(ENDPOINT, apiKey), RateLimitTracker.of(ENDPOINT, "other"));
+    }
+
+    @Test
+    void service_sameEndpointAndApiKey_sharesTracker() {
+        var config = new AIConfig(AIProvider.OPENAI.name(), UUID.randomUUID().toString(), null, null, null, null, Map.of());
+
+        assertSame(new OpenAIService(config).rateLimitTracker, new OpenAIService(config.withModel("gpt-4o")).rateLimitTracker);
+    }
+
+    // =================================================================================================================
+    // Throttling
+    // =================================================================================================================
+
+    @Test
+    void acquire_withoutHeaders_doesNotDelay() {
+        var tracker = newTracker();
+        tracker.update(headers("content-type", "application/json"));
+
+        assertEquals(0, tracker.acquire(1000));
+    }
+
+    @Test
+    void acquire_plentyRemaining_doesNotDelay() {
+        var tracker = newTracker();
+        tracker.update(headers("x-ratelimit-limit-requests", "500", "x-ratelimit-remaining-requests", "499", "x-ratelimit-reset-requests", "120ms"));
+
+        assertEquals(0, tracker.acquire(0));
+    }
+
+    @Test
+    void acquire_exhausted_delaysUntilReset() {
+        var tracker = newTracker();
+        tracker.update(headers("x-ratelimit-limit-requests", "500", "x-ratelimit-remaining-requests", "0", "x-ratelimit-reset-requests", "2s"));
+
+        var delay = tracker.acquire(0);
+        assertTrue(delay > MILLISECONDS.toNanos(1900) && delay <= SECONDS.toNanos(2), () -> String.valueOf(delay));
+    }
+
+    @Test
+    void acquire_nearlyExhausted_slowsDownIncreasingly() {
+        var tracker = newTracker();
+        tracker.update(headers("x-ratelimit-limit-requests", "100", "x-ratelimit-remaining-requests", "6", "x-ratelimit-reset-requests", "10s"));
+
+        assertEquals(0, tracker.acquire(0));
+
+        var first = tracker.acquire(0);
+        var second = tracker.acquire(0);
+        assertTrue(first > 0 && second > first && second < SECONDS.toNanos(10), () -> first + " " + second);
+    }
+
+    @Test
+    void acquire_tokensExhausted_delaysUntilReset() {
+        var tracker = newTracker();
+        tracker.update(headers("x-ratelimit-remaining-requests", "100", "x-ratelimit-remaining-tokens", "500", "x-ratelimit-reset-tokens", "1s"));
+
+        assertEquals(0, tracker.acquire(0));
+        assertTrue(tracker.acquire(1000) > MILLISECONDS.toNanos(900));
+    }
+
+    @Test
+    void acquire_anthropicHeaders_delaysUntilReset() {
+        var tracker = newTracker();
+        tracker.update(headers("anthropic-ratelimit-requests-limit", "50", "anthropic-ratelimit-requests-remaining", "0", "anthropic-ratelimit-requests-reset", "2099-01-01T00:00:00Z"));
+
+        assertEquals(MILLISECONDS.toNanos(AIHttpClient.MAX_BACKOFF_MS), tracker.acquire(0));
+    }
+
+    @Test
+    void acquire_afterReset_doesNotDelay() throws InterruptedException {
+        var tracker = newTracker();
+        tracker.update(headers("x-ratelimit-remaining-requests", "0", "x-ratelimit-reset-requests", "20ms"));
+
+        Thread.sleep(50);
+        assertEquals(0, tracker.acquire(0));
+    }
+
+    @Test
+    void update_freshHeaders_overrideLocalDeduction() {
+        var tracker = newTracker();
+        tracker.update(headers("x-ratelimit-limit-requests", "100", "x-ratelimit-remaining-requests", "1", "x-ratelimit-reset-requests", "10s"));
+        tracker.acquire(0);
+        tracker.update(headers("x-ratelimit-limit-requests", "100", "x-ratelimit-remaining-requests", "99", "x-ratelimit-reset-requests", "10s"));
+
+        assertEquals(0, tracker.acquire(0));
+    }
+}
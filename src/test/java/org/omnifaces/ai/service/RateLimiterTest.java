@@ -0,0 +1,321 @@
+/*
+ * Copyright OmniFaces
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.omnifaces.ai.service;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import org.omnifaces.ai.AIConfig;
+import org.omnifaces.ai.AIProvider;
+import org.omnifaces.ai.AIRateLimitStore;
+import org.omnifaces.ai.service.AIHttpClient.TailInputStream;
+
+class RateLimiterTest {
+
+    public static final class CountingRateLimitStore implements AIRateLimitStore {
+
+        private final AIRateLimitStore delegate = new InMemoryRateLimitStore();
+        private final Map<String, AtomicInteger> counts = new ConcurrentHashMap<>();
+
+        @Override
+        public Duration reserve(String key, long permitsPerMinute, long permits) {
+            counts.computeIfAbsent(key, k -> new AtomicInteger()).incrementAndGet();
+            return delegate.reserve(key, permitsPerMinute, permits);
+        }
+
+        int count() {
+            return counts.values().stream().mapToInt(AtomicInteger::get).sum();
+        }
+    }
+
+    public static final class FailingRateLimitStore implements AIRateLimitStore {
+
+        @Override
+        public Duration reserve(String key, long permitsPerMinute, long permits) {
+            throw new IllegalStateException("unavailable");
+        }
+    }
+
+    public static final class BlockingRateLimitStore implements AIRateLimitStore {
+
+        static final CountDownLatch released = new CountDownLatch(1);
+        static final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Duration reserve(String key, long permitsPerMinute, long permits) {
+            count.incrementAndGet();
+
+            try {
+                released.await();
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+
+            return Duration.ZERO;
+        }
+    }
+
+    private static RateLimiter newRateLimiter(String rpm, String tpm) {
+        return newRateLimiter(rpm, tpm, null);
+    }
+
+    private static RateLimiter newRateLimiter(String rpm, String tpm, String store) {
+        var properties = new HashMap<String, String>();
+
+        if (store != null) {
+            properties.put(AIConfig.PROPERTY_RATE_LIMIT_STORE, store);
+        }
+
+        if (rpm != null) {
+            properties.put(AIConfig.PROPERTY_RPM, rpm);
+        }
+
+        if (tpm != null) {
+            properties.put(AIConfig.PROPERTY_TPM, tpm);
+        }
+
+        var config = AIConfig.of(AIProvider.OPENAI, UUID.randomUUID().toString()).withProperties(properties);
+        return RateLimiter.of(config, AIProvider.OPENAI, config.apiKey());
+    }
+
+    // =================================================================================================================
+    // Configuration
+    // =================================================================================================================
+
+    @Test
+    void of_withoutLimits_returnsNull() {
+        assertNull(newRateLimiter(null, null));
+    }
+
+    @Test
+    void of_invalidLimit_throwsException() {
+        assertThrows(IllegalStateException.class, () -> newRateLimiter("many", null));
+        assertThrows(IllegalStateException.class, () -> newRateLimiter(null, "0"));
+    }
+
+    @Test
+    void of_sameProviderAndApiKey_isShared() {
+        var config = AIConfig.of(AIProvider.OPENAI, UUID.randomUUID().toString()).withProperty(AIConfig.PROPERTY_RPM, "60");
+
+        assertSame(RateLimiter.of(config, AIProvider.OPENAI, config.apiKey()), RateLimiter.of(config.withModel("other"), AIProvider.OPENAI, config.apiKey()));
+        assertNotSame(RateLimiter.of(config, AIProvider.OPENAI, config.apiKey()), RateLimiter.of(config, AIProvider.OPENAI, "other"));
+    }
+
+    @Test
+    void service_withLimits_hasSharedRateLimiter() {
+        var config = new AIConfig(AIProvider.OPENAI.name(), UUID.randomUUID().toString(), null, null, null, null, Map.of(AIConfig.PROPERTY_RPM, "60"));
+
+        assertSame(new OpenAIService(config).rateLimiter, new OpenAIService(config.withModel("gpt-4o")).rateLimiter);
+        assertNull(new OpenAIService(AIConfig.of(AIProvider.OPENAI, "test")).rateLimiter);
+    }
+
+    // =================================================================================================================
+    // Reservation
+    // =================================================================================================================
+
+    @Test
+    void reserve_requestsPerMinute_delaysBeyondBurst() {
+        var rateLimiter = newRateLimiter("60", null);
+
+        for (var i = 0; i < 60; i++) {
+            assertEquals(0, rateLimiter.reserve(0).join(), "request " + i);
+        }
+
+        var delay = rateLimiter.reserve(0).join();
+        assertTrue(delay > TimeUnit.MILLISECONDS.toNanos(900) && delay <= TimeUnit.SECONDS.toNanos(1), () -> String.valueOf(delay));
+    }
+
+    @Test
+    void reserve_tokensPerMinute_delaysBeyondBurst() {
+        var rateLimiter = newRateLimiter(null, "6000");
+
+        assertEquals(0, rateLimiter.reserve(6000).join());
+
+        var delay = rateLimiter.reserve(100).join();
+        assertTrue(delay > TimeUnit.MILLISECONDS.toNanos(900) && delay <= TimeUnit.SECONDS.toNanos(1), () -> String.valueOf(delay));
+    }
+
+    @Test
+    void reserve_farBeyondLimit_delayCappedAtMaxBackoff() {
+        var rateLimiter = newRateLimiter(null, "6000");
+
+        assertEquals(0, rateLimiter.reserve(6000).join());
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(AIHttpClient.MAX_BACKOFF_MS), rateLimiter.reserve(600_000).join());
+    }
+
+    @Test
+    void estimateTokens_attachments_fixedCostEach() {
+        assertEquals(100 / RateLimiter.CHARS_PER_TOKEN + 2 * RateLimiter.TOKENS_PER_ATTACHMENT, RateLimiter.estimateTokens(100, 2));
+    }
+
+    @Test
+    void settle_lowerActualUsage_releasesTokens() {
+        var rateLimiter = newRateLimiter(null, "6000");
+
+        assertEquals(0, rateLimiter.reserve(6000).join());
+        rateLimiter.settle(6000, 1000);
+
+        assertEquals(0, rateLimiter.reserve(4000).join());
+    }
+
+    @Test
+    void settle_higherActualUsage_consumesTokens() {
+        var rateLimiter = newRateLimiter(null, "6000");
+
+        assertEquals(0, rateLimiter.reserve(1000).join());
+        rateLimiter.settle(1000, 6000);
+
+        assertTrue(rateLimiter.reserve(100).join() > 0);
+    }
+
+    // =================================================================================================================
+    // Store
+    // =================================================================================================================
+
+    @Test
+    void of_withoutStore_usesSharedMemoryStore() {
+        assertSame(RateLimiter.resolveStore(RateLimiter.MEMORY_STORE), RateLimiter.resolveStore(RateLimiter.MEMORY_STORE));
+        assertTrue(RateLimiter.resolveStore(RateLimiter.MEMORY_STORE) instanceof InMemoryRateLimitStore);
+    }
+
+    @Test
+    void of_fileStore_usesFileRateLimitStore(@TempDir Path directory) {
+        var store = RateLimiter.resolveStore(directory.toUri().toString());
+
+        assertTrue(store instanceof FileRateLimitStore);
+        assertEquals(directory, ((FileRateLimitStore) store).getDirectory());
+    }
+
+    @Test
+    void of_invalidStore_throwsException() {
+        assertThrows(IllegalStateException.class, () -> newRateLimiter("60", null, "redis"));
+        assertThrows(IllegalStateException.class, () -> newRateLimiter("60", null, String.class.getName()));
+    }
+
+    @Test
+    void reserve_leasesPermitsInBatches() {
+        var rateLimiter = newRateLimiter("6000", "600000", CountingRateLimitStore.class.getName());
+        var store = (CountingRateLimitStore) RateLimiter.resolveStore(CountingRateLimitStore.class.getName());
+        var before = store.count();
+
+        for (var i = 0; i < 100; i++) {
+            assertEquals(0, rateLimiter.reserve(100).join(), "request " + i);
+        }
+
+        assertEquals(2, store.count() - before); // One lease of 100 requests and one lease of 10000 tokens.
+    }
+
+    @Test
+    void reserve_blockingStore_doesNotBlockCallerAndLeasesOnce() throws Exception {
+        var rateLimiter = newRateLimiter("6000", null, BlockingRateLimitStore.class.getName());
+        var first = rateLimiter.reserve(0);
+        var second = rateLimiter.reserve(0);
+
+        try {
+            assertFalse(first.isDone());
+            assertFalse(second.isDone());
+        }
+        finally {
+            BlockingRateLimitStore.released.countDown(); // Else the shared executor thread stays blocked.
+        }
+
+        assertEquals(0, first.get(1, TimeUnit.SECONDS));
+        assertEquals(0, second.get(1, TimeUnit.SECONDS));
+        assertEquals(1, BlockingRateLimitStore.count.get());
+    }
+
+    @Test
+    void reserve_failingStore_letsRequestThrough() {
+        var rateLimiter = newRateLimiter("1", null, FailingRateLimitStore.class.getName());
+
+        assertEquals(0, rateLimiter.reserve(0).join());
+        assertEquals(0, rateLimiter.reserve(0).join());
+    }
+
+    @Test
+    void reserve_sharedStore_pacesAcrossRateLimiters(@TempDir Path directory) {
+        var store = directory.toUri().toString();
+        var apiKey = UUID.randomUUID().toString();
+        var config = AIConfig.of(AIProvider.OPENAI, apiKey).withProperty(AIConfig.PROPERTY_RPM, "60").withProperty(AIConfig.PROPERTY_RATE_LIMIT_STORE, store);
+        var rateLimiter = RateLimiter.of(config, AIProvider.OPENAI, apiKey);
+
+        for (var i = 0; i < 60; i++) {
+            assertEquals(0, rateLimiter.reserve(0).join(), "request " + i);
+        }
+
+        // Simulates another JVM by reserving directly at a new store instance on the same directory.
+        var delay = new FileRateLimitStore(directory).reserve(RateLimiter.computeKey(AIProvider.OPENAI.name(), apiKey) + "-requests", 60, 1);
+        assertTrue(delay.toMillis() > 900, () -> String.valueOf(delay));
+    }
+
+    // =================================================================================================================
+    // Token usage
+    // =================================================================================================================
+
+    @Test
+    void findTokenUsage_openAI() {
+        assertEquals(OptionalLong.of(42), RateLimiter.findTokenUsage("{\"choices\":[],\"usage\":{\"prompt_tokens\":30,\"completion_tokens\":12,\"total_tokens\":42}}"));
+    }
+
+    @Test
+    void findTokenUsage_google() {
+        assertEquals(OptionalLong.of(17), RateLimiter.findTokenUsage("{\"candidates\":[],\"usageMetadata\":{\"promptTokenCount\":10,\"totalTokenCount\": 17}}"));
+    }
+
+    @Test
+    void findTokenUsage_anthropic() {
+        assertEquals(OptionalLong.of(25), RateLimiter.findTokenUsage("{\"content\":[],\"usage\":{\"input_tokens\":20,\"cache_read_input_tokens\":0,\"output_tokens\":5}}"));
+    }
+
+    @Test
+    void findTokenUsage_absent() {
+        assertTrue(RateLimiter.findTokenUsage("{\"choices\":[]}").isEmpty());
+    }
+
+    @Test
+    void tailInputStream_remembersLastBytes() throws IOException {
+        var body = "x".repeat(TailInputStream.TAIL_SIZE * 3) + "{\"usage\":{\"total_tokens\":7}}";
+
+        try (var is = new TailInputStream(new ByteArrayInputStream(body.getBytes(UTF_8)))) {
+            is.read();
+            is.read(new byte[1000]);
+            is.readAllBytes();
+
+            assertEquals(body.substring(body.length() - TailInputStream.TAIL_SIZE), is.tail());
+            assertEquals(OptionalLong.of(7), RateLimiter.findTokenUsage(is.tail()));
+        }
+    }
+}
@@ -0,0 +1,184 @@
+/*
+ * Copyright OmniFaces
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.omnifaces.ai.service;
+
+import static java.util.concurrent.CompletableFuture.completedFuture;
+import static java.util.concurrent.CompletableFuture.failedFuture;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import org.junit.jupiter.api.Test;
+
+import org.omnifaces.ai.AIConfig;
+import org.omnifaces.ai.AIProvider;
+
+class ResponseCacheTest {
+
+    private static final Duration TTL = Duration.ofMinutes(10);
+
+    private final AtomicLong clock = new AtomicLong();
+    private final AtomicInteger requests = new AtomicInteger();
+
+    private Supplier<CompletableFuture<String>> respond(String response) {
+        return () -> {
+            requests.incrementAndGet();
+            return completedFuture(response);
+        };
+    }
+
+    private static String get(ResponseCache cache, String key, Supplier<CompletableFuture<String>> action) {
+        return cache.get(key, action, Function.identity()).join();
+    }
+
+    /**
+     * Returns the given amount of keys which all fall in the same stripe.
+     */
+    private static List<String> keysInSameStripe(int count) {
+        var keys = new ArrayList<String>();
+
+        for (var i = 0; keys.size() < count; i++) {
+            var key = "key" + i;
+
+            if (Math.floorMod(key.hashCode(), ResponseCache.STRIPES) == 0) {
+                keys.add(key);
+            }
+        }
+
+        return keys;
+    }
+
+    // =================================================================================================================
+    // Configuration
+    // =================================================================================================================
+
+    @Test
+    void of_notConfigured_returnsNull() {
+        assertNull(ResponseCache.of(AIConfig.of(AIProvider.OPENAI, "key")));
+    }
+
+    @Test
+    void of_configured_appliesDefaults() {
+        var cache = ResponseCache.of(new AIConfig(AIProvider.OPENAI.name(), "key", null, null, null, null, Map.of(AIConfig.PROPERTY_RESPONSE_CACHE_TTL, "5m")));
+
+        assertEquals(Duration.ofMinutes(5), cache.getTimeToLive());
+        assertEquals(ResponseCache.DEFAULT_MAX_ENTRIES, cache.getMaxEntries());
+        assertEquals(ResponseCache.DEFAULT_MAX_BYTES, cache.getMaxBytes());
+    }
+
+    @Test
+    void of_invalid_throwsException() {
+        assertThrows(IllegalStateException.class, () -> ResponseCache.of(new AIConfig(AIProvider.OPENAI.name(), "key", null, null, null, null, Map.of(AIConfig.PROPERTY_RESPONSE_CACHE_TTL, "0"))));
+        assertThrows(IllegalStateException.class, () -> ResponseCache.of(new AIConfig(AIProvider.OPENAI.name(), "key", null, null, null, null, Map.of(AIConfig.PROPERTY_RESPONSE_CACHE_TTL, "5m", AIConfig.PROPERTY_RESPONSE_CACHE_MAX_ENTRIES, "-1"))));
+    }
+
+    // =================================================================================================================
+    // Caching
+    // =================================================================================================================
+
+    @Test
+    void get_hitAfterMiss() {
+        var cache = new ResponseCache(TTL, 100, 1_000_000, clock::get);
+
+        assertEquals("response", get(cache, "key", respond("response")));
+        assertEquals("response", get(cache, "key", respond("other")));
+        assertEquals(1, requests.get());
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+        assertEquals(0.5, cache.getHitRatio());
+        assertEquals(1, cache.getSize());
+        assertEquals(16, cache.getBytes());
+    }
+
+    @Test
+    void get_failure_notCached() {
+        var cache = new ResponseCache(TTL, 100, 1_000_000, clock::get);
+
+        assertThrows(CompletionException.class, () -> get(cache, "key", () -> failedFuture(new IllegalStateException())));
+        assertEquals("response", get(cache, "key", respond("response")));
+        assertEquals(1, requests.get());
+        assertEquals(0, cache.getHits());
+    }
+
+    @Test
+    void get_expired_sendsAgain() {
+        var cache = new ResponseCache(TTL, 100, 1_000_000, clock::get);
+        get(cache, "key", respond("old"));
+
+        clock.addAndGet(TTL.toNanos() - 1);
+        assertEquals("old", get(cache, "key", respond("new")));
+
+        clock.incrementAndGet();
+        assertEquals("new", get(cache, "key", respond("new")));
+        assertEquals(2, requests.get());
+        assertEquals(1, cache.getEvictions());
+    }
+
+    @Test
+    void get_maxEntriesExceeded_evictsLeastRecentlyUsed() {
+        var cache = new ResponseCache(TTL, 2 * ResponseCache.STRIPES, 1_000_000, clock::get);
+        var keys = keysInSameStripe(3);
+        get(cache, keys.get(0), respond("a"));
+        get(cache, keys.get(1), respond("b"));
+        get(cache, keys.get(0), respond("a"));
+
+        get(cache, keys.get(2), respond("c"));
+        assertEquals(1, cache.getEvictions());
+        assertEquals("a", get(cache, keys.get(0), respond("a")));
+        assertEquals("b2", get(cache, keys.get(1), respond("b2")));
+    }
+
+    @Test
+    void get_maxBytesExceeded_evictsLeastRecentlyUsed() {
+        var cache = new ResponseCache(TTL, 100, 10 * ResponseCache.STRIPES, clock::get);
+        var keys = keysInSameStripe(2);
+        get(cache, keys.get(0), respond("abc"));
+        get(cache, keys.get(1), respond("def"));
+
+        assertEquals(1, cache.getSize());
+        assertEquals(6, cache.getBytes());
+        assertEquals("def", get(cache, keys.get(1), respond("other")));
+        assertEquals("new", get(cache, keys.get(0), respond("new")));
+    }
+
+    @Test
+    void get_responseLargerThanMaxBytes_notCached() {
+        var cache = new ResponseCache(TTL, 1, 10, clock::get);
+        get(cache, "key", respond("too large to cache"));
+
+        assertEquals(0, cache.getSize());
+        assertEquals("again", get(cache, "key", respond("again")));
+    }
+
+    @Test
+    void clear_removesAllResponses() {
+        var cache = new ResponseCache(TTL, 100, 1_000_000, clock::get);
+        get(cache, "key", respond("response"));
+        cache.clear();
+
+        assertEquals(0, cache.getSize());
+        assertEquals(0, cache.getBytes());
+        assertEquals("new", get(cache, "key", respond("new")));
+    }
+}
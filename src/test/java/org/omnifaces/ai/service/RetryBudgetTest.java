@@ -0,0 +1,68 @@
+/*
+ * Copyright OmniFaces
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.omnifaces.ai.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class RetryBudgetTest {
+
+    private static int drain(RetryBudget budget) {
+        var retries = 0;
+
+        while (budget.tryAcquireRetry()) {
+            retries++;
+        }
+
+        return retries;
+    }
+
+    @Test
+    void newBudget_allowsMinRetries() {
+        assertEquals(RetryBudget.MIN_RETRIES, drain(new RetryBudget()));
+    }
+
+    @Test
+    void exhaustedBudget_allowsRetryRatioOfRequests() {
+        var budget = new RetryBudget();
+        drain(budget);
+        assertFalse(budget.tryAcquireRetry());
+
+        for (var i = 0; i < 50; i++) {
+            budget.recordRequest();
+        }
+
+        assertEquals(10, drain(budget));
+    }
+
+    @Test
+    void balance_isCappedAtMaxRetries() {
+        var budget = new RetryBudget();
+
+        for (var i = 0; i < 10_000; i++) {
+            budget.recordRequest();
+        }
+
+        assertEquals(RetryBudget.MAX_RETRIES, drain(budget));
+        assertFalse(budget.tryAcquireRetry());
+        budget.recordRequest();
+        budget.recordRequest();
+        budget.recordRequest();
+        budget.recordRequest();
+        budget.recordRequest();
+        assertTrue(budget.tryAcquireRetry());
+    }
+}
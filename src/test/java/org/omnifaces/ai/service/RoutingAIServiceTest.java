@@ -0,0 +1,176 @@
+/*
+ * Copyright OmniFaces
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.omnifaces.ai.service;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.imageio.ImageIO;
+
+import org.junit.jupiter.api.Test;
+
+import org.omnifaces.ai.AIModality;
+import org.omnifaces.ai.model.ChatInput;
+import org.omnifaces.ai.model.ChatInput.Message;
+import org.omnifaces.ai.model.ChatInput.Message.Role;
+import org.omnifaces.ai.model.ChatOptions;
+import org.omnifaces.ai.service.CompositeAIService.Call;
+import org.omnifaces.ai.service.RoutingAIService.Rule;
+
+class RoutingAIServiceTest {
+
+    private static final byte[] PNG_BYTES = createTestImage();
+    private static final byte[] PDF_BYTES = "%PDF-1.4 document".getBytes(UTF_8);
+
+    private static byte[] createTestImage() {
+        try {
+            var image = new BufferedImage(1, 1, BufferedImage.TYPE_INT_RGB);
+            var baos = new ByteArrayOutputStream();
+            ImageIO.write(image, "PNG", baos);
+            return baos.toByteArray();
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private final StubAIService small = new StubAIService("small");
+    private final StubAIService vision = new StubAIService("vision");
+    private final StubAIService flagship = new StubAIService("flagship");
+    private final RoutingAIService service = RoutingAIService.newBuilder()
+        .add(small, Rule.maxInputTokens(100).and(Rule.maxAttachments(0)).and(Rule.modalities()))
+        .add(vision, Rule.maxInputTokens(100).and(Rule.attachmentTypes("image/*")))
+        .add(flagship)
+        .build();
+
+    // =================================================================================================================
+    // Builder
+    // =================================================================================================================
+
+    @Test
+    void builder_invalidConfiguration_throwsException() {
+        assertThrows(IllegalArgumentException.class, () -> RoutingAIService.newBuilder().build());
+        assertThrows(IllegalArgumentException.class, () -> RoutingAIService.newBuilder().add(small).add(small, Rule.any()));
+    }
+
+    @Test
+    void builder_keepsOrderOfTiers() {
+        assertEquals(List.of(small, vision, flagship), service.getServices());
+    }
+
+    // =================================================================================================================
+    // Routing
+    // =================================================================================================================
+
+    @Test
+    void chat_routesByInputSize() {
+        assertEquals("small", service.chat("hello"));
+        assertEquals("flagship", service.chat("hello ".repeat(100)));
+    }
+
+    @Test
+    void chat_routesByAttachments() {
+        assertEquals("vision", service.chat(ChatInput.newBuilder().message("Describe this").attach(PNG_BYTES).build(), ChatOptions.DEFAULT));
+        assertEquals("flagship", service.chat(ChatInput.newBuilder().message("Read this").attach(PDF_BYTES).build(), ChatOptions.DEFAULT));
+    }
+
+    @Test
+    void textAnalysis_routesByInputSize() {
+        assertEquals("small", service.summarize("short text", 10));
+        assertEquals("flagship", service.summarize("long text ".repeat(100), 10));
+    }
+
+    @Test
+    void imageAnalysis_routesByModality() {
+        assertEquals("vision", service.analyzeImage(PNG_BYTES, "What is this?"));
+    }
+
+    @Test
+    void noRuleMatches_routesToLastTier() {
+        var routing = RoutingAIService.newBuilder().add(small, Rule.maxInputTokens(1)).add(vision, Rule.maxInputTokens(2)).build();
+
+        assertEquals("vision", routing.chat("hello world, this is long enough"));
+    }
+
+    @Test
+    void chat_withUploadedFile_goesToIssuingTier() {
+        var input = ChatInput.newBuilder().message("Read this").attach(PDF_BYTES).build();
+        var fileId = service.upload(input.getFiles().get(0));
+
+        assertEquals("small-file-1", fileId);
+        assertEquals("small", service.chat(input.withUploadedFileIds(Map.of(input.getFiles().get(0), fileId)), ChatOptions.DEFAULT));
+    }
+
+    // =================================================================================================================
+    // Call
+    // =================================================================================================================
+
+    @Test
+    void call_estimatedInputTokens_includesHistory() {
+        var input = ChatInput.newBuilder().message("x".repeat(40)).build().withHistory(List.of(new Message(Role.USER, "y".repeat(80), List.of())));
+
+        assertEquals(10, new Call("x".repeat(40)).getEstimatedInputTokens());
+        assertEquals(30, new Call(input, ChatOptions.DEFAULT, false).getEstimatedInputTokens());
+        assertEquals(0, new Call(null, AIModality.AUDIO_ANALYSIS).getEstimatedInputTokens());
+    }
+
+    @Test
+    void call_modalities_derivedFromAttachments() {
+        var input = ChatInput.newBuilder().message("Compare").attach(PNG_BYTES, PDF_BYTES).build();
+        var call = new Call(input, ChatOptions.DEFAULT, false);
+
+        assertEquals(2, call.getAttachments().size());
+        assertEquals(Set.of(AIModality.IMAGE_ANALYSIS), call.getModalities());
+        assertEquals(Set.of(), new Call("text").getModalities());
+    }
+
+    @Test
+    void call_structuredOutput() {
+        assertFalse(new Call(ChatInput.newBuilder().message("hello").build(), ChatOptions.DEFAULT, false).isStructuredOutput());
+        assertTrue(new Call(ChatInput.newBuilder().message("hello").build(), ChatOptions.DEFAULT, false, true).isStructuredOutput());
+    }
+
+    // =================================================================================================================
+    // Rule
+    // =================================================================================================================
+
+    @Test
+    void rule_attachmentTypes() {
+        var rule = Rule.attachmentTypes("image/*", "application/pdf");
+
+        assertTrue(rule.matches(new Call(ChatInput.newBuilder().message("hello").attach(PNG_BYTES, PDF_BYTES).build(), ChatOptions.DEFAULT, false)));
+        assertTrue(rule.matches(new Call("no attachments")));
+        assertFalse(Rule.attachmentTypes("image/*").matches(new Call(ChatInput.newBuilder().message("hello").attach(PDF_BYTES).build(), ChatOptions.DEFAULT, false)));
+    }
+
+    @Test
+    void rule_combinations() {
+        var call = new Call("text", AIModality.IMAGE_GENERATION);
+
+        assertTrue(Rule.modalities(AIModality.IMAGE_GENERATION).and(Rule.structuredOutput(false)).matches(call));
+        assertFalse(Rule.modalities().matches(call));
+        assertTrue(Rule.modalities().or(Rule.any()).matches(call));
+        assertTrue(Rule.modalities().negate().matches(call));
+    }
+}
@@ -0,0 +1,153 @@
+/*
+ * Copyright OmniFaces
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.omnifaces.ai.service;
+
+import static java.util.concurrent.CompletableFuture.completedFuture;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import org.omnifaces.ai.AIModality;
+import org.omnifaces.ai.AIService;
+import org.omnifaces.ai.model.ChatInput;
+import org.omnifaces.ai.model.ChatInput.Attachment;
+import org.omnifaces.ai.model.ChatOptions;
+import org.omnifaces.ai.model.GenerateImageOptions;
+import org.omnifaces.ai.model.ModerationOptions;
+import org.omnifaces.ai.model.ModerationResult;
+
+/**
+ * Stub AI service for testing composite AI services. Chat calls are answered by a replaceable responder, and the amount of chat calls is
+ * counted.
+ */
+class StubAIService implements AIService {
+
+    private static final long serialVersionUID = 1L;
+
+    private final String name;
+    private transient volatile Function<ChatInput, CompletableFuture<String>> responder;
+    private transient volatile boolean available = true;
+    final transient AtomicInteger chatCalls = new AtomicInteger();
+    final transient AtomicInteger uploadCalls = new AtomicInteger();
+
+    StubAIService(String name) {
+        this.name = name;
+        this.responder = input -> completedFuture(name);
+    }
+
+    StubAIService respondWith(Function<ChatInput, CompletableFuture<String>> responder) {
+        this.responder = responder;
+        return this;
+    }
+
+    StubAIService available(boolean available) {
+        this.available = available;
+        return this;
+    }
+
+    @Override
+    public CompletableFuture<String> chatAsync(ChatInput input, ChatOptions options) {
+        chatCalls.incrementAndGet();
+        return responder.apply(input);
+    }
+
+    @Override
+    public CompletableFuture<Void> chatStream(ChatInput input, ChatOptions options, Consumer<String> onToken) {
+        chatCalls.incrementAndGet();
+        return responder.apply(input).thenAccept(onToken);
+    }
+
+    @Override
+    public String upload(Attachment attachment) {
+        uploadCalls.incrementAndGet();
+        return name + "-file-" + uploadCalls.get();
+    }
+
+    @Override
+    public CompletableFuture<String> summarizeAsync(String text, int maxWords) {
+        return chatAsync(text);
+    }
+
+    @Override
+    public CompletableFuture<List<String>> extractKeyPointsAsync(String text, int maxPoints) {
+        return chatAsync(text).thenApply(List::of);
+    }
+
+    @Override
+    public CompletableFuture<String> detectLanguageAsync(String text) {
+        return chatAsync(text);
+    }
+
+    @Override
+    public CompletableFuture<String> translateAsync(String text, String sourceLang, String targetLang) {
+        return chatAsync(text);
+    }
+
+    @Override
+    public CompletableFuture<String> proofreadAsync(String text) {
+        return chatAsync(text);
+    }
+
+    @Override
+    public CompletableFuture<ModerationResult> moderateContentAsync(String content, ModerationOptions options) {
+        return chatAsync(content).thenApply(response -> ModerationResult.SAFE);
+    }
+
+    @Override
+    public CompletableFuture<String> analyzeImageAsync(byte[] image, String prompt) {
+        return chatAsync(prompt);
+    }
+
+    @Override
+    public CompletableFuture<String> generateAltTextAsync(byte[] image) {
+        return chatAsync("alt");
+    }
+
+    @Override
+    public CompletableFuture<byte[]> generateImageAsync(String prompt, GenerateImageOptions options) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public CompletableFuture<String> transcribeAsync(byte[] audio) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public String getProviderName() {
+        return name;
+    }
+
+    @Override
+    public String getModelName() {
+        return "stub";
+    }
+
+    @Override
+    public String getChatPrompt() {
+        return null;
+    }
+
+    @Override
+    public boolean isAvailable() {
+        return available;
+    }
+
+    @Override
+    public boolean supportsModality(AIModality modality) {
+        return false;
+    }
+}